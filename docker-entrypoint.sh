@@ -0,0 +1,34 @@
+#!/bin/sh
+# Launches the application, optionally with an AppCDS archive to speed up startup.
+#
+# CDS_MODE=off   plain launch (default)
+# CDS_MODE=train record the archive with a training run, then launch with it
+# CDS_MODE=auto  train only when no archive exists yet, then launch with it
+set -e
+
+MAIN_CLASS=io.baris.petclinic.dropwizard.PetclinicApplication
+CONFIG=app-config.yml
+ARCHIVE=${CDS_ARCHIVE:-/app/cds/petclinic.jsa}
+
+train() {
+  mkdir -p "$(dirname "$ARCHIVE")"
+  java -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "libs/*" $MAIN_CLASS benchmark-startup $CONFIG
+}
+
+case "${CDS_MODE:-off}" in
+  train)
+    train
+    ;;
+  auto)
+    [ -f "$ARCHIVE" ] || train
+    ;;
+  off)
+    exec java $JAVA_OPTS -cp "libs/*" $MAIN_CLASS server $CONFIG
+    ;;
+  *)
+    echo "Unknown CDS_MODE: $CDS_MODE" >&2
+    exit 1
+    ;;
+esac
+
+exec java -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto $JAVA_OPTS -cp "libs/*" $MAIN_CLASS server $CONFIG
@@ -1,29 +1,113 @@
 package io.baris.petclinic.dropwizard;
 
+import com.codahale.metrics.jdbi3.InstrumentedSqlLogger;
+import com.codahale.metrics.jdbi3.strategies.SmartNameStrategy;
+import io.baris.petclinic.dropwizard.archive.ArchiveVisitsTask;
+import io.baris.petclinic.dropwizard.archive.VisitArchive;
+import io.baris.petclinic.dropwizard.archive.VisitArchiver;
+import io.baris.petclinic.dropwizard.audit.AuditFilter;
+import io.baris.petclinic.dropwizard.audit.AuditLog;
+import io.baris.petclinic.dropwizard.audit.AuditResource;
+import io.baris.petclinic.dropwizard.cache.CacheInvalidationListener;
+import io.baris.petclinic.dropwizard.cache.SharedCache;
+import io.baris.petclinic.dropwizard.cache.TwoLevelCache;
+import io.baris.petclinic.dropwizard.graphql.GraphQlResource;
+import io.baris.petclinic.dropwizard.health.CachedHealthCheck;
+import io.baris.petclinic.dropwizard.health.DatabaseHealthCheck;
+import io.baris.petclinic.dropwizard.health.HealthServlet;
+import io.baris.petclinic.dropwizard.health.StatementErrorRate;
 import io.baris.petclinic.dropwizard.homepage.HomepageResource;
+import io.baris.petclinic.dropwizard.idempotency.IdempotencyFilter;
+import io.baris.petclinic.dropwizard.idempotency.IdempotencyStore;
+import io.baris.petclinic.dropwizard.idempotency.InMemoryIdempotencyStore;
+import io.baris.petclinic.dropwizard.idempotency.PostgresIdempotencyStore;
+import io.baris.petclinic.dropwizard.idempotency.TieredIdempotencyStore;
+import io.baris.petclinic.dropwizard.lifecycle.LifecycleCoordinator;
+import io.baris.petclinic.dropwizard.lifecycle.PhaseTimingFilter;
+import io.baris.petclinic.dropwizard.lifecycle.Readiness;
+import io.baris.petclinic.dropwizard.lifecycle.WarmUp;
+import io.baris.petclinic.dropwizard.openapi.OpenApiDocumentResource;
+import io.baris.petclinic.dropwizard.pet.PetDao;
 import io.baris.petclinic.dropwizard.pet.PetManager;
 import io.baris.petclinic.dropwizard.pet.PetResource;
+import io.baris.petclinic.dropwizard.pet.model.Pet;
+import io.baris.petclinic.dropwizard.purge.DeletedRowPurger;
+import io.baris.petclinic.dropwizard.purge.PurgeDeletedTask;
+import io.baris.petclinic.dropwizard.report.ReportManager;
+import io.baris.petclinic.dropwizard.report.ReportResource;
+import io.baris.petclinic.dropwizard.slowquery.SlowQueriesTask;
+import io.baris.petclinic.dropwizard.slowquery.SlowQueryLog;
+import io.baris.petclinic.dropwizard.slowquery.SlowQueryLogger;
+import io.baris.petclinic.dropwizard.system.ArchiveConfig;
+import io.baris.petclinic.dropwizard.system.AuditConfig;
+import io.baris.petclinic.dropwizard.system.ConcurrencyLimiter;
+import io.baris.petclinic.dropwizard.system.GenerateDataCommand;
+import io.baris.petclinic.dropwizard.system.IdempotencyConfig;
 import io.baris.petclinic.dropwizard.system.PetclinicConfiguration;
-import io.baris.petclinic.dropwizard.system.PetclinicHealthCheck;
+import io.baris.petclinic.dropwizard.system.PurgeConfig;
+import io.baris.petclinic.dropwizard.system.SlowQueryConfig;
+import io.baris.petclinic.dropwizard.system.SingleFlight;
+import io.baris.petclinic.dropwizard.system.StartupBenchmarkCommand;
+import io.baris.petclinic.dropwizard.system.TracingConfig;
+import io.baris.petclinic.dropwizard.tenant.CreateTenantTask;
+import io.baris.petclinic.dropwizard.tenant.InFlightRequests;
+import io.baris.petclinic.dropwizard.tenant.RebalanceTenantTask;
+import io.baris.petclinic.dropwizard.tenant.Shard;
+import io.baris.petclinic.dropwizard.tenant.ShardDataSource;
+import io.baris.petclinic.dropwizard.tenant.TenantDirectory;
+import io.baris.petclinic.dropwizard.tenant.TenantFilter;
+import io.baris.petclinic.dropwizard.tenant.TenantRouter;
+import io.baris.petclinic.dropwizard.tenant.TenantServices;
+import io.baris.petclinic.dropwizard.tenant.TenantServicesFactory;
+import io.baris.petclinic.dropwizard.tracing.InMemorySpanExporter;
+import io.baris.petclinic.dropwizard.tracing.LoggingSpanExporter;
+import io.baris.petclinic.dropwizard.tracing.SpanExporter;
+import io.baris.petclinic.dropwizard.tracing.Tracer;
+import io.baris.petclinic.dropwizard.tracing.TracesServlet;
+import io.baris.petclinic.dropwizard.tracing.TracingFilter;
+import io.baris.petclinic.dropwizard.tracing.TracingStatementBuilder;
+import io.baris.petclinic.dropwizard.vet.VetDao;
 import io.baris.petclinic.dropwizard.vet.VetManager;
 import io.baris.petclinic.dropwizard.vet.VetResource;
+import io.baris.petclinic.dropwizard.vet.model.Vet;
+import io.baris.petclinic.dropwizard.visit.VisitBatcher;
+import io.baris.petclinic.dropwizard.visit.VisitDao;
 import io.baris.petclinic.dropwizard.visit.VisitManager;
 import io.baris.petclinic.dropwizard.visit.VisitResource;
 import io.dropwizard.Application;
 import io.dropwizard.jdbi3.JdbiFactory;
+import io.dropwizard.jdbi3.NamePrependingTemplateEngine;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
-import io.swagger.v3.jaxrs2.integration.resources.OpenApiResource;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.SqlStatements;
 import org.jdbi.v3.sqlobject.SqlObjectPlugin;
 
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 import static io.baris.petclinic.dropwizard.system.CorsConfigurer.configureCors;
-import static io.baris.petclinic.dropwizard.system.PostgreUtils.applySqlScript;
+import static io.baris.petclinic.dropwizard.system.SchemaMigrator.migrate;
 
 /**
  * Vet service application class to bootstrap the application
  */
 public class PetclinicApplication extends Application<PetclinicConfiguration> {
 
+    private static final String DATABASE_CHECK = "database";
+    private static final String DEADLOCKS_CHECK = "deadlocks";
+    private static final String LIFECYCLE_CHECK = "lifecycle";
+
     public static void main(final String[] args) throws Exception {
         new PetclinicApplication().run(args);
     }
@@ -35,6 +119,8 @@ public class PetclinicApplication extends Application<PetclinicConfiguration> {
 
     @Override
     public void initialize(final Bootstrap<PetclinicConfiguration> bootstrap) {
+        bootstrap.addCommand(new StartupBenchmarkCommand(this));
+        bootstrap.addCommand(new GenerateDataCommand());
     }
 
     @Override
@@ -42,8 +128,6 @@ public class PetclinicApplication extends Application<PetclinicConfiguration> {
         final PetclinicConfiguration configuration,
         final Environment environment
     ) {
-        environment.healthChecks().register("health", new PetclinicHealthCheck());
-
         initialiseBeans(configuration, environment);
 
         configureCors(environment);
@@ -53,22 +137,464 @@ public class PetclinicApplication extends Application<PetclinicConfiguration> {
         final PetclinicConfiguration configuration,
         final Environment environment
     ) {
-        var jdbi = new JdbiFactory()
-            .build(environment, configuration.getDatabase(), configuration.getDatabaseConfig().getName());
+        var databaseName = configuration.getDatabaseConfig().getName();
+        var tenancy = configuration.getTenancy();
+        var pool = configuration.getDatabase().build(environment.metrics(), databaseName);
+        // clinics placed on the main database share its pool, connections switch between their schemas
+        var dataSource = tenancy.isEnabled() ? new ShardDataSource(pool) : pool;
+        var jdbi = new JdbiFactory().build(environment, configuration.getDatabase(), dataSource, databaseName);
         jdbi.installPlugin(new SqlObjectPlugin());
 
-        // initialize DB schema
-        applySqlScript(jdbi, configuration.getDatabaseConfig().getInitScript());
+        // apply pending schema migrations
+        migrate(jdbi, configuration.getDatabaseConfig().getMigrations());
+
+        // applied to the Jdbi of every clinic as well
+        var jdbiSetups = new ArrayList<Consumer<Jdbi>>();
+        var tracer = configureTracing(configuration.getTracing(), environment, jdbi, jdbiSetups);
+        configureSlowQueryLog(configuration.getSlowQueries(), environment, jdbi, jdbiSetups);
+        configureHealthChecks(configuration, environment, jdbi, pool, jdbiSetups);
+
+        // shed load before requests pile up waiting for pooled connections
+        var limiter = new ConcurrencyLimiter(configuration.getConcurrencyLimit(), environment.metrics());
+
+        // near cache per node in front of the shared tier, kept coherent through database notifications
+        var cacheConfig = configuration.getCache();
+        var sharedCache = cacheConfig.getShared().build(environment);
+        var vetCache = new TwoLevelCache<>(
+            "vet", Vet.class, cacheConfig, sharedCache, environment.getObjectMapper(), environment.metrics()
+        );
+        var petCache = new TwoLevelCache<>(
+            "pet", Pet.class, cacheConfig, sharedCache, environment.getObjectMapper(), environment.metrics()
+        );
+
+        // changes of every clinic are audited in the main database
+        var auditLog = configureAudit(configuration.getAudit(), environment, jdbi);
+
+        // concurrent identical reads share one database call
+        var vetManager = new VetManager(
+            jdbi, limiter, vetCache, new SingleFlight<>("vets", environment.metrics()), auditLog, tracer
+        );
+        vetManager.loadSpecialtyIndex();
+        var petManager = new PetManager(
+            jdbi, limiter, petCache, new SingleFlight<>("pet", environment.metrics()), auditLog, tracer
+        );
 
-        var vetManager = new VetManager(jdbi);
-        var petManager = new PetManager(jdbi);
-        var visitManager = new VisitManager(jdbi);
+        var invalidationListener = new CacheInvalidationListener(
+            jdbi, Duration.ofSeconds(cacheConfig.getReconnectDelaySeconds())
+        );
+        invalidationListener.register(vetCache);
+        invalidationListener.register(petCache);
+        invalidationListener.addListener("vet", vetManager::refreshSpecialtyIndex, vetManager::loadSpecialtyIndex);
+        environment.lifecycle().manage(invalidationListener);
+        var visitBatcher = new VisitBatcher(jdbi, configuration.getVisitBatch(), environment.metrics());
+        environment.lifecycle().manage(visitBatcher);
+        var visitArchive = configureArchive(configuration.getArchive(), environment, jdbi);
+        var visitManager = new VisitManager(
+            jdbi,
+            limiter,
+            visitBatcher,
+            visitArchive,
+            new SingleFlight<>("pet-visits", environment.metrics()),
+            auditLog,
+            tracer
+        );
+        var reportManager = new ReportManager(jdbi, visitArchive, limiter, configuration.getReports(), Clock.systemUTC());
+        invalidationListener.addListener(
+            ReportManager.WEEK_INVALIDATION, reportManager::evictWeek, reportManager::evictAllWeeks
+        );
+
+        var defaultServices = new TenantServices(
+            tenancy.getPrimaryShard(), petManager, vetManager, visitManager, reportManager, new InFlightRequests(), () -> { }
+        );
+        Supplier<TenantServices> services = () -> defaultServices;
+        if (tenancy.isEnabled()) {
+            var primaryShard = new Shard(
+                tenancy.getPrimaryShard(), (ShardDataSource) dataSource, jdbi, invalidationListener
+            );
+            var router = configureTenancy(
+                configuration,
+                environment,
+                primaryShard,
+                (schema, shard, tenantJdbi) -> createTenantServices(
+                    configuration, environment, schema, shard, tenantJdbi, limiter, sharedCache, auditLog, tracer
+                ),
+                defaultServices,
+                jdbiSetups
+            );
+            services = router::current;
+        }
+        var currentServices = services;
 
         // register resources
-        environment.jersey().register(new VetResource(vetManager));
-        environment.jersey().register(new PetResource(petManager));
-        environment.jersey().register(new VisitResource(visitManager, petManager, vetManager));
+        environment.jersey().register(new VetResource(() -> currentServices.get().vetManager()));
+        environment.jersey().register(new PetResource(() -> currentServices.get().petManager()));
+        environment.jersey().register(new VisitResource(
+            () -> currentServices.get().visitManager(),
+            () -> currentServices.get().petManager(),
+            () -> currentServices.get().vetManager()
+        ));
+        environment.jersey().register(new ReportResource(
+            () -> currentServices.get().reportManager(), configuration.getReports()
+        ));
+        environment.jersey().register(new GraphQlResource(
+            () -> currentServices.get().petManager(),
+            () -> currentServices.get().vetManager(),
+            () -> currentServices.get().visitManager(),
+            configuration.getGraphQl()
+        ));
         environment.jersey().register(new HomepageResource());
-        environment.jersey().register(new OpenApiResource());
+        environment.jersey().register(new OpenApiDocumentResource(configuration.isLazyOpenApi()));
+
+        configureIdempotency(configuration.getIdempotency(), environment, jdbi);
+        configurePurge(configuration.getPurge(), environment, jdbi);
+        configureLifecycle(configuration, environment, jdbi, petManager, vetManager);
+    }
+
+    private Tracer configureTracing(
+        final TracingConfig config,
+        final Environment environment,
+        final Jdbi jdbi,
+        final List<Consumer<Jdbi>> jdbiSetups
+    ) {
+        if (!config.isEnabled()) {
+            return Tracer.noop();
+        }
+        var recentSpans = new InMemorySpanExporter(config.getMaxSpans());
+        var exporters = new ArrayList<SpanExporter>();
+        exporters.add(recentSpans);
+        if (config.isLogSpans()) {
+            exporters.add(new LoggingSpanExporter());
+        }
+        var tracer = new Tracer(config, exporters);
+
+        Consumer<Jdbi> setup = target -> target.setStatementBuilderFactory(TracingStatementBuilder.factory(tracer));
+        setup.accept(jdbi);
+        jdbiSetups.add(setup);
+        environment.jersey().register(new TracingFilter(tracer));
+        environment.admin()
+            .addServlet("traces", new TracesServlet(recentSpans, environment.getObjectMapper()))
+            .addMapping("/traces");
+        return tracer;
+    }
+
+    private void configureSlowQueryLog(
+        final SlowQueryConfig config,
+        final Environment environment,
+        final Jdbi jdbi,
+        final List<Consumer<Jdbi>> jdbiSetups
+    ) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        var slowQueries = new SlowQueryLog(config.getMaxEntries());
+        var explainExecutor = environment.lifecycle()
+            .executorService("slow-query-explain")
+            .minThreads(1)
+            .maxThreads(1)
+            .workQueue(new ArrayBlockingQueue<>(config.getMaxQueuedExplains()))
+            .build();
+        Consumer<Jdbi> setup = target -> {
+            var sqlLogger = target.getConfig(SqlStatements.class).getSqlLogger();
+            target.setSqlLogger(new SlowQueryLogger(sqlLogger, config, slowQueries, target, explainExecutor));
+        };
+        setup.accept(jdbi);
+        jdbiSetups.add(setup);
+        environment.admin().addTask(new SlowQueriesTask(slowQueries));
+    }
+
+    private void configureHealthChecks(
+        final PetclinicConfiguration configuration,
+        final Environment environment,
+        final Jdbi jdbi,
+        final DataSource dataSource,
+        final List<Consumer<Jdbi>> jdbiSetups
+    ) {
+        var config = configuration.getHealth();
+        var errorRate = new StatementErrorRate(
+            jdbi.getConfig(SqlStatements.class).getSqlLogger(), environment.metrics()
+        );
+        jdbi.setSqlLogger(errorRate);
+        // statements of the clinics count into the same meters
+        jdbiSetups.add(target -> target.setSqlLogger(new StatementErrorRate(
+            target.getConfig(SqlStatements.class).getSqlLogger(), environment.metrics()
+        )));
+        var validationQuery = configuration.getDatabase().getValidationQuery().orElse("SELECT 1");
+        var databaseCheck = new DatabaseHealthCheck(
+            dataSource, validationQuery, errorRate, config, environment.getHealthCheckExecutorService()
+        );
+
+        // the uncached check of the Jdbi factory is superseded by the database check
+        var healthChecks = environment.healthChecks();
+        healthChecks.unregister(configuration.getDatabaseConfig().getName());
+        healthChecks.register(DATABASE_CHECK, new CachedHealthCheck(
+            databaseCheck, Duration.ofMillis(config.getCacheMillis())
+        ));
+
+        // liveness doesn't depend on the database, an unreachable database only takes the node out of rotation
+        var objectMapper = environment.getObjectMapper();
+        environment.admin()
+            .addServlet("liveness", new HealthServlet(healthChecks, List.of(DEADLOCKS_CHECK), objectMapper))
+            .addMapping("/health/live");
+        environment.admin()
+            .addServlet("readiness", new HealthServlet(
+                healthChecks, List.of(LIFECYCLE_CHECK, DATABASE_CHECK), objectMapper
+            ))
+            .addMapping("/health/ready");
+    }
+
+    private void configureLifecycle(
+        final PetclinicConfiguration configuration,
+        final Environment environment,
+        final Jdbi jdbi,
+        final PetManager petManager,
+        final VetManager vetManager
+    ) {
+        var config = configuration.getLifecycle();
+        var warmUp = config.isWarmUp()
+            ? new WarmUp(
+                jdbi,
+                configuration.getDatabase().getMinSize(),
+                config.getStatementExecutions(),
+                List.of(
+                    handle -> handle.attach(PetDao.class).getPet(0),
+                    handle -> handle.attach(VetDao.class).getVet(0),
+                    handle -> handle.attach(VisitDao.class).getPetVisits(0)
+                ),
+                List.of(
+                    () -> petManager.primeCache(config.getPrimedPets()),
+                    vetManager::primeCache
+                )
+            )
+            : WarmUp.none();
+
+        var readiness = new Readiness();
+        environment.healthChecks().register(LIFECYCLE_CHECK, readiness);
+        environment.jersey().register(new PhaseTimingFilter(readiness, environment.metrics()));
+
+        var coordinator = new LifecycleCoordinator(readiness, warmUp, config, environment.metrics());
+        environment.lifecycle().addServerLifecycleListener(coordinator);
+        environment.lifecycle().addLifeCycleListener(coordinator);
+    }
+
+    private TenantRouter configureTenancy(
+        final PetclinicConfiguration configuration,
+        final Environment environment,
+        final Shard primaryShard,
+        final TenantServicesFactory servicesFactory,
+        final TenantServices defaultServices,
+        final List<Consumer<Jdbi>> jdbiSetups
+    ) {
+        var config = configuration.getTenancy();
+        BiFunction<DataSource, String, Jdbi> jdbiFactory = (dataSource, schema) ->
+            buildTenantJdbi(configuration, environment, dataSource, schema, jdbiSetups);
+
+        var shards = new LinkedHashMap<String, Shard>();
+        shards.put(primaryShard.getName(), primaryShard);
+        config.getShards().forEach((name, factory) -> {
+            var dataSource = new ShardDataSource(factory.build(environment.metrics(), "shard-" + name));
+            environment.lifecycle().manage(dataSource);
+            var shardJdbi = jdbiFactory.apply(dataSource, ShardDataSource.PUBLIC_SCHEMA);
+            var invalidationListener = new CacheInvalidationListener(
+                shardJdbi, Duration.ofSeconds(configuration.getCache().getReconnectDelaySeconds())
+            );
+            environment.lifecycle().manage(invalidationListener);
+            shards.put(name, new Shard(name, dataSource, shardJdbi, invalidationListener));
+        });
+
+        var directory = new TenantDirectory(
+            primaryShard.getJdbi(), Duration.ofSeconds(config.getDirectoryCacheSeconds())
+        );
+        primaryShard.getInvalidationListener().addListener(
+            TenantDirectory.INVALIDATION, directory::evict, directory::evictAll
+        );
+        var router = new TenantRouter(
+            directory,
+            shards,
+            config,
+            jdbiFactory,
+            servicesFactory,
+            defaultServices,
+            configuration.getDatabaseConfig().getMigrations()
+        );
+        environment.jersey().register(new TenantFilter(router));
+        environment.admin().addTask(new CreateTenantTask(router));
+        environment.admin().addTask(new RebalanceTenantTask(router));
+        return router;
+    }
+
+    /**
+     * Builds the Jdbi of a clinic schema the way the Jdbi factory builds the main one
+     */
+    private Jdbi buildTenantJdbi(
+        final PetclinicConfiguration configuration,
+        final Environment environment,
+        final DataSource dataSource,
+        final String schema,
+        final List<Consumer<Jdbi>> jdbiSetups
+    ) {
+        var jdbi = Jdbi.create(dataSource);
+        jdbi.installPlugin(new SqlObjectPlugin());
+        jdbi.setSqlLogger(new InstrumentedSqlLogger(environment.metrics(), new SmartNameStrategy()));
+        var templateEngine = jdbi.getConfig(SqlStatements.class).getTemplateEngine();
+        if (configuration.getDatabase().isAutoCommentsEnabled()) {
+            templateEngine = new NamePrependingTemplateEngine(templateEngine);
+        }
+        // connections are shared between schemas, tagging the statements keeps their server side
+        // prepared plans apart so a plan is never reused against another schema's tables
+        var schemaEngine = templateEngine;
+        jdbi.setTemplateEngine((template, ctx) -> "/* " + schema + " */ " + schemaEngine.render(template, ctx));
+        jdbiSetups.forEach(setup -> setup.accept(jdbi));
+        return jdbi;
+    }
+
+    /**
+     * Managers of a clinic, with caches named after its schema
+     */
+    private TenantServices createTenantServices(
+        final PetclinicConfiguration configuration,
+        final Environment environment,
+        final String schema,
+        final Shard shard,
+        final Jdbi jdbi,
+        final ConcurrencyLimiter limiter,
+        final SharedCache sharedCache,
+        final AuditLog auditLog,
+        final Tracer tracer
+    ) {
+        var scope = schema + "/";
+        if (shard.getName().equals(configuration.getTenancy().getPrimaryShard())) {
+            auditLog.shareDatabase(jdbi);
+        }
+        var cacheConfig = configuration.getCache();
+        var vetCache = new TwoLevelCache<>(
+            scope + "vet", Vet.class, cacheConfig, sharedCache, environment.getObjectMapper(), environment.metrics()
+        );
+        var petCache = new TwoLevelCache<>(
+            scope + "pet", Pet.class, cacheConfig, sharedCache, environment.getObjectMapper(), environment.metrics()
+        );
+        var vetManager = new VetManager(
+            jdbi, limiter, vetCache, new SingleFlight<>("vets", environment.metrics()), auditLog, tracer
+        );
+        vetManager.loadSpecialtyIndex();
+        var petManager = new PetManager(
+            jdbi, limiter, petCache, new SingleFlight<>("pet", environment.metrics()), auditLog, tracer
+        );
+
+        var invalidationListener = shard.getInvalidationListener();
+        invalidationListener.register(vetCache);
+        invalidationListener.register(petCache);
+        invalidationListener.addListener(
+            scope + "vet", vetManager::refreshSpecialtyIndex, vetManager::loadSpecialtyIndex
+        );
+
+        // visits of clinics are written one by one and never archived, both are only set up for the main schema
+        var visitManager = new VisitManager(
+            jdbi,
+            limiter,
+            VisitBatcher.disabled(),
+            VisitArchive.none(),
+            new SingleFlight<>("pet-visits", environment.metrics()),
+            auditLog,
+            tracer
+        );
+        var reportManager = new ReportManager(jdbi, VisitArchive.none(), limiter, configuration.getReports(), Clock.systemUTC());
+        invalidationListener.addListener(
+            scope + ReportManager.WEEK_INVALIDATION, reportManager::evictWeek, reportManager::evictAllWeeks
+        );
+        return new TenantServices(
+            shard.getName(), petManager, vetManager, visitManager, reportManager, new InFlightRequests(),
+            () -> invalidationListener.unregister(scope)
+        );
+    }
+
+    private AuditLog configureAudit(
+        final AuditConfig config,
+        final Environment environment,
+        final Jdbi jdbi
+    ) {
+        if (!config.isEnabled()) {
+            return AuditLog.disabled();
+        }
+        var auditLog = new AuditLog(
+            jdbi, config, environment.getObjectMapper(), Clock.systemUTC(), environment.metrics()
+        );
+        environment.lifecycle().manage(auditLog);
+        environment.jersey().register(new AuditFilter());
+        environment.jersey().register(new AuditResource(auditLog));
+        return auditLog;
+    }
+
+    private void configurePurge(
+        final PurgeConfig config,
+        final Environment environment,
+        final Jdbi jdbi
+    ) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        var purger = new DeletedRowPurger(
+            jdbi, Duration.ofDays(config.getRetentionDays()), config.getBatchSize(), Clock.systemUTC()
+        );
+        environment.lifecycle()
+            .scheduledExecutorService("purge-deleted")
+            .build()
+            .scheduleWithFixedDelay(purger, config.getIntervalMinutes(), config.getIntervalMinutes(), TimeUnit.MINUTES);
+        environment.admin().addTask(new PurgeDeletedTask(purger));
+    }
+
+    private VisitArchive configureArchive(
+        final ArchiveConfig config,
+        final Environment environment,
+        final Jdbi jdbi
+    ) {
+        if (!config.isEnabled()) {
+            return VisitArchive.none();
+        }
+        var archive = new VisitArchive(Path.of(config.getDirectory()), config.getRowGroupSize());
+        var archiver = new VisitArchiver(
+            jdbi,
+            archive,
+            Duration.ofDays(config.getColdAfterDays()),
+            Duration.ofSeconds(config.getRefreshSeconds()),
+            Clock.systemUTC()
+        );
+        var scheduler = environment.lifecycle()
+            .scheduledExecutorService("visit-archive")
+            .threads(2)
+            .build();
+        if (config.getRefreshSeconds() > 0) {
+            scheduler.scheduleWithFixedDelay(
+                archive::refresh, config.getRefreshSeconds(), config.getRefreshSeconds(), TimeUnit.SECONDS
+            );
+        }
+        scheduler.scheduleWithFixedDelay(
+            archiver, config.getIntervalMinutes(), config.getIntervalMinutes(), TimeUnit.MINUTES
+        );
+        environment.admin().addTask(new ArchiveVisitsTask(archiver));
+        return archive;
+    }
+
+    private void configureIdempotency(
+        final IdempotencyConfig config,
+        final Environment environment,
+        final Jdbi jdbi
+    ) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        var ttl = Duration.ofSeconds(config.getTtlSeconds());
+        var inFlightTimeout = Duration.ofSeconds(config.getInFlightTimeoutSeconds());
+        var near = new InMemoryIdempotencyStore(ttl, inFlightTimeout, config.getMaxEntries());
+
+        IdempotencyStore store = near;
+        if (config.isShared()) {
+            var shared = new PostgresIdempotencyStore(jdbi, ttl, inFlightTimeout);
+            store = new TieredIdempotencyStore(near, shared);
+            environment.lifecycle()
+                .scheduledExecutorService("idempotency-purge")
+                .build()
+                .scheduleWithFixedDelay(shared::purgeExpired, 1, 1, TimeUnit.HOURS);
+        }
+        environment.jersey().register(new IdempotencyFilter(store));
     }
 }
@@ -0,0 +1,29 @@
+package io.baris.petclinic.dropwizard.archive;
+
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin task archiving the cold visits right away instead of waiting for the next scheduled run
+ */
+public class ArchiveVisitsTask extends Task {
+
+    private final VisitArchiver archiver;
+
+    public ArchiveVisitsTask(final VisitArchiver archiver) {
+        super("archive-visits");
+        this.archiver = archiver;
+    }
+
+    @Override
+    public void execute(
+        final Map<String, List<String>> parameters,
+        final PrintWriter output
+    ) throws Exception {
+        var archived = archiver.archiveColdVisits();
+        output.println(archived < 0 ? "Another node is archiving" : "Archived %d visits".formatted(archived));
+    }
+}
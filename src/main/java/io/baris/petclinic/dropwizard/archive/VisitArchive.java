@@ -0,0 +1,178 @@
+package io.baris.petclinic.dropwizard.archive;
+
+import io.baris.petclinic.dropwizard.visit.model.Visit;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Directory of archived visits with one {@link VisitArchiveFile} per month.
+ * <p>
+ * Files are replaced atomically, readers keep the mapping of the file they opened. Files written
+ * by other nodes are picked up by {@link #refresh}.
+ */
+@Slf4j
+public class VisitArchive {
+
+    private static final String SUFFIX = ".visits";
+
+    private final Path directory;
+    private final int rowGroupSize;
+    private final ConcurrentNavigableMap<YearMonth, OpenFile> months = new ConcurrentSkipListMap<>();
+
+    public VisitArchive(
+        final Path directory,
+        final int rowGroupSize
+    ) {
+        this.directory = directory;
+        this.rowGroupSize = rowGroupSize;
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            refresh();
+        }
+    }
+
+    public static VisitArchive none() {
+        return new VisitArchive(null, 1);
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    public List<Visit> getPetVisits(final int petId) {
+        if (months.isEmpty()) {
+            return List.of();
+        }
+        var visits = new ArrayList<Visit>();
+        months.values().forEach(month -> visits.addAll(month.file().getPetVisits(petId)));
+        return visits;
+    }
+
+    /**
+     * Latest archived month, archival moves whole months from the oldest on so the earlier ones are archived too
+     */
+    public Optional<YearMonth> getLastMonth() {
+        return months.isEmpty() ? Optional.empty() : Optional.of(months.lastKey());
+    }
+
+    /**
+     * Whether the visit is in a file, the ids of a file are read once on the first lookup
+     */
+    public boolean isArchived(final int visitId) {
+        return months.values().stream().anyMatch(month -> month.contains(visitId));
+    }
+
+    public List<Visit> getVisits(final YearMonth month) {
+        return Optional.ofNullable(months.get(month))
+            .map(open -> open.file().getAllVisits())
+            .orElse(List.of());
+    }
+
+    /**
+     * Replaces the file of the month with the given visits
+     */
+    public void write(
+        final YearMonth month,
+        final List<Visit> visits
+    ) throws IOException {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Visit archive is disabled");
+        }
+        var path = path(month);
+        var temporary = directory.resolve(path.getFileName() + ".tmp");
+        VisitArchiveFile.write(temporary, visits, rowGroupSize);
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        months.put(month, new OpenFile(VisitArchiveFile.open(path), Files.getLastModifiedTime(path)));
+    }
+
+    /**
+     * Opens the files which are new or were replaced since they were last opened
+     */
+    public void refresh() {
+        if (!isEnabled()) {
+            return;
+        }
+        try (var files = Files.list(directory)) {
+            files.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).forEach(path -> {
+                var month = month(path);
+                if (month.isEmpty()) {
+                    return;
+                }
+                try {
+                    var modified = Files.getLastModifiedTime(path);
+                    var open = months.get(month.get());
+                    if (open == null || !open.modified().equals(modified)) {
+                        months.put(month.get(), new OpenFile(VisitArchiveFile.open(path), modified));
+                    }
+                } catch (IOException e) {
+                    log.warn("Failed to open visit archive {}", path, e);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to list visit archive {}", directory, e);
+        }
+    }
+
+    private Path path(final YearMonth month) {
+        return directory.resolve(month + SUFFIX);
+    }
+
+    private static Optional<YearMonth> month(final Path path) {
+        var name = path.getFileName().toString();
+        try {
+            return Optional.of(YearMonth.parse(name.substring(0, name.length() - SUFFIX.length())));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static final class OpenFile {
+
+        private final VisitArchiveFile file;
+        private final FileTime modified;
+        private volatile int[] sortedIds;
+
+        OpenFile(
+            final VisitArchiveFile file,
+            final FileTime modified
+        ) {
+            this.file = file;
+            this.modified = modified;
+        }
+
+        VisitArchiveFile file() {
+            return file;
+        }
+
+        FileTime modified() {
+            return modified;
+        }
+
+        boolean contains(final int visitId) {
+            var ids = sortedIds;
+            if (ids == null) {
+                ids = file.getAllVisits().stream().mapToInt(Visit::getId).sorted().toArray();
+                sortedIds = ids;
+            }
+            return Arrays.binarySearch(ids, visitId) >= 0;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package io.baris.petclinic.dropwizard.archive;
+
+import io.baris.petclinic.dropwizard.visit.model.Visit;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Visits of one month stored column by column, read through a memory mapping.
+ * <p>
+ * Rows are sorted by pet and split into row groups. Every column of a row group is delta and
+ * varint encoded, treatments through a dictionary, and then deflated on its own. The footer
+ * lists the pet id range and the column chunks of every row group, so reading the visits of a
+ * pet only inflates the row groups that can hold it.
+ * <pre>
+ * magic version | row group column chunks ... | footer | footer offset, magic
+ * </pre>
+ */
+public class VisitArchiveFile {
+
+    private static final int MAGIC = 0x50435641;
+    private static final byte VERSION = 1;
+    private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private static final int ID = 0;
+    private static final int PET_ID = 1;
+    private static final int VET_ID = 2;
+    private static final int DATE = 3;
+    private static final int TREATMENT = 4;
+    private static final int COLUMNS = 5;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final List<RowGroup> rowGroups;
+
+    private VisitArchiveFile(
+        final Path path,
+        final MappedByteBuffer buffer,
+        final List<RowGroup> rowGroups
+    ) {
+        this.path = path;
+        this.buffer = buffer;
+        this.rowGroups = rowGroups;
+    }
+
+    /**
+     * Writes the given visits to a new file, replacing any existing one
+     */
+    public static void write(
+        final Path path,
+        final List<Visit> visits,
+        final int rowGroupSize
+    ) throws IOException {
+        var sorted = visits.stream()
+            .sorted(Comparator.comparingInt(Visit::getPetId)
+                .thenComparing(Visit::getDate)
+                .thenComparingInt(Visit::getId))
+            .toList();
+        try (var channel = FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE
+        )) {
+            var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+
+            var rowGroups = new ArrayList<RowGroup>();
+            for (int start = 0; start < sorted.size(); start += rowGroupSize) {
+                var rows = sorted.subList(start, Math.min(sorted.size(), start + rowGroupSize));
+                var chunks = new Chunk[COLUMNS];
+                var columns = encodeColumns(rows);
+                for (int column = 0; column < COLUMNS; column++) {
+                    var compressed = deflate(columns[column]);
+                    chunks[column] = new Chunk(out.size(), compressed.length, columns[column].length);
+                    out.write(compressed);
+                }
+                rowGroups.add(new RowGroup(
+                    rows.size(), rows.get(0).getPetId(), rows.get(rows.size() - 1).getPetId(), chunks
+                ));
+            }
+
+            long footerOffset = out.size();
+            out.writeInt(rowGroups.size());
+            for (var rowGroup : rowGroups) {
+                out.writeInt(rowGroup.rows());
+                out.writeInt(rowGroup.minPetId());
+                out.writeInt(rowGroup.maxPetId());
+                for (var chunk : rowGroup.chunks()) {
+                    out.writeLong(chunk.offset());
+                    out.writeInt(chunk.length());
+                    out.writeInt(chunk.rawLength());
+                }
+            }
+            out.writeLong(footerOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+    }
+
+    public static VisitArchiveFile open(final Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed, even once the file is replaced
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < Integer.BYTES + 1 + TRAILER_SIZE || buffer.getInt(0) != MAGIC
+                || buffer.getInt(buffer.limit() - Integer.BYTES) != MAGIC) {
+                throw new IOException("Not a visit archive: " + path);
+            }
+            if (buffer.get(Integer.BYTES) != VERSION) {
+                throw new IOException("Unsupported visit archive version: " + path);
+            }
+
+            var footer = buffer.duplicate().position((int) buffer.getLong(buffer.limit() - TRAILER_SIZE));
+            var rowGroups = new ArrayList<RowGroup>();
+            var rowGroupCount = footer.getInt();
+            for (int i = 0; i < rowGroupCount; i++) {
+                var rows = footer.getInt();
+                var minPetId = footer.getInt();
+                var maxPetId = footer.getInt();
+                var chunks = new Chunk[COLUMNS];
+                for (int column = 0; column < COLUMNS; column++) {
+                    chunks[column] = new Chunk(footer.getLong(), footer.getInt(), footer.getInt());
+                }
+                rowGroups.add(new RowGroup(rows, minPetId, maxPetId, chunks));
+            }
+            return new VisitArchiveFile(path, buffer, rowGroups);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getRowCount() {
+        return rowGroups.stream().mapToInt(RowGroup::rows).sum();
+    }
+
+    /**
+     * Reads the visits of a pet, only inflating the row groups whose pet range holds it
+     */
+    public List<Visit> getPetVisits(final int petId) {
+        var visits = new ArrayList<Visit>();
+        for (var rowGroup : rowGroups) {
+            if (rowGroup.minPetId() > petId) {
+                break;
+            }
+            if (rowGroup.maxPetId() < petId) {
+                continue;
+            }
+            var petIds = decodeInts(inflate(rowGroup.chunks()[PET_ID]), rowGroup.rows(), true);
+            var first = -1;
+            var last = -1;
+            for (int row = 0; row < petIds.length; row++) {
+                if (petIds[row] == petId) {
+                    first = first < 0 ? row : first;
+                    last = row;
+                }
+            }
+            if (first >= 0) {
+                visits.addAll(readRows(rowGroup, petIds, first, last + 1));
+            }
+        }
+        return visits;
+    }
+
+    public List<Visit> getAllVisits() {
+        var visits = new ArrayList<Visit>(getRowCount());
+        for (var rowGroup : rowGroups) {
+            var petIds = decodeInts(inflate(rowGroup.chunks()[PET_ID]), rowGroup.rows(), true);
+            visits.addAll(readRows(rowGroup, petIds, 0, rowGroup.rows()));
+        }
+        return visits;
+    }
+
+    private List<Visit> readRows(
+        final RowGroup rowGroup,
+        final int[] petIds,
+        final int from,
+        final int to
+    ) {
+        var rows = rowGroup.rows();
+        var ids = decodeInts(inflate(rowGroup.chunks()[ID]), rows, true);
+        var vetIds = decodeInts(inflate(rowGroup.chunks()[VET_ID]), rows, false);
+        var dates = decodeLongs(inflate(rowGroup.chunks()[DATE]), rows);
+        var treatments = decodeStrings(inflate(rowGroup.chunks()[TREATMENT]), rows);
+
+        var visits = new ArrayList<Visit>(to - from);
+        for (int row = from; row < to; row++) {
+            visits.add(new Visit(
+                ids[row], petIds[row], vetIds[row], Instant.EPOCH.plus(dates[row], ChronoUnit.MICROS), treatments[row]
+            ));
+        }
+        return visits;
+    }
+
+    private static byte[][] encodeColumns(final List<Visit> rows) throws IOException {
+        var ids = new ByteArrayOutputStream();
+        var petIds = new ByteArrayOutputStream();
+        var vetIds = new ByteArrayOutputStream();
+        var dates = new ByteArrayOutputStream();
+        var treatments = new ByteArrayOutputStream();
+
+        var dictionary = new LinkedHashMap<String, Integer>();
+        var treatmentIndexes = new ByteArrayOutputStream();
+        long previousId = 0;
+        long previousPetId = 0;
+        long previousDate = 0;
+        for (var visit : rows) {
+            writeVarLong(ids, zigZag(visit.getId() - previousId));
+            writeVarLong(petIds, zigZag(visit.getPetId() - previousPetId));
+            writeVarLong(vetIds, zigZag(visit.getVetId()));
+            var date = ChronoUnit.MICROS.between(Instant.EPOCH, visit.getDate());
+            writeVarLong(dates, zigZag(date - previousDate));
+            var index = dictionary.computeIfAbsent(visit.getTreatment(), key -> dictionary.size());
+            writeVarLong(treatmentIndexes, index);
+            previousId = visit.getId();
+            previousPetId = visit.getPetId();
+            previousDate = date;
+        }
+
+        writeVarLong(treatments, dictionary.size());
+        for (var treatment : dictionary.keySet()) {
+            var bytes = treatment.getBytes(UTF_8);
+            writeVarLong(treatments, bytes.length);
+            treatments.write(bytes);
+        }
+        treatmentIndexes.writeTo(treatments);
+
+        var columns = new byte[COLUMNS][];
+        columns[ID] = ids.toByteArray();
+        columns[PET_ID] = petIds.toByteArray();
+        columns[VET_ID] = vetIds.toByteArray();
+        columns[DATE] = dates.toByteArray();
+        columns[TREATMENT] = treatments.toByteArray();
+        return columns;
+    }
+
+    private static int[] decodeInts(
+        final ByteBuffer column,
+        final int rows,
+        final boolean delta
+    ) {
+        var values = new int[rows];
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            var value = unZigZag(readVarLong(column)) + (delta ? previous : 0);
+            values[row] = (int) value;
+            previous = value;
+        }
+        return values;
+    }
+
+    private static long[] decodeLongs(
+        final ByteBuffer column,
+        final int rows
+    ) {
+        var values = new long[rows];
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            previous += unZigZag(readVarLong(column));
+            values[row] = previous;
+        }
+        return values;
+    }
+
+    private static String[] decodeStrings(
+        final ByteBuffer column,
+        final int rows
+    ) {
+        var dictionary = new String[(int) readVarLong(column)];
+        for (int i = 0; i < dictionary.length; i++) {
+            var bytes = new byte[(int) readVarLong(column)];
+            column.get(bytes);
+            dictionary[i] = new String(bytes, UTF_8);
+        }
+        var values = new String[rows];
+        for (int row = 0; row < rows; row++) {
+            values[row] = dictionary[(int) readVarLong(column)];
+        }
+        return values;
+    }
+
+    private static byte[] deflate(final byte[] raw) {
+        var deflater = new Deflater();
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            var out = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+            var chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private ByteBuffer inflate(final Chunk chunk) {
+        var inflater = new Inflater();
+        try {
+            // inflated straight from the mapping, the compressed bytes are never copied onto the heap
+            inflater.setInput(buffer.slice((int) chunk.offset(), chunk.length()));
+            var raw = new byte[chunk.rawLength()];
+            var inflated = 0;
+            while (inflated < raw.length) {
+                var read = inflater.inflate(raw, inflated, raw.length - inflated);
+                if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Truncated column chunk in " + path);
+                }
+                inflated += read;
+            }
+            return ByteBuffer.wrap(raw);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt column chunk in " + path, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeVarLong(
+        final ByteArrayOutputStream out,
+        final long value
+    ) {
+        var remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            out.write((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        out.write((int) remaining);
+    }
+
+    private static long readVarLong(final ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            var b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long zigZag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private record Chunk(long offset, int length, int rawLength) {
+    }
+
+    private record RowGroup(int rows, int minPetId, int maxPetId, Chunk[] chunks) {
+    }
+}
@@ -0,0 +1,170 @@
+package io.baris.petclinic.dropwizard.archive;
+
+import io.baris.petclinic.dropwizard.visit.VisitDao;
+import io.baris.petclinic.dropwizard.visit.model.Visit;
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Jdbi;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * Moves the visits of cold months from the table to the archive.
+ * <p>
+ * A month is written to its file together with what was archived of it before, then the rows are
+ * deleted once every node had the time to pick the file up. Rows briefly found in both places are
+ * told apart by id, so a run interrupted between writing and deleting is simply repeated. A visit
+ * deleted in between is taken out of its file again and kept as a deleted row. Only one node archives
+ * at a time.
+ */
+@Slf4j
+public class VisitArchiver implements Runnable {
+
+    // arbitrary key identifying the archival lock among other advisory locks
+    private static final long ARCHIVAL_LOCK_KEY = 7_411_925_062L;
+
+    private final Jdbi jdbi;
+    private final VisitArchive archive;
+    private final Duration coldAfter;
+    private final Duration refreshDelay;
+    private final Clock clock;
+
+    public VisitArchiver(
+        final Jdbi jdbi,
+        final VisitArchive archive,
+        final Duration coldAfter,
+        final Duration refreshDelay,
+        final Clock clock
+    ) {
+        this.jdbi = jdbi;
+        this.archive = archive;
+        this.coldAfter = coldAfter;
+        this.refreshDelay = refreshDelay;
+        this.clock = clock;
+    }
+
+    /**
+     * Scheduled run, a failed one is retried by the next
+     */
+    @Override
+    public void run() {
+        try {
+            archiveColdVisits();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Failed to archive cold visits", e);
+        }
+    }
+
+    /**
+     * Archives all cold months, returns the number of visits moved or -1 when another node is archiving
+     */
+    public int archiveColdVisits() throws InterruptedException {
+        try (var lockHandle = jdbi.open()) {
+            var locked = lockHandle.select("SELECT pg_try_advisory_lock(?)", ARCHIVAL_LOCK_KEY)
+                .mapTo(Boolean.class)
+                .one();
+            if (!locked) {
+                return -1;
+            }
+            try {
+                return archive(YearMonth.from(clock.instant().minus(coldAfter).atZone(UTC)));
+            } finally {
+                lockHandle.select("SELECT pg_advisory_unlock(?)", ARCHIVAL_LOCK_KEY).mapTo(Boolean.class).one();
+            }
+        }
+    }
+
+    private int archive(final YearMonth firstHotMonth) throws InterruptedException {
+        var oldest = jdbi.withExtension(VisitDao.class, dao -> dao.getOldestVisitDate(start(firstHotMonth)));
+        if (oldest.isEmpty()) {
+            return 0;
+        }
+
+        var archivedIds = new LinkedHashMap<YearMonth, List<Integer>>();
+        var month = YearMonth.from(oldest.get().atZone(UTC));
+        while (month.isBefore(firstHotMonth)) {
+            var ids = archiveMonth(month);
+            if (!ids.isEmpty()) {
+                archivedIds.put(month, ids);
+            }
+            month = month.plusMonths(1);
+        }
+        if (archivedIds.isEmpty()) {
+            return 0;
+        }
+
+        // nodes keep reading the rows from the table until they have picked up the new files
+        Thread.sleep(refreshDelay.toMillis());
+        var ids = archivedIds.values().stream().flatMap(List::stream).mapToInt(Integer::intValue).toArray();
+        var deleted = jdbi.withExtension(VisitDao.class, dao ->
+            dao.deleteArchivedVisits(ids, deletedIds -> unarchive(archivedIds, deletedIds))
+        );
+        log.info("Archived {} visits older than {}", deleted, firstHotMonth);
+        return deleted;
+    }
+
+    private List<Integer> archiveMonth(final YearMonth month) {
+        var start = System.nanoTime();
+        var hot = jdbi.withExtension(VisitDao.class, dao ->
+            dao.getVisitsBetween(start(month), start(month.plusMonths(1)))
+        );
+        if (hot.isEmpty()) {
+            return List.of();
+        }
+
+        // rows of an interrupted run are in the file and the table, the table has the current version
+        var visits = new LinkedHashMap<Integer, Visit>();
+        archive.getVisits(month).forEach(visit -> visits.put(visit.getId(), visit));
+        hot.forEach(visit -> visits.put(visit.getId(), visit));
+        try {
+            archive.write(month, new ArrayList<>(visits.values()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to archive visits of " + month, e);
+        }
+        log.info(
+            "Wrote {} visits of {} to the archive in {} ms",
+            visits.size(), month, (System.nanoTime() - start) / 1_000_000
+        );
+        return hot.stream().map(Visit::getId).toList();
+    }
+
+    /**
+     * Rewrites the months holding visits deleted after they were written, without them
+     */
+    private void unarchive(
+        final Map<YearMonth, List<Integer>> archivedIds,
+        final Set<Integer> deletedIds
+    ) {
+        archivedIds.forEach((month, ids) -> {
+            if (ids.stream().noneMatch(deletedIds::contains)) {
+                return;
+            }
+            var visits = archive.getVisits(month).stream()
+                .filter(visit -> !deletedIds.contains(visit.getId()))
+                .toList();
+            try {
+                archive.write(month, visits);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to take deleted visits out of the archive of " + month, e);
+            }
+            log.info("Took visits deleted meanwhile out of the archive of {}", month);
+        });
+    }
+
+    private static Instant start(final YearMonth month) {
+        return month.atDay(1).atStartOfDay(UTC).toInstant();
+    }
+}
@@ -0,0 +1,28 @@
+package io.baris.petclinic.dropwizard.audit;
+
+/**
+ * Who makes the changes of the current request and in which clinic
+ */
+public record AuditContext(String actor, String clinic) {
+
+    public static final String SYSTEM_ACTOR = "system";
+
+    private static final AuditContext SYSTEM = new AuditContext(SYSTEM_ACTOR, null);
+    private static final ThreadLocal<AuditContext> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Context of the current request, changes made outside of requests are made by the system
+     */
+    public static AuditContext current() {
+        var context = CURRENT.get();
+        return context != null ? context : SYSTEM;
+    }
+
+    public static void set(final AuditContext context) {
+        CURRENT.set(context);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,39 @@
+package io.baris.petclinic.dropwizard.audit;
+
+import io.baris.petclinic.dropwizard.audit.model.AuditEntry;
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.customizer.BindBean;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+
+import java.util.List;
+
+/**
+ * Appends to and reads the audit trail in the main database
+ */
+@RegisterRowMapper(AuditEntryRowMapper.class)
+public interface AuditDao {
+
+    @SqlBatch("""
+        INSERT INTO public.audit_log (occurred_at, actor, clinic, entity, entity_id, action, before, after)
+        VALUES (:occurredAt, :actor, :clinic, :entity, :entityId, :action, CAST(:before AS JSONB), CAST(:after AS JSONB))""")
+    void insertEntries(@BindBean List<AuditEntry> entries);
+
+    // newest first, paged by the id of the last entry seen
+    @SqlQuery("""
+        SELECT * FROM public.audit_log
+        WHERE entity = :entity
+          AND (CAST(:entityId AS INTEGER) IS NULL OR entity_id = :entityId)
+          AND clinic IS NOT DISTINCT FROM :clinic
+          AND id < :beforeId
+        ORDER BY id DESC
+        LIMIT :limit""")
+    List<AuditEntry> getEntries(
+        @Bind("entity") String entity,
+        @Bind("entityId") Integer entityId,
+        @Bind("clinic") String clinic,
+        @Bind("beforeId") long beforeId,
+        @Bind("limit") int limit
+    );
+}
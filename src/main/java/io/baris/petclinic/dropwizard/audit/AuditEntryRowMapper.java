@@ -0,0 +1,29 @@
+package io.baris.petclinic.dropwizard.audit;
+
+import io.baris.petclinic.dropwizard.audit.model.AuditEntry;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps audit rows without the reflection of a bean mapper
+ */
+public class AuditEntryRowMapper implements RowMapper<AuditEntry> {
+
+    @Override
+    public AuditEntry map(final ResultSet rs, final StatementContext ctx) throws SQLException {
+        return AuditEntry.builder()
+            .id(rs.getLong("id"))
+            .occurredAt(rs.getTimestamp("occurred_at").toInstant())
+            .actor(rs.getString("actor"))
+            .clinic(rs.getString("clinic"))
+            .entity(rs.getString("entity"))
+            .entityId(rs.getInt("entity_id"))
+            .action(rs.getString("action"))
+            .before(rs.getString("before"))
+            .after(rs.getString("after"))
+            .build();
+    }
+}
@@ -0,0 +1,48 @@
+package io.baris.petclinic.dropwizard.audit;
+
+import io.baris.petclinic.dropwizard.tenant.TenantFilter;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Makes the actor and clinic of a request the audit context while the resource runs.
+ * <p>
+ * The actor is the authenticated user when there is one, otherwise the one named in the
+ * {@value #HEADER} header.
+ */
+@Provider
+public class AuditFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String HEADER = "X-Actor";
+    public static final String ANONYMOUS = "anonymous";
+
+    private static final int MAX_ACTOR_LENGTH = 100;
+
+    @Override
+    public void filter(final ContainerRequestContext request) {
+        // the clinic filter runs before matching, so the clinic is known here
+        var clinic = (String) request.getProperty(TenantFilter.TENANT_PROPERTY);
+        AuditContext.set(new AuditContext(actor(request), clinic));
+    }
+
+    @Override
+    public void filter(
+        final ContainerRequestContext request,
+        final ContainerResponseContext response
+    ) {
+        AuditContext.clear();
+    }
+
+    private static String actor(final ContainerRequestContext request) {
+        var principal = request.getSecurityContext().getUserPrincipal();
+        var actor = principal != null ? principal.getName() : request.getHeaderString(HEADER);
+        if (actor == null || actor.isBlank()) {
+            return ANONYMOUS;
+        }
+        return actor.length() > MAX_ACTOR_LENGTH ? actor.substring(0, MAX_ACTOR_LENGTH) : actor;
+    }
+}
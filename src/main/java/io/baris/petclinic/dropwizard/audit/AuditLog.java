@@ -0,0 +1,330 @@
+package io.baris.petclinic.dropwizard.audit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.baris.petclinic.dropwizard.audit.model.AuditEntry;
+import io.baris.petclinic.dropwizard.system.AuditConfig;
+import io.dropwizard.lifecycle.Managed;
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Audit trail of the changes to pets, vets and visits, appended to a table no one may update or delete from.
+ * <p>
+ * In sync mode the entry is inserted in the transaction of its change, so that neither commits without
+ * the other. Clinics on another database than the trail, and the other modes, hand the entry out of the
+ * transaction and record it once the change has committed and its connection is back in the pool: the
+ * caller waits for the writer thread to write it together with the entries queued meanwhile, or returns
+ * as soon as it is queued. The queue is lock-free, when it is full callers write their own entries rather
+ * than dropping them. A committed change is always acknowledged, as a retry would make it twice: an entry
+ * not written in time stays queued and is counted late, one that cannot be written is logged and counted
+ * failed.
+ */
+@Slf4j
+public class AuditLog implements Managed {
+
+    public static final String PET = "pet";
+    public static final String VET = "vet";
+    public static final String VISIT = "visit";
+
+    public static final String CREATE = "create";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+    public static final String RESTORE = "restore";
+
+    private final Jdbi jdbi;
+    private final AuditConfig config;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final Queue<PendingEntry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Set<Jdbi> sharingDatabase = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private final Histogram batchSizes;
+    private final Meter overflows;
+    private final Meter lateEntries;
+    private final Meter failedEntries;
+
+    private volatile boolean running;
+    private volatile Thread writer;
+
+    public AuditLog(
+        final Jdbi jdbi,
+        final AuditConfig config,
+        final ObjectMapper objectMapper,
+        final Clock clock,
+        final MetricRegistry metrics
+    ) {
+        this.jdbi = jdbi;
+        this.config = config;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        if (jdbi != null) {
+            sharingDatabase.add(jdbi);
+        }
+        this.batchSizes = metrics.histogram(name(AuditLog.class, "batch-size"));
+        this.overflows = metrics.meter(name(AuditLog.class, "overflows"));
+        this.lateEntries = metrics.meter(name(AuditLog.class, "late-entries"));
+        this.failedEntries = metrics.meter(name(AuditLog.class, "failed-entries"));
+        metrics.register(name(AuditLog.class, "queued"), (Gauge<Integer>) queued::get);
+    }
+
+    public static AuditLog disabled() {
+        return new AuditLog(null, new AuditConfig(), null, Clock.systemUTC(), new MetricRegistry());
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Whether entries are inserted in the transaction of their change
+     */
+    public boolean isTransactional() {
+        return config.isEnabled() && config.getDurability() == AuditConfig.Durability.SYNC;
+    }
+
+    /**
+     * Marks the connections of a clinic as reaching the database of the trail, their changes can be
+     * audited in their own transaction then
+     */
+    public void shareDatabase(final Jdbi clinicJdbi) {
+        sharingDatabase.add(clinicJdbi);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!config.isEnabled() || config.getDurability() == AuditConfig.Durability.SYNC || running) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeBatches, "audit-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        // the writer drains the queue before it exits
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join();
+    }
+
+    /**
+     * Records a change made in the transaction of the handle by the actor of the current request,
+     * snapshots are written as JSON. Returns the entry left to {@link #recordCommitted} once the
+     * transaction has committed, or null when it was inserted in the transaction.
+     */
+    public AuditEntry record(
+        final Handle handle,
+        final String entity,
+        final int entityId,
+        final String action,
+        final Object before,
+        final Object after
+    ) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        if (!handle.isInTransaction()) {
+            throw new IllegalStateException("Audited changes must be made in a transaction");
+        }
+        var entry = entry(entity, entityId, action, before, after);
+        if (isTransactional() && sharingDatabase.contains(handle.getJdbi())) {
+            handle.attach(AuditDao.class).insertEntries(List.of(entry));
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Records the entry handed out of a committed transaction, does nothing without one
+     */
+    public void recordCommitted(final AuditEntry entry) {
+        if (entry != null) {
+            record(entry);
+        }
+    }
+
+    /**
+     * Records a change committed already by the actor of the current request, snapshots are written as JSON
+     */
+    public void record(
+        final String entity,
+        final int entityId,
+        final String action,
+        final Object before,
+        final Object after
+    ) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        record(entry(entity, entityId, action, before, after));
+    }
+
+    private AuditEntry entry(
+        final String entity,
+        final int entityId,
+        final String action,
+        final Object before,
+        final Object after
+    ) {
+        var context = AuditContext.current();
+        return AuditEntry.builder()
+            .occurredAt(clock.instant())
+            .actor(context.actor())
+            .clinic(context.clinic())
+            .entity(entity)
+            .entityId(entityId)
+            .action(action)
+            .before(toJson(before))
+            .after(toJson(after))
+            .build();
+    }
+
+    private void record(final AuditEntry entry) {
+        try {
+            switch (config.getDurability()) {
+                case SYNC -> write(List.of(entry));
+                case GROUP_COMMIT -> await(entry, enqueue(entry, true));
+                case ASYNC -> enqueue(entry, false);
+            }
+        } catch (RuntimeException e) {
+            // the change has committed, the entry survives in the log at least
+            failedEntries.mark();
+            log.error("Audit entry could not be written: {}", entry, e);
+        }
+    }
+
+    /**
+     * Entries of an entity in a clinic, newest first, starting below the given id
+     */
+    public List<AuditEntry> getEntries(
+        final String entity,
+        final Integer entityId,
+        final String clinic,
+        final long beforeId,
+        final int limit
+    ) {
+        return jdbi.withExtension(AuditDao.class, dao -> dao.getEntries(entity, entityId, clinic, beforeId, limit));
+    }
+
+    private CompletableFuture<Void> enqueue(
+        final AuditEntry entry,
+        final boolean awaited
+    ) {
+        if (!running) {
+            write(List.of(entry));
+            return CompletableFuture.completedFuture(null);
+        }
+        var size = queued.incrementAndGet();
+        if (size > config.getMaxQueued()) {
+            queued.decrementAndGet();
+            overflows.mark();
+            write(List.of(entry));
+            return CompletableFuture.completedFuture(null);
+        }
+        var pending = new PendingEntry(entry, new CompletableFuture<>());
+        queue.offer(pending);
+        // asynchronous entries wait for the next flush unless they fill a batch
+        if (awaited || size >= config.getMaxBatchSize()) {
+            LockSupport.unpark(writer);
+        }
+        return pending.written();
+    }
+
+    private void await(
+        final AuditEntry entry,
+        final CompletableFuture<Void> written
+    ) {
+        try {
+            written.get(config.getMaxWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // the change has committed, the entry is left to the writer
+            lateEntries.mark();
+            log.warn("Audit entry not written within {}ms, it stays queued: {}", config.getMaxWaitMillis(), entry);
+        } catch (ExecutionException e) {
+            // the writer has logged the entry with its batch
+            failedEntries.mark();
+            log.warn("Audit entry could not be written: {}", entry, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            lateEntries.mark();
+            log.warn("Interrupted while waiting for the audit entry, it stays queued: {}", entry);
+        }
+    }
+
+    private void writeBatches() {
+        var batch = new ArrayList<PendingEntry>(config.getMaxBatchSize());
+        var flushInterval = TimeUnit.MILLISECONDS.toNanos(config.getFlushIntervalMillis());
+        while (running || !queue.isEmpty()) {
+            // entries queued while a batch is written join the next one
+            PendingEntry pending;
+            while (batch.size() < config.getMaxBatchSize() && (pending = queue.poll()) != null) {
+                queued.decrementAndGet();
+                batch.add(pending);
+            }
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(this, flushInterval);
+                continue;
+            }
+            try {
+                batchSizes.update(batch.size());
+                write(batch.stream().map(PendingEntry::entry).toList());
+                batch.forEach(it -> it.written().complete(null));
+            } catch (RuntimeException e) {
+                log.error("Audit batch of {} entries could not be written", batch.size(), e);
+                // entries nobody waits for survive in the log at least
+                batch.forEach(it -> {
+                    log.error("Audit entry not written: {}", it.entry());
+                    it.written().completeExceptionally(e);
+                });
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(final List<AuditEntry> entries) {
+        jdbi.useExtension(AuditDao.class, dao -> dao.insertEntries(entries));
+    }
+
+    private String toJson(final Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Audit snapshot could not be serialised", e);
+        }
+    }
+
+    private record PendingEntry(AuditEntry entry, CompletableFuture<Void> written) {
+    }
+}
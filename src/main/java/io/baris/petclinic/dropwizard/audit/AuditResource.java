@@ -0,0 +1,65 @@
+package io.baris.petclinic.dropwizard.audit;
+
+import io.baris.petclinic.dropwizard.audit.model.AuditEntry;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.RequiredArgsConstructor;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Audit resource to serve the trail of changes of the current clinic
+ */
+@Path("/audit")
+@Produces(MediaType.APPLICATION_JSON)
+@RequiredArgsConstructor
+public class AuditResource {
+
+    private static final Set<String> ENTITIES = Set.of(AuditLog.PET, AuditLog.VET, AuditLog.VISIT);
+    private static final int MAX_LIMIT = 1_000;
+
+    private final AuditLog auditLog;
+
+    @Operation(
+        summary = "Get the changes of pets, vets or visits, newest first",
+        tags = {"Audit"},
+        responses = {
+            @ApiResponse(
+                description = "The changes, the id of the last one pages to the older ones",
+                content = @Content(array = @ArraySchema(schema = @Schema(implementation = AuditEntry.class)))
+            ),
+            @ApiResponse(responseCode = "400", description = "Invalid query")
+        }
+    )
+    @GET
+    public List<AuditEntry> getEntries(
+        final @Parameter(description = "Kind of the changed entity: pet, vet or visit") @QueryParam("entity") String entity,
+        final @Parameter(description = "Id of the changed entity") @QueryParam("entityId") Integer entityId,
+        final @Parameter(description = "Only changes older than the one with this id") @QueryParam("before") Long before,
+        final @Parameter(description = "Changes returned at most") @QueryParam("limit") @DefaultValue("100") int limit
+    ) {
+        // validation
+        if (entity == null || !ENTITIES.contains(entity)) {
+            throw new BadRequestException("Entity must be pet, vet or visit");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+
+        return auditLog.getEntries(
+            entity, entityId, AuditContext.current().clinic(), before != null ? before : Long.MAX_VALUE, limit
+        );
+    }
+}
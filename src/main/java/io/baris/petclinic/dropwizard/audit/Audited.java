@@ -0,0 +1,9 @@
+package io.baris.petclinic.dropwizard.audit;
+
+import io.baris.petclinic.dropwizard.audit.model.AuditEntry;
+
+/**
+ * Result of a transaction together with the audit entry left to record once it has committed, if any
+ */
+public record Audited<T>(T value, AuditEntry entry) {
+}
@@ -0,0 +1,33 @@
+package io.baris.petclinic.dropwizard.audit.model;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Represents a change to a pet, vet or visit, with the entity as JSON before and after it
+ */
+@Value
+@Builder
+public class AuditEntry {
+
+    // assigned when written, entries of one entity are ordered by it
+    Long id;
+    Instant occurredAt;
+    String actor;
+
+    // clinic the change was made in, none for the main schema
+    String clinic;
+
+    String entity;
+    int entityId;
+    String action;
+
+    @JsonRawValue
+    String before;
+
+    @JsonRawValue
+    String after;
+}
@@ -0,0 +1,175 @@
+package io.baris.petclinic.dropwizard.cache;
+
+import io.dropwizard.lifecycle.Managed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Jdbi;
+import org.postgresql.PGConnection;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Evicts cached entities when the database notifies that their rows changed.
+ * <p>
+ * Triggers publish {@code <cache name>:<id>} on the {@value #CHANNEL} channel for every
+ * changed row and {@code *} for bulk changes. Rows of a clinic schema other than {@code public}
+ * are published with a {@code <schema>/} prefix, which the names of that clinic's caches carry too.
+ * Notifications are only delivered while the listening connection is up, so the near tiers are
+ * cleared whenever it is (re)established.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class CacheInvalidationListener implements Managed {
+
+    public static final String CHANNEL = "cache_invalidation";
+    public static final String FLUSH_ALL = "*";
+
+    private static final int POLL_MILLIS = 500;
+
+    private final Jdbi jdbi;
+    private final Duration reconnectDelay;
+    private final Map<String, TwoLevelCache<?>> caches = new ConcurrentHashMap<>();
+    private final Map<String, List<Listener>> listeners = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public void register(final TwoLevelCache<?> cache) {
+        caches.put(cache.getName(), cache);
+    }
+
+    /**
+     * Calls back with the id of every changed row of the given cache name, or without one when anything may have changed
+     */
+    public void addListener(
+        final String name,
+        final IntConsumer onChange,
+        final Runnable onFlush
+    ) {
+        listeners.computeIfAbsent(name, key -> new CopyOnWriteArrayList<>()).add(new Listener(onChange, onFlush));
+    }
+
+    /**
+     * Drops the caches and listeners whose names start with the given scope, e.g. {@code clinic_acme/}
+     */
+    public void unregister(final String scope) {
+        caches.keySet().removeIf(name -> name.startsWith(scope));
+        listeners.keySet().removeIf(name -> name.startsWith(scope));
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        thread = new Thread(this::listen, "cache-invalidation-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        thread.join();
+    }
+
+    private void listen() {
+        while (running) {
+            try (var handle = jdbi.open()) {
+                var connection = handle.getConnection().unwrap(PGConnection.class);
+                handle.execute("LISTEN " + CHANNEL);
+                // whatever changed while nobody was listening is unknown
+                caches.values().forEach(TwoLevelCache::evictAllNear);
+                notifyListeners(null, listener -> listener.onFlush().run());
+                log.info("Listening for cache invalidations");
+
+                while (running) {
+                    var notifications = connection.getNotifications(POLL_MILLIS);
+                    if (notifications != null) {
+                        for (var notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Cache invalidation listener lost its connection, reconnecting in {}", reconnectDelay, e);
+                sleep();
+            }
+        }
+    }
+
+    void dispatch(final String payload) {
+        if (payload.endsWith(FLUSH_ALL)) {
+            var scope = payload.substring(0, payload.length() - FLUSH_ALL.length());
+            caches.forEach((name, cache) -> {
+                if (inScope(name, scope)) {
+                    cache.evictAll();
+                }
+            });
+            notifyListeners(scope, listener -> listener.onFlush().run());
+            return;
+        }
+        var separator = payload.indexOf(':');
+        if (separator < 0) {
+            log.warn("Ignoring unknown cache invalidation {}", payload);
+            return;
+        }
+        var name = payload.substring(0, separator);
+        var id = Integer.parseInt(payload.substring(separator + 1));
+        var cache = caches.get(name);
+        if (cache != null) {
+            cache.evict(id);
+        }
+        listeners.getOrDefault(name, List.of()).forEach(listener -> {
+            try {
+                listener.onChange().accept(id);
+            } catch (RuntimeException e) {
+                log.warn("Cache invalidation listener of {} failed for {}", name, id, e);
+            }
+        });
+    }
+
+    /**
+     * Calls the listeners of the given scope, or all of them without one
+     */
+    private void notifyListeners(
+        final String scope,
+        final Consumer<Listener> call
+    ) {
+        listeners.forEach((name, nameListeners) -> {
+            if (scope != null && !inScope(name, scope)) {
+                return;
+            }
+            nameListeners.forEach(listener -> {
+                try {
+                    call.accept(listener);
+                } catch (RuntimeException e) {
+                    log.warn("Cache invalidation listener failed", e);
+                }
+            });
+        });
+    }
+
+    private static boolean inScope(
+        final String name,
+        final String scope
+    ) {
+        return scope.isEmpty() ? name.indexOf('/') < 0 : name.startsWith(scope);
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(reconnectDelay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private record Listener(IntConsumer onChange, Runnable onFlush) {
+    }
+}
@@ -0,0 +1,75 @@
+package io.baris.petclinic.dropwizard.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Embedded shared tier for tests and single node deployments, only shared within the process
+ */
+public class InMemorySharedCache implements SharedCache {
+
+    private final Cache<String, Entry> entries;
+
+    public InMemorySharedCache(final long maxEntries) {
+        this.entries = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfter(new Expiry<String, Entry>() {
+                @Override
+                public long expireAfterCreate(final String key, final Entry entry, final long currentTime) {
+                    return entry.ttl().toNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(
+                    final String key,
+                    final Entry entry,
+                    final long currentTime,
+                    final long currentDuration
+                ) {
+                    return entry.ttl().toNanos();
+                }
+
+                @Override
+                public long expireAfterRead(
+                    final String key,
+                    final Entry entry,
+                    final long currentTime,
+                    final long currentDuration
+                ) {
+                    return currentDuration;
+                }
+            })
+            .build();
+    }
+
+    @Override
+    public Optional<byte[]> get(final String key) {
+        return Optional.ofNullable(entries.getIfPresent(key)).map(Entry::value);
+    }
+
+    @Override
+    public void put(
+        final String key,
+        final byte[] value,
+        final Duration ttl
+    ) {
+        entries.put(key, new Entry(value, ttl));
+    }
+
+    @Override
+    public void invalidate(final String key) {
+        entries.invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    private record Entry(byte[] value, Duration ttl) {
+    }
+}
@@ -0,0 +1,23 @@
+package io.baris.petclinic.dropwizard.cache;
+
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import io.dropwizard.setup.Environment;
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configures the embedded shared cache tier
+ */
+@Data
+@JsonTypeName("in-memory")
+public class InMemorySharedCacheFactory implements SharedCacheFactory {
+
+    @Min(1)
+    long maxEntries = 100_000;
+
+    @Override
+    public SharedCache build(final Environment environment) {
+        return new InMemorySharedCache(maxEntries);
+    }
+}
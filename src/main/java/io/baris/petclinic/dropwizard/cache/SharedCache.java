@@ -0,0 +1,18 @@
+package io.baris.petclinic.dropwizard.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Cache tier shared by all application nodes, holding serialized values
+ */
+public interface SharedCache {
+
+    Optional<byte[]> get(String key);
+
+    void put(String key, byte[] value, Duration ttl);
+
+    void invalidate(String key);
+
+    void invalidateAll();
+}
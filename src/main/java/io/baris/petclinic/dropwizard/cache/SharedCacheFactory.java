@@ -0,0 +1,14 @@
+package io.baris.petclinic.dropwizard.cache;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import io.dropwizard.jackson.Discoverable;
+import io.dropwizard.setup.Environment;
+
+/**
+ * Configures the shared cache tier, implementations are picked by their {@code type}
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type", defaultImpl = InMemorySharedCacheFactory.class)
+public interface SharedCacheFactory extends Discoverable {
+
+    SharedCache build(Environment environment);
+}
@@ -0,0 +1,207 @@
+package io.baris.petclinic.dropwizard.cache;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.baris.petclinic.dropwizard.system.CacheConfig;
+import io.dropwizard.jackson.Jackson;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Read-through cache of entities by id with a near tier per node in front of the shared tier.
+ * <p>
+ * Writes evict both tiers right away on the writing node, the other nodes evict on the
+ * invalidation notification of the database. The near tier expires early, so that a missed
+ * notification leaves a node stale for the near TTL at most. Absent entities are not cached,
+ * an entity created on another node is found right away.
+ * <p>
+ * Every eviction bumps the version of the entity, a value loaded across an eviction may predate it
+ * and is returned to its caller without being cached.
+ */
+@Slf4j
+public class TwoLevelCache<V> {
+
+    private static final int VERSION_STRIPES = 1024;
+
+    @Getter
+    private final String name;
+    private final Class<V> type;
+    private final boolean enabled;
+    private final Cache<Integer, V> near;
+    private final SharedCache shared;
+    private final Duration sharedTtl;
+    private final ObjectMapper mapper;
+    private final Meter nearHits;
+    private final Meter sharedHits;
+    private final Meter misses;
+    // versions of the ids hashing to each stripe, plus a generation bumped when everything is evicted
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final AtomicLong generation = new AtomicLong();
+
+    public TwoLevelCache(
+        final String name,
+        final Class<V> type,
+        final CacheConfig config,
+        final SharedCache shared,
+        final ObjectMapper mapper,
+        final MetricRegistry metrics
+    ) {
+        this.name = name;
+        this.type = type;
+        this.enabled = config.isEnabled();
+        this.near = Caffeine.newBuilder()
+            .maximumSize(config.getNearMaxEntries())
+            .expireAfterWrite(Duration.ofSeconds(config.getNearTtlSeconds()))
+            .build();
+        this.shared = shared;
+        this.sharedTtl = Duration.ofSeconds(config.getSharedTtlSeconds());
+        this.mapper = mapper;
+        this.nearHits = metrics.meter(name(TwoLevelCache.class, name, "near-hits"));
+        this.sharedHits = metrics.meter(name(TwoLevelCache.class, name, "shared-hits"));
+        this.misses = metrics.meter(name(TwoLevelCache.class, name, "misses"));
+    }
+
+    public static <V> TwoLevelCache<V> disabled(final String name, final Class<V> type) {
+        var config = new CacheConfig();
+        config.setEnabled(false);
+        return new TwoLevelCache<>(
+            name, type, config, new InMemorySharedCache(1), Jackson.newObjectMapper(), new MetricRegistry()
+        );
+    }
+
+    public Optional<V> get(
+        final int id,
+        final Supplier<Optional<V>> loader
+    ) {
+        if (!enabled) {
+            return loader.get();
+        }
+        var version = version(id);
+        var value = near.getIfPresent(id);
+        if (value != null) {
+            nearHits.mark();
+            return Optional.of(value);
+        }
+
+        var key = sharedKey(id);
+        value = readShared(key);
+        if (value != null) {
+            sharedHits.mark();
+            putNear(id, value, version);
+            return Optional.of(value);
+        }
+
+        misses.mark();
+        var loaded = loader.get();
+        loaded.ifPresent(it -> {
+            if (putNear(id, it, version)) {
+                writeShared(key, it, id, version);
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Changes whenever the entity is evicted
+     */
+    public long version(final int id) {
+        // both parts only grow, their sum changes whenever either does
+        return generation.get() + versions.get(stripe(id));
+    }
+
+    /**
+     * Evicts the entity from both tiers
+     */
+    public void evict(final int id) {
+        // the version is bumped first, a load storing its value after this point sees the change
+        versions.incrementAndGet(stripe(id));
+        near.invalidate(id);
+        try {
+            shared.invalidate(sharedKey(id));
+        } catch (RuntimeException e) {
+            log.warn("Shared cache entry {} could not be evicted", sharedKey(id), e);
+        }
+    }
+
+    public void evictAll() {
+        generation.incrementAndGet();
+        near.invalidateAll();
+        try {
+            shared.invalidateAll();
+        } catch (RuntimeException e) {
+            log.warn("Shared cache could not be cleared", e);
+        }
+    }
+
+    public void evictAllNear() {
+        generation.incrementAndGet();
+        near.invalidateAll();
+    }
+
+    /**
+     * Keeps the value unless the entity was evicted since the given version, an eviction racing the
+     * put is caught by checking again after it
+     */
+    private boolean putNear(
+        final int id,
+        final V value,
+        final long version
+    ) {
+        if (version(id) != version) {
+            return false;
+        }
+        near.put(id, value);
+        if (version(id) != version) {
+            near.invalidate(id);
+            return false;
+        }
+        return true;
+    }
+
+    private V readShared(final String key) {
+        try {
+            var bytes = shared.get(key);
+            return bytes.isPresent() ? mapper.readValue(bytes.get(), type) : null;
+        } catch (IOException | RuntimeException e) {
+            // the database is still there to answer
+            log.warn("Shared cache entry {} could not be read", key, e);
+            return null;
+        }
+    }
+
+    private void writeShared(
+        final String key,
+        final V value,
+        final int id,
+        final long version
+    ) {
+        try {
+            shared.put(key, mapper.writeValueAsBytes(value), sharedTtl);
+            if (version(id) != version) {
+                shared.invalidate(key);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Shared cache entry {} could not be written", key, e);
+        }
+    }
+
+    private static int stripe(final int id) {
+        return Integer.hashCode(id) & (VERSION_STRIPES - 1);
+    }
+
+    private String sharedKey(final int id) {
+        return name + ":" + id;
+    }
+}
@@ -0,0 +1,53 @@
+package io.baris.petclinic.dropwizard.graphql;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Collects the keys asked for while one level of a query is resolved and loads them in a single batch.
+ * <p>
+ * Loaded values, including the keys found missing, are kept for the rest of the request, so an entity
+ * reached along several paths of the query is loaded once. A loader lives for a single request only.
+ */
+class DataLoader<K, V> {
+
+    private final Function<Set<K>, Map<K, V>> batchLoad;
+    private final Map<K, V> loaded = new HashMap<>();
+    private final Set<K> queued = new LinkedHashSet<>();
+
+    DataLoader(final Function<Set<K>, Map<K, V>> batchLoad) {
+        this.batchLoad = batchLoad;
+    }
+
+    void load(final K key) {
+        if (!loaded.containsKey(key)) {
+            queued.add(key);
+        }
+    }
+
+    /**
+     * Keeps a value loaded along another path, so that it is not loaded again
+     */
+    void prime(
+        final K key,
+        final V value
+    ) {
+        loaded.putIfAbsent(key, value);
+    }
+
+    void dispatch() {
+        if (queued.isEmpty()) {
+            return;
+        }
+        var values = batchLoad.apply(Set.copyOf(queued));
+        queued.forEach(key -> loaded.put(key, values.get(key)));
+        queued.clear();
+    }
+
+    V get(final K key) {
+        return loaded.get(key);
+    }
+}
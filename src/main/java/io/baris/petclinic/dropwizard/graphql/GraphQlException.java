@@ -0,0 +1,11 @@
+package io.baris.petclinic.dropwizard.graphql;
+
+/**
+ * A query that cannot be run, reported in the errors of the response
+ */
+public class GraphQlException extends RuntimeException {
+
+    public GraphQlException(final String message) {
+        super(message);
+    }
+}
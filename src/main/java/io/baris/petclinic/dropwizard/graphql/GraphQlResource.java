@@ -0,0 +1,70 @@
+package io.baris.petclinic.dropwizard.graphql;
+
+import io.baris.petclinic.dropwizard.graphql.model.GraphQlRequest;
+import io.baris.petclinic.dropwizard.pet.PetManager;
+import io.baris.petclinic.dropwizard.system.GraphQlConfig;
+import io.baris.petclinic.dropwizard.vet.VetManager;
+import io.baris.petclinic.dropwizard.visit.VisitManager;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * GraphQL resource to serve pets, their visits and vets in a single request
+ */
+@Path("/graphql")
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+@Slf4j
+@RequiredArgsConstructor
+public class GraphQlResource {
+
+    private final Supplier<PetManager> petManager;
+    private final Supplier<VetManager> vetManager;
+    private final Supplier<VisitManager> visitManager;
+    private final GraphQlConfig config;
+
+    @Operation(
+        summary = "Run a GraphQL query over pets, visits and vets",
+        tags = {"GraphQL"},
+        responses = {
+            @ApiResponse(description = "The data selected by the query"),
+            @ApiResponse(responseCode = "400", description = "Invalid query, or a query deeper or more complex than allowed")
+        }
+    )
+    @POST
+    public Response query(
+        final @Valid @NotNull GraphQlRequest request
+    ) {
+        try {
+            var selections = QueryParser.parse(
+                request.getQuery(), request.getOperationName(), request.getVariables(), config.getMaxDepth()
+            );
+            var complexity = GraphQlSchema.validate(selections, GraphQlSchema.QUERY, config);
+            if (complexity > config.getMaxComplexity()) {
+                throw new GraphQlException("Query complexity %d is above the limit of %d".formatted(
+                    complexity, config.getMaxComplexity()
+                ));
+            }
+            var execution = new QueryExecution(petManager.get(), vetManager.get(), visitManager.get(), config);
+            return Response.ok(Map.of("data", execution.execute(selections))).build();
+        } catch (GraphQlException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Map.of("errors", List.of(Map.of("message", e.getMessage()))))
+                .build();
+        }
+    }
+}
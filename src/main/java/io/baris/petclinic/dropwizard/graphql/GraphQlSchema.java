@@ -0,0 +1,142 @@
+package io.baris.petclinic.dropwizard.graphql;
+
+import io.baris.petclinic.dropwizard.system.GraphQlConfig;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Types and fields of the graph, a query is checked against them before it runs
+ * <pre>
+ * type Query {
+ *   pet(id: Int!): Pet
+ *   pets(first: Int, after: Int): [Pet]
+ *   vet(id: Int!): Vet
+ *   vets(specialties: [String], match: ALL | ANY, first: Int, after: Int): [Vet]
+ * }
+ * type Pet { id: Int, name: String, age: Int, species: String, visits: [Visit] }
+ * type Visit { id: Int, date: String, treatment: String, pet: Pet, vet: Vet }
+ * type Vet { id: Int, name: String, specialties: [String] }
+ * </pre>
+ */
+class GraphQlSchema {
+
+    static final String QUERY = "Query";
+    static final String PET = "Pet";
+    static final String VISIT = "Visit";
+    static final String VET = "Vet";
+
+    private static final String SCALAR = "scalar";
+
+    private static final Map<String, Map<String, FieldDefinition>> TYPES = Map.of(
+        QUERY, Map.of(
+            "pet", new FieldDefinition(PET, false, Set.of("id")),
+            "pets", new FieldDefinition(PET, true, Set.of("first", "after")),
+            "vet", new FieldDefinition(VET, false, Set.of("id")),
+            "vets", new FieldDefinition(VET, true, Set.of("specialties", "match", "first", "after"))
+        ),
+        PET, Map.of(
+            "id", scalar(),
+            "name", scalar(),
+            "age", scalar(),
+            "species", scalar(),
+            "visits", new FieldDefinition(VISIT, true, Set.of())
+        ),
+        VISIT, Map.of(
+            "id", scalar(),
+            "date", scalar(),
+            "treatment", scalar(),
+            "pet", new FieldDefinition(PET, false, Set.of()),
+            "vet", new FieldDefinition(VET, false, Set.of())
+        ),
+        VET, Map.of(
+            "id", scalar(),
+            "name", scalar(),
+            "specialties", new FieldDefinition(SCALAR, true, Set.of())
+        )
+    );
+
+    static FieldDefinition getField(
+        final String type,
+        final String name
+    ) {
+        return TYPES.get(type).get(name);
+    }
+
+    /**
+     * Checks the fields selected on the type, returns the complexity of the selection.
+     * <p>
+     * Each field counts once, fields below a list count once per expected element: the requested
+     * page size for pets and vets and the configured estimate for the other lists.
+     */
+    static int validate(
+        final List<QueryField> selections,
+        final String type,
+        final GraphQlConfig config
+    ) {
+        var complexity = 0;
+        for (var field : selections) {
+            var definition = getField(type, field.name());
+            if (definition == null) {
+                throw new GraphQlException("Field '%s' does not exist on type %s".formatted(field.name(), type));
+            }
+            for (var argument : field.arguments().keySet()) {
+                if (!definition.arguments().contains(argument)) {
+                    throw new GraphQlException("Field '%s' has no argument '%s'".formatted(field.name(), argument));
+                }
+            }
+
+            var childComplexity = 0;
+            if (definition.isScalar()) {
+                if (!field.selections().isEmpty()) {
+                    throw new GraphQlException("Field '%s' cannot have a selection".formatted(field.name()));
+                }
+            } else {
+                if (field.selections().isEmpty()) {
+                    throw new GraphQlException("Field '%s' needs a selection of fields".formatted(field.name()));
+                }
+                childComplexity = validate(field.selections(), definition.type(), config);
+            }
+            var expectedSize = definition.list() ? expectedSize(field, definition, config) : 1;
+            complexity = saturatedAdd(complexity, saturatedAdd(1, saturatedMultiply(expectedSize, childComplexity)));
+        }
+        return complexity;
+    }
+
+    private static int expectedSize(
+        final QueryField field,
+        final FieldDefinition definition,
+        final GraphQlConfig config
+    ) {
+        if (!definition.arguments().contains("first")) {
+            return config.getListSizeEstimate();
+        }
+        return field.arguments().get("first") instanceof Integer first && first > 0
+            ? first
+            : config.getDefaultPageSize();
+    }
+
+    private static int saturatedAdd(final int a, final int b) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) a + b);
+    }
+
+    private static int saturatedMultiply(final int a, final int b) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) a * b);
+    }
+
+    private static FieldDefinition scalar() {
+        return new FieldDefinition(SCALAR, false, Set.of());
+    }
+
+    record FieldDefinition(
+        String type,
+        boolean list,
+        Set<String> arguments
+    ) {
+
+        boolean isScalar() {
+            return type.equals(SCALAR);
+        }
+    }
+}
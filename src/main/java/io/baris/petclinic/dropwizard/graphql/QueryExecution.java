@@ -0,0 +1,269 @@
+package io.baris.petclinic.dropwizard.graphql;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.baris.petclinic.dropwizard.pet.PetManager;
+import io.baris.petclinic.dropwizard.pet.model.Pet;
+import io.baris.petclinic.dropwizard.system.GraphQlConfig;
+import io.baris.petclinic.dropwizard.vet.VetManager;
+import io.baris.petclinic.dropwizard.vet.model.SpecialtyMatch;
+import io.baris.petclinic.dropwizard.vet.model.Vet;
+import io.baris.petclinic.dropwizard.visit.VisitManager;
+import io.baris.petclinic.dropwizard.visit.model.Visit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import static io.baris.petclinic.dropwizard.graphql.GraphQlSchema.QUERY;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Runs a validated query level by level.
+ * <p>
+ * All fields of a level first ask their loaders for what they need, then each loader fetches its keys
+ * in one batch, and only then the fields are completed and the fields below them queued for the next
+ * level. A query therefore runs a few statements per level, however many pets, visits and vets it reaches.
+ */
+class QueryExecution {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private final PetManager petManager;
+    private final VetManager vetManager;
+    private final GraphQlConfig config;
+    private final DataLoader<Integer, Pet> pets;
+    private final DataLoader<Integer, Vet> vets;
+    private final DataLoader<Integer, List<Visit>> petVisits;
+
+    QueryExecution(
+        final PetManager petManager,
+        final VetManager vetManager,
+        final VisitManager visitManager,
+        final GraphQlConfig config
+    ) {
+        this.petManager = petManager;
+        this.vetManager = vetManager;
+        this.config = config;
+        this.pets = new DataLoader<>(ids -> byId(petManager.getPets(toArray(ids)), Pet::getId));
+        this.vets = new DataLoader<>(ids -> byId(vetManager.getVets(toArray(ids)), Vet::getId));
+        this.petVisits = new DataLoader<>(ids -> visitManager.getPetVisits(toArray(ids)));
+    }
+
+    ObjectNode execute(final List<QueryField> selections) {
+        var data = NODES.objectNode();
+        var level = new ArrayList<PendingField>();
+        selections.forEach(field -> level.add(new PendingField(QUERY, null, field, data)));
+
+        while (!level.isEmpty()) {
+            level.forEach(this::request);
+            pets.dispatch();
+            vets.dispatch();
+            petVisits.dispatch();
+
+            var nextLevel = new ArrayList<PendingField>();
+            level.forEach(pending -> complete(pending, nextLevel));
+            level.clear();
+            level.addAll(nextLevel);
+        }
+        return data;
+    }
+
+    /**
+     * Asks the loaders for what the field needs, without loading anything yet
+     */
+    private void request(final PendingField pending) {
+        var field = pending.field();
+        switch (pending.type() + "." + field.name()) {
+            case "Query.pet" -> pets.load(requiredInt(field, "id"));
+            case "Query.vet" -> vets.load(requiredInt(field, "id"));
+            case "Query.pets" -> {
+                pageSize(field);
+                optionalInt(field, "after");
+            }
+            case "Query.vets" -> {
+                pageSize(field);
+                optionalInt(field, "after");
+                specialties(field);
+                match(field);
+            }
+            case "Pet.visits" -> petVisits.load(((Pet) pending.source()).getId());
+            case "Visit.pet" -> pets.load(((Visit) pending.source()).getPetId());
+            case "Visit.vet" -> vets.load(((Visit) pending.source()).getVetId());
+            default -> {
+            }
+        }
+    }
+
+    private void complete(
+        final PendingField pending,
+        final List<PendingField> nextLevel
+    ) {
+        var field = pending.field();
+        var definition = GraphQlSchema.getField(pending.type(), field.name());
+        var value = resolve(pending);
+        if (value == null) {
+            pending.result().putNull(field.alias());
+        } else if (definition.isScalar()) {
+            pending.result().set(field.alias(), scalar(value));
+        } else if (definition.list()) {
+            var array = pending.result().putArray(field.alias());
+            ((Collection<?>) value).forEach(element ->
+                queueSelections(definition.type(), element, field, array.addObject(), nextLevel)
+            );
+        } else {
+            queueSelections(definition.type(), value, field, pending.result().putObject(field.alias()), nextLevel);
+        }
+    }
+
+    private Object resolve(final PendingField pending) {
+        var field = pending.field();
+        var source = pending.source();
+        return switch (pending.type() + "." + field.name()) {
+            case "Query.pet" -> pets.get(requiredInt(field, "id"));
+            case "Query.vet" -> vets.get(requiredInt(field, "id"));
+            case "Query.pets" -> primed(
+                pets, petManager.getPetsAfter(optionalInt(field, "after"), pageSize(field)), Pet::getId
+            );
+            case "Query.vets" -> primed(vets, findVets(field), Vet::getId);
+            case "Pet.id" -> ((Pet) source).getId();
+            case "Pet.name" -> ((Pet) source).getName();
+            case "Pet.age" -> ((Pet) source).getAge();
+            case "Pet.species" -> ((Pet) source).getSpecies();
+            case "Pet.visits" -> petVisits.get(((Pet) source).getId());
+            case "Visit.id" -> ((Visit) source).getId();
+            case "Visit.date" -> ((Visit) source).getDate();
+            case "Visit.treatment" -> ((Visit) source).getTreatment();
+            case "Visit.pet" -> pets.get(((Visit) source).getPetId());
+            case "Visit.vet" -> vets.get(((Visit) source).getVetId());
+            case "Vet.id" -> ((Vet) source).getId();
+            case "Vet.name" -> ((Vet) source).getName();
+            case "Vet.specialties" -> new TreeSet<>(((Vet) source).getSpecialties());
+            default -> throw new IllegalStateException("No resolver for " + pending.type() + "." + field.name());
+        };
+    }
+
+    private List<Vet> findVets(final QueryField field) {
+        var specialties = specialties(field);
+        var after = optionalInt(field, "after");
+        if (specialties.isEmpty()) {
+            return vetManager.getVetsAfter(after, pageSize(field));
+        }
+        // vets having the specialties are few, they are paged in memory
+        return vetManager.getVetsBySpecialties(specialties, match(field)).stream()
+            .filter(vet -> vet.getId() > after)
+            .sorted(Comparator.comparingInt(Vet::getId))
+            .limit(pageSize(field))
+            .toList();
+    }
+
+    private static void queueSelections(
+        final String type,
+        final Object source,
+        final QueryField field,
+        final ObjectNode result,
+        final List<PendingField> nextLevel
+    ) {
+        field.selections().forEach(selection -> nextLevel.add(new PendingField(type, source, selection, result)));
+    }
+
+    private static JsonNode scalar(final Object value) {
+        if (value instanceof Integer number) {
+            return NODES.numberNode(number);
+        }
+        if (value instanceof Collection<?> values) {
+            ArrayNode array = NODES.arrayNode();
+            values.forEach(element -> array.add(scalar(element)));
+            return array;
+        }
+        // strings, species and instants are written as text
+        return NODES.textNode(value.toString());
+    }
+
+    private int pageSize(final QueryField field) {
+        var first = field.arguments().containsKey("first")
+            ? requiredInt(field, "first")
+            : config.getDefaultPageSize();
+        if (first < 1 || first > config.getMaxPageSize()) {
+            throw new GraphQlException("Argument 'first' must be between 1 and %d".formatted(config.getMaxPageSize()));
+        }
+        return first;
+    }
+
+    private static int optionalInt(
+        final QueryField field,
+        final String argument
+    ) {
+        return field.arguments().get(argument) == null ? 0 : requiredInt(field, argument);
+    }
+
+    private static int requiredInt(
+        final QueryField field,
+        final String argument
+    ) {
+        if (!(field.arguments().get(argument) instanceof Integer value)) {
+            throw new GraphQlException("Argument '%s' of field '%s' must be an integer".formatted(argument, field.name()));
+        }
+        return value;
+    }
+
+    private static List<String> specialties(final QueryField field) {
+        var value = field.arguments().get("specialties");
+        if (value == null) {
+            return List.of();
+        }
+        // a single value stands for a list of one, as GraphQL coerces it
+        var values = value instanceof List<?> list ? list : List.of(value);
+        if (!values.stream().allMatch(String.class::isInstance)) {
+            throw new GraphQlException("Argument 'specialties' must be a list of names");
+        }
+        return values.stream().map(String.class::cast).toList();
+    }
+
+    private static SpecialtyMatch match(final QueryField field) {
+        var value = field.arguments().get("match");
+        if (value == null) {
+            return SpecialtyMatch.ALL;
+        }
+        try {
+            return SpecialtyMatch.fromString(value.toString());
+        } catch (IllegalArgumentException e) {
+            throw new GraphQlException("Argument 'match' must be ALL or ANY");
+        }
+    }
+
+    private static <T> List<T> primed(
+        final DataLoader<Integer, T> loader,
+        final List<T> values,
+        final Function<T, Integer> id
+    ) {
+        values.forEach(value -> loader.prime(id.apply(value), value));
+        return values;
+    }
+
+    private static <T> Map<Integer, T> byId(
+        final List<T> values,
+        final Function<T, Integer> id
+    ) {
+        return values.stream().collect(toMap(id, Function.identity()));
+    }
+
+    private static int[] toArray(final Set<Integer> ids) {
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private record PendingField(
+        String type,
+        Object source,
+        QueryField field,
+        ObjectNode result
+    ) {
+    }
+}
@@ -0,0 +1,15 @@
+package io.baris.petclinic.dropwizard.graphql;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A field selected by a query, with its arguments resolved and the fields selected under it
+ */
+record QueryField(
+    String alias,
+    String name,
+    Map<String, Object> arguments,
+    List<QueryField> selections
+) {
+}
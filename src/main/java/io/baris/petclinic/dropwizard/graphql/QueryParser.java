@@ -0,0 +1,311 @@
+package io.baris.petclinic.dropwizard.graphql;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the part of the GraphQL language the endpoint serves: a single query with fields, aliases,
+ * arguments and variables. Fragments, directives, input objects and mutations are refused.
+ * <p>
+ * Variables are substituted while parsing, and the depth is limited while parsing too, so that a
+ * deeply nested query fails before it costs a deep recursion.
+ */
+class QueryParser {
+
+    private final String source;
+    private final Map<String, Object> variables;
+    private final int maxDepth;
+    private final Map<String, Object> declaredVariables = new HashMap<>();
+    private int position;
+
+    private QueryParser(
+        final String source,
+        final Map<String, Object> variables,
+        final int maxDepth
+    ) {
+        this.source = source;
+        this.variables = variables != null ? variables : Map.of();
+        this.maxDepth = maxDepth;
+    }
+
+    static List<QueryField> parse(
+        final String query,
+        final String operationName,
+        final Map<String, Object> variables,
+        final int maxDepth
+    ) {
+        return new QueryParser(query, variables, maxDepth).document(operationName);
+    }
+
+    private List<QueryField> document(final String operationName) {
+        skipIgnored();
+        String name = null;
+        if (!peek('{')) {
+            var operation = name();
+            if (operation.equals("fragment")) {
+                throw new GraphQlException("Fragments are not supported");
+            }
+            if (!operation.equals("query")) {
+                throw new GraphQlException("Only queries are supported");
+            }
+            if (isNameStart()) {
+                name = name();
+            }
+            if (peek('(')) {
+                variableDefinitions();
+            }
+        }
+        var selections = selectionSet(1);
+        if (position < source.length()) {
+            throw new GraphQlException("Only a single operation is supported");
+        }
+        if (operationName != null && !operationName.equals(name)) {
+            throw new GraphQlException("Unknown operation " + operationName);
+        }
+        return selections;
+    }
+
+    private void variableDefinitions() {
+        expect('(');
+        do {
+            expect('$');
+            var name = name();
+            expect(':');
+            type();
+            Object defaultValue = null;
+            if (peek('=')) {
+                expect('=');
+                defaultValue = value(false);
+            }
+            declaredVariables.put(name, defaultValue);
+        } while (!peek(')'));
+        expect(')');
+    }
+
+    private void type() {
+        if (peek('[')) {
+            expect('[');
+            type();
+            expect(']');
+        } else {
+            name();
+        }
+        if (peek('!')) {
+            expect('!');
+        }
+    }
+
+    private List<QueryField> selectionSet(final int depth) {
+        if (depth > maxDepth) {
+            throw new GraphQlException("Query is deeper than %d levels".formatted(maxDepth));
+        }
+        expect('{');
+        var selections = new ArrayList<QueryField>();
+        do {
+            if (source.startsWith("...", position)) {
+                throw new GraphQlException("Fragments are not supported");
+            }
+            selections.add(field(depth));
+        } while (!peek('}'));
+        expect('}');
+        return selections;
+    }
+
+    private QueryField field(final int depth) {
+        var alias = name();
+        var name = alias;
+        if (peek(':')) {
+            expect(':');
+            name = name();
+        }
+        var arguments = peek('(') ? arguments() : new LinkedHashMap<String, Object>();
+        if (peek('@')) {
+            throw new GraphQlException("Directives are not supported");
+        }
+        var selections = peek('{') ? selectionSet(depth + 1) : List.<QueryField>of();
+        return new QueryField(alias, name, arguments, selections);
+    }
+
+    private Map<String, Object> arguments() {
+        expect('(');
+        var arguments = new LinkedHashMap<String, Object>();
+        do {
+            var name = name();
+            expect(':');
+            arguments.put(name, value(true));
+        } while (!peek(')'));
+        expect(')');
+        return arguments;
+    }
+
+    private Object value(final boolean variablesAllowed) {
+        if (position >= source.length()) {
+            throw error("Unexpected end of query");
+        }
+        var c = source.charAt(position);
+        if (c == '$') {
+            if (!variablesAllowed) {
+                throw error("Default values cannot refer to variables");
+            }
+            expect('$');
+            var name = name();
+            if (!declaredVariables.containsKey(name)) {
+                throw new GraphQlException("Variable $%s is not declared".formatted(name));
+            }
+            return variables.containsKey(name) ? variables.get(name) : declaredVariables.get(name);
+        }
+        if (c == '"') {
+            return string();
+        }
+        if (c == '[') {
+            expect('[');
+            var values = new ArrayList<>();
+            while (!peek(']')) {
+                values.add(value(variablesAllowed));
+            }
+            expect(']');
+            return values;
+        }
+        if (c == '{') {
+            throw error("Input objects are not supported");
+        }
+        if (c == '-' || Character.isDigit(c)) {
+            return number();
+        }
+        // enum values are handed over by name
+        var name = name();
+        return switch (name) {
+            case "true" -> true;
+            case "false" -> false;
+            case "null" -> null;
+            default -> name;
+        };
+    }
+
+    private Object number() {
+        var start = position;
+        if (source.charAt(position) == '-') {
+            position++;
+        }
+        while (position < source.length() && Character.isDigit(source.charAt(position))) {
+            position++;
+        }
+        if (position < source.length() && ".eE".indexOf(source.charAt(position)) >= 0) {
+            throw error("Only integer numbers are supported");
+        }
+        var number = source.substring(start, position);
+        skipIgnored();
+        try {
+            return Integer.parseInt(number);
+        } catch (NumberFormatException e) {
+            throw new GraphQlException("Invalid integer " + number);
+        }
+    }
+
+    private String string() {
+        if (source.startsWith("\"\"\"", position)) {
+            throw error("Block strings are not supported");
+        }
+        position++;
+        var value = new StringBuilder();
+        while (true) {
+            if (position >= source.length() || source.charAt(position) == '\n') {
+                throw error("Unterminated string");
+            }
+            var c = source.charAt(position++);
+            if (c == '"') {
+                break;
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (position >= source.length()) {
+                throw error("Unterminated string");
+            }
+            var escaped = source.charAt(position++);
+            switch (escaped) {
+                case '"', '\\', '/' -> value.append(escaped);
+                case 'b' -> value.append('\b');
+                case 'f' -> value.append('\f');
+                case 'n' -> value.append('\n');
+                case 'r' -> value.append('\r');
+                case 't' -> value.append('\t');
+                case 'u' -> {
+                    if (position + 4 > source.length()) {
+                        throw error("Invalid unicode escape");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(source.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid unicode escape");
+                    }
+                    position += 4;
+                }
+                default -> throw error("Invalid escape \\" + escaped);
+            }
+        }
+        skipIgnored();
+        return value.toString();
+    }
+
+    private String name() {
+        if (!isNameStart()) {
+            throw error("Expected a name");
+        }
+        var start = position;
+        while (position < source.length() && isNamePart(source.charAt(position))) {
+            position++;
+        }
+        var name = source.substring(start, position);
+        skipIgnored();
+        return name;
+    }
+
+    private boolean isNameStart() {
+        if (position >= source.length()) {
+            return false;
+        }
+        var c = source.charAt(position);
+        return c == '_' || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static boolean isNamePart(final char c) {
+        return c == '_' || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+    }
+
+    private boolean peek(final char c) {
+        return position < source.length() && source.charAt(position) == c;
+    }
+
+    private void expect(final char c) {
+        if (!peek(c)) {
+            throw error("Expected '" + c + "'");
+        }
+        position++;
+        skipIgnored();
+    }
+
+    // white space, commas and comments carry no meaning
+    private void skipIgnored() {
+        while (position < source.length()) {
+            var c = source.charAt(position);
+            if (c == '#') {
+                while (position < source.length() && source.charAt(position) != '\n') {
+                    position++;
+                }
+            } else if (Character.isWhitespace(c) || c == ',' || c == '\uFEFF') {
+                position++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private GraphQlException error(final String message) {
+        return new GraphQlException("%s at position %d".formatted(message, position));
+    }
+}
@@ -0,0 +1,20 @@
+package io.baris.petclinic.dropwizard.graphql.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import javax.validation.constraints.NotEmpty;
+import java.util.Map;
+
+/**
+ * Represents the request for running a GraphQL query
+ */
+@Builder
+@Value
+public class GraphQlRequest {
+
+    @NotEmpty
+    String query;
+    String operationName;
+    Map<String, Object> variables;
+}
@@ -0,0 +1,36 @@
+package io.baris.petclinic.dropwizard.health;
+
+import com.codahale.metrics.health.HealthCheck;
+
+import java.time.Duration;
+
+/**
+ * Reuses the result of another health check for a while, so frequent probes don't each run it.
+ * Probes arriving while it runs wait for its result.
+ */
+public class CachedHealthCheck extends HealthCheck {
+
+    private final HealthCheck delegate;
+    private final long ttlNanos;
+
+    private Result result;
+    private long expiresAt;
+
+    public CachedHealthCheck(
+        final HealthCheck delegate,
+        final Duration ttl
+    ) {
+        this.delegate = delegate;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    @Override
+    protected synchronized Result check() {
+        var now = System.nanoTime();
+        if (result == null || now - expiresAt >= 0) {
+            result = delegate.execute();
+            expiresAt = now + ttlNanos;
+        }
+        return result;
+    }
+}
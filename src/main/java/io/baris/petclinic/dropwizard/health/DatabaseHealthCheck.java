@@ -0,0 +1,114 @@
+package io.baris.petclinic.dropwizard.health;
+
+import com.codahale.metrics.health.HealthCheck;
+import io.baris.petclinic.dropwizard.system.HealthConfig;
+import org.apache.tomcat.jdbc.pool.DataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Health of the database as seen by this node: the validation query answers in time, the connection pool
+ * is not exhausted and most statements succeed.
+ * <p>
+ * The validation query is skipped while the pool is exhausted, it would only queue for a connection.
+ * Pool status, validation latency and error ratio are reported as details of every result.
+ */
+public class DatabaseHealthCheck extends HealthCheck {
+
+    private final DataSource dataSource;
+    private final String validationQuery;
+    private final StatementErrorRate errorRate;
+    private final HealthConfig config;
+    private final ExecutorService executor;
+
+    public DatabaseHealthCheck(
+        final DataSource dataSource,
+        final String validationQuery,
+        final StatementErrorRate errorRate,
+        final HealthConfig config,
+        final ExecutorService executor
+    ) {
+        this.dataSource = dataSource;
+        this.validationQuery = validationQuery;
+        this.errorRate = errorRate;
+        this.config = config;
+        this.executor = executor;
+    }
+
+    @Override
+    protected Result check() {
+        var result = Result.builder();
+        var problems = new ArrayList<String>();
+
+        var poolExhausted = false;
+        // the pool is only inspected once created, creating it here would fail as well when the database is down
+        if (dataSource instanceof DataSourceProxy proxy && proxy.getPool() != null) {
+            var pool = proxy.getPool();
+            var maxActive = pool.getPoolProperties().getMaxActive();
+            result
+                .withDetail("activeConnections", pool.getActive())
+                .withDetail("idleConnections", pool.getIdle())
+                .withDetail("maxConnections", maxActive)
+                .withDetail("waitingThreads", pool.getWaitCount());
+            poolExhausted = pool.getActive() >= maxActive && pool.getWaitCount() > 0;
+        }
+        if (poolExhausted) {
+            problems.add("Connection pool is exhausted");
+        } else {
+            var start = System.nanoTime();
+            validate().ifPresent(problems::add);
+            result.withDetail("validationMillis", (System.nanoTime() - start) / 1_000_000);
+        }
+
+        var errorRatio = errorRate.getErrorRatio();
+        result.withDetail("errorRatio", errorRatio);
+        if (errorRatio > config.getMaxErrorRatio()) {
+            problems.add("%.0f%% of the statements failed in the last minute".formatted(errorRatio * 100));
+        }
+
+        return problems.isEmpty()
+            ? result.healthy().build()
+            : result.unhealthy().withMessage(String.join(", ", problems)).build();
+    }
+
+    /**
+     * Runs the validation query on the executor, so a hanging connection can't block the probe, and describes
+     * its failure if any
+     */
+    private Optional<String> validate() {
+        Future<?> validation;
+        try {
+            validation = executor.submit(() -> {
+                try (
+                    var connection = dataSource.getConnection();
+                    var statement = connection.createStatement()
+                ) {
+                    statement.execute(validationQuery);
+                }
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            return Optional.of("Validation query could not be started");
+        }
+        try {
+            validation.get(config.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            return Optional.empty();
+        } catch (TimeoutException e) {
+            validation.cancel(true);
+            return Optional.of("Validation query did not answer within %dms".formatted(config.getTimeoutMillis()));
+        } catch (ExecutionException e) {
+            return Optional.of("Validation query failed: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.of("Validation query was interrupted");
+        }
+    }
+}
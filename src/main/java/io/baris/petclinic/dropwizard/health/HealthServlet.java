@@ -0,0 +1,66 @@
+package io.baris.petclinic.dropwizard.health;
+
+import com.codahale.metrics.health.HealthCheck.Result;
+import com.codahale.metrics.health.HealthCheckRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Admin servlet answering a probe with the results of the given health checks,
+ * 200 when all of them are healthy and 503 otherwise
+ */
+@RequiredArgsConstructor
+public class HealthServlet extends HttpServlet {
+
+    private final transient HealthCheckRegistry healthChecks;
+    private final transient List<String> names;
+    private final transient ObjectMapper objectMapper;
+
+    @Override
+    protected void doGet(
+        final HttpServletRequest request,
+        final HttpServletResponse response
+    ) throws IOException {
+        var healthy = true;
+        var checks = new LinkedHashMap<String, Object>();
+        for (var name : names) {
+            var result = run(name);
+            healthy &= result.isHealthy();
+            checks.put(name, toMap(result));
+        }
+        response.setStatus(healthy ? HttpServletResponse.SC_OK : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setContentType("application/json");
+        response.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+        objectMapper.writeValue(response.getOutputStream(), Map.of("healthy", healthy, "checks", checks));
+    }
+
+    private Result run(final String name) {
+        try {
+            return healthChecks.runHealthCheck(name);
+        } catch (NoSuchElementException e) {
+            return Result.unhealthy("Not registered");
+        }
+    }
+
+    private static Map<String, Object> toMap(final Result result) {
+        var map = new LinkedHashMap<String, Object>();
+        map.put("healthy", result.isHealthy());
+        if (result.getMessage() != null) {
+            map.put("message", result.getMessage());
+        }
+        if (result.getDetails() != null) {
+            map.putAll(result.getDetails());
+        }
+        map.put("timestamp", result.getTimestamp());
+        return map;
+    }
+}
@@ -0,0 +1,56 @@
+package io.baris.petclinic.dropwizard.health;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.jdbi.v3.core.statement.SqlLogger;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.SQLException;
+
+/**
+ * Meters the executed and the failed statements, every call is passed on to the given logger first
+ */
+public class StatementErrorRate implements SqlLogger {
+
+    private final SqlLogger delegate;
+    private final Meter statements;
+    private final Meter errors;
+
+    public StatementErrorRate(
+        final SqlLogger delegate,
+        final MetricRegistry metrics
+    ) {
+        this.delegate = delegate;
+        this.statements = metrics.meter("database.statements");
+        this.errors = metrics.meter("database.errors");
+    }
+
+    @Override
+    public void logBeforeExecution(final StatementContext ctx) {
+        delegate.logBeforeExecution(ctx);
+    }
+
+    @Override
+    public void logAfterExecution(final StatementContext ctx) {
+        delegate.logAfterExecution(ctx);
+        statements.mark();
+    }
+
+    @Override
+    public void logException(
+        final StatementContext ctx,
+        final SQLException ex
+    ) {
+        delegate.logException(ctx, ex);
+        statements.mark();
+        errors.mark();
+    }
+
+    /**
+     * Share of the statements that failed over the last minute, zero without any statements
+     */
+    public double getErrorRatio() {
+        var statementRate = statements.getOneMinuteRate();
+        return statementRate > 0 ? Math.min(1, errors.getOneMinuteRate() / statementRate) : 0;
+    }
+}
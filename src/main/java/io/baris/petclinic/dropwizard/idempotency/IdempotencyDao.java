@@ -0,0 +1,57 @@
+package io.baris.petclinic.dropwizard.idempotency;
+
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+
+import java.util.Optional;
+
+/**
+ * Manages idempotency keys in the database
+ */
+@RegisterRowMapper(IdempotencyRecordRowMapper.class)
+public interface IdempotencyDao {
+
+    // takes over keys whose previous claim or response has expired
+    @SqlUpdate("""
+        INSERT INTO idempotency_keys (key, fingerprint, expires_at)
+        VALUES (:key, :fingerprint, now() + make_interval(secs => :timeout))
+        ON CONFLICT (key) DO UPDATE
+        SET fingerprint = excluded.fingerprint,
+            response_status = NULL,
+            content_type = NULL,
+            body = NULL,
+            created_at = now(),
+            expires_at = excluded.expires_at
+        WHERE idempotency_keys.expires_at < now()""")
+    boolean claim(
+        @Bind("key") String key,
+        @Bind("fingerprint") String fingerprint,
+        @Bind("timeout") long inFlightTimeoutSeconds
+    );
+
+    @SqlQuery("SELECT * FROM idempotency_keys WHERE key = ? AND expires_at >= now()")
+    Optional<IdempotencyRecord> getRecord(String key);
+
+    @SqlUpdate("""
+        UPDATE idempotency_keys
+        SET response_status = :status,
+            content_type = :contentType,
+            body = :body,
+            expires_at = now() + make_interval(secs => :ttl)
+        WHERE key = :key""")
+    void complete(
+        @Bind("key") String key,
+        @Bind("status") int status,
+        @Bind("contentType") String contentType,
+        @Bind("body") byte[] body,
+        @Bind("ttl") long ttlSeconds
+    );
+
+    @SqlUpdate("DELETE FROM idempotency_keys WHERE key = ? AND response_status IS NULL")
+    void release(String key);
+
+    @SqlUpdate("DELETE FROM idempotency_keys WHERE expires_at < now()")
+    int purgeExpired();
+}
@@ -0,0 +1,149 @@
+package io.baris.petclinic.dropwizard.idempotency;
+
+import io.baris.petclinic.dropwizard.tenant.TenantFilter;
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Priority;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Replays the stored response of requests retried with the same Idempotency-Key header
+ * <p>
+ * The first request claims its key, its response body is captured while written and stored.
+ * Retries get the stored response without running the resource again, retries arriving while
+ * the first request is still running are rejected. Server errors release the key.
+ */
+@Idempotent
+@Priority(Priorities.USER)
+@RequiredArgsConstructor
+public class IdempotencyFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String CLAIMED_KEY = IdempotencyFilter.class.getName() + ".key";
+    private static final String FINGERPRINT = IdempotencyFilter.class.getName() + ".fingerprint";
+    private static final String STATUS = IdempotencyFilter.class.getName() + ".status";
+
+    private final IdempotencyStore store;
+
+    @Override
+    public void filter(final ContainerRequestContext request) throws IOException {
+        var key = request.getHeaderString(IDEMPOTENCY_KEY);
+        if (key == null) {
+            return;
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Invalid Idempotency-Key header");
+        }
+
+        // keys are scoped to the clinic and endpoint so that a client reusing one elsewhere gets no foreign response
+        var scopedKey = "%s %s %s".formatted(request.getMethod(), request.getUriInfo().getPath(), key);
+        if (request.getProperty(TenantFilter.TENANT_PROPERTY) instanceof String tenant) {
+            scopedKey = tenant + " " + scopedKey;
+        }
+        var fingerprint = fingerprint(request);
+
+        var existing = store.claim(scopedKey, fingerprint);
+        if (existing.isEmpty()) {
+            request.setProperty(CLAIMED_KEY, scopedKey);
+            request.setProperty(FINGERPRINT, fingerprint);
+            return;
+        }
+
+        var record = existing.get();
+        if (!fingerprint.equals(record.getFingerprint())) {
+            throw new ClientErrorException("Idempotency-Key was used for a different request", 422);
+        }
+        if (!record.isCompleted()) {
+            throw new ClientErrorException("Request with the same Idempotency-Key is in progress", Response.Status.CONFLICT);
+        }
+        request.abortWith(
+            Response
+                .status(record.getStatus())
+                .type(record.getContentType())
+                .entity(record.getBody())
+                .header(IDEMPOTENT_REPLAYED, true)
+                .build()
+        );
+    }
+
+    @Override
+    public void filter(
+        final ContainerRequestContext request,
+        final ContainerResponseContext response
+    ) {
+        var key = (String) request.getProperty(CLAIMED_KEY);
+        if (key == null) {
+            return;
+        }
+        if (response.getStatus() >= 500) {
+            request.removeProperty(CLAIMED_KEY);
+            store.release(key);
+        } else if (!response.hasEntity()) {
+            request.removeProperty(CLAIMED_KEY);
+            store.complete(key, new IdempotencyRecord(
+                (String) request.getProperty(FINGERPRINT), response.getStatus(), null, new byte[0]
+            ));
+        } else {
+            request.setProperty(STATUS, response.getStatus());
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(final WriterInterceptorContext context) throws IOException {
+        var key = (String) context.getProperty(CLAIMED_KEY);
+        if (key == null) {
+            context.proceed();
+            return;
+        }
+
+        var original = context.getOutputStream();
+        var buffer = new ByteArrayOutputStream();
+        context.setOutputStream(buffer);
+        try {
+            context.proceed();
+        } catch (IOException | RuntimeException e) {
+            store.release(key);
+            throw e;
+        } finally {
+            context.setOutputStream(original);
+        }
+
+        var body = buffer.toByteArray();
+        store.complete(key, new IdempotencyRecord(
+            (String) context.getProperty(FINGERPRINT),
+            (Integer) context.getProperty(STATUS),
+            context.getMediaType() != null ? context.getMediaType().toString() : null,
+            body
+        ));
+        original.write(body);
+    }
+
+    private static String fingerprint(final ContainerRequestContext request) throws IOException {
+        var body = request.hasEntity() ? request.getEntityStream().readAllBytes() : new byte[0];
+        request.setEntityStream(new ByteArrayInputStream(body));
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
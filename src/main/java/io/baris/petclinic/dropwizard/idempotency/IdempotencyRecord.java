@@ -0,0 +1,23 @@
+package io.baris.petclinic.dropwizard.idempotency;
+
+import lombok.Value;
+
+/**
+ * What is known about an idempotency key, the response is missing while the first request is in flight
+ */
+@Value
+public class IdempotencyRecord {
+
+    String fingerprint;
+    Integer status;
+    String contentType;
+    byte[] body;
+
+    public static IdempotencyRecord inFlight(final String fingerprint) {
+        return new IdempotencyRecord(fingerprint, null, null, null);
+    }
+
+    public boolean isCompleted() {
+        return status != null;
+    }
+}
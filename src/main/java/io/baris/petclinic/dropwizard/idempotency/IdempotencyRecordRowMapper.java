@@ -0,0 +1,23 @@
+package io.baris.petclinic.dropwizard.idempotency;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps idempotency key rows
+ */
+public class IdempotencyRecordRowMapper implements RowMapper<IdempotencyRecord> {
+
+    @Override
+    public IdempotencyRecord map(final ResultSet rs, final StatementContext ctx) throws SQLException {
+        return new IdempotencyRecord(
+            rs.getString("fingerprint"),
+            rs.getObject("response_status", Integer.class),
+            rs.getString("content_type"),
+            rs.getBytes("body")
+        );
+    }
+}
@@ -0,0 +1,21 @@
+package io.baris.petclinic.dropwizard.idempotency;
+
+import java.util.Optional;
+
+/**
+ * Deduplication store of idempotency keys
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims the key for a new execution, returns the existing record instead when the key is already known
+     */
+    Optional<IdempotencyRecord> claim(String key, String fingerprint);
+
+    void complete(String key, IdempotencyRecord record);
+
+    /**
+     * Forgets a claimed key whose execution failed, so that a retry runs again
+     */
+    void release(String key);
+}
@@ -0,0 +1,87 @@
+package io.baris.petclinic.dropwizard.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded in-process idempotency store, in-flight keys expire sooner than completed ones
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, IdempotencyRecord> records;
+
+    public InMemoryIdempotencyStore(
+        final Duration ttl,
+        final Duration inFlightTimeout,
+        final long maxEntries
+    ) {
+        this.records = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfter(new Expiry<String, IdempotencyRecord>() {
+                @Override
+                public long expireAfterCreate(final String key, final IdempotencyRecord record, final long currentTime) {
+                    return (record.isCompleted() ? ttl : inFlightTimeout).toNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(
+                    final String key,
+                    final IdempotencyRecord record,
+                    final long currentTime,
+                    final long currentDuration
+                ) {
+                    return expireAfterCreate(key, record, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(
+                    final String key,
+                    final IdempotencyRecord record,
+                    final long currentTime,
+                    final long currentDuration
+                ) {
+                    return currentDuration;
+                }
+            })
+            .build();
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> claim(
+        final String key,
+        final String fingerprint
+    ) {
+        return Optional.ofNullable(records.asMap().putIfAbsent(key, IdempotencyRecord.inFlight(fingerprint)));
+    }
+
+    @Override
+    public void complete(
+        final String key,
+        final IdempotencyRecord record
+    ) {
+        records.put(key, record);
+    }
+
+    @Override
+    public void release(final String key) {
+        records.asMap().computeIfPresent(key, (ignored, record) -> record.isCompleted() ? record : null);
+    }
+
+    /**
+     * Remembers a record learned from another store without claiming anything
+     */
+    public void remember(
+        final String key,
+        final IdempotencyRecord record
+    ) {
+        records.put(key, record);
+    }
+
+    public Optional<IdempotencyRecord> get(final String key) {
+        return Optional.ofNullable(records.getIfPresent(key));
+    }
+}
@@ -0,0 +1,58 @@
+package io.baris.petclinic.dropwizard.idempotency;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Jdbi;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Idempotency store shared between nodes through the {@code idempotency_keys} table
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class PostgresIdempotencyStore implements IdempotencyStore {
+
+    private final Jdbi jdbi;
+    private final Duration ttl;
+    private final Duration inFlightTimeout;
+
+    @Override
+    public Optional<IdempotencyRecord> claim(
+        final String key,
+        final String fingerprint
+    ) {
+        return jdbi.withExtension(IdempotencyDao.class, dao -> {
+            if (dao.claim(key, fingerprint, inFlightTimeout.toSeconds())) {
+                return Optional.empty();
+            }
+            // a key expiring in between counts as in flight, the retry of the client sorts it out
+            return Optional.of(dao.getRecord(key).orElseGet(() -> IdempotencyRecord.inFlight(fingerprint)));
+        });
+    }
+
+    @Override
+    public void complete(
+        final String key,
+        final IdempotencyRecord record
+    ) {
+        jdbi.useExtension(IdempotencyDao.class, dao -> dao.complete(
+            key, record.getStatus(), record.getContentType(), record.getBody(), ttl.toSeconds()
+        ));
+    }
+
+    @Override
+    public void release(final String key) {
+        jdbi.useExtension(IdempotencyDao.class, dao -> dao.release(key));
+    }
+
+    public void purgeExpired() {
+        try {
+            var purged = jdbi.withExtension(IdempotencyDao.class, IdempotencyDao::purgeExpired);
+            log.debug("Purged {} expired idempotency keys", purged);
+        } catch (Exception e) {
+            log.warn("Expired idempotency keys could not be purged", e);
+        }
+    }
+}
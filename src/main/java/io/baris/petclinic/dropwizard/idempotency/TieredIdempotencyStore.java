@@ -0,0 +1,45 @@
+package io.baris.petclinic.dropwizard.idempotency;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.Optional;
+
+/**
+ * Answers retries of completed keys from memory and coordinates everything else through the shared store
+ */
+@RequiredArgsConstructor
+public class TieredIdempotencyStore implements IdempotencyStore {
+
+    private final InMemoryIdempotencyStore near;
+    private final IdempotencyStore shared;
+
+    @Override
+    public Optional<IdempotencyRecord> claim(
+        final String key,
+        final String fingerprint
+    ) {
+        var known = near.get(key).filter(IdempotencyRecord::isCompleted);
+        if (known.isPresent()) {
+            return known;
+        }
+        var existing = shared.claim(key, fingerprint);
+        existing
+            .filter(IdempotencyRecord::isCompleted)
+            .ifPresent(record -> near.remember(key, record));
+        return existing;
+    }
+
+    @Override
+    public void complete(
+        final String key,
+        final IdempotencyRecord record
+    ) {
+        shared.complete(key, record);
+        near.remember(key, record);
+    }
+
+    @Override
+    public void release(final String key) {
+        shared.release(key);
+    }
+}
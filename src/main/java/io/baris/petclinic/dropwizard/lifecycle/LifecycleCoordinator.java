@@ -0,0 +1,103 @@
+package io.baris.petclinic.dropwizard.lifecycle;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.baris.petclinic.dropwizard.system.LifecycleConfig;
+import io.dropwizard.lifecycle.ServerLifecycleListener;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Orders startup and shutdown around the readiness of the node.
+ * <p>
+ * Once the server is started the warm-up runs in the background and readiness turns green after it.
+ * When the server is asked to stop, readiness drops first while requests are still served, giving the
+ * load balancer time to stop routing here. In-flight requests then get a deadline to complete before
+ * the connectors close, after which the managed objects stop and the pool is closed. Warm-up and drain
+ * durations are kept as gauges.
+ */
+@Slf4j
+public class LifecycleCoordinator implements LifeCycle.Listener, ServerLifecycleListener {
+
+    private final Readiness readiness;
+    private final WarmUp warmUp;
+    private final LifecycleConfig config;
+
+    private volatile StatisticsHandler statistics;
+    private volatile long warmUpMillis;
+    private volatile long drainMillis;
+    private volatile int drainedRequests;
+    private volatile int abandonedRequests;
+
+    public LifecycleCoordinator(
+        final Readiness readiness,
+        final WarmUp warmUp,
+        final LifecycleConfig config,
+        final MetricRegistry metrics
+    ) {
+        this.readiness = readiness;
+        this.warmUp = warmUp;
+        this.config = config;
+        metrics.register("lifecycle.warm-up-millis", (Gauge<Long>) () -> warmUpMillis);
+        metrics.register("lifecycle.drain-millis", (Gauge<Long>) () -> drainMillis);
+        metrics.register("lifecycle.drained-requests", (Gauge<Integer>) () -> drainedRequests);
+        metrics.register("lifecycle.abandoned-requests", (Gauge<Integer>) () -> abandonedRequests);
+    }
+
+    @Override
+    public void serverStarted(final Server server) {
+        statistics = server.getChildHandlerByClass(StatisticsHandler.class);
+        var thread = new Thread(this::warmUp, "warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void lifeCycleStopping(final LifeCycle event) {
+        readiness.drain();
+        log.info("Readiness dropped, refusing new requests in {}ms", config.getUnreadyDelayMillis());
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(config.getUnreadyDelayMillis()));
+        drain();
+    }
+
+    private void warmUp() {
+        var start = System.nanoTime();
+        try {
+            warmUp.run();
+        } catch (RuntimeException e) {
+            log.warn("Warm-up failed, turning ready cold", e);
+        }
+        warmUpMillis = elapsedMillis(start);
+        readiness.ready();
+        log.info("Ready after a warm-up of {}ms", warmUpMillis);
+    }
+
+    private void drain() {
+        if (statistics == null) {
+            return;
+        }
+        var start = System.nanoTime();
+        var deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getDrainTimeoutMillis());
+        var inFlight = statistics.getRequestsActive();
+        while (statistics.getRequestsActive() > 0 && System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        drainMillis = elapsedMillis(start);
+        abandonedRequests = statistics.getRequestsActive();
+        drainedRequests = Math.max(0, inFlight - abandonedRequests);
+        if (abandonedRequests > 0) {
+            log.warn("Stopping with {} requests still in flight after {}ms", abandonedRequests, drainMillis);
+        } else {
+            log.info("Drained {} in-flight requests in {}ms", drainedRequests, drainMillis);
+        }
+    }
+
+    private static long elapsedMillis(final long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
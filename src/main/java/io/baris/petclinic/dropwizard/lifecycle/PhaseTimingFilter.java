@@ -0,0 +1,56 @@
+package io.baris.petclinic.dropwizard.lifecycle;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.baris.petclinic.dropwizard.lifecycle.Readiness.Phase;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the requests by the phase of the node they arrived in, so the latency during the warm-up and
+ * draining of a rolling restart can be compared with the steady state
+ */
+@Provider
+public class PhaseTimingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String START = PhaseTimingFilter.class.getName() + ".start";
+    private static final String PHASE = PhaseTimingFilter.class.getName() + ".phase";
+
+    private final Readiness readiness;
+    private final Map<Phase, Timer> timers = new EnumMap<>(Phase.class);
+
+    public PhaseTimingFilter(
+        final Readiness readiness,
+        final MetricRegistry metrics
+    ) {
+        this.readiness = readiness;
+        for (var phase : Phase.values()) {
+            var name = phase.name().toLowerCase(Locale.ROOT).replace('_', '-');
+            timers.put(phase, metrics.timer("lifecycle.requests." + name));
+        }
+    }
+
+    @Override
+    public void filter(final ContainerRequestContext request) {
+        request.setProperty(START, System.nanoTime());
+        request.setProperty(PHASE, readiness.getPhase());
+    }
+
+    @Override
+    public void filter(
+        final ContainerRequestContext request,
+        final ContainerResponseContext response
+    ) {
+        if (request.getProperty(START) instanceof Long start && request.getProperty(PHASE) instanceof Phase phase) {
+            timers.get(phase).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
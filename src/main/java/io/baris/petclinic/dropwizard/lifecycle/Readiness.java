@@ -0,0 +1,43 @@
+package io.baris.petclinic.dropwizard.lifecycle;
+
+import com.codahale.metrics.health.HealthCheck;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Readiness of this node for traffic, healthy once warmed up and until draining starts
+ */
+public class Readiness extends HealthCheck {
+
+    public enum Phase {
+        WARMING_UP,
+        READY,
+        DRAINING
+    }
+
+    private final AtomicReference<Phase> phase = new AtomicReference<>(Phase.WARMING_UP);
+
+    public Phase getPhase() {
+        return phase.get();
+    }
+
+    /**
+     * Turns ready unless draining has already started
+     */
+    public void ready() {
+        phase.compareAndSet(Phase.WARMING_UP, Phase.READY);
+    }
+
+    public void drain() {
+        phase.set(Phase.DRAINING);
+    }
+
+    @Override
+    protected Result check() {
+        return switch (phase.get()) {
+            case READY -> Result.healthy();
+            case WARMING_UP -> Result.unhealthy("Warming up");
+            case DRAINING -> Result.unhealthy("Draining");
+        };
+    }
+}
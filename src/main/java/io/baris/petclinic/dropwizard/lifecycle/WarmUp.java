@@ -0,0 +1,51 @@
+package io.baris.petclinic.dropwizard.lifecycle;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Gets the node ready for its first requests: opens the pool's connections, runs the hot statements on
+ * each of them often enough for the driver to prepare them server side, then primes the caches
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class WarmUp {
+
+    private final Jdbi jdbi;
+    private final int connections;
+    private final int statementExecutions;
+    private final List<Consumer<Handle>> hotStatements;
+    private final List<Runnable> cachePrimers;
+
+    public static WarmUp none() {
+        return new WarmUp(null, 0, 0, List.of(), List.of());
+    }
+
+    public void run() {
+        // all handles are held at once, so each one gets a connection of its own
+        var handles = new ArrayList<Handle>(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                handles.add(jdbi.open());
+            }
+            for (var handle : handles) {
+                for (var statement : hotStatements) {
+                    for (int i = 0; i < statementExecutions; i++) {
+                        statement.accept(handle);
+                    }
+                }
+            }
+        } finally {
+            handles.forEach(Handle::close);
+        }
+        log.info("Prepared {} hot statements on {} connections", hotStatements.size(), handles.size());
+
+        cachePrimers.forEach(Runnable::run);
+    }
+}
@@ -0,0 +1,85 @@
+package io.baris.petclinic.dropwizard.openapi;
+
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.core.util.Yaml;
+import io.swagger.v3.jaxrs2.integration.JaxrsOpenApiContextBuilder;
+import lombok.Value;
+
+import javax.ws.rs.core.EntityTag;
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+import static io.baris.petclinic.dropwizard.system.PetClinicUtils.escapeException;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * OpenAPI document rendered once, kept as plain and gzip compressed bytes
+ */
+@Value
+public class OpenApiDocument {
+
+    Rendering json;
+    Rendering yaml;
+
+    /**
+     * A single serialisation of the document with the entity tags of its plain and gzipped bytes
+     */
+    @Value
+    public static class Rendering {
+
+        byte[] bytes;
+        byte[] gzipped;
+        EntityTag entityTag;
+        EntityTag gzippedEntityTag;
+
+        public byte[] getBytes(final boolean gzip) {
+            return gzip ? gzipped : bytes;
+        }
+
+        public EntityTag getEntityTag(final boolean gzip) {
+            return gzip ? gzippedEntityTag : entityTag;
+        }
+    }
+
+    public static OpenApiDocument generate() {
+        return escapeException(() -> {
+            var openApi = new JaxrsOpenApiContextBuilder<>()
+                .buildContext(true)
+                .read();
+            return new OpenApiDocument(
+                render(Json.pretty(openApi)),
+                render(Yaml.pretty(openApi))
+            );
+        });
+    }
+
+    public Rendering get(final String type) {
+        return "yaml".equalsIgnoreCase(type) ? yaml : json;
+    }
+
+    private static Rendering render(final String content) {
+        var bytes = content.getBytes(UTF_8);
+        var entityTag = entityTag(bytes);
+        // the encodings differ in their bytes, a cache must not hand one out for the other
+        return new Rendering(bytes, gzip(bytes), entityTag, new EntityTag(entityTag.getValue() + "-gzip"));
+    }
+
+    private static byte[] gzip(final byte[] bytes) {
+        return escapeException(() -> {
+            var output = new ByteArrayOutputStream(bytes.length / 4);
+            try (var gzip = new GZIPOutputStream(output)) {
+                gzip.write(bytes);
+            }
+            return output.toByteArray();
+        });
+    }
+
+    private static EntityTag entityTag(final byte[] bytes) {
+        return escapeException(() -> {
+            var digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return new EntityTag(HexFormat.of().formatHex(digest, 0, 16));
+        });
+    }
+}
@@ -0,0 +1,119 @@
+package io.baris.petclinic.dropwizard.openapi;
+
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.util.Locale;
+
+/**
+ * Serves the OpenAPI document.
+ * <p>
+ * The document is generated once, either at startup or on the first request, and then served
+ * from pre-compressed bytes. Clients revalidating with the entity tag get a 304 without a body.
+ * <p>
+ * The gzipped bytes are sent when {@code Accept-Encoding} gives gzip, or failing that {@code *}, a
+ * quality above zero. Each encoding has its own entity tag.
+ */
+@Path("/openapi.{type:json|yaml}")
+@Slf4j
+public class OpenApiDocumentResource {
+
+    private static final String APPLICATION_YAML = "application/yaml";
+    private static final CacheControl CACHE_CONTROL = CacheControl.valueOf("public, max-age=300");
+
+    private volatile OpenApiDocument document;
+
+    public OpenApiDocumentResource(final boolean lazy) {
+        if (!lazy) {
+            this.document = OpenApiDocument.generate();
+        }
+    }
+
+    @Operation(hidden = true)
+    @GET
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_YAML})
+    public Response getOpenApi(
+        final @Context Request request,
+        final @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+        final @PathParam("type") String type
+    ) {
+        var rendering = getDocument().get(type);
+        var gzip = acceptsGzip(acceptEncoding);
+
+        var notModified = request.evaluatePreconditions(rendering.getEntityTag(gzip));
+        if (notModified != null) {
+            return notModified
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .cacheControl(CACHE_CONTROL)
+                .build();
+        }
+
+        return Response
+            .ok(rendering.getBytes(gzip))
+            .type("yaml".equalsIgnoreCase(type) ? APPLICATION_YAML : MediaType.APPLICATION_JSON)
+            .encoding(gzip ? "gzip" : null)
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+            .tag(rendering.getEntityTag(gzip))
+            .cacheControl(CACHE_CONTROL)
+            .build();
+    }
+
+    static boolean acceptsGzip(final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        var gzip = -1.0;
+        var any = -1.0;
+        for (var coding : acceptEncoding.split(",")) {
+            var parameters = coding.split(";");
+            switch (parameters[0].trim().toLowerCase(Locale.ROOT)) {
+                case "gzip", "x-gzip" -> gzip = Math.max(gzip, quality(parameters));
+                case "*" -> any = quality(parameters);
+                default -> {
+                }
+            }
+        }
+        return (gzip >= 0 ? gzip : any) > 0;
+    }
+
+    // an unreadable quality refuses the coding rather than accepting it
+    private static double quality(final String[] parameters) {
+        for (var i = 1; i < parameters.length; i++) {
+            var parameter = parameters[i].trim();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private OpenApiDocument getDocument() {
+        var result = document;
+        if (result == null) {
+            synchronized (this) {
+                result = document;
+                if (result == null) {
+                    log.info("Generating OpenAPI document on first request");
+                    result = OpenApiDocument.generate();
+                    document = result;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -4,39 +4,62 @@ import io.baris.petclinic.dropwizard.pet.model.Pet;
 import io.baris.petclinic.dropwizard.pet.model.Species;
 import io.baris.petclinic.dropwizard.pet.model.CreatePet;
 import io.baris.petclinic.dropwizard.pet.model.UpdatePet;
-import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import org.jdbi.v3.sqlobject.SqlObject;
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 import org.jdbi.v3.sqlobject.transaction.Transaction;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
  * Manages pets in the database
  */
-public interface PetDao {
+@RegisterRowMapper(PetRowMapper.class)
+public interface PetDao extends SqlObject {
 
-    @SqlQuery("SELECT * FROM pets WHERE id = ?")
-    @RegisterBeanMapper(Pet.class)
+    @SqlQuery("SELECT * FROM pets WHERE id = ? AND deleted_at IS NULL")
     Pet getPetBasic(int id);
 
-    @SqlQuery("SELECT * FROM pets WHERE name = ?")
-    @RegisterBeanMapper(Pet.class)
+    @SqlQuery("SELECT * FROM pets WHERE name = ? AND deleted_at IS NULL")
     Pet getPetBasic(String name);
 
-    @SqlQuery("SELECT * FROM pets ORDER BY name")
-    @RegisterBeanMapper(Pet.class)
+    // concurrent updates of the pet wait, so each sees the result of the other as the previous state
+    @SqlQuery("SELECT * FROM pets WHERE id = ? AND deleted_at IS NULL FOR UPDATE")
+    Pet lockPet(int id);
+
+    @SqlQuery("SELECT * FROM pets WHERE deleted_at IS NULL ORDER BY name")
     List<Pet> getAllPets();
 
-    @SqlUpdate("INSERT INTO pets (name, age, species) VALUES (?, ?, ?) returning *")
+    @SqlQuery("SELECT * FROM pets WHERE id = ANY(?) AND deleted_at IS NULL")
+    List<Pet> getPets(int[] ids);
+
+    @SqlQuery("SELECT * FROM pets WHERE id > ? AND deleted_at IS NULL ORDER BY id LIMIT ?")
+    List<Pet> getPetsAfter(int afterId, int limit);
+
+    @SqlQuery("""
+        SELECT * FROM pets
+        WHERE deleted_at IS NULL
+          AND id IN (SELECT pet_id FROM visits WHERE deleted_at IS NULL ORDER BY date DESC LIMIT ?)""")
+    List<Pet> getRecentlyVisitedPets(int limit);
+
+    @SqlUpdate("INSERT INTO pets (name, age, species) VALUES (?, ?, CAST(? AS species)) returning *")
     @GetGeneratedKeys
     int createPet(String name, int age, Species species);
 
-    @SqlUpdate("UPDATE pets SET name = ?,  age = ?,  species = ? WHERE id = ?")
+    @SqlUpdate("UPDATE pets SET name = ?,  age = ?,  species = CAST(? AS species) WHERE id = ? AND deleted_at IS NULL")
     void updatePet(String name, int age, Species species, int id);
 
+    @SqlUpdate("UPDATE pets SET deleted_at = now() WHERE id = ? AND deleted_at IS NULL")
+    boolean markPetDeleted(int id);
+
+    @SqlUpdate("UPDATE pets SET deleted_at = NULL WHERE id = ? AND deleted_at IS NOT NULL")
+    boolean unmarkPetDeleted(int id);
+
     @Transaction
     default Optional<Pet> getPet(final int id) {
         return Optional.ofNullable(getPetBasic(id));
@@ -67,4 +90,49 @@ public interface PetDao {
         );
         return getPet(updatePet.getId());
     }
+
+    /**
+     * Writes only the columns in which the patched pet differs from the current one
+     */
+    @Transaction
+    default Optional<Pet> patchPet(
+        final Pet current,
+        final UpdatePet patched
+    ) {
+        var columns = new ArrayList<String>();
+        if (!Objects.equals(current.getName(), patched.getName())) {
+            columns.add("name = :name");
+        }
+        if (current.getAge() != patched.getAge()) {
+            columns.add("age = :age");
+        }
+        if (current.getSpecies() != patched.getSpecies()) {
+            columns.add("species = CAST(:species AS species)");
+        }
+        if (!columns.isEmpty()) {
+            getHandle()
+                .createUpdate("UPDATE pets SET " + String.join(", ", columns) + " WHERE id = :id AND deleted_at IS NULL")
+                .bindBean(patched)
+                .execute();
+        }
+        return getPet(current.getId());
+    }
+
+    /**
+     * Marks the pet deleted, returns it as it was before
+     */
+    @Transaction
+    default Optional<Pet> deletePet(final int id) {
+        var pet = lockPet(id);
+        if (pet == null) {
+            return Optional.empty();
+        }
+        markPetDeleted(id);
+        return Optional.of(pet);
+    }
+
+    @Transaction
+    default Optional<Pet> restorePet(final int id) {
+        return unmarkPetDeleted(id) ? getPet(id) : Optional.empty();
+    }
 }
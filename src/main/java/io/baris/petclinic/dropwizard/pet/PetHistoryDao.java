@@ -0,0 +1,80 @@
+package io.baris.petclinic.dropwizard.pet;
+
+import io.baris.petclinic.dropwizard.pet.model.PetHistory;
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.jdbi.v3.sqlobject.transaction.Transaction;
+
+import java.util.Optional;
+
+/**
+ * Manages the precomputed pet histories in the database.
+ * <p>
+ * A history is built from the visits of its pet the first time it is needed, and from then on
+ * only the newly made or restored visits are appended to it and the deleted ones removed from it.
+ */
+@RegisterRowMapper(PetHistoryRowMapper.class)
+public interface PetHistoryDao {
+
+    @SqlQuery("""
+        SELECT p.*, h.visit_count, h.last_visit, h.visits
+        FROM pet_histories h JOIN pets p ON p.id = h.pet_id
+        WHERE h.pet_id = ? AND p.deleted_at IS NULL""")
+    PetHistory getHistoryBasic(int petId);
+
+    /**
+     * Builds the histories of the given pets that have none yet
+     */
+    @SqlUpdate("""
+        INSERT INTO pet_histories (pet_id, visit_count, last_visit, visits)
+        SELECT p.id, count(e.id), max(e.date), coalesce(jsonb_agg(e.entry ORDER BY e.date, e.id) FILTER (WHERE e.id IS NOT NULL), '[]')
+        FROM pets p LEFT JOIN visit_history_entries e ON e.pet_id = p.id
+        WHERE p.id = ANY(?) AND p.deleted_at IS NULL AND NOT EXISTS (SELECT 1 FROM pet_histories h WHERE h.pet_id = p.id)
+        GROUP BY p.id
+        ON CONFLICT (pet_id) DO NOTHING""")
+    void ensureHistories(int[] petIds);
+
+    /**
+     * Appends the given visits to the histories of their pets
+     */
+    @SqlUpdate("""
+        INSERT INTO pet_histories (pet_id, visit_count, last_visit, visits)
+        SELECT e.pet_id, count(*), max(e.date), jsonb_agg(e.entry ORDER BY e.date, e.id)
+        FROM visit_history_entries e
+        WHERE e.id = ANY(?)
+        GROUP BY e.pet_id
+        ON CONFLICT (pet_id) DO UPDATE SET
+            visit_count = pet_histories.visit_count + excluded.visit_count,
+            last_visit = greatest(pet_histories.last_visit, excluded.last_visit),
+            visits = pet_histories.visits || excluded.visits""")
+    void appendVisits(int[] visitIds);
+
+    /**
+     * Takes the visit out of the history of its pet.
+     * <p>
+     * Only the stored entry is removed, the other entries keep the vet as it was at the time of
+     * their visit and archived visits, which are no longer in the visits table, stay listed.
+     */
+    @SqlUpdate("""
+        UPDATE pet_histories h SET (visit_count, last_visit, visits) = (
+            SELECT h.visit_count - 1,
+                   max((e.entry ->> 'date')::timestamp),
+                   coalesce(jsonb_agg(e.entry ORDER BY e.position), '[]')
+            FROM jsonb_array_elements(h.visits) WITH ORDINALITY AS e(entry, position)
+            WHERE (e.entry ->> 'id')::int <> :visitId
+        )
+        WHERE h.pet_id = :petId AND h.visits @> jsonb_build_array(jsonb_build_object('id', :visitId))""")
+    void removeVisit(@Bind("petId") int petId, @Bind("visitId") int visitId);
+
+    @Transaction
+    default Optional<PetHistory> getHistory(final int petId) {
+        var history = getHistoryBasic(petId);
+        if (history != null) {
+            return Optional.of(history);
+        }
+        ensureHistories(new int[]{petId});
+        return Optional.ofNullable(getHistoryBasic(petId));
+    }
+}
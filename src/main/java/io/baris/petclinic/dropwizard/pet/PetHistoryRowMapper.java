@@ -0,0 +1,49 @@
+package io.baris.petclinic.dropwizard.pet;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.baris.petclinic.dropwizard.pet.model.PetHistory;
+import io.baris.petclinic.dropwizard.pet.model.PetHistoryVisit;
+import io.dropwizard.jackson.Jackson;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Maps a pet history row joined with its pet, the visits are kept as a JSON array
+ */
+public class PetHistoryRowMapper implements RowMapper<PetHistory> {
+
+    private static final ObjectMapper MAPPER = Jackson.newObjectMapper();
+    private static final TypeReference<List<PetHistoryVisit>> VISITS = new TypeReference<>() {
+    };
+
+    private final PetRowMapper petRowMapper = new PetRowMapper();
+
+    @Override
+    public PetHistory map(final ResultSet rs, final StatementContext ctx) throws SQLException {
+        var lastVisit = rs.getTimestamp("last_visit");
+        return new PetHistory(
+            petRowMapper.map(rs, ctx),
+            rs.getInt("visit_count"),
+            lastVisit != null ? lastVisit.toInstant() : null,
+            readVisits(rs.getString("visits"))
+        );
+    }
+
+    private static List<PetHistoryVisit> readVisits(final String json) throws SQLException {
+        try {
+            // visits are appended in the order they are made, which is not necessarily their date order
+            return MAPPER.readValue(json, VISITS).stream()
+                .sorted(Comparator.comparing(PetHistoryVisit::getDate).thenComparingInt(PetHistoryVisit::getId))
+                .toList();
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Pet history could not be read", e);
+        }
+    }
+}
@@ -1,13 +1,26 @@
 package io.baris.petclinic.dropwizard.pet;
 
+import io.baris.petclinic.dropwizard.audit.AuditLog;
+import io.baris.petclinic.dropwizard.audit.Audited;
 import io.baris.petclinic.dropwizard.pet.model.Pet;
+import io.baris.petclinic.dropwizard.pet.model.PetHistory;
 import io.baris.petclinic.dropwizard.pet.model.CreatePet;
 import io.baris.petclinic.dropwizard.pet.model.UpdatePet;
+import io.baris.petclinic.dropwizard.cache.TwoLevelCache;
+import io.baris.petclinic.dropwizard.system.ConcurrencyLimiter;
+import io.baris.petclinic.dropwizard.system.SingleFlight;
+import io.baris.petclinic.dropwizard.tracing.Tracer;
 import lombok.RequiredArgsConstructor;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.UnableToExecuteStatementException;
 
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.core.Response;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
+
+import static io.baris.petclinic.dropwizard.system.PostgreUtils.isUniqueViolation;
 
 /**
  * Manages the pet
@@ -16,24 +29,158 @@ import java.util.Optional;
 public class PetManager {
 
     private final Jdbi jdbi;
+    private final ConcurrencyLimiter limiter;
+    private final TwoLevelCache<Pet> cache;
+    private final SingleFlight<Integer, Optional<Pet>> petLoads;
+    private final AuditLog auditLog;
+    private final Tracer tracer;
 
     public Optional<Pet> getPet(final int id) {
-        return jdbi.withExtension(PetDao.class, dao -> dao.getPet(id));
+        // a load started before the pet was evicted is not joined
+        return tracer.inSpan("PetManager.getPet", () -> cache.get(id, () ->
+            petLoads.execute(id, cache.version(id), () ->
+                limiter.execute(() -> jdbi.withExtension(PetDao.class, dao -> dao.getPet(id)))
+            )
+        ));
     }
 
     public Optional<Pet> getPet(final String name) {
-        return jdbi.withExtension(PetDao.class, dao -> dao.getPet(name));
+        return tracer.inSpan("PetManager.getPet", () ->
+            limiter.execute(() -> jdbi.withExtension(PetDao.class, dao -> dao.getPet(name)))
+        );
+    }
+
+    public List<Pet> getPets(final int[] ids) {
+        return tracer.inSpan("PetManager.getPets", () ->
+            limiter.execute(() -> jdbi.withExtension(PetDao.class, dao -> dao.getPets(ids)))
+        );
+    }
+
+    /**
+     * Gets a page of pets in id order, starting after the given id
+     */
+    public List<Pet> getPetsAfter(
+        final int afterId,
+        final int limit
+    ) {
+        return tracer.inSpan("PetManager.getPetsAfter", () ->
+            limiter.execute(() -> jdbi.withExtension(PetDao.class, dao -> dao.getPetsAfter(afterId, limit)))
+        );
+    }
+
+    public Optional<PetHistory> getPetHistory(final int id) {
+        return tracer.inSpan("PetManager.getPetHistory", () ->
+            limiter.execute(() -> jdbi.withExtension(PetHistoryDao.class, dao -> dao.getHistory(id)))
+        );
     }
 
     public List<Pet> getAllPets() {
-        return jdbi.withExtension(PetDao.class, PetDao::getAllPets);
+        return tracer.inSpan("PetManager.getAllPets", () ->
+            limiter.execute(() -> jdbi.withExtension(PetDao.class, PetDao::getAllPets))
+        );
     }
 
     public Optional<Pet> createPet(final CreatePet createPet) {
-        return jdbi.withExtension(PetDao.class, dao -> dao.createPet(createPet));
+        return tracer.inSpan("PetManager.createPet", () -> {
+            var created = limiter.execute(() -> jdbi.inTransaction(handle -> {
+                var pet = handle.attach(PetDao.class).createPet(createPet);
+                return new Audited<>(
+                    pet, pet.map(it -> auditLog.record(handle, AuditLog.PET, it.getId(), AuditLog.CREATE, null, it)).orElse(null)
+                );
+            }));
+            auditLog.recordCommitted(created.entry());
+            return created.value();
+        });
     }
 
     public Optional<Pet> updatePet(final UpdatePet updatePet) {
-        return jdbi.withExtension(PetDao.class, dao -> dao.updatePet(updatePet));
+        return tracer.inSpan("PetManager.updatePet", () -> {
+            var id = updatePet.getId();
+            var updated = limiter.execute(() -> jdbi.inTransaction(handle -> {
+                var dao = handle.attach(PetDao.class);
+                // the previous state is only read when it is audited
+                var before = auditLog.isEnabled() ? dao.lockPet(id) : null;
+                var after = dao.updatePet(updatePet);
+                return new Audited<>(
+                    after, after.map(it -> auditLog.record(handle, AuditLog.PET, id, AuditLog.UPDATE, before, it)).orElse(null)
+                );
+            }));
+            cache.evict(id);
+            auditLog.recordCommitted(updated.entry());
+            return updated.value();
+        });
+    }
+
+    /**
+     * Updates the pet with the result of the patch applied to its current state
+     */
+    public Optional<Pet> patchPet(
+        final int id,
+        final Function<Pet, UpdatePet> patch
+    ) {
+        return tracer.inSpan("PetManager.patchPet", () -> {
+            var patched = limiter.execute(() -> jdbi.inTransaction(handle -> {
+                var dao = handle.attach(PetDao.class);
+                var before = dao.lockPet(id);
+                if (before == null) {
+                    return new Audited<>(Optional.<Pet>empty(), null);
+                }
+                var after = dao.patchPet(before, patch.apply(before));
+                return new Audited<>(after, after
+                    .filter(it -> !it.equals(before))
+                    .map(it -> auditLog.record(handle, AuditLog.PET, id, AuditLog.UPDATE, before, it))
+                    .orElse(null));
+            }));
+            cache.evict(id);
+            auditLog.recordCommitted(patched.entry());
+            return patched.value();
+        });
+    }
+
+    public Optional<Pet> deletePet(final int id) {
+        return tracer.inSpan("PetManager.deletePet", () -> {
+            var deleted = limiter.execute(() -> jdbi.inTransaction(handle -> {
+                var pet = handle.attach(PetDao.class).deletePet(id);
+                return new Audited<>(
+                    pet, pet.map(it -> auditLog.record(handle, AuditLog.PET, id, AuditLog.DELETE, it, null)).orElse(null)
+                );
+            }));
+            cache.evict(id);
+            auditLog.recordCommitted(deleted.entry());
+            return deleted.value();
+        });
+    }
+
+    /**
+     * Brings a deleted pet back, unless another pet has taken its name meanwhile
+     */
+    public Optional<Pet> restorePet(final int id) {
+        return tracer.inSpan("PetManager.restorePet", () -> {
+            Audited<Optional<Pet>> restored;
+            try {
+                restored = limiter.execute(() -> jdbi.inTransaction(handle -> {
+                    var pet = handle.attach(PetDao.class).restorePet(id);
+                    return new Audited<>(
+                        pet, pet.map(it -> auditLog.record(handle, AuditLog.PET, id, AuditLog.RESTORE, null, it)).orElse(null)
+                    );
+                }));
+            } catch (UnableToExecuteStatementException e) {
+                if (isUniqueViolation(e)) {
+                    throw new ClientErrorException("Another pet has the name of the deleted pet", Response.Status.CONFLICT);
+                }
+                throw e;
+            }
+            cache.evict(id);
+            auditLog.recordCommitted(restored.entry());
+            return restored.value();
+        });
+    }
+
+    /**
+     * Loads the pets visited most recently into the cache
+     */
+    public void primeCache(final int limit) {
+        var pets = jdbi.withExtension(PetDao.class, dao -> dao.getRecentlyVisitedPets(limit));
+        pets.forEach(pet -> cache.get(pet.getId(), () -> Optional.of(pet)));
     }
 }
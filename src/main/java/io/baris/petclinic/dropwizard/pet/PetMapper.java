@@ -1,9 +1,12 @@
 package io.baris.petclinic.dropwizard.pet;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import io.baris.petclinic.dropwizard.pet.model.Pet;
 import io.baris.petclinic.dropwizard.pet.model.UpdatePetRequest;
 import io.baris.petclinic.dropwizard.pet.model.CreatePet;
 import io.baris.petclinic.dropwizard.pet.model.CreatePetRequest;
 import io.baris.petclinic.dropwizard.pet.model.UpdatePet;
+import io.baris.petclinic.dropwizard.system.MergePatch;
 
 /**
  * Maps pet api classes
@@ -14,21 +17,36 @@ public class PetMapper {
         final int id,
         final UpdatePetRequest updatePetRequest
     ) {
-        return UpdatePet.builder()
-            .id(id)
-            .age(updatePetRequest.getAge())
-            .species(updatePetRequest.getSpecies())
-            .name(updatePetRequest.getName())
+        return new UpdatePet(
+            id,
+            updatePetRequest.getName(),
+            updatePetRequest.getAge(),
+            updatePetRequest.getSpecies()
+        );
+    }
+
+    /**
+     * Applies a merge patch to the pet, validated like a full update
+     */
+    public static UpdatePet mapToPatchedPet(
+        final Pet pet,
+        final JsonNode patch
+    ) {
+        var current = UpdatePetRequest.builder()
+            .name(pet.getName())
+            .age(pet.getAge())
+            .species(pet.getSpecies())
             .build();
+        return mapToUpdatePet(pet.getId(), MergePatch.apply(current, patch, UpdatePetRequest.class));
     }
 
     public static CreatePet mapToCreatePet(
         final CreatePetRequest createPetRequest
     ) {
-        return CreatePet.builder()
-            .name(createPetRequest.getName())
-            .age(createPetRequest.getAge())
-            .species(createPetRequest.getSpecies())
-            .build();
+        return new CreatePet(
+            createPetRequest.getName(),
+            createPetRequest.getAge(),
+            createPetRequest.getSpecies()
+        );
     }
 }
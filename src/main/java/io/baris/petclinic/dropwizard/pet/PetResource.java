@@ -1,9 +1,16 @@
 package io.baris.petclinic.dropwizard.pet;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import io.baris.petclinic.dropwizard.idempotency.Idempotent;
+import io.baris.petclinic.dropwizard.idempotency.IdempotencyFilter;
 import io.baris.petclinic.dropwizard.pet.model.Pet;
+import io.baris.petclinic.dropwizard.pet.model.PetHistory;
 import io.baris.petclinic.dropwizard.pet.model.UpdatePetRequest;
 import io.baris.petclinic.dropwizard.pet.model.CreatePetRequest;
+import io.baris.petclinic.dropwizard.system.MergePatch;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -12,9 +19,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Pet resource to serve pet endpoints
@@ -26,7 +35,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class PetResource {
 
-    private final PetManager petManager;
+    private final Supplier<PetManager> petManager;
 
     @Operation(
         summary = "Get pet",
@@ -44,11 +53,32 @@ public class PetResource {
     public Pet getPet(
         final @PathParam("id") int id
     ) {
-        return petManager
+        return petManager.get()
             .getPet(id)
             .orElseThrow(() -> new NotFoundException("Pet not found"));
     }
 
+    @Operation(
+        summary = "Get the medical history of a pet",
+        tags = {"Pet"},
+        responses = {
+            @ApiResponse(
+                description = "The pet with its visits, the vets seen and the specialties they had at the time",
+                content = @Content(schema = @Schema(implementation = PetHistory.class))
+            ),
+            @ApiResponse(responseCode = "404", description = "Pet not found")
+        }
+    )
+    @GET
+    @Path("/{id}/history")
+    public PetHistory getPetHistory(
+        final @PathParam("id") int id
+    ) {
+        return petManager.get()
+            .getPetHistory(id)
+            .orElseThrow(() -> new NotFoundException("Pet not found"));
+    }
+
     @Operation(
         summary = "Get all pets",
         tags = {"Pet"},
@@ -61,11 +91,16 @@ public class PetResource {
     )
     @GET
     public List<Pet> getAllPets() {
-        return petManager.getAllPets();
+        return petManager.get().getAllPets();
     }
 
     @Operation(
         summary = "Create pet",
+        parameters = @Parameter(
+            in = ParameterIn.HEADER,
+            name = IdempotencyFilter.IDEMPOTENCY_KEY,
+            description = "Key to safely retry the request with, the response of the first request is replayed"
+        ),
         tags = {"Pet"},
         responses = {
             @ApiResponse(
@@ -73,14 +108,16 @@ public class PetResource {
                 content = @Content(schema = @Schema(implementation = Pet.class))
             ),
             @ApiResponse(responseCode = "422", description = "Invalid input"),
+            @ApiResponse(responseCode = "409", description = "Request with the same idempotency key is in progress"),
             @ApiResponse(responseCode = "500", description = "Pet could not be created")
         }
     )
     @PUT
+    @Idempotent
     public Pet createPet(
         final @Valid CreatePetRequest createPetRequest
     ) {
-        return petManager
+        return petManager.get()
             .createPet(PetMapper.mapToCreatePet(createPetRequest))
             .orElseThrow(() -> new InternalServerErrorException("Pet could not be created"));
     }
@@ -104,8 +141,72 @@ public class PetResource {
         final @PathParam("id") int id,
         final @Valid UpdatePetRequest updatePetRequest
     ) {
-        return petManager
+        return petManager.get()
             .updatePet(PetMapper.mapToUpdatePet(id, updatePetRequest))
             .orElseThrow(() -> new NotFoundException("Pet not found"));
     }
+
+    @Operation(
+        summary = "Patch pet with a JSON merge patch, only the given fields are changed",
+        tags = {"Pet"},
+        responses = {
+            @ApiResponse(
+                description = "The pet",
+                content = @Content(schema = @Schema(implementation = Pet.class))
+            ),
+            @ApiResponse(responseCode = "422", description = "Invalid patch"),
+            @ApiResponse(responseCode = "404", description = "Pet not found")
+        }
+    )
+    @Path("{id}")
+    @PATCH
+    @Consumes({MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON})
+    public Pet patchPet(
+        final @PathParam("id") int id,
+        final @NotNull JsonNode patch
+    ) {
+        return petManager.get()
+            .patchPet(id, pet -> PetMapper.mapToPatchedPet(pet, patch))
+            .orElseThrow(() -> new NotFoundException("Pet not found"));
+    }
+
+    @Operation(
+        summary = "Delete pet, it can be restored until it is purged",
+        tags = {"Pet"},
+        responses = {
+            @ApiResponse(responseCode = "204", description = "Pet deleted"),
+            @ApiResponse(responseCode = "404", description = "Pet not found")
+        }
+    )
+    @Path("{id}")
+    @DELETE
+    public void deletePet(
+        final @PathParam("id") int id
+    ) {
+        petManager.get()
+            .deletePet(id)
+            .orElseThrow(() -> new NotFoundException("Pet not found"));
+    }
+
+    @Operation(
+        summary = "Restore deleted pet",
+        tags = {"Pet"},
+        responses = {
+            @ApiResponse(
+                description = "The pet",
+                content = @Content(schema = @Schema(implementation = Pet.class))
+            ),
+            @ApiResponse(responseCode = "404", description = "Deleted pet not found"),
+            @ApiResponse(responseCode = "409", description = "Another pet has the name of the deleted pet")
+        }
+    )
+    @Path("{id}/restore")
+    @POST
+    public Pet restorePet(
+        final @PathParam("id") int id
+    ) {
+        return petManager.get()
+            .restorePet(id)
+            .orElseThrow(() -> new NotFoundException("Deleted pet not found"));
+    }
 }
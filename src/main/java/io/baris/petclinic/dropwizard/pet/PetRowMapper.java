@@ -0,0 +1,26 @@
+package io.baris.petclinic.dropwizard.pet;
+
+import io.baris.petclinic.dropwizard.pet.model.Pet;
+import io.baris.petclinic.dropwizard.pet.model.Species;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps pet rows without the reflection of a bean mapper
+ */
+public class PetRowMapper implements RowMapper<Pet> {
+
+    @Override
+    public Pet map(final ResultSet rs, final StatementContext ctx) throws SQLException {
+        var species = rs.getString("species");
+        return new Pet(
+            rs.getInt("id"),
+            rs.getString("name"),
+            rs.getInt("age"),
+            species != null ? Species.valueOf(species) : null
+        );
+    }
+}
@@ -1,5 +1,6 @@
 package io.baris.petclinic.dropwizard.pet.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -11,6 +12,7 @@ import lombok.NoArgsConstructor;
 
 @Builder
 @Data
+@JsonSerialize(using = PetSerializer.class)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Pet {
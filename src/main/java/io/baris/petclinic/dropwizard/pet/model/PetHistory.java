@@ -0,0 +1,24 @@
+package io.baris.petclinic.dropwizard.pet.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Represents the medical history of a pet, its visits ordered by date
+ */
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PetHistory {
+
+    private Pet pet;
+    private int visitCount;
+    private Instant lastVisit;
+    private List<PetHistoryVisit> visits;
+}
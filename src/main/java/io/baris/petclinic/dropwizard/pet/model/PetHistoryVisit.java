@@ -0,0 +1,26 @@
+package io.baris.petclinic.dropwizard.pet.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Represents a visit in the history of a pet, with the vet as it was at the time of the visit
+ */
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PetHistoryVisit {
+
+    private int id;
+    private Instant date;
+    private String treatment;
+    private int vetId;
+    private String vetName;
+    private List<String> specialties;
+}
@@ -0,0 +1,35 @@
+package io.baris.petclinic.dropwizard.pet.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes a pet field by field instead of through bean introspection
+ */
+public class PetSerializer extends StdSerializer<Pet> {
+
+    public PetSerializer() {
+        super(Pet.class);
+    }
+
+    @Override
+    public void serialize(
+        final Pet pet,
+        final JsonGenerator gen,
+        final SerializerProvider provider
+    ) throws IOException {
+        gen.writeStartObject(pet);
+        gen.writeNumberField("id", pet.getId());
+        gen.writeStringField("name", pet.getName());
+        gen.writeNumberField("age", pet.getAge());
+        if (pet.getSpecies() != null) {
+            gen.writeStringField("species", pet.getSpecies().name());
+        } else {
+            gen.writeNullField("species");
+        }
+        gen.writeEndObject();
+    }
+}
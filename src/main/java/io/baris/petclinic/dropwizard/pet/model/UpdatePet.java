@@ -1,5 +1,6 @@
 package io.baris.petclinic.dropwizard.pet.model;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Value;
 
@@ -9,6 +10,7 @@ import lombok.Value;
 
 @Builder
 @Value
+@AllArgsConstructor
 public class UpdatePet {
 
     int id;
@@ -0,0 +1,81 @@
+package io.baris.petclinic.dropwizard.purge;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Jdbi;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Removes pets, vets and visits deleted longer ago than the retention period.
+ * <p>
+ * Each batch is its own short transaction, so purging a large backlog never holds many row locks
+ * or a long running transaction. Nodes purging at the same time skip each other's batches.
+ */
+@Slf4j
+public class DeletedRowPurger implements Runnable {
+
+    private final Jdbi jdbi;
+    private final Duration retention;
+    private final int batchSize;
+    private final Clock clock;
+
+    public DeletedRowPurger(
+        final Jdbi jdbi,
+        final Duration retention,
+        final int batchSize,
+        final Clock clock
+    ) {
+        this.jdbi = jdbi;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Scheduled run, a failed one is retried by the next
+     */
+    @Override
+    public void run() {
+        try {
+            purge();
+        } catch (RuntimeException e) {
+            log.warn("Failed to purge deleted rows", e);
+        }
+    }
+
+    /**
+     * Purges all rows past the retention period, returns the number of pets, vets and visits removed
+     */
+    public int purge() {
+        var deletedBefore = clock.instant().minus(retention);
+        var purged = purge("visits", deletedBefore, PurgeDao::purgeVisits)
+            + purge("pets", deletedBefore, PurgeDao::purgePets)
+            + purge("vets", deletedBefore, PurgeDao::purgeVets);
+        if (purged > 0) {
+            log.info("Purged {} rows deleted before {}", purged, deletedBefore);
+        }
+        return purged;
+    }
+
+    private int purge(
+        final String table,
+        final Instant deletedBefore,
+        final PurgeStatement statement
+    ) {
+        var total = 0;
+        int purged;
+        do {
+            purged = jdbi.withExtension(PurgeDao.class, dao -> statement.purge(dao, deletedBefore, batchSize));
+            total += purged;
+        } while (purged == batchSize);
+        log.debug("Purged {} rows of {}", total, table);
+        return total;
+    }
+
+    @FunctionalInterface
+    private interface PurgeStatement {
+        int purge(PurgeDao dao, Instant deletedBefore, int limit);
+    }
+}
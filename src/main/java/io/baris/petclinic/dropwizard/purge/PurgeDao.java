@@ -0,0 +1,54 @@
+package io.baris.petclinic.dropwizard.purge;
+
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+
+import java.time.Instant;
+
+/**
+ * Removes soft deleted rows for good, one batch per statement.
+ * <p>
+ * Rows locked by a restore in progress are skipped, as are batches being purged by another node.
+ */
+public interface PurgeDao {
+
+    @SqlQuery("""
+        WITH purged AS (
+            DELETE FROM visits WHERE id IN (
+                SELECT id FROM visits WHERE deleted_at < ? ORDER BY deleted_at LIMIT ? FOR UPDATE SKIP LOCKED
+            )
+            RETURNING id
+        )
+        SELECT count(*) FROM purged""")
+    int purgeVisits(Instant deletedBefore, int limit);
+
+    // visits and histories go with their pet
+    @SqlQuery("""
+        WITH purged AS (
+            DELETE FROM pets WHERE id IN (
+                SELECT id FROM pets WHERE deleted_at < ? ORDER BY deleted_at LIMIT ? FOR UPDATE SKIP LOCKED
+            )
+            RETURNING id
+        ),
+        purged_visits AS (
+            DELETE FROM visits WHERE pet_id IN (SELECT id FROM purged)
+        ),
+        purged_histories AS (
+            DELETE FROM pet_histories WHERE pet_id IN (SELECT id FROM purged)
+        )
+        SELECT count(*) FROM purged""")
+    int purgePets(Instant deletedBefore, int limit);
+
+    // visits outlive their vet, as the histories record the vet as it was
+    @SqlQuery("""
+        WITH purged AS (
+            DELETE FROM vets WHERE id IN (
+                SELECT id FROM vets WHERE deleted_at < ? ORDER BY deleted_at LIMIT ? FOR UPDATE SKIP LOCKED
+            )
+            RETURNING id
+        ),
+        purged_specialties AS (
+            DELETE FROM vet_specialties WHERE vet_id IN (SELECT id FROM purged)
+        )
+        SELECT count(*) FROM purged""")
+    int purgeVets(Instant deletedBefore, int limit);
+}
@@ -0,0 +1,28 @@
+package io.baris.petclinic.dropwizard.purge;
+
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin task purging the deleted rows past their retention right away instead of waiting for the next scheduled run
+ */
+public class PurgeDeletedTask extends Task {
+
+    private final DeletedRowPurger purger;
+
+    public PurgeDeletedTask(final DeletedRowPurger purger) {
+        super("purge-deleted");
+        this.purger = purger;
+    }
+
+    @Override
+    public void execute(
+        final Map<String, List<String>> parameters,
+        final PrintWriter output
+    ) {
+        output.println("Purged %d rows".formatted(purger.purge()));
+    }
+}
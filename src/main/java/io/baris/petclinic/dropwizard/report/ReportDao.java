@@ -0,0 +1,33 @@
+package io.baris.petclinic.dropwizard.report;
+
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Aggregates the visits in the database, grouped by the week starting on Monday
+ */
+@RegisterRowMapper(VetWeekRowMapper.class)
+@RegisterRowMapper(TreatmentWeekRowMapper.class)
+public interface ReportDao {
+
+    // pets are counted at the age they had when visited
+    @SqlQuery("""
+        SELECT date_trunc('week', v.date)::date AS week, v.vet_id,
+               count(*) AS visits, coalesce(sum(v.pet_age), 0) AS pet_age_sum, count(v.pet_age) AS aged_visits
+        FROM visits v
+        WHERE v.date >= ? AND v.date < ? AND v.deleted_at IS NULL
+        GROUP BY 1, 2""")
+    List<VetWeek> getVetWeeks(LocalDate from, LocalDate to);
+
+    @SqlQuery("""
+        SELECT date_trunc('week', v.date)::date AS week, s.name AS specialty, v.treatment, count(*) AS visits
+        FROM visits v
+        JOIN vet_specialties vs ON vs.vet_id = v.vet_id
+        JOIN specialties s ON s.id = vs.specialty_id
+        WHERE v.date >= ? AND v.date < ? AND v.deleted_at IS NULL
+        GROUP BY 1, 2, 3""")
+    List<TreatmentWeek> getTreatmentWeeks(LocalDate from, LocalDate to);
+}
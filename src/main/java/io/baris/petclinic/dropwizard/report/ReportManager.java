@@ -0,0 +1,209 @@
+package io.baris.petclinic.dropwizard.report;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.baris.petclinic.dropwizard.archive.VisitArchive;
+import io.baris.petclinic.dropwizard.report.model.SpecialtyTreatment;
+import io.baris.petclinic.dropwizard.report.model.VetAveragePetAge;
+import io.baris.petclinic.dropwizard.report.model.VetWeekVisits;
+import io.baris.petclinic.dropwizard.report.model.VetWorkloadReport;
+import io.baris.petclinic.dropwizard.system.ConcurrencyLimiter;
+import io.baris.petclinic.dropwizard.system.ReportConfig;
+import org.jdbi.v3.core.Jdbi;
+
+import javax.ws.rs.BadRequestException;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static java.time.temporal.TemporalAdjusters.nextOrSame;
+import static java.time.temporal.TemporalAdjusters.previousOrSame;
+
+/**
+ * Manages the reports aggregated from the visits.
+ * <p>
+ * Visits are aggregated by the database per week, the weeks are then combined into the requested
+ * period. A week that has ended is aggregated once and kept, only the current and future weeks are
+ * aggregated on every request. A visit made, deleted or restored with a date in a closed week evicts
+ * that week through the {@value #WEEK_INVALIDATION} invalidation notification, an aggregation running
+ * across an eviction is returned without being kept.
+ * <p>
+ * Archived visits are no longer in the table, a period reaching into archived months is refused
+ * rather than counted short.
+ */
+public class ReportManager {
+
+    public static final String WEEK_INVALIDATION = "visit-week";
+
+    private final Jdbi jdbi;
+    private final VisitArchive archive;
+    private final ConcurrencyLimiter limiter;
+    private final Clock clock;
+    private final Cache<LocalDate, WeekWorkload> closedWeeks;
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ReportManager(
+        final Jdbi jdbi,
+        final VisitArchive archive,
+        final ConcurrencyLimiter limiter,
+        final ReportConfig config,
+        final Clock clock
+    ) {
+        this.jdbi = jdbi;
+        this.archive = archive;
+        this.limiter = limiter;
+        this.clock = clock;
+        this.closedWeeks = Caffeine.newBuilder()
+            .maximumSize(config.getMaxCachedWeeks())
+            .build();
+    }
+
+    /**
+     * Evicts the week starting on the Monday of the given epoch day
+     */
+    public void evictWeek(final int epochDay) {
+        evictions.incrementAndGet();
+        closedWeeks.invalidate(LocalDate.ofEpochDay(epochDay));
+    }
+
+    public void evictAllWeeks() {
+        evictions.incrementAndGet();
+        closedWeeks.invalidateAll();
+    }
+
+    public VetWorkloadReport getVetWorkload(
+        final LocalDate from,
+        final LocalDate to,
+        final int top
+    ) {
+        var firstWeek = from.with(previousOrSame(DayOfWeek.MONDAY));
+        var endWeek = to.with(nextOrSame(DayOfWeek.MONDAY));
+        archive.getLastMonth().ifPresent(lastMonth -> {
+            if (firstWeek.isBefore(lastMonth.plusMonths(1).atDay(1))) {
+                throw new BadRequestException("Visits until the end of %s are archived, the period must start on %s or later"
+                    .formatted(lastMonth, lastMonth.plusMonths(1).atDay(1).with(nextOrSame(DayOfWeek.MONDAY))));
+            }
+        });
+        var weeks = getWeeks(firstWeek, endWeek);
+
+        var vets = weeks.stream().flatMap(week -> week.getVets().stream()).toList();
+        var treatments = weeks.stream().flatMap(week -> week.getTreatments().stream()).toList();
+        return VetWorkloadReport.builder()
+            .from(firstWeek)
+            .to(endWeek)
+            .visitsPerVetPerWeek(visitsPerVetPerWeek(vets))
+            .topTreatmentsPerSpecialty(topTreatmentsPerSpecialty(treatments, top))
+            .averagePetAgePerVet(averagePetAgePerVet(vets))
+            .build();
+    }
+
+    private List<WeekWorkload> getWeeks(
+        final LocalDate firstWeek,
+        final LocalDate endWeek
+    ) {
+        var currentWeek = LocalDate.now(clock).with(previousOrSame(DayOfWeek.MONDAY));
+        var weeks = new ArrayList<WeekWorkload>();
+
+        // aggregate each run of consecutive weeks that are not cached with one pass over its visits
+        LocalDate runStart = null;
+        for (var week = firstWeek; week.isBefore(endWeek); week = week.plusWeeks(1)) {
+            var cached = week.isBefore(currentWeek) ? closedWeeks.getIfPresent(week) : null;
+            if (cached == null) {
+                runStart = runStart == null ? week : runStart;
+                continue;
+            }
+            if (runStart != null) {
+                weeks.addAll(aggregate(runStart, week, currentWeek));
+                runStart = null;
+            }
+            weeks.add(cached);
+        }
+        if (runStart != null) {
+            weeks.addAll(aggregate(runStart, endWeek, currentWeek));
+        }
+        return weeks;
+    }
+
+    private List<WeekWorkload> aggregate(
+        final LocalDate from,
+        final LocalDate to,
+        final LocalDate currentWeek
+    ) {
+        var evictionsBefore = evictions.get();
+        var vets = limiter.execute(() -> jdbi.withExtension(ReportDao.class, dao -> dao.getVetWeeks(from, to)))
+            .stream()
+            .collect(Collectors.groupingBy(VetWeek::getWeek));
+        var treatments = limiter.execute(() -> jdbi.withExtension(ReportDao.class, dao -> dao.getTreatmentWeeks(from, to)))
+            .stream()
+            .collect(Collectors.groupingBy(TreatmentWeek::getWeek));
+
+        var weeks = new ArrayList<WeekWorkload>();
+        for (var week = from; week.isBefore(to); week = week.plusWeeks(1)) {
+            weeks.add(new WeekWorkload(
+                week,
+                vets.getOrDefault(week, List.of()),
+                treatments.getOrDefault(week, List.of())
+            ));
+        }
+        // weeks may have been read before a visit of theirs changed
+        weeks.stream()
+            .filter(workload -> workload.getWeek().isBefore(currentWeek))
+            .forEach(workload -> closedWeeks.put(workload.getWeek(), workload));
+        if (evictions.get() != evictionsBefore) {
+            weeks.forEach(workload -> closedWeeks.invalidate(workload.getWeek()));
+        }
+        return weeks;
+    }
+
+    private static List<VetWeekVisits> visitsPerVetPerWeek(final List<VetWeek> vets) {
+        return vets.stream()
+            .sorted(Comparator.comparing(VetWeek::getWeek).thenComparingInt(VetWeek::getVetId))
+            .map(vet -> new VetWeekVisits(vet.getWeek(), vet.getVetId(), vet.getVisits()))
+            .toList();
+    }
+
+    private static List<SpecialtyTreatment> topTreatmentsPerSpecialty(
+        final List<TreatmentWeek> treatments,
+        final int top
+    ) {
+        var visits = new TreeMap<String, Map<String, Long>>();
+        treatments.forEach(treatment -> visits
+            .computeIfAbsent(treatment.getSpecialty(), specialty -> new TreeMap<>())
+            .merge(treatment.getTreatment(), treatment.getVisits(), Long::sum)
+        );
+
+        var result = new ArrayList<SpecialtyTreatment>();
+        visits.forEach((specialty, byTreatment) -> byTreatment.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .limit(top)
+            .forEach(entry -> result.add(new SpecialtyTreatment(specialty, entry.getKey(), entry.getValue())))
+        );
+        return result;
+    }
+
+    private static List<VetAveragePetAge> averagePetAgePerVet(final List<VetWeek> vets) {
+        var totals = new TreeMap<Integer, long[]>();
+        vets.forEach(vet -> {
+            var total = totals.computeIfAbsent(vet.getVetId(), id -> new long[3]);
+            total[0] += vet.getVisits();
+            total[1] += vet.getPetAgeSum();
+            total[2] += vet.getAgedVisits();
+        });
+
+        var result = new ArrayList<VetAveragePetAge>();
+        totals.forEach((vetId, total) -> result.add(new VetAveragePetAge(
+            vetId,
+            total[2] == 0 ? 0 : (double) total[1] / total[2],
+            total[0]
+        )));
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+package io.baris.petclinic.dropwizard.report;
+
+import io.baris.petclinic.dropwizard.report.model.VetWorkloadReport;
+import io.baris.petclinic.dropwizard.system.ReportConfig;
+import io.dropwizard.jersey.jsr310.LocalDateParam;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Supplier;
+
+/**
+ * Report resource to serve report endpoints
+ */
+@Path("/reports")
+@Produces(MediaType.APPLICATION_JSON)
+@Slf4j
+@RequiredArgsConstructor
+public class ReportResource {
+
+    private final Supplier<ReportManager> reportManager;
+    private final ReportConfig config;
+
+    @Operation(
+        summary = "Get visits per vet per week, top treatments per specialty and average pet age per vet",
+        tags = {"Report"},
+        responses = {
+            @ApiResponse(
+                description = "The workload of the vets over the whole weeks covering the period",
+                content = @Content(schema = @Schema(implementation = VetWorkloadReport.class))
+            ),
+            @ApiResponse(responseCode = "400", description = "Invalid period")
+        }
+    )
+    @GET
+    @Path("/vet-workload")
+    public VetWorkloadReport getVetWorkload(
+        final @Parameter(description = "First day of the period") @QueryParam("from") LocalDateParam from,
+        final @Parameter(description = "Day after the period") @QueryParam("to") LocalDateParam to,
+        final @Parameter(description = "Treatments listed per specialty")
+        @QueryParam("top") @DefaultValue("3") int top
+    ) {
+        // validation
+        if (from == null || to == null) {
+            throw new BadRequestException("Period must have a start and an end");
+        }
+        if (top < 1) {
+            throw new BadRequestException("At least one treatment must be listed");
+        }
+        if (!from.get().isBefore(to.get())) {
+            throw new BadRequestException("Period must end after it starts");
+        }
+        if (ChronoUnit.WEEKS.between(from.get(), to.get()) >= config.getMaxWeeks()) {
+            throw new BadRequestException("Period must be shorter than %d weeks".formatted(config.getMaxWeeks()));
+        }
+
+        return reportManager.get().getVetWorkload(from.get(), to.get(), top);
+    }
+}
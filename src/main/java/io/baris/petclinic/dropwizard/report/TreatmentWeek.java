@@ -0,0 +1,17 @@
+package io.baris.petclinic.dropwizard.report;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Visits with a treatment given in a week by the vets of a specialty
+ */
+@Value
+public class TreatmentWeek {
+
+    LocalDate week;
+    String specialty;
+    String treatment;
+    long visits;
+}
@@ -0,0 +1,23 @@
+package io.baris.petclinic.dropwizard.report;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the weekly treatment aggregates of the specialties
+ */
+public class TreatmentWeekRowMapper implements RowMapper<TreatmentWeek> {
+
+    @Override
+    public TreatmentWeek map(final ResultSet rs, final StatementContext ctx) throws SQLException {
+        return new TreatmentWeek(
+            rs.getDate("week").toLocalDate(),
+            rs.getString("specialty"),
+            rs.getString("treatment"),
+            rs.getLong("visits")
+        );
+    }
+}
@@ -0,0 +1,19 @@
+package io.baris.petclinic.dropwizard.report;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Visits of a vet in a week, with the summed age of the visiting pets
+ */
+@Value
+public class VetWeek {
+
+    LocalDate week;
+    int vetId;
+    long visits;
+    long petAgeSum;
+    // visits whose pet still exists and could contribute to the age sum
+    long agedVisits;
+}
@@ -0,0 +1,24 @@
+package io.baris.petclinic.dropwizard.report;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the weekly visit aggregates of the vets
+ */
+public class VetWeekRowMapper implements RowMapper<VetWeek> {
+
+    @Override
+    public VetWeek map(final ResultSet rs, final StatementContext ctx) throws SQLException {
+        return new VetWeek(
+            rs.getDate("week").toLocalDate(),
+            rs.getInt("vet_id"),
+            rs.getLong("visits"),
+            rs.getLong("pet_age_sum"),
+            rs.getLong("aged_visits")
+        );
+    }
+}
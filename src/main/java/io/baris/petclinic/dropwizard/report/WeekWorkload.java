@@ -0,0 +1,17 @@
+package io.baris.petclinic.dropwizard.report;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Aggregates of one week, kept as partial sums so that weeks can be combined into any period
+ */
+@Value
+public class WeekWorkload {
+
+    LocalDate week;
+    List<VetWeek> vets;
+    List<TreatmentWeek> treatments;
+}
@@ -0,0 +1,18 @@
+package io.baris.petclinic.dropwizard.report.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Represents how often the vets of a specialty gave a treatment
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpecialtyTreatment {
+
+    private String specialty;
+    private String treatment;
+    private long visits;
+}
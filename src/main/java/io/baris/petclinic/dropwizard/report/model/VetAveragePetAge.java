@@ -0,0 +1,18 @@
+package io.baris.petclinic.dropwizard.report.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Represents the average age of the pets over the visits of a vet
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VetAveragePetAge {
+
+    private int vetId;
+    private double averagePetAge;
+    private long visits;
+}
@@ -0,0 +1,20 @@
+package io.baris.petclinic.dropwizard.report.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Represents the number of visits of a vet in the week starting on the given Monday
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VetWeekVisits {
+
+    private LocalDate week;
+    private int vetId;
+    private long visits;
+}
@@ -0,0 +1,26 @@
+package io.baris.petclinic.dropwizard.report.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Represents the workload of the vets over whole weeks, from the Monday on or before {@code from}
+ * until the Monday on or after {@code to}, exclusive
+ */
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VetWorkloadReport {
+
+    private LocalDate from;
+    private LocalDate to;
+    private List<VetWeekVisits> visitsPerVetPerWeek;
+    private List<SpecialtyTreatment> topTreatmentsPerSpecialty;
+    private List<VetAveragePetAge> averagePetAgePerVet;
+}
@@ -0,0 +1,44 @@
+package io.baris.petclinic.dropwizard.slowquery;
+
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin task printing the recent slow statements with their plans, {@code ?clear} empties the log
+ */
+public class SlowQueriesTask extends Task {
+
+    private final SlowQueryLog slowQueries;
+
+    public SlowQueriesTask(final SlowQueryLog slowQueries) {
+        super("slow-queries");
+        this.slowQueries = slowQueries;
+    }
+
+    @Override
+    public void execute(
+        final Map<String, List<String>> parameters,
+        final PrintWriter output
+    ) {
+        if (parameters.containsKey("clear")) {
+            slowQueries.clear();
+            output.println("Slow query log cleared");
+            return;
+        }
+        var entries = slowQueries.getEntries();
+        if (entries.isEmpty()) {
+            output.println("No slow queries");
+            return;
+        }
+        entries.forEach(slowQuery -> {
+            output.printf("%s %s %dms%n", slowQuery.getExecutedAt(), slowQuery.getName(), slowQuery.getElapsedMillis());
+            output.println(slowQuery.getSql());
+            output.println("Parameters: " + slowQuery.getParameters());
+            output.println(slowQuery.getPlan() != null ? slowQuery.getPlan() : "Plan is being captured");
+            output.println();
+        });
+    }
+}
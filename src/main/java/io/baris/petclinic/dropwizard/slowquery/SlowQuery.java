@@ -0,0 +1,25 @@
+package io.baris.petclinic.dropwizard.slowquery;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A statement that crossed the latency threshold, with its plan once captured
+ */
+@Getter
+@RequiredArgsConstructor
+public class SlowQuery {
+
+    private final Instant executedAt;
+    private final String name;
+    private final String sql;
+    private final String parameters;
+    private final long elapsedMillis;
+    private volatile String plan;
+
+    void setPlan(final String plan) {
+        this.plan = plan;
+    }
+}
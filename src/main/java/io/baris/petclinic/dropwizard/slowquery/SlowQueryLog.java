@@ -0,0 +1,39 @@
+package io.baris.petclinic.dropwizard.slowquery;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Ring buffer of the most recent slow statements
+ */
+public class SlowQueryLog {
+
+    private final int maxEntries;
+    private final Deque<SlowQuery> entries = new ArrayDeque<>();
+
+    public SlowQueryLog(final int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public synchronized void add(final SlowQuery slowQuery) {
+        if (entries.size() == maxEntries) {
+            entries.removeFirst();
+        }
+        entries.addLast(slowQuery);
+    }
+
+    /**
+     * The slow statements, latest first
+     */
+    public synchronized List<SlowQuery> getEntries() {
+        var latestFirst = new ArrayList<SlowQuery>(entries.size());
+        entries.descendingIterator().forEachRemaining(latestFirst::add);
+        return latestFirst;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,185 @@
+package io.baris.petclinic.dropwizard.slowquery;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.baris.petclinic.dropwizard.system.SlowQueryConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.SqlLogger;
+import org.jdbi.v3.core.statement.StatementContext;
+import org.postgresql.PGStatement;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * Logs the statements crossing the latency threshold and captures their plans in the background.
+ * <p>
+ * The plan comes from rerunning the statement with its original parameters, rendered as literals by the
+ * driver, inside a transaction that is always rolled back. Only plain reads are rerun with ANALYZE, and
+ * then in a read only transaction.
+ * Writes, locking reads and reads calling functions with side effects, such as taking an advisory lock
+ * that would outlive the rollback, are planned without being executed. Plans are captured at most once
+ * per statement and interval, so a database that is slow for everything is not flooded with reruns.
+ * Every call is passed on to the given logger first.
+ */
+@Slf4j
+public class SlowQueryLogger implements SqlLogger {
+
+    private static final Pattern LEADING_COMMENTS = Pattern.compile("^(\\s*/\\*.*?\\*/)*\\s*", Pattern.DOTALL);
+    private static final Pattern SIDE_EFFECTS = Pattern.compile(
+        "\\bFOR\\s+(NO\\s+KEY\\s+)?(UPDATE|SHARE)\\b|\\bFOR\\s+KEY\\s+SHARE\\b"
+            + "|\\bPG_\\w*LOCK\\w*\\s*\\(|\\b(SETVAL|NEXTVAL|PG_NOTIFY)\\s*\\("
+    );
+
+    private final SqlLogger delegate;
+    private final SlowQueryConfig config;
+    private final SlowQueryLog slowQueries;
+    private final Jdbi jdbi;
+    private final Executor explainExecutor;
+    private final Cache<String, Boolean> recentlyExplained;
+
+    public SlowQueryLogger(
+        final SqlLogger delegate,
+        final SlowQueryConfig config,
+        final SlowQueryLog slowQueries,
+        final Jdbi jdbi,
+        final Executor explainExecutor
+    ) {
+        this.delegate = delegate;
+        this.config = config;
+        this.slowQueries = slowQueries;
+        this.jdbi = jdbi;
+        this.explainExecutor = explainExecutor;
+        this.recentlyExplained = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(config.getExplainIntervalSeconds()))
+            .maximumSize(10_000)
+            .build();
+    }
+
+    @Override
+    public void logBeforeExecution(final StatementContext ctx) {
+        delegate.logBeforeExecution(ctx);
+    }
+
+    @Override
+    public void logAfterExecution(final StatementContext ctx) {
+        delegate.logAfterExecution(ctx);
+        var elapsedMillis = ctx.getElapsedTime(ChronoUnit.MILLIS);
+        if (elapsedMillis >= config.getThresholdMillis()) {
+            onSlowQuery(ctx, elapsedMillis);
+        }
+    }
+
+    @Override
+    public void logException(
+        final StatementContext ctx,
+        final SQLException ex
+    ) {
+        delegate.logException(ctx, ex);
+    }
+
+    private void onSlowQuery(
+        final StatementContext ctx,
+        final long elapsedMillis
+    ) {
+        var sql = ctx.getRenderedSql();
+        var parameters = String.valueOf(ctx.getBinding());
+        var slowQuery = new SlowQuery(Instant.now(), name(ctx), sql, parameters, elapsedMillis);
+        slowQueries.add(slowQuery);
+        log.warn("Slow statement {} took {}ms: {} with {}", slowQuery.getName(), elapsedMillis, sql, parameters);
+
+        if (!config.isExplain() || recentlyExplained.asMap().putIfAbsent(sql, Boolean.TRUE) != null) {
+            return;
+        }
+        // parameters are rendered now, the statement is closed once the context is cleaned up
+        var statement = withParameters(ctx);
+        if (statement.isEmpty()) {
+            slowQuery.setPlan("Not captured, the parameters could not be resolved");
+            return;
+        }
+        var analyze = config.isAnalyze() && isPlainRead(ctx.getParsedSql().getSql());
+        try {
+            explainExecutor.execute(() -> explain(slowQuery, statement.get(), analyze));
+        } catch (RejectedExecutionException e) {
+            recentlyExplained.invalidate(sql);
+            slowQuery.setPlan("Not captured, too many plans are being captured");
+        }
+    }
+
+    private void explain(
+        final SlowQuery slowQuery,
+        final String statement,
+        final boolean analyze
+    ) {
+        // a handle of its own, withHandle would join the transaction of a caller on the same thread
+        try (var handle = jdbi.open()) {
+            var plan = explain(handle, statement, analyze);
+            slowQuery.setPlan(plan);
+            log.info("Plan of slow statement {}:\n{}", slowQuery.getName(), plan);
+        } catch (SQLException | RuntimeException e) {
+            slowQuery.setPlan("Not captured: " + e.getMessage());
+            log.debug("Plan of slow statement {} could not be captured", slowQuery.getName(), e);
+        }
+    }
+
+    private String explain(
+        final Handle handle,
+        final String sql,
+        final boolean analyze
+    ) throws SQLException {
+        handle.begin();
+        try {
+            var connection = handle.getConnection();
+            try (var statement = connection.createStatement()) {
+                if (analyze) {
+                    statement.execute("SET TRANSACTION READ ONLY");
+                }
+                statement.execute("SET LOCAL statement_timeout = " + config.getExplainTimeoutMillis());
+            }
+            var explain = (analyze ? "EXPLAIN (ANALYZE, BUFFERS) " : "EXPLAIN ") + sql;
+            try (var statement = connection.createStatement()) {
+                var lines = new StringBuilder();
+                try (var rows = statement.executeQuery(explain)) {
+                    while (rows.next()) {
+                        lines.append(rows.getString(1)).append('\n');
+                    }
+                }
+                return lines.toString();
+            }
+        } finally {
+            handle.rollback();
+        }
+    }
+
+    private static Optional<String> withParameters(final StatementContext ctx) {
+        try {
+            // the driver renders a prepared statement with its parameters as literals
+            return Optional.of(ctx.getStatement().unwrap(PGStatement.class).toString());
+        } catch (SQLException | RuntimeException e) {
+            log.debug("Parameters of statement {} could not be rendered", name(ctx), e);
+            return Optional.empty();
+        }
+    }
+
+    private static boolean isPlainRead(final String sql) {
+        var statement = LEADING_COMMENTS.matcher(sql).replaceFirst("").toUpperCase(Locale.ROOT);
+        var read = statement.startsWith("SELECT") || statement.startsWith("VALUES") || statement.startsWith("TABLE");
+        return read && !SIDE_EFFECTS.matcher(statement).find();
+    }
+
+    private static String name(final StatementContext ctx) {
+        var extensionMethod = ctx.getExtensionMethod();
+        return extensionMethod != null
+            ? extensionMethod.getType().getSimpleName() + "." + extensionMethod.getMethod().getName()
+            : "statement";
+    }
+}
@@ -0,0 +1,34 @@
+package io.baris.petclinic.dropwizard.system;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+
+/**
+ * Configuration of the archival of cold visits to columnar files
+ */
+@Data
+public class ArchiveConfig {
+
+    boolean enabled = false;
+
+    // one file per month, shared by all nodes serving the same database
+    @NotEmpty
+    String directory = "archive";
+
+    // whole months older than this are moved out of the visits table
+    @Min(1)
+    int coldAfterDays = 730;
+
+    // rows of a file compressed together, reading a pet's visits inflates only the groups holding the pet
+    @Min(1)
+    int rowGroupSize = 4_096;
+
+    @Min(1)
+    long intervalMinutes = 60;
+
+    // how often nodes pick up files written by others, archived rows stay in the table at least this long
+    @Min(0)
+    long refreshSeconds = 60;
+}
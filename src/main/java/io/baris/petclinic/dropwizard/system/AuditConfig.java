@@ -0,0 +1,46 @@
+package io.baris.petclinic.dropwizard.system;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Configuration of the audit trail of changes to pets, vets and visits
+ */
+@Data
+public class AuditConfig {
+
+    boolean enabled = false;
+
+    @NotNull
+    Durability durability = Durability.GROUP_COMMIT;
+
+    // upper bound of the entries written by one batch
+    @Min(1)
+    int maxBatchSize = 500;
+
+    // how often the writer looks for entries recorded asynchronously
+    @Min(1)
+    long flushIntervalMillis = 50;
+
+    // entries waiting to be written before callers write their own synchronously
+    @Min(1)
+    int maxQueued = 100_000;
+
+    // how long a change waits for its entry to be written before it is acknowledged regardless
+    @Min(1)
+    long maxWaitMillis = 5_000;
+
+    /**
+     * When a change is acknowledged relative to its audit entry being written
+     */
+    public enum Durability {
+        // the entry is written in the transaction of the change
+        SYNC,
+        // the caller waits for the writer to write the entry together with others queued meanwhile
+        GROUP_COMMIT,
+        // the caller returns once the entry is queued, entries queued at a crash are lost
+        ASYNC
+    }
+}
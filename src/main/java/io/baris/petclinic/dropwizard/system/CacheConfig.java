@@ -0,0 +1,35 @@
+package io.baris.petclinic.dropwizard.system;
+
+import io.baris.petclinic.dropwizard.cache.InMemorySharedCacheFactory;
+import io.baris.petclinic.dropwizard.cache.SharedCacheFactory;
+import lombok.Data;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Configuration of the two level cache of pets and vets
+ */
+@Data
+public class CacheConfig {
+
+    boolean enabled = true;
+
+    @Min(1)
+    long nearMaxEntries = 10_000;
+
+    // bounds how long a node serves a stale entry when it misses an invalidation
+    @Min(1)
+    long nearTtlSeconds = 30;
+
+    @Min(1)
+    long sharedTtlSeconds = 300;
+
+    @Min(1)
+    long reconnectDelaySeconds = 5;
+
+    @Valid
+    @NotNull
+    SharedCacheFactory shared = new InMemorySharedCacheFactory();
+}
@@ -0,0 +1,48 @@
+package io.baris.petclinic.dropwizard.system;
+
+import lombok.Data;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the adaptive concurrency limiter guarding the database
+ */
+@Data
+public class ConcurrencyLimitConfig {
+
+    boolean enabled = true;
+
+    @Min(1)
+    int initialLimit = 20;
+
+    @Min(1)
+    int minLimit = 5;
+
+    @Min(1)
+    int maxLimit = 100;
+
+    // how much the short term latency may exceed the long term one before the limit shrinks
+    @DecimalMin("1.0")
+    double tolerance = 1.5;
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    double smoothing = 0.2;
+
+    // number of samples the long term latency average is computed over
+    @Min(1)
+    int longWindow = 600;
+
+    // number of samples the short term latency average is computed over
+    @Min(1)
+    int shortWindow = 10;
+
+    @DecimalMin("0.1")
+    @DecimalMax("1.0")
+    double backoffRatio = 0.9;
+
+    @Min(0)
+    long retryAfterSeconds = 1;
+}
@@ -0,0 +1,126 @@
+package io.baris.petclinic.dropwizard.system;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.ConnectionException;
+
+import javax.ws.rs.ServiceUnavailableException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Adaptive concurrency limiter for database calls.
+ * <p>
+ * The limit follows the gradient between the long term and the short term query latency:
+ * while queries are as fast as usual the limit grows, once they slow down because work is
+ * queueing up in the database it shrinks. Calls above the limit are rejected right away
+ * with 503 instead of waiting for a pooled connection until they time out.
+ */
+@Slf4j
+public class ConcurrencyLimiter {
+
+    private final ConcurrencyLimitConfig config;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final Meter rejected;
+
+    private volatile double limit;
+    private double longRtt;
+    private double shortRtt;
+    private boolean sampled;
+
+    public ConcurrencyLimiter(
+        final ConcurrencyLimitConfig config,
+        final MetricRegistry metrics
+    ) {
+        this.config = config;
+        this.limit = config.getInitialLimit();
+        this.rejected = metrics.meter(name(ConcurrencyLimiter.class, "rejected"));
+        metrics.register(name(ConcurrencyLimiter.class, "limit"), (Gauge<Integer>) this::getLimit);
+        metrics.register(name(ConcurrencyLimiter.class, "inflight"), (Gauge<Integer>) this::getInflight);
+    }
+
+    public static ConcurrencyLimiter unlimited() {
+        var config = new ConcurrencyLimitConfig();
+        config.setEnabled(false);
+        return new ConcurrencyLimiter(config, new MetricRegistry());
+    }
+
+    public <T> T execute(final Supplier<T> call) {
+        if (!config.isEnabled()) {
+            return call.get();
+        }
+        var inflightAtStart = inflight.incrementAndGet();
+        if (inflightAtStart > getLimit()) {
+            inflight.decrementAndGet();
+            rejected.mark();
+            throw new ServiceUnavailableException(
+                "Server is overloaded, please retry later", config.getRetryAfterSeconds()
+            );
+        }
+        var start = System.nanoTime();
+        try {
+            var result = call.get();
+            onSample(System.nanoTime() - start, inflightAtStart);
+            return result;
+        } catch (ConnectionException e) {
+            // the pool could not hand out a connection in time, which is the clearest overload signal
+            onDrop();
+            throw e;
+        } finally {
+            inflight.decrementAndGet();
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.getCount();
+    }
+
+    private synchronized void onSample(final long rttNanos, final int inflightAtStart) {
+        if (!sampled) {
+            longRtt = rttNanos;
+            shortRtt = rttNanos;
+            sampled = true;
+            return;
+        }
+        longRtt += (rttNanos - longRtt) / config.getLongWindow();
+        shortRtt += (rttNanos - shortRtt) / config.getShortWindow();
+
+        // let the baseline recover quickly after a period of high latency
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        var gradient = Math.max(0.5, Math.min(1.0, config.getTolerance() * longRtt / shortRtt));
+        var newLimit = limit * gradient + Math.sqrt(limit);
+
+        // do not grow the limit while it is not even used
+        if (newLimit > limit && inflightAtStart < limit / 2) {
+            return;
+        }
+        update(limit * (1 - config.getSmoothing()) + newLimit * config.getSmoothing());
+    }
+
+    private synchronized void onDrop() {
+        update(limit * config.getBackoffRatio());
+    }
+
+    private void update(final double newLimit) {
+        var previous = getLimit();
+        limit = Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), newLimit));
+        if (previous != getLimit()) {
+            log.debug("Concurrency limit changed from {} to {}", previous, getLimit());
+        }
+    }
+}
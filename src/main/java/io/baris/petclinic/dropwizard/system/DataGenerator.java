@@ -0,0 +1,327 @@
+package io.baris.petclinic.dropwizard.system;
+
+import io.baris.petclinic.dropwizard.pet.model.Species;
+import lombok.Builder;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.generic.GenericType;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Bulk-loads synthetic pets, vets and visits with COPY.
+ * <p>
+ * Every table draws from its own random generator derived from the seed, so the same options
+ * always produce the same rows. Vet specialties and the vets visited follow Zipf distributions,
+ * like in real clinics a few of them account for most of the traffic.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class DataGenerator {
+
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+
+    private static final String[] PET_NAMES = {
+        "Bella", "Luna", "Charlie", "Lucy", "Max", "Daisy", "Milo", "Coco", "Oliver", "Lola",
+        "Rocky", "Sofi", "Simba", "Nala", "Buddy", "Kiwi", "Pepper", "Oscar", "Ruby", "Teddy"
+    };
+    private static final String[] VET_NAMES = {
+        "Magnus", "Erica", "Olof", "Astrid", "Lars", "Ingrid", "Nils", "Freja", "Sven", "Karin"
+    };
+    // ordered by popularity
+    private static final String[] SPECIALTIES = {
+        "surgery", "dentistry", "radiology", "internal medicine", "dermatology", "cardiology",
+        "anesthesia", "emergency", "ophthalmology", "oncology", "neurology", "nutrition",
+        "behavior", "exotics", "rehabilitation", "pathology"
+    };
+    private static final String[] TREATMENTS = {
+        "check-up", "vaccination", "dental cleaning", "flu", "parasites", "injury", "x-ray",
+        "skin allergy", "nail trim", "surgery"
+    };
+    private static final double[] TREATMENT_WEIGHTS = {30, 20, 8, 8, 8, 6, 6, 5, 5, 4};
+
+    private final Jdbi jdbi;
+    private final Options options;
+
+    /**
+     * Volumes and seed of a generation run
+     */
+    @Value
+    @Builder
+    public static class Options {
+
+        int pets;
+        int vets;
+        int years;
+        double visitsPerPetYear;
+        long seed;
+        Instant until;
+        boolean truncate;
+    }
+
+    public void generate() throws SQLException {
+        jdbi.useTransaction(handle -> {
+            // one flush of the caches at commit instead of a notification per row
+            handle.execute("SET LOCAL petclinic.skip_cache_invalidation = on");
+            handle.execute("NOTIFY cache_invalidation, '*'");
+            if (options.isTruncate()) {
+                handle.execute("TRUNCATE TABLE pets, vets, vet_specialties, visits, pet_histories RESTART IDENTITY");
+            }
+            var copyManager = handle.getConnection().unwrap(PGConnection.class).getCopyAPI();
+
+            var firstPetId = nextId(handle, "pets");
+            var firstVetId = nextId(handle, "vets");
+            var specialtyIds = createSpecialties(handle);
+
+            // visits are copied with the age of their pet
+            var petAges = new int[options.getPets()];
+            timed("pets", () -> copyPets(copyManager, firstPetId, petAges));
+            timed("vets", () -> copyVets(copyManager, firstVetId));
+            timed("vet specialties", () -> copyVetSpecialties(copyManager, firstVetId, specialtyIds));
+            timed("visits", () -> copyVisits(copyManager, firstPetId, firstVetId, petAges));
+
+            handle.execute("SELECT setval(pg_get_serial_sequence('pets', 'id'), (SELECT COALESCE(max(id), 1) FROM pets))");
+            handle.execute("SELECT setval(pg_get_serial_sequence('vets', 'id'), (SELECT COALESCE(max(id), 1) FROM vets))");
+            handle.execute("SELECT setval(pg_get_serial_sequence('visits', 'id'), (SELECT COALESCE(max(id), 1) FROM visits))");
+        });
+        // fresh statistics, so that query plans match the generated volumes right away
+        jdbi.useHandle(handle -> handle.execute("ANALYZE pets, vets, vet_specialties, visits"));
+    }
+
+    private long copyPets(
+        final CopyManager copyManager,
+        final int firstId,
+        final int[] ages
+    ) throws SQLException {
+        var random = random(1);
+        try (var copy = new CopyWriter(copyManager.copyIn("COPY pets (id, name, age, species) FROM STDIN"))) {
+            for (int i = 0; i < options.getPets(); i++) {
+                var id = firstId + i;
+                // most pets are young, few get old
+                var age = (int) Math.min(20, -Math.log(1 - random.nextDouble()) * 5);
+                ages[i] = age;
+                var share = random.nextInt(10);
+                var species = share < 5 ? Species.DOG : share < 9 ? Species.CAT : Species.PARROT;
+                copy.row(id, PET_NAMES[random.nextInt(PET_NAMES.length)] + " " + id, age, species);
+            }
+            return copy.finish();
+        }
+    }
+
+    private long copyVets(final CopyManager copyManager, final int firstId) throws SQLException {
+        var random = random(2);
+        try (var copy = new CopyWriter(copyManager.copyIn("COPY vets (id, name) FROM STDIN"))) {
+            for (int i = 0; i < options.getVets(); i++) {
+                var id = firstId + i;
+                copy.row(id, VET_NAMES[random.nextInt(VET_NAMES.length)] + " " + id);
+            }
+            return copy.finish();
+        }
+    }
+
+    private long copyVetSpecialties(
+        final CopyManager copyManager,
+        final int firstVetId,
+        final short[] specialtyIds
+    ) throws SQLException {
+        var random = random(3);
+        var popularity = new ZipfSampler(specialtyIds.length, 1.2);
+        try (var copy = new CopyWriter(copyManager.copyIn("COPY vet_specialties (vet_id, specialty_id) FROM STDIN"))) {
+            for (int i = 0; i < options.getVets(); i++) {
+                var count = 1 + random.nextInt(3);
+                var specialties = new LinkedHashSet<Short>();
+                while (specialties.size() < count) {
+                    specialties.add(specialtyIds[popularity.sample(random)]);
+                }
+                for (var specialtyId : specialties) {
+                    copy.row(firstVetId + i, specialtyId);
+                }
+            }
+            return copy.finish();
+        }
+    }
+
+    private long copyVisits(
+        final CopyManager copyManager,
+        final int firstPetId,
+        final int firstVetId,
+        final int[] petAges
+    ) throws SQLException {
+        if (options.getVets() == 0) {
+            return 0;
+        }
+        var random = random(4);
+        var vetPopularity = new ZipfSampler(options.getVets(), 1.0);
+        var treatments = new WeightedSampler(TREATMENT_WEIGHTS);
+        var meanVisits = options.getVisitsPerPetYear() * options.getYears();
+        var days = Math.max(1, options.getYears() * 365);
+        var until = options.getUntil();
+
+        try (var copy = new CopyWriter(copyManager.copyIn("COPY visits (pet_id, vet_id, date, treatment, pet_age) FROM STDIN"))) {
+            for (int i = 0; i < options.getPets(); i++) {
+                var visits = poisson(random, meanVisits);
+                for (int v = 0; v < visits; v++) {
+                    // during opening hours, in quarter hour slots
+                    var date = until
+                        .minus(Duration.ofDays(1 + random.nextInt(days)))
+                        .plus(Duration.ofMinutes(8 * 60 + random.nextInt(40) * 15));
+                    copy.row(
+                        firstPetId + i,
+                        firstVetId + vetPopularity.sample(random),
+                        Timestamp.from(date),
+                        TREATMENTS[treatments.sample(random)],
+                        petAges[i]
+                    );
+                }
+            }
+            return copy.finish();
+        }
+    }
+
+    private short[] createSpecialties(final Handle handle) {
+        var insert = handle.prepareBatch("INSERT INTO specialties (name) VALUES (?) ON CONFLICT (name) DO NOTHING");
+        Arrays.stream(SPECIALTIES).forEach(specialty -> insert.bind(0, specialty).add());
+        insert.execute();
+
+        Map<String, Short> ids = handle.createQuery("SELECT id, name FROM specialties")
+            .setMapKeyColumn("name")
+            .setMapValueColumn("id")
+            .collectInto(new GenericType<Map<String, Short>>() {
+            });
+        var specialtyIds = new short[SPECIALTIES.length];
+        for (int i = 0; i < SPECIALTIES.length; i++) {
+            specialtyIds[i] = ids.get(SPECIALTIES[i]);
+        }
+        return specialtyIds;
+    }
+
+    private static int nextId(final Handle handle, final String table) {
+        return handle.createQuery("SELECT COALESCE(max(id), 0) + 1 FROM " + table).mapTo(int.class).one();
+    }
+
+    private SplittableRandom random(final int table) {
+        return new SplittableRandom(options.getSeed() * 31 + table);
+    }
+
+    private static int poisson(final SplittableRandom random, final double mean) {
+        var limit = Math.exp(-mean);
+        var product = random.nextDouble();
+        var count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+
+    private static void timed(final String table, final CopyTask task) throws SQLException {
+        var start = System.nanoTime();
+        var rows = task.copy();
+        var millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.info("Copied {} {} in {} ms ({} rows/s)", rows, table, millis, rows * 1000 / millis);
+    }
+
+    @FunctionalInterface
+    private interface CopyTask {
+        long copy() throws SQLException;
+    }
+
+    /**
+     * Streams rows in the COPY text format through a fixed size buffer
+     */
+    private static class CopyWriter implements AutoCloseable {
+
+        private final CopyIn copyIn;
+        private final StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE);
+
+        CopyWriter(final CopyIn copyIn) {
+            this.copyIn = copyIn;
+        }
+
+        void row(final Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    buffer.append('\t');
+                }
+                buffer.append(values[i]);
+            }
+            buffer.append('\n');
+            if (buffer.length() >= COPY_BUFFER_SIZE) {
+                flush();
+            }
+        }
+
+        long finish() throws SQLException {
+            flush();
+            return copyIn.endCopy();
+        }
+
+        private void flush() throws SQLException {
+            var bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    /**
+     * Samples indexes with the given relative weights
+     */
+    private static class WeightedSampler {
+
+        private final double[] cumulative;
+
+        WeightedSampler(final double[] weights) {
+            cumulative = new double[weights.length];
+            double sum = 0;
+            for (int i = 0; i < weights.length; i++) {
+                sum += weights[i];
+                cumulative[i] = sum;
+            }
+        }
+
+        int sample(final SplittableRandom random) {
+            var ticket = random.nextDouble() * cumulative[cumulative.length - 1];
+            var index = Arrays.binarySearch(cumulative, ticket);
+            return Math.min(index >= 0 ? index + 1 : -index - 1, cumulative.length - 1);
+        }
+    }
+
+    /**
+     * Samples indexes where index k is chosen with a weight of 1 / (k + 1)^exponent
+     */
+    private static class ZipfSampler extends WeightedSampler {
+
+        ZipfSampler(final int size, final double exponent) {
+            super(zipfWeights(size, exponent));
+        }
+
+        private static double[] zipfWeights(final int size, final double exponent) {
+            var weights = new double[size];
+            for (int k = 0; k < size; k++) {
+                weights[k] = 1 / Math.pow(k + 1, exponent);
+            }
+            return weights;
+        }
+    }
+}
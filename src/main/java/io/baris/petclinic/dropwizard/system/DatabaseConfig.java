@@ -7,5 +7,5 @@ public class DatabaseConfig {
 
     String name;
     String dockerImage;
-    String initScript;
+    String migrations;
 }
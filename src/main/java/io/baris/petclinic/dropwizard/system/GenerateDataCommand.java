@@ -0,0 +1,77 @@
+package io.baris.petclinic.dropwizard.system;
+
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import org.jdbi.v3.core.Jdbi;
+
+import java.time.Instant;
+
+import static io.baris.petclinic.dropwizard.system.SchemaMigrator.migrate;
+
+/**
+ * Bulk-loads a reproducible synthetic dataset into the configured database for scale testing,
+ * e.g. {@code generate-data --pets 1000000 --truncate app-config.yml}
+ */
+public class GenerateDataCommand extends ConfiguredCommand<PetclinicConfiguration> {
+
+    public GenerateDataCommand() {
+        super("generate-data", "Bulk-loads synthetic pets, vets and visits into the database");
+    }
+
+    @Override
+    public void configure(final Subparser subparser) {
+        super.configure(subparser);
+        subparser.addArgument("--pets")
+            .type(Integer.class)
+            .setDefault(1_000_000)
+            .help("number of pets");
+        subparser.addArgument("--vets")
+            .type(Integer.class)
+            .setDefault(2_000)
+            .help("number of vets");
+        subparser.addArgument("--years")
+            .type(Integer.class)
+            .setDefault(5)
+            .help("years of visits");
+        subparser.addArgument("--visits-per-pet-year")
+            .dest("visitsPerPetYear")
+            .type(Double.class)
+            .setDefault(1.5)
+            .help("average visits of a pet per year");
+        subparser.addArgument("--until")
+            .setDefault("2025-01-01T00:00:00Z")
+            .help("date the visits end at, fixed so that runs are reproducible");
+        subparser.addArgument("--seed")
+            .type(Long.class)
+            .setDefault(42L)
+            .help("seed of the random generators");
+        subparser.addArgument("--truncate")
+            .action(Arguments.storeTrue())
+            .help("remove existing pets, vets and visits first");
+    }
+
+    @Override
+    protected void run(
+        final Bootstrap<PetclinicConfiguration> bootstrap,
+        final Namespace namespace,
+        final PetclinicConfiguration configuration
+    ) throws Exception {
+        var database = configuration.getDatabase();
+        var jdbi = Jdbi.create(database.getUrl(), database.getUser(), database.getPassword());
+        migrate(jdbi, configuration.getDatabaseConfig().getMigrations());
+
+        var options = DataGenerator.Options.builder()
+            .pets(namespace.getInt("pets"))
+            .vets(namespace.getInt("vets"))
+            .years(namespace.getInt("years"))
+            .visitsPerPetYear(namespace.getDouble("visitsPerPetYear"))
+            .until(Instant.parse(namespace.getString("until")))
+            .seed(namespace.getLong("seed"))
+            .truncate(namespace.getBoolean("truncate"))
+            .build();
+        new DataGenerator(jdbi, options).generate();
+    }
+}
@@ -0,0 +1,31 @@
+package io.baris.petclinic.dropwizard.system;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the GraphQL endpoint
+ */
+@Data
+public class GraphQlConfig {
+
+    // levels of nested selections a query may have
+    @Min(1)
+    int maxDepth = 6;
+
+    // estimated fields resolved by a query, lists count as many times as they are expected to be long
+    @Min(1)
+    int maxComplexity = 10_000;
+
+    // pets or vets listed when a query does not ask for a page size
+    @Min(1)
+    int defaultPageSize = 20;
+
+    @Min(1)
+    int maxPageSize = 100;
+
+    // expected length of the other lists when estimating the complexity
+    @Min(1)
+    int listSizeEstimate = 10;
+}
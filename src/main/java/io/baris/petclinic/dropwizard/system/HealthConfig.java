@@ -0,0 +1,27 @@
+package io.baris.petclinic.dropwizard.system;
+
+import lombok.Data;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the database health check behind the readiness probe
+ */
+@Data
+public class HealthConfig {
+
+    // results are reused for this long, so frequent probes don't add database load
+    @Min(0)
+    long cacheMillis = 2_000;
+
+    // the validation query has to answer within this time
+    @Min(1)
+    long timeoutMillis = 1_000;
+
+    // share of the statements failing over the last minute above which the database is reported unhealthy
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    double maxErrorRatio = 0.5;
+}
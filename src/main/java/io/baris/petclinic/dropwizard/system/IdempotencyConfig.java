@@ -0,0 +1,29 @@
+package io.baris.petclinic.dropwizard.system;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the idempotency key support of the create endpoints
+ */
+@Data
+public class IdempotencyConfig {
+
+    boolean enabled = true;
+
+    // how long a completed response is replayed for a retried key
+    @Min(1)
+    long ttlSeconds = 24 * 60 * 60;
+
+    // how long a claimed key blocks retries before an unfinished execution is given up on
+    @Min(1)
+    long inFlightTimeoutSeconds = 60;
+
+    // bound of the in-memory tier, the database keeps the rest
+    @Min(1)
+    long maxEntries = 10_000;
+
+    // share keys between nodes through the database
+    boolean shared = true;
+}
@@ -0,0 +1,31 @@
+package io.baris.petclinic.dropwizard.system;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the warm-up on startup and the draining on shutdown
+ */
+@Data
+public class LifecycleConfig {
+
+    // fill the pool, prepare the hot statements and prime the caches before turning ready
+    boolean warmUp = true;
+
+    // runs of every hot statement on each pooled connection, the driver prepares it server side after 5 by default
+    @Min(0)
+    int statementExecutions = 5;
+
+    // most recently visited pets loaded into the cache
+    @Min(0)
+    int primedPets = 1_000;
+
+    // time between readiness dropping and new requests being refused, so the load balancer stops routing here
+    @Min(0)
+    long unreadyDelayMillis = 5_000;
+
+    // time given to in-flight requests to complete, keep it below server.shutdownGracePeriod
+    @Min(0)
+    long drainTimeoutMillis = 20_000;
+}
@@ -0,0 +1,73 @@
+package io.baris.petclinic.dropwizard.system;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.jersey.validation.Validators;
+
+import javax.validation.Validator;
+import javax.ws.rs.WebApplicationException;
+import java.util.stream.Collectors;
+
+/**
+ * JSON Merge Patch (RFC 7396) of request models.
+ * <p>
+ * Members of the patch replace the ones of the target, {@code null} removes them and nested objects
+ * are merged recursively. Arrays are replaced as a whole. The patched model is validated like a
+ * request body, so that a patch cannot produce what a full update would refuse.
+ */
+public class MergePatch {
+
+    public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    private static final int UNPROCESSABLE_ENTITY = 422;
+    private static final ObjectMapper MAPPER = Jackson.newObjectMapper();
+    private static final Validator VALIDATOR = Validators.newValidator();
+
+    /**
+     * Patches the given model, fails with {@code 422} when the result is not a valid model
+     */
+    public static <T> T apply(
+        final T target,
+        final JsonNode patch,
+        final Class<T> type
+    ) {
+        T patched;
+        try {
+            patched = MAPPER.treeToValue(apply(MAPPER.valueToTree(target), patch), type);
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            throw new WebApplicationException("Patch does not fit the resource", UNPROCESSABLE_ENTITY);
+        }
+        var violations = VALIDATOR.validate(patched);
+        if (!violations.isEmpty()) {
+            var message = violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+            throw new WebApplicationException(message, UNPROCESSABLE_ENTITY);
+        }
+        return patched;
+    }
+
+    public static JsonNode apply(
+        final JsonNode target,
+        final JsonNode patch
+    ) {
+        if (!patch.isObject()) {
+            return patch;
+        }
+        var result = target != null && target.isObject()
+            ? ((ObjectNode) target).deepCopy()
+            : MAPPER.createObjectNode();
+        patch.fields().forEachRemaining(member -> {
+            if (member.getValue().isNull()) {
+                result.remove(member.getKey());
+            } else {
+                result.set(member.getKey(), apply(result.get(member.getKey()), member.getValue()));
+            }
+        });
+        return result;
+    }
+}
@@ -19,6 +19,12 @@ public class PetClinicUtils {
         );
     }
 
+    public static boolean resourceExists(final String path) {
+        return isClasspathResource(path) ?
+            getContextClassLoader().getResource(extractPath(path)) != null :
+            Files.exists(Paths.get(path));
+    }
+
     public static String resourceFilePath(final String path) {
         return escapeException(() -> {
             if (isClasspathResource(path)) {
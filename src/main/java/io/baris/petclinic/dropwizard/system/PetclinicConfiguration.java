@@ -23,4 +23,63 @@ public class PetclinicConfiguration extends Configuration {
 
     @NotNull
     private DatabaseConfig databaseConfig;
+
+    @Valid
+    @NotNull
+    private ConcurrencyLimitConfig concurrencyLimit = new ConcurrencyLimitConfig();
+
+    @Valid
+    @NotNull
+    private IdempotencyConfig idempotency = new IdempotencyConfig();
+
+    @Valid
+    @NotNull
+    private VisitBatchConfig visitBatch = new VisitBatchConfig();
+
+    @Valid
+    @NotNull
+    private CacheConfig cache = new CacheConfig();
+
+    @Valid
+    @NotNull
+    private ReportConfig reports = new ReportConfig();
+
+    @Valid
+    @NotNull
+    private TracingConfig tracing = new TracingConfig();
+
+    @Valid
+    @NotNull
+    private SlowQueryConfig slowQueries = new SlowQueryConfig();
+
+    @Valid
+    @NotNull
+    private HealthConfig health = new HealthConfig();
+
+    @Valid
+    @NotNull
+    private LifecycleConfig lifecycle = new LifecycleConfig();
+
+    @Valid
+    @NotNull
+    private TenancyConfig tenancy = new TenancyConfig();
+
+    @Valid
+    @NotNull
+    private ArchiveConfig archive = new ArchiveConfig();
+
+    @Valid
+    @NotNull
+    private AuditConfig audit = new AuditConfig();
+
+    @Valid
+    @NotNull
+    private PurgeConfig purge = new PurgeConfig();
+
+    @Valid
+    @NotNull
+    private GraphQlConfig graphQl = new GraphQlConfig();
+
+    // generate the OpenAPI document on its first request instead of at startup
+    private boolean lazyOpenApi;
 }
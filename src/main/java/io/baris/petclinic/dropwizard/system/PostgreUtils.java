@@ -2,6 +2,7 @@ package io.baris.petclinic.dropwizard.system;
 
 import org.jdbi.v3.core.Jdbi;
 
+import java.sql.SQLException;
 import java.util.Arrays;
 
 /**
@@ -9,6 +10,8 @@ import java.util.Arrays;
  */
 public class PostgreUtils {
 
+    private static final String UNIQUE_VIOLATION = "23505";
+
     public static void applySqlScript(final Jdbi jdbi, final String path) {
         String tables = PetClinicUtils.readFileToString(path);
         jdbi.withHandle(handle -> {
@@ -16,4 +19,11 @@ public class PostgreUtils {
             return 1;
         });
     }
+
+    /**
+     * Whether the statement failed because it would have duplicated a unique value
+     */
+    public static boolean isUniqueViolation(final RuntimeException e) {
+        return e.getCause() instanceof SQLException cause && UNIQUE_VIOLATION.equals(cause.getSQLState());
+    }
 }
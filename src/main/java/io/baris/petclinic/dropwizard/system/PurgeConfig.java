@@ -0,0 +1,25 @@
+package io.baris.petclinic.dropwizard.system;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the removal of soft deleted pets, vets and visits
+ */
+@Data
+public class PurgeConfig {
+
+    boolean enabled = false;
+
+    // deleted rows can be restored for this long
+    @Min(0)
+    int retentionDays = 30;
+
+    // rows removed per statement, keeping locks and transactions short
+    @Min(1)
+    int batchSize = 500;
+
+    @Min(1)
+    long intervalMinutes = 60;
+}
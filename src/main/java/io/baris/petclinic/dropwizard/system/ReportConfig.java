@@ -0,0 +1,20 @@
+package io.baris.petclinic.dropwizard.system;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the reports aggregated from the visits
+ */
+@Data
+public class ReportConfig {
+
+    // longest period a single report may span
+    @Min(1)
+    int maxWeeks = 520;
+
+    // closed weeks kept aggregated in memory
+    @Min(0)
+    long maxCachedWeeks = 2_000;
+}
@@ -0,0 +1,103 @@
+package io.baris.petclinic.dropwizard.system;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+
+import static io.baris.petclinic.dropwizard.system.PetClinicUtils.escapeException;
+import static io.baris.petclinic.dropwizard.system.PetClinicUtils.readFileToString;
+import static io.baris.petclinic.dropwizard.system.PetClinicUtils.resourceExists;
+
+/**
+ * Applies versioned schema migrations.
+ * <p>
+ * Migrations are numbered scripts {@code V1.sql}, {@code V2.sql}, ... under the configured location.
+ * Applied versions are recorded in {@code schema_version}, so a warm start only checks the current
+ * version. Pending scripts are applied under an advisory lock, which makes it safe for several
+ * replicas to start at the same time.
+ */
+@Slf4j
+public class SchemaMigrator {
+
+    // arbitrary key identifying the migration lock among other advisory locks
+    private static final long MIGRATION_LOCK_KEY = 7_411_925_061L;
+
+    public static void migrate(final Jdbi jdbi, final String location) {
+        var start = System.nanoTime();
+        jdbi.useHandle(handle -> {
+            var version = currentVersion(handle);
+            if (!hasPendingMigration(location, version)) {
+                log.info("Schema is up to date at version {} ({} ms)", version, elapsedMillis(start));
+                return;
+            }
+            handle.select("SELECT 1 FROM pg_advisory_lock(?)", MIGRATION_LOCK_KEY).mapTo(Integer.class).one();
+            try {
+                handle.execute("""
+                    CREATE TABLE IF NOT EXISTS schema_version
+                    (
+                        version      INTEGER PRIMARY KEY,
+                        description  TEXT      NOT NULL,
+                        installed_at TIMESTAMP NOT NULL DEFAULT now(),
+                        execution_ms BIGINT    NOT NULL
+                    )""");
+
+                // another replica may have migrated while we were waiting for the lock
+                version = currentVersion(handle);
+                while (hasPendingMigration(location, version)) {
+                    applyMigration(handle, location, ++version);
+                }
+            } finally {
+                handle.select("SELECT pg_advisory_unlock(?)", MIGRATION_LOCK_KEY).mapTo(Boolean.class).one();
+            }
+            log.info("Schema migrated to version {} ({} ms)", version, elapsedMillis(start));
+        });
+    }
+
+    private static void applyMigration(final Handle handle, final String location, final int version) {
+        var path = migrationPath(location, version);
+        var script = readFileToString(path);
+        var start = System.nanoTime();
+        handle.useTransaction(transaction -> {
+            // plain JDBC lets the driver split the script, including dollar quoted blocks
+            escapeException(() -> {
+                try (var statement = transaction.getConnection().createStatement()) {
+                    return statement.execute(script);
+                }
+            });
+            transaction.execute(
+                "INSERT INTO schema_version (version, description, execution_ms) VALUES (?, ?, ?)",
+                version, describe(script), elapsedMillis(start)
+            );
+        });
+        log.info("Applied migration {} in {} ms", path, elapsedMillis(start));
+    }
+
+    private static int currentVersion(final Handle handle) {
+        var exists = handle.select("SELECT to_regclass('schema_version') IS NOT NULL")
+            .mapTo(Boolean.class)
+            .one();
+        if (!exists) {
+            return 0;
+        }
+        return handle.select("SELECT COALESCE(MAX(version), 0) FROM schema_version")
+            .mapTo(Integer.class)
+            .one();
+    }
+
+    private static boolean hasPendingMigration(final String location, final int version) {
+        return resourceExists(migrationPath(location, version + 1));
+    }
+
+    private static String migrationPath(final String location, final int version) {
+        return "%s/V%d.sql".formatted(location, version);
+    }
+
+    private static String describe(final String script) {
+        var firstLine = script.lines().findFirst().orElse("").strip();
+        return firstLine.startsWith("--") ? firstLine.substring(2).strip() : "";
+    }
+
+    private static long elapsedMillis(final long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
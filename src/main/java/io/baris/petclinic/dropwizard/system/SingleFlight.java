@@ -0,0 +1,100 @@
+package io.baris.petclinic.dropwizard.system;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Coalesces concurrent identical reads.
+ * <p>
+ * The first caller of a key runs the call, callers arriving with the same key while it is in flight
+ * wait for it and get the same result, or the same exception. Nothing is kept once the call is done.
+ * A caller joining a flight may get a result read before it arrived, missing a change made meanwhile.
+ * Callers passing the version of the key, bumped by every change, only join flights started at that
+ * version or a later one, so that their result never predates a change they could have seen. Results
+ * are shared between the callers and must not be modified.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final Meter calls;
+    private final Meter coalesced;
+
+    public SingleFlight(
+        final String name,
+        final MetricRegistry metrics
+    ) {
+        this.calls = metrics.meter(name(SingleFlight.class, name, "calls"));
+        this.coalesced = metrics.meter(name(SingleFlight.class, name, "coalesced"));
+    }
+
+    public V execute(
+        final K key,
+        final Supplier<V> call
+    ) {
+        return execute(key, 0, call);
+    }
+
+    /**
+     * Joins a flight of the key started at the given version or a later one, otherwise runs the call
+     * and leaves the older flight to its callers
+     */
+    public V execute(
+        final K key,
+        final long version,
+        final Supplier<V> call
+    ) {
+        var flight = new Flight<V>(version, new CompletableFuture<>());
+        var current = inFlight.compute(key, (k, existing) ->
+            existing != null && existing.version() >= version ? existing : flight
+        );
+        if (current != flight) {
+            coalesced.mark();
+            return join(current.result());
+        }
+
+        calls.mark();
+        try {
+            var value = call.get();
+            flight.result().complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public long getCallCount() {
+        return calls.getCount();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.getCount();
+    }
+
+    private static <V> V join(final CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private record Flight<V>(long version, CompletableFuture<V> result) {
+    }
+}
@@ -0,0 +1,39 @@
+package io.baris.petclinic.dropwizard.system;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the log of slow statements and the capture of their plans
+ */
+@Data
+public class SlowQueryConfig {
+
+    boolean enabled = true;
+
+    // statements taking at least this long are logged
+    @Min(0)
+    long thresholdMillis = 500;
+
+    // rerun slow statements with EXPLAIN to capture their plan
+    boolean explain = true;
+
+    // reads are rerun with EXPLAIN (ANALYZE, BUFFERS), writes are only planned and never executed again
+    boolean analyze = true;
+
+    // a statement has its plan captured at most once in this interval
+    @Min(1)
+    long explainIntervalSeconds = 60;
+
+    @Min(1)
+    long explainTimeoutMillis = 10_000;
+
+    // slow statements waiting for their plan to be captured before further ones are skipped
+    @Min(1)
+    int maxQueuedExplains = 16;
+
+    // slow statements kept in memory for the admin task
+    @Min(1)
+    int maxEntries = 100;
+}
@@ -0,0 +1,81 @@
+package io.baris.petclinic.dropwizard.system;
+
+import io.dropwizard.Application;
+import io.dropwizard.cli.ServerCommand;
+import io.dropwizard.setup.Environment;
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.argparse4j.inf.Namespace;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Starts the server, measures the time from JVM start to the first successful {@code GET /pets},
+ * exercises the main endpoints once and stops again.
+ * <p>
+ * Doubles as the training run for the AppCDS archive, see the {@code appcds} Maven profile.
+ */
+@Slf4j
+public class StartupBenchmarkCommand extends ServerCommand<PetclinicConfiguration> {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    private static final List<String> TRAINING_PATHS = List.of("/pets", "/vets", "/", "/openapi.json");
+
+    private Server server;
+
+    public StartupBenchmarkCommand(final Application<PetclinicConfiguration> application) {
+        super(application, "benchmark-startup", "Measures the time to the first successful GET /pets and exits");
+    }
+
+    @Override
+    protected void run(
+        final Environment environment,
+        final Namespace namespace,
+        final PetclinicConfiguration configuration
+    ) throws Exception {
+        environment.lifecycle().addServerLifecycleListener(server -> this.server = server);
+        super.run(environment, namespace, configuration);
+
+        var baseUrl = "http://localhost:%d".formatted(((ServerConnector) server.getConnectors()[0]).getLocalPort());
+        var client = HttpClient.newHttpClient();
+        try {
+            var startupMillis = awaitFirstSuccess(client, baseUrl + "/pets");
+            log.info("Time to first successful GET /pets: {} ms since JVM start", startupMillis);
+
+            for (var path : TRAINING_PATHS) {
+                var response = client.send(request(baseUrl + path), HttpResponse.BodyHandlers.discarding());
+                log.info("GET {} returned {}", path, response.statusCode());
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private long awaitFirstSuccess(final HttpClient client, final String url) throws Exception {
+        var deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                var response = client.send(request(url), HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    return ManagementFactory.getRuntimeMXBean().getUptime();
+                }
+            } catch (IOException e) {
+                log.debug("Server not reachable yet: {}", e.getMessage());
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("No successful response from %s within %s".formatted(url, STARTUP_TIMEOUT));
+    }
+
+    private static HttpRequest request(final String url) {
+        return HttpRequest.newBuilder(URI.create(url)).GET().build();
+    }
+}
@@ -0,0 +1,41 @@
+package io.baris.petclinic.dropwizard.system;
+
+import io.dropwizard.db.DataSourceFactory;
+import lombok.Data;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration of the clinics served from schemas spread over several databases
+ */
+@Data
+public class TenancyConfig {
+
+    boolean enabled = false;
+
+    // name of the shard backed by the main database, which also holds the directory of clinics
+    @NotEmpty
+    String primaryShard = "primary";
+
+    // further databases new clinics are spread over
+    @Valid
+    @NotNull
+    Map<String, DataSourceFactory> shards = new LinkedHashMap<>();
+
+    // points per shard on the hash ring, more points spread clinics more evenly
+    @Min(1)
+    int virtualNodes = 128;
+
+    // time a node may keep a directory entry whose change notification it missed
+    @Min(0)
+    long directoryCacheSeconds = 5;
+
+    // time a rebalance waits for the clinic's requests on its node to finish before it gives up
+    @Min(1)
+    long drainTimeoutSeconds = 30;
+}
@@ -0,0 +1,32 @@
+package io.baris.petclinic.dropwizard.system;
+
+import lombok.Data;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the tracing of requests, manager calls and SQL statements
+ */
+@Data
+public class TracingConfig {
+
+    boolean enabled = true;
+
+    // share of the traces started here that are recorded, traces continued from a caller follow its decision
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    double sampleRatio = 0.01;
+
+    // write every recorded span to the log
+    boolean logSpans = false;
+
+    // recent spans kept in memory and served by the admin traces endpoint
+    @Min(0)
+    int maxSpans = 10_000;
+
+    // longer SQL text is cut in the span attributes
+    @Min(0)
+    int maxStatementLength = 2_000;
+}
@@ -0,0 +1,30 @@
+package io.baris.petclinic.dropwizard.system;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the group commit of concurrently made visits
+ */
+@Data
+public class VisitBatchConfig {
+
+    boolean enabled = false;
+
+    // upper bound of the visits written by one statement
+    @Min(1)
+    int maxBatchSize = 100;
+
+    // how long the first visit of a batch waits for others to join it
+    @Min(0)
+    long maxDelayMillis = 5;
+
+    // visits waiting to be written before new ones are rejected
+    @Min(1)
+    int maxQueued = 10_000;
+
+    // how long a caller waits for its visit to be written before it gets 503
+    @Min(1)
+    long maxWaitMillis = 5_000;
+}
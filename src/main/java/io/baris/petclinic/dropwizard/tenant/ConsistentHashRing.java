@@ -0,0 +1,49 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Assigns keys to nodes so that adding or removing a node only moves the keys of its share.
+ * <p>
+ * Every node is placed on the ring at several points, a key belongs to the first point at or after
+ * its own hash. More points per node even out the share each node gets.
+ */
+public class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    public ConsistentHashRing(
+        final Collection<String> nodes,
+        final int virtualNodes
+    ) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Hash ring needs at least one node");
+        }
+        nodes.forEach(node -> {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        });
+    }
+
+    public String get(final String key) {
+        var entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    private static long hash(final String value) {
+        try {
+            var digest = MessageDigest.getInstance("MD5").digest(value.getBytes(UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
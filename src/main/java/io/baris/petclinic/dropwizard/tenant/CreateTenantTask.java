@@ -0,0 +1,42 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin task creating a clinic, {@code ?tenant=<id>}
+ */
+public class CreateTenantTask extends Task {
+
+    private final TenantRouter router;
+
+    public CreateTenantTask(final TenantRouter router) {
+        super("create-tenant");
+        this.router = router;
+    }
+
+    @Override
+    public void execute(
+        final Map<String, List<String>> parameters,
+        final PrintWriter output
+    ) {
+        var id = getParameter(parameters, "tenant");
+        if (id == null) {
+            output.println("Missing tenant parameter");
+            return;
+        }
+        var tenant = router.createTenant(id);
+        output.printf("Clinic %s is on shard %s%n", tenant.getId(), tenant.getShard());
+    }
+
+    static String getParameter(
+        final Map<String, List<String>> parameters,
+        final String name
+    ) {
+        var values = parameters.getOrDefault(name, List.of());
+        return values.isEmpty() ? null : values.get(0);
+    }
+}
@@ -0,0 +1,38 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests of a clinic this node is serving, a move waits for them to finish before it copies the clinic
+ */
+public class InFlightRequests {
+
+    private int count;
+
+    public synchronized void enter() {
+        count++;
+    }
+
+    public synchronized void exit() {
+        count--;
+        if (count == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until no request is in flight, returns false when the timeout passes first
+     */
+    public synchronized boolean awaitNone(final Duration timeout) throws InterruptedException {
+        var deadline = System.nanoTime() + timeout.toNanos();
+        while (count > 0) {
+            var remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+}
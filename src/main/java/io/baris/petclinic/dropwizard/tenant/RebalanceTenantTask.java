@@ -0,0 +1,37 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+import static io.baris.petclinic.dropwizard.tenant.CreateTenantTask.getParameter;
+
+/**
+ * Admin task moving a clinic to another shard, {@code ?tenant=<id>&shard=<name>}.
+ * Without a shard the clinic moves to the one the hash ring assigns it to.
+ */
+public class RebalanceTenantTask extends Task {
+
+    private final TenantRouter router;
+
+    public RebalanceTenantTask(final TenantRouter router) {
+        super("rebalance-tenant");
+        this.router = router;
+    }
+
+    @Override
+    public void execute(
+        final Map<String, List<String>> parameters,
+        final PrintWriter output
+    ) {
+        var id = getParameter(parameters, "tenant");
+        if (id == null) {
+            output.println("Missing tenant parameter");
+            return;
+        }
+        var tenant = router.rebalance(id, getParameter(parameters, "shard"));
+        output.printf("Clinic %s is on shard %s%n", tenant.getId(), tenant.getShard());
+    }
+}
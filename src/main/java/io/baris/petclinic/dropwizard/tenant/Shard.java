@@ -0,0 +1,20 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import io.baris.petclinic.dropwizard.cache.CacheInvalidationListener;
+import lombok.Value;
+import org.jdbi.v3.core.Jdbi;
+
+/**
+ * Database holding the schemas of some clinics
+ */
+@Value
+public class Shard {
+
+    String name;
+    ShardDataSource dataSource;
+
+    // connections to the public schema, used to provision and move clinics
+    Jdbi jdbi;
+
+    CacheInvalidationListener invalidationListener;
+}
@@ -0,0 +1,168 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import io.dropwizard.db.ManagedDataSource;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Pool of a shard shared by the clinics it holds.
+ * <p>
+ * Every clinic lives in its own schema, borrowed connections get their search path pointed at the
+ * schema of the borrowing clinic. The schema last set on each physical connection is remembered, so
+ * a connection going back to the same clinic, the common case, costs no extra round trip.
+ */
+@RequiredArgsConstructor
+public class ShardDataSource implements ManagedDataSource {
+
+    public static final String PUBLIC_SCHEMA = "public";
+
+    private final ManagedDataSource pool;
+    private final Map<PGConnection, String> schemas = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * View of the pool whose connections use the given schema
+     */
+    public DataSource forSchema(final String schema) {
+        return new SchemaDataSource(schema);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(PUBLIC_SCHEMA);
+    }
+
+    @Override
+    public Connection getConnection(
+        final String username,
+        final String password
+    ) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Connections of a shard use the credentials of its pool");
+    }
+
+    private Connection getConnection(final String schema) throws SQLException {
+        var connection = pool.getConnection();
+        try {
+            var physical = connection.unwrap(PGConnection.class);
+            if (!schema.equals(schemas.get(physical))) {
+                connection.setSchema(schema);
+                schemas.put(physical, schema);
+            }
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void start() throws Exception {
+        pool.start();
+    }
+
+    @Override
+    public void stop() throws Exception {
+        pool.stop();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return pool.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(final PrintWriter out) throws SQLException {
+        pool.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(final int seconds) throws SQLException {
+        pool.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return pool.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return pool.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(final Class<T> type) throws SQLException {
+        return type.isInstance(pool) ? type.cast(pool) : pool.unwrap(type);
+    }
+
+    @Override
+    public boolean isWrapperFor(final Class<?> type) throws SQLException {
+        return type.isInstance(pool) || pool.isWrapperFor(type);
+    }
+
+    private class SchemaDataSource implements DataSource {
+
+        private final String schema;
+
+        private SchemaDataSource(final String schema) {
+            this.schema = schema;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return ShardDataSource.this.getConnection(schema);
+        }
+
+        @Override
+        public Connection getConnection(
+            final String username,
+            final String password
+        ) throws SQLException {
+            return ShardDataSource.this.getConnection(username, password);
+        }
+
+        @Override
+        public PrintWriter getLogWriter() throws SQLException {
+            return ShardDataSource.this.getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(final PrintWriter out) throws SQLException {
+            ShardDataSource.this.setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(final int seconds) throws SQLException {
+            ShardDataSource.this.setLoginTimeout(seconds);
+        }
+
+        @Override
+        public int getLoginTimeout() throws SQLException {
+            return ShardDataSource.this.getLoginTimeout();
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            return ShardDataSource.this.getParentLogger();
+        }
+
+        @Override
+        public <T> T unwrap(final Class<T> type) throws SQLException {
+            return ShardDataSource.this.unwrap(type);
+        }
+
+        @Override
+        public boolean isWrapperFor(final Class<?> type) throws SQLException {
+            return ShardDataSource.this.isWrapperFor(type);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import io.baris.petclinic.dropwizard.tenant.model.Tenant;
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+
+import java.util.Optional;
+
+/**
+ * Manages the directory of clinics in the main database
+ */
+@RegisterRowMapper(TenantRowMapper.class)
+public interface TenantDao {
+
+    @SqlQuery("SELECT * FROM public.tenants WHERE id = ?")
+    Optional<Tenant> getTenant(String id);
+
+    @SqlUpdate("INSERT INTO public.tenants (id, shard) VALUES (?, ?) ON CONFLICT (id) DO NOTHING")
+    boolean createTenant(String id, String shard);
+
+    @SqlUpdate("UPDATE public.tenants SET moving = ? WHERE id = ?")
+    void setMoving(boolean moving, String id);
+
+    @SqlUpdate("UPDATE public.tenants SET shard = ?, moving = false WHERE id = ?")
+    void moveTenant(String shard, String id);
+}
@@ -0,0 +1,99 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.baris.petclinic.dropwizard.cache.CacheInvalidationListener;
+import io.baris.petclinic.dropwizard.tenant.model.Tenant;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Directory of the clinics, cached briefly since every request looks its clinic up.
+ * <p>
+ * Changes are published as {@value #INVALIDATION}{@code :<hash of the clinic id>} on the cache
+ * invalidation channel in their own transaction, so other nodes drop their entry right away. The
+ * time to live only bounds how long an entry outlives a notification lost while not listening.
+ */
+public class TenantDirectory {
+
+    public static final String INVALIDATION = "tenant-directory";
+
+    private final Jdbi jdbi;
+    private final Cache<String, Optional<Tenant>> tenants;
+
+    public TenantDirectory(
+        final Jdbi jdbi,
+        final Duration ttl
+    ) {
+        this.jdbi = jdbi;
+        this.tenants = Caffeine.newBuilder()
+            .expireAfterWrite(ttl)
+            .maximumSize(10_000)
+            .build();
+    }
+
+    public Optional<Tenant> find(final String id) {
+        return tenants.get(id, key -> jdbi.withExtension(TenantDao.class, dao -> dao.getTenant(key)));
+    }
+
+    /**
+     * Records a new clinic, returns false when it already exists
+     */
+    public boolean create(
+        final String id,
+        final String shard
+    ) {
+        try {
+            return jdbi.inTransaction(handle -> {
+                var created = handle.attach(TenantDao.class).createTenant(id, shard);
+                notifyChange(handle, id);
+                return created;
+            });
+        } finally {
+            tenants.invalidate(id);
+        }
+    }
+
+    public void setMoving(
+        final String id,
+        final boolean moving
+    ) {
+        jdbi.useTransaction(handle -> {
+            handle.attach(TenantDao.class).setMoving(moving, id);
+            notifyChange(handle, id);
+        });
+        tenants.invalidate(id);
+    }
+
+    public void move(
+        final String id,
+        final String shard
+    ) {
+        jdbi.useTransaction(handle -> {
+            handle.attach(TenantDao.class).moveTenant(shard, id);
+            notifyChange(handle, id);
+        });
+        tenants.invalidate(id);
+    }
+
+    /**
+     * Drops the entries of the clinics whose id has the given hash, as notified by another node
+     */
+    public void evict(final int idHash) {
+        tenants.asMap().keySet().removeIf(id -> id.hashCode() == idHash);
+    }
+
+    public void evictAll() {
+        tenants.invalidateAll();
+    }
+
+    private static void notifyChange(
+        final Handle handle,
+        final String id
+    ) {
+        handle.execute("SELECT pg_notify(?, ?)", CacheInvalidationListener.CHANNEL, INVALIDATION + ":" + id.hashCode());
+    }
+}
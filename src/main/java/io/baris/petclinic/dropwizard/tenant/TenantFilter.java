@@ -0,0 +1,110 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import io.baris.petclinic.dropwizard.tenant.model.Tenant;
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Priority;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Resolves the clinic of a request and makes its managers the current ones while the resource runs.
+ * <p>
+ * The clinic is given either in the {@value #HEADER} header or as a {@code /clinics/{id}} path prefix,
+ * which is stripped before the resources are matched. Requests giving neither are served from the
+ * main schema. Requests of a clinic are counted while they run, so that a move can wait for them.
+ */
+@Provider
+@PreMatching
+@Priority(Priorities.AUTHENTICATION)
+@RequiredArgsConstructor
+public class TenantFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String HEADER = "X-Clinic";
+    public static final String TENANT_PROPERTY = TenantFilter.class.getName() + ".tenant";
+
+    private static final String IN_FLIGHT_PROPERTY = TenantFilter.class.getName() + ".inFlight";
+
+    private static final String PATH_PREFIX = "clinics/";
+
+    // seconds a client is asked to wait while its clinic moves between shards
+    private static final long MOVING_RETRY_AFTER = 5;
+
+    private final TenantRouter router;
+
+    @Override
+    public void filter(final ContainerRequestContext request) {
+        router.clearCurrent();
+        var tenantId = tenantId(request);
+        if (tenantId == null) {
+            return;
+        }
+        if (!TenantRouter.isValidId(tenantId)) {
+            throw new BadRequestException("Invalid clinic");
+        }
+        var tenant = router.findTenant(tenantId)
+            .orElseThrow(() -> new NotFoundException("Clinic not found"));
+        if (tenant.isMoving()) {
+            throw movingException();
+        }
+        var services = router.services(tenant);
+        services.inFlight().enter();
+        // a move flagged meanwhile may have found no request in flight, it is looked up again once counted
+        if (router.findTenant(tenantId).map(Tenant::isMoving).orElse(true)) {
+            services.inFlight().exit();
+            throw movingException();
+        }
+        request.setProperty(IN_FLIGHT_PROPERTY, services.inFlight());
+        request.setProperty(TENANT_PROPERTY, tenantId);
+        router.setCurrent(services);
+    }
+
+    @Override
+    public void filter(
+        final ContainerRequestContext request,
+        final ContainerResponseContext response
+    ) {
+        router.clearCurrent();
+        if (request.getProperty(IN_FLIGHT_PROPERTY) instanceof InFlightRequests inFlight) {
+            request.removeProperty(IN_FLIGHT_PROPERTY);
+            inFlight.exit();
+        }
+    }
+
+    private static ServiceUnavailableException movingException() {
+        return new ServiceUnavailableException("Clinic is being moved", MOVING_RETRY_AFTER);
+    }
+
+    private static String tenantId(final ContainerRequestContext request) {
+        var header = request.getHeaderString(HEADER);
+        var uriInfo = request.getUriInfo();
+        var path = uriInfo.getPath(false);
+        if (!path.startsWith(PATH_PREFIX)) {
+            return header;
+        }
+
+        var separator = path.indexOf('/', PATH_PREFIX.length());
+        var pathTenant = separator < 0
+            ? path.substring(PATH_PREFIX.length())
+            : path.substring(PATH_PREFIX.length(), separator);
+        if (header != null && !header.equals(pathTenant)) {
+            throw new BadRequestException("Clinic of the path and the " + HEADER + " header differ");
+        }
+        var rest = separator < 0 ? "" : path.substring(separator + 1);
+        request.setRequestUri(
+            uriInfo.getBaseUriBuilder()
+                .path(rest)
+                .replaceQuery(uriInfo.getRequestUri().getRawQuery())
+                .build()
+        );
+        return pathTenant;
+    }
+}
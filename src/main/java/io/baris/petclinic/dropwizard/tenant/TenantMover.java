@@ -0,0 +1,178 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.transaction.TransactionIsolationLevel;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static io.baris.petclinic.dropwizard.system.PetClinicUtils.escapeException;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Moves the schema of a clinic between shards.
+ * <p>
+ * Rows are streamed table by table with {@code COPY}, parents before the tables referencing them,
+ * from one consistent snapshot of the source. The target schema must already be migrated, whatever
+ * it holds is replaced. Sequences are carried over so new rows continue after the copied ones.
+ * <p>
+ * Writers are fenced in the source database, as nodes that have not learnt about the move yet may
+ * still route to it: the tables are locked against writes before the snapshot is taken, and the
+ * source schema is dropped in the same transaction once the clinic has been switched over. Writes
+ * that got in first are copied, the ones queued behind the lock fail on the dropped schema.
+ */
+@Slf4j
+public class TenantMover {
+
+    private static final String SCHEMA_VERSION_TABLE = "schema_version";
+
+    /**
+     * Copies the schema to the target, runs the switch-over while writers are still fenced and drops the source schema
+     */
+    public static void move(
+        final Jdbi source,
+        final Jdbi target,
+        final String schema,
+        final Runnable switchOver
+    ) {
+        var start = System.nanoTime();
+        // read before the copy, any statement of its transaction would fix the snapshot ahead of the lock
+        var tables = source.withHandle(handle -> tablesInDependencyOrder(handle, schema));
+        var qualifiedTables = tables.stream()
+            .map(table -> qualified(schema, table))
+            .collect(joining(", "));
+        source.useTransaction(TransactionIsolationLevel.REPEATABLE_READ, from -> {
+            from.execute("LOCK TABLE " + qualifiedTables + " IN EXCLUSIVE MODE");
+            target.useTransaction(to -> {
+                // the copied clinic is not served by any node yet, there is nothing to invalidate
+                to.execute("SET LOCAL petclinic.skip_cache_invalidation = 'on'");
+
+                to.execute("TRUNCATE " + qualifiedTables + " CASCADE");
+                for (var table : tables) {
+                    var rows = escapeException(() ->
+                        copyTable(copyManager(from), copyManager(to), qualified(schema, table))
+                    );
+                    log.debug("Copied {} rows of {}.{}", rows, schema, table);
+                }
+                copySequences(from, to, schema);
+            });
+            log.info("Copied schema {} in {} ms", schema, (System.nanoTime() - start) / 1_000_000);
+            switchOver.run();
+            from.execute("DROP SCHEMA " + quote(schema) + " CASCADE");
+        });
+    }
+
+    private static List<String> tablesInDependencyOrder(
+        final Handle handle,
+        final String schema
+    ) {
+        var tables = handle.select("""
+                SELECT c.relname
+                FROM pg_class c
+                JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = ? AND c.relkind = 'r' AND c.relname <> ?
+                ORDER BY c.relname""", schema, SCHEMA_VERSION_TABLE)
+            .mapTo(String.class)
+            .list();
+        Map<String, List<String>> parents = handle.select("""
+                SELECT child.relname AS child, parent.relname AS parent
+                FROM pg_constraint k
+                JOIN pg_class child ON child.oid = k.conrelid
+                JOIN pg_class parent ON parent.oid = k.confrelid
+                JOIN pg_namespace n ON n.oid = k.connamespace
+                WHERE k.contype = 'f' AND n.nspname = ?""", schema)
+            .map((rs, ctx) -> Map.entry(rs.getString("child"), rs.getString("parent")))
+            .stream()
+            .collect(groupingBy(Map.Entry::getKey, mapping(Map.Entry::getValue, toList())));
+
+        var ordered = new LinkedHashSet<String>();
+        tables.forEach(table -> visit(table, parents, ordered, new LinkedHashSet<>()));
+        return new ArrayList<>(ordered);
+    }
+
+    private static void visit(
+        final String table,
+        final Map<String, List<String>> parents,
+        final Set<String> ordered,
+        final Set<String> path
+    ) {
+        // a table referencing itself, or a cycle, doesn't need its own rows copied first
+        if (ordered.contains(table) || !path.add(table)) {
+            return;
+        }
+        parents.getOrDefault(table, List.of()).forEach(parent -> visit(parent, parents, ordered, path));
+        ordered.add(table);
+    }
+
+    private static long copyTable(
+        final CopyManager from,
+        final CopyManager to,
+        final String table
+    ) throws SQLException {
+        var copyOut = from.copyOut("COPY " + table + " TO STDOUT");
+        var copyIn = to.copyIn("COPY " + table + " FROM STDIN");
+        try {
+            byte[] chunk;
+            while ((chunk = copyOut.readFromCopy()) != null) {
+                copyIn.writeToCopy(chunk, 0, chunk.length);
+            }
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+            if (copyOut.isActive()) {
+                copyOut.cancelCopy();
+            }
+        }
+    }
+
+    private static void copySequences(
+        final Handle from,
+        final Handle to,
+        final String schema
+    ) {
+        var sequences = from.select("""
+                SELECT c.relname
+                FROM pg_class c
+                JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = ? AND c.relkind = 'S'""", schema)
+            .mapTo(String.class)
+            .list();
+        sequences.forEach(sequence -> {
+            var name = qualified(schema, sequence);
+            var state = from.select("SELECT last_value, is_called FROM " + name)
+                .map((rs, ctx) -> Map.entry(rs.getLong("last_value"), rs.getBoolean("is_called")))
+                .one();
+            to.select("SELECT setval(CAST(? AS regclass), ?, ?)", name, state.getKey(), state.getValue())
+                .mapTo(Long.class)
+                .one();
+        });
+    }
+
+    private static CopyManager copyManager(final Handle handle) {
+        return escapeException(() -> handle.getConnection().unwrap(PGConnection.class).getCopyAPI());
+    }
+
+    static String qualified(
+        final String schema,
+        final String name
+    ) {
+        return quote(schema) + "." + quote(name);
+    }
+
+    static String quote(final String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+}
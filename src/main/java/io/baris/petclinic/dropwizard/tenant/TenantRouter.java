@@ -0,0 +1,241 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import io.baris.petclinic.dropwizard.system.TenancyConfig;
+import io.baris.petclinic.dropwizard.tenant.model.Tenant;
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Jdbi;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.regex.Pattern;
+
+import static io.baris.petclinic.dropwizard.system.SchemaMigrator.migrate;
+import static io.baris.petclinic.dropwizard.tenant.TenantMover.quote;
+
+/**
+ * Routes the requests of a clinic to the managers of the shard holding it.
+ * <p>
+ * New clinics are placed on the shards with a consistent hash of their id, so adding a shard only
+ * draws clinics placed from then on towards it. Existing clinics stay where the directory says until
+ * they are rebalanced. Requests without a clinic are served from the main schema as before.
+ */
+@Slf4j
+public class TenantRouter {
+
+    private static final Pattern TENANT_ID = Pattern.compile("[a-z0-9][a-z0-9_]{0,39}");
+    private static final String SCHEMA_PREFIX = "clinic_";
+
+    private final TenantDirectory directory;
+    private final Map<String, Shard> shards;
+    private final ConsistentHashRing ring;
+    private final BiFunction<DataSource, String, Jdbi> jdbiFactory;
+    private final TenantServicesFactory servicesFactory;
+    private final TenantServices defaultServices;
+    private final String migrations;
+    private final Duration drainTimeout;
+    private final Map<String, TenantServices> services = new ConcurrentHashMap<>();
+    private final ThreadLocal<TenantServices> current = new ThreadLocal<>();
+
+    public TenantRouter(
+        final TenantDirectory directory,
+        final Map<String, Shard> shards,
+        final TenancyConfig config,
+        final BiFunction<DataSource, String, Jdbi> jdbiFactory,
+        final TenantServicesFactory servicesFactory,
+        final TenantServices defaultServices,
+        final String migrations
+    ) {
+        this.directory = directory;
+        this.shards = shards;
+        this.ring = new ConsistentHashRing(shards.keySet(), config.getVirtualNodes());
+        this.jdbiFactory = jdbiFactory;
+        this.servicesFactory = servicesFactory;
+        this.defaultServices = defaultServices;
+        this.migrations = migrations;
+        this.drainTimeout = Duration.ofSeconds(config.getDrainTimeoutSeconds());
+    }
+
+    public static boolean isValidId(final String id) {
+        return id != null && TENANT_ID.matcher(id).matches();
+    }
+
+    /**
+     * Managers of the clinic of the current request
+     */
+    public TenantServices current() {
+        var services = current.get();
+        return services != null ? services : defaultServices;
+    }
+
+    public void setCurrent(final TenantServices services) {
+        current.set(services);
+    }
+
+    public void clearCurrent() {
+        current.remove();
+    }
+
+    public Optional<Tenant> findTenant(final String id) {
+        return directory.find(id);
+    }
+
+    /**
+     * Managers of the given clinic, rebuilt when the clinic was moved to another shard
+     */
+    public TenantServices services(final Tenant tenant) {
+        var existing = services.get(tenant.getId());
+        if (existing != null && existing.shard().equals(tenant.getShard())) {
+            return existing;
+        }
+        return services.compute(tenant.getId(), (id, previous) -> {
+            if (previous != null) {
+                if (previous.shard().equals(tenant.getShard())) {
+                    return previous;
+                }
+                previous.release().run();
+            }
+            var shard = shard(tenant.getShard());
+            var schema = schema(id);
+            return servicesFactory.create(schema, shard, tenantJdbi(shard, schema));
+        });
+    }
+
+    /**
+     * Creates the schema of a new clinic on the shard the hash ring assigns it to
+     */
+    public Tenant createTenant(final String id) {
+        if (!isValidId(id)) {
+            throw new IllegalArgumentException("Invalid clinic id " + id);
+        }
+        var existing = directory.find(id);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        var shard = shards.get(ring.get(id));
+        provision(shard, schema(id));
+        directory.create(id, shard.getName());
+        log.info("Created clinic {} on shard {}", id, shard.getName());
+        return directory.find(id).orElseThrow();
+    }
+
+    /**
+     * Moves a clinic to the given shard, or to the one the hash ring assigns it to when none is given.
+     * <p>
+     * The clinic is refused while its data is copied. Copying starts once the requests this node is
+     * serving for the clinic have finished, other nodes drop their cached directory entry as soon as
+     * they are notified of the change. Writes another node still routes to the source meanwhile are
+     * fenced by the mover in the database, they are either copied or fail.
+     */
+    public Tenant rebalance(
+        final String id,
+        final String targetShard
+    ) {
+        var tenant = directory.find(id)
+            .orElseThrow(() -> new IllegalArgumentException("Unknown clinic " + id));
+        var target = targetShard != null ? shard(targetShard) : shards.get(ring.get(id));
+        if (tenant.getShard().equals(target.getName())) {
+            return tenant;
+        }
+        if (tenant.isMoving()) {
+            throw new IllegalStateException("Clinic " + id + " is already being moved");
+        }
+
+        var source = shard(tenant.getShard());
+        var schema = schema(id);
+        var start = System.nanoTime();
+        var switched = new AtomicBoolean();
+        directory.setMoving(id, true);
+        try {
+            awaitRequests(id);
+            release(id);
+            provision(target, schema);
+            TenantMover.move(source.getJdbi(), target.getJdbi(), schema, () -> {
+                directory.move(id, target.getName());
+                switched.set(true);
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortMove(id, target, schema);
+            throw new IllegalStateException("Interrupted while moving clinic " + id, e);
+        } catch (RuntimeException e) {
+            if (!switched.get()) {
+                abortMove(id, target, schema);
+                throw e;
+            }
+            // the clinic is served from the target already, only its old schema is left behind
+            log.warn("Clinic {} moved but its schema on shard {} was not dropped with the move", id, source.getName(), e);
+            dropSchema(source, schema);
+        }
+        log.info(
+            "Moved clinic {} from shard {} to {} in {} ms",
+            id, source.getName(), target.getName(), (System.nanoTime() - start) / 1_000_000
+        );
+        return directory.find(id).orElseThrow();
+    }
+
+    private void awaitRequests(final String id) throws InterruptedException {
+        var serving = services.get(id);
+        if (serving != null && !serving.inFlight().awaitNone(drainTimeout)) {
+            throw new IllegalStateException("Requests of clinic %s did not finish within %s".formatted(id, drainTimeout));
+        }
+    }
+
+    private void abortMove(
+        final String id,
+        final Shard target,
+        final String schema
+    ) {
+        directory.setMoving(id, false);
+        dropSchema(target, schema);
+    }
+
+    private void release(final String id) {
+        var released = services.remove(id);
+        if (released != null) {
+            released.release().run();
+        }
+    }
+
+    private void provision(
+        final Shard shard,
+        final String schema
+    ) {
+        shard.getJdbi().useHandle(handle -> handle.execute("CREATE SCHEMA IF NOT EXISTS " + quote(schema)));
+        migrate(tenantJdbi(shard, schema), migrations);
+    }
+
+    private void dropSchema(
+        final Shard shard,
+        final String schema
+    ) {
+        try {
+            shard.getJdbi().useHandle(handle -> handle.execute("DROP SCHEMA IF EXISTS " + quote(schema) + " CASCADE"));
+        } catch (RuntimeException e) {
+            log.warn("Failed to drop schema {} on shard {}", schema, shard.getName(), e);
+        }
+    }
+
+    private Jdbi tenantJdbi(
+        final Shard shard,
+        final String schema
+    ) {
+        return jdbiFactory.apply(shard.getDataSource().forSchema(schema), schema);
+    }
+
+    private Shard shard(final String name) {
+        var shard = shards.get(name);
+        if (shard == null) {
+            throw new IllegalArgumentException("Unknown shard " + name);
+        }
+        return shard;
+    }
+
+    private static String schema(final String id) {
+        return SCHEMA_PREFIX + id;
+    }
+}
@@ -0,0 +1,23 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import io.baris.petclinic.dropwizard.tenant.model.Tenant;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps tenant rows without the reflection of a bean mapper
+ */
+public class TenantRowMapper implements RowMapper<Tenant> {
+
+    @Override
+    public Tenant map(final ResultSet rs, final StatementContext ctx) throws SQLException {
+        return new Tenant(
+            rs.getString("id"),
+            rs.getString("shard"),
+            rs.getBoolean("moving")
+        );
+    }
+}
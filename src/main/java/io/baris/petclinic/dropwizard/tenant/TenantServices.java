@@ -0,0 +1,21 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import io.baris.petclinic.dropwizard.pet.PetManager;
+import io.baris.petclinic.dropwizard.report.ReportManager;
+import io.baris.petclinic.dropwizard.vet.VetManager;
+import io.baris.petclinic.dropwizard.visit.VisitManager;
+
+/**
+ * Managers serving one clinic from the shard holding it, {@code inFlight} counts the requests using them
+ * and {@code release} drops their caches
+ */
+public record TenantServices(
+    String shard,
+    PetManager petManager,
+    VetManager vetManager,
+    VisitManager visitManager,
+    ReportManager reportManager,
+    InFlightRequests inFlight,
+    Runnable release
+) {
+}
@@ -0,0 +1,12 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import org.jdbi.v3.core.Jdbi;
+
+/**
+ * Builds the managers of a clinic on top of its schema
+ */
+@FunctionalInterface
+public interface TenantServicesFactory {
+
+    TenantServices create(String schema, Shard shard, Jdbi jdbi);
+}
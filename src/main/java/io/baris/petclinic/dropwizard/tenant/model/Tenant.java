@@ -0,0 +1,16 @@
+package io.baris.petclinic.dropwizard.tenant.model;
+
+import lombok.Value;
+
+/**
+ * Represents a clinic and the shard holding its data
+ */
+@Value
+public class Tenant {
+
+    String id;
+    String shard;
+
+    // data is being copied to another shard, requests are refused until it is done
+    boolean moving;
+}
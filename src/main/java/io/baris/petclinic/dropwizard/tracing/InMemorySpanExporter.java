@@ -0,0 +1,51 @@
+package io.baris.petclinic.dropwizard.tracing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the most recent spans in memory, to look traces up without a collector
+ */
+public class InMemorySpanExporter implements SpanExporter {
+
+    private final int maxSpans;
+    private final Deque<Span> spans = new ArrayDeque<>();
+
+    public InMemorySpanExporter(final int maxSpans) {
+        this.maxSpans = maxSpans;
+    }
+
+    @Override
+    public synchronized void export(final Span span) {
+        if (maxSpans == 0) {
+            return;
+        }
+        if (spans.size() == maxSpans) {
+            spans.removeFirst();
+        }
+        spans.addLast(span);
+    }
+
+    /**
+     * Spans of the trace in the order they ended
+     */
+    public synchronized List<Span> getTrace(final String traceId) {
+        return spans.stream()
+            .filter(span -> span.getTraceId().equals(traceId))
+            .toList();
+    }
+
+    /**
+     * The most recently ended spans, latest first
+     */
+    public synchronized List<Span> getRecent(final int limit) {
+        var recent = new ArrayList<Span>(Math.min(limit, spans.size()));
+        var iterator = spans.descendingIterator();
+        while (iterator.hasNext() && recent.size() < limit) {
+            recent.add(iterator.next());
+        }
+        return recent;
+    }
+}
@@ -0,0 +1,25 @@
+package io.baris.petclinic.dropwizard.tracing;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes every span to the application log
+ */
+@Slf4j
+public class LoggingSpanExporter implements SpanExporter {
+
+    @Override
+    public void export(final Span span) {
+        log.info(
+            "trace={} span={} parent={} kind={} name=\"{}\" duration={}us attributes={}{}",
+            span.getTraceId(),
+            span.getSpanId(),
+            span.getParentSpanId(),
+            span.getKind(),
+            span.getName(),
+            span.getDurationMicros(),
+            span.getAttributes(),
+            span.getError() != null ? " error=\"" + span.getError() + "\"" : ""
+        );
+    }
+}
@@ -0,0 +1,85 @@
+package io.baris.petclinic.dropwizard.tracing;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Timed operation of a trace, exported once it ends.
+ * <p>
+ * A span of a trace that is not sampled keeps its ids for propagation but records nothing.
+ */
+@Getter
+public class Span {
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final String name;
+    private final SpanKind kind;
+    private final long startEpochMicros;
+    private final Map<String, Object> attributes = Collections.synchronizedMap(new LinkedHashMap<>());
+    private volatile long durationMicros;
+    private volatile String error;
+
+    @JsonIgnore
+    private final boolean sampled;
+    @JsonIgnore
+    private final long startNanos;
+    @JsonIgnore
+    private final SpanExporter exporter;
+    private final AtomicBoolean ended = new AtomicBoolean();
+
+    Span(
+        final String traceId,
+        final String spanId,
+        final String parentSpanId,
+        final String name,
+        final SpanKind kind,
+        final boolean sampled,
+        final SpanExporter exporter
+    ) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.kind = kind;
+        this.sampled = sampled;
+        this.exporter = exporter;
+        this.startEpochMicros = System.currentTimeMillis() * 1000;
+        this.startNanos = System.nanoTime();
+    }
+
+    public Span setAttribute(
+        final String key,
+        final Object value
+    ) {
+        if (sampled) {
+            attributes.put(key, value);
+        }
+        return this;
+    }
+
+    public void recordError(final Throwable throwable) {
+        if (sampled) {
+            error = throwable.getClass().getName() + ": " + throwable.getMessage();
+        }
+    }
+
+    public void end() {
+        if (!ended.compareAndSet(false, true) || !sampled) {
+            return;
+        }
+        durationMicros = (System.nanoTime() - startNanos) / 1000;
+        exporter.export(this);
+    }
+
+    @JsonIgnore
+    public boolean isEnded() {
+        return ended.get();
+    }
+}
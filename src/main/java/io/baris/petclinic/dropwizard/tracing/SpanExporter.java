@@ -0,0 +1,9 @@
+package io.baris.petclinic.dropwizard.tracing;
+
+/**
+ * Receives the sampled spans once they end
+ */
+public interface SpanExporter {
+
+    void export(Span span);
+}
@@ -0,0 +1,10 @@
+package io.baris.petclinic.dropwizard.tracing;
+
+/**
+ * Role of a span in its trace
+ */
+public enum SpanKind {
+    SERVER,
+    INTERNAL,
+    CLIENT
+}
@@ -0,0 +1,42 @@
+package io.baris.petclinic.dropwizard.tracing;
+
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * W3C trace context carried by the {@code traceparent} header
+ */
+public record Traceparent(String traceId, String parentSpanId, boolean sampled) {
+
+    public static final String HEADER = "traceparent";
+
+    private static final Pattern FORMAT = Pattern.compile("([0-9a-f]{2})-([0-9a-f]{32})-([0-9a-f]{16})-([0-9a-f]{2})(-.*)?");
+    private static final String INVALID_TRACE_ID = "0".repeat(32);
+    private static final String INVALID_SPAN_ID = "0".repeat(16);
+
+    public static Optional<Traceparent> parse(final String header) {
+        if (header == null) {
+            return Optional.empty();
+        }
+        var matcher = FORMAT.matcher(header.trim());
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        var version = matcher.group(1);
+        // later versions may append fields, version 00 must not
+        if (version.equals("ff") || (version.equals("00") && matcher.group(5) != null)) {
+            return Optional.empty();
+        }
+        var traceId = matcher.group(2);
+        var spanId = matcher.group(3);
+        if (traceId.equals(INVALID_TRACE_ID) || spanId.equals(INVALID_SPAN_ID)) {
+            return Optional.empty();
+        }
+        var flags = Integer.parseInt(matcher.group(4), 16);
+        return Optional.of(new Traceparent(traceId, spanId, (flags & 1) == 1));
+    }
+
+    public static String format(final Span span) {
+        return "00-%s-%s-%s".formatted(span.getTraceId(), span.getSpanId(), span.isSampled() ? "01" : "00");
+    }
+}
@@ -0,0 +1,118 @@
+package io.baris.petclinic.dropwizard.tracing;
+
+import io.baris.petclinic.dropwizard.system.TracingConfig;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Creates spans and keeps track of the current span of the thread.
+ * <p>
+ * The sampling decision is taken once for the root of a trace and inherited by its spans. Inside a
+ * trace that is not sampled no spans are created at all, so the overhead is bound by the sample ratio.
+ */
+public class Tracer {
+
+    private final TracingConfig config;
+    private final SpanExporter exporter;
+    private final ThreadLocal<Span> current = new ThreadLocal<>();
+
+    public Tracer(
+        final TracingConfig config,
+        final List<SpanExporter> exporters
+    ) {
+        this.config = config;
+        this.exporter = exporters.size() == 1
+            ? exporters.get(0)
+            : span -> exporters.forEach(exporter -> exporter.export(span));
+    }
+
+    public static Tracer noop() {
+        var config = new TracingConfig();
+        config.setEnabled(false);
+        return new Tracer(config, List.of());
+    }
+
+    public int getMaxStatementLength() {
+        return config.getMaxStatementLength();
+    }
+
+    /**
+     * Starts the span of an incoming request, continuing the caller's trace when there is one
+     */
+    public Span startServerSpan(
+        final String name,
+        final Traceparent parent
+    ) {
+        var sampled = config.isEnabled() && (parent != null
+            ? parent.sampled()
+            : ThreadLocalRandom.current().nextDouble() < config.getSampleRatio());
+        return new Span(
+            parent != null ? parent.traceId() : newId(16),
+            newId(8),
+            parent != null ? parent.parentSpanId() : null,
+            name,
+            SpanKind.SERVER,
+            sampled,
+            exporter
+        );
+    }
+
+    /**
+     * Starts a child of the current span, or returns null when the current trace is not recorded
+     */
+    public Span startSpan(
+        final String name,
+        final SpanKind kind
+    ) {
+        var parent = current.get();
+        if (parent == null || !parent.isSampled()) {
+            return null;
+        }
+        return new Span(parent.getTraceId(), newId(8), parent.getSpanId(), name, kind, true, exporter);
+    }
+
+    public <T> T inSpan(
+        final String name,
+        final Supplier<T> call
+    ) {
+        var span = startSpan(name, SpanKind.INTERNAL);
+        if (span == null) {
+            return call.get();
+        }
+        var parent = current.get();
+        current.set(span);
+        try {
+            return call.get();
+        } catch (RuntimeException | Error e) {
+            span.recordError(e);
+            throw e;
+        } finally {
+            current.set(parent);
+            span.end();
+        }
+    }
+
+    public Span getCurrentSpan() {
+        return current.get();
+    }
+
+    public void setCurrentSpan(final Span span) {
+        if (span == null) {
+            current.remove();
+        } else {
+            current.set(span);
+        }
+    }
+
+    private static String newId(final int bytes) {
+        var random = ThreadLocalRandom.current();
+        var id = new StringBuilder(bytes * 2);
+        for (int i = 0; i < bytes; i++) {
+            var value = random.nextInt(256);
+            id.append(Character.forDigit(value >> 4, 16)).append(Character.forDigit(value & 0xf, 16));
+        }
+        return id.toString();
+    }
+}
@@ -0,0 +1,45 @@
+package io.baris.petclinic.dropwizard.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Admin servlet serving the spans kept in memory, all spans of a trace with {@code ?traceId=}
+ * or the most recent ones with {@code ?limit=}
+ */
+@RequiredArgsConstructor
+public class TracesServlet extends HttpServlet {
+
+    private static final int DEFAULT_LIMIT = 100;
+
+    private final transient InMemorySpanExporter spans;
+    private final transient ObjectMapper objectMapper;
+
+    @Override
+    protected void doGet(
+        final HttpServletRequest request,
+        final HttpServletResponse response
+    ) throws IOException {
+        var traceId = request.getParameter("traceId");
+        Object result;
+        if (traceId != null) {
+            result = spans.getTrace(traceId);
+        } else {
+            var limit = request.getParameter("limit");
+            try {
+                result = spans.getRecent(limit != null ? Integer.parseInt(limit) : DEFAULT_LIMIT);
+            } catch (NumberFormatException e) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Limit must be a number");
+                return;
+            }
+        }
+        response.setContentType("application/json");
+        response.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+        objectMapper.writeValue(response.getOutputStream(), result);
+    }
+}
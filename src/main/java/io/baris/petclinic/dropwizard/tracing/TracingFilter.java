@@ -0,0 +1,77 @@
+package io.baris.petclinic.dropwizard.tracing;
+
+import lombok.RequiredArgsConstructor;
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.uri.UriTemplate;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Opens a server span for every matched request and makes it the current span while the resource runs.
+ * <p>
+ * The caller's trace is continued from its {@code traceparent} header, and the trace context of the
+ * request is returned in the {@code traceresponse} header so that callers can look the trace up.
+ */
+@Provider
+@RequiredArgsConstructor
+public class TracingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String TRACE_RESPONSE = "traceresponse";
+
+    private static final String SPAN_PROPERTY = TracingFilter.class.getName() + ".span";
+
+    private final Tracer tracer;
+
+    @Override
+    public void filter(final ContainerRequestContext request) {
+        var route = route(request);
+        var parent = Traceparent.parse(request.getHeaderString(Traceparent.HEADER)).orElse(null);
+        var span = tracer.startServerSpan(request.getMethod() + " " + route, parent)
+            .setAttribute("http.method", request.getMethod())
+            .setAttribute("http.route", route)
+            .setAttribute("http.target", request.getUriInfo().getRequestUri().getRawPath());
+        request.setProperty(SPAN_PROPERTY, span);
+        tracer.setCurrentSpan(span);
+    }
+
+    @Override
+    public void filter(
+        final ContainerRequestContext request,
+        final ContainerResponseContext response
+    ) {
+        if (!(request.getProperty(SPAN_PROPERTY) instanceof Span span)) {
+            return;
+        }
+        tracer.setCurrentSpan(null);
+        span.setAttribute("http.status_code", response.getStatus());
+        if (response.getStatus() >= 500) {
+            span.recordError(new IllegalStateException("Responded with " + response.getStatus()));
+        }
+        response.getHeaders().putSingle(TRACE_RESPONSE, Traceparent.format(span));
+        span.end();
+    }
+
+    private static String route(final ContainerRequestContext request) {
+        if (!(request.getUriInfo() instanceof ExtendedUriInfo uriInfo)) {
+            return request.getUriInfo().getPath();
+        }
+        // matched templates are listed from the resource method up to the resource class
+        var templates = new ArrayList<>(uriInfo.getMatchedTemplates());
+        Collections.reverse(templates);
+        var route = new StringBuilder();
+        for (UriTemplate template : templates) {
+            var part = template.getTemplate();
+            if (!part.startsWith("/")) {
+                route.append('/');
+            }
+            route.append(part.endsWith("/") && part.length() > 1 ? part.substring(0, part.length() - 1) : part);
+        }
+        return route.length() == 0 ? "/" : route.toString().replace("//", "/");
+    }
+}
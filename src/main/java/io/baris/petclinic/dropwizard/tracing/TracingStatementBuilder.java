@@ -0,0 +1,234 @@
+package io.baris.petclinic.dropwizard.tracing;
+
+import lombok.RequiredArgsConstructor;
+import org.jdbi.v3.core.statement.DefaultStatementBuilder;
+import org.jdbi.v3.core.statement.StatementBuilder;
+import org.jdbi.v3.core.statement.StatementBuilderFactory;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * Records a client span for every statement run inside a sampled trace.
+ * <p>
+ * The span is named after the DAO method, carries the SQL text and the number of rows returned or
+ * changed, and ends once the rows are read. Statements outside of a sampled trace are not wrapped.
+ */
+@RequiredArgsConstructor
+public class TracingStatementBuilder implements StatementBuilder {
+
+    private final StatementBuilder delegate;
+    private final Tracer tracer;
+
+    public static StatementBuilderFactory factory(final Tracer tracer) {
+        return connection -> new TracingStatementBuilder(
+            DefaultStatementBuilder.FACTORY.createStatementBuilder(connection),
+            tracer
+        );
+    }
+
+    @Override
+    public Statement create(
+        final Connection connection,
+        final StatementContext ctx
+    ) throws SQLException {
+        return delegate.create(connection, ctx);
+    }
+
+    @Override
+    public PreparedStatement create(
+        final Connection connection,
+        final String sql,
+        final StatementContext ctx
+    ) throws SQLException {
+        var statement = delegate.create(connection, sql, ctx);
+        var current = tracer.getCurrentSpan();
+        if (current == null || !current.isSampled()) {
+            return statement;
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(
+            PreparedStatement.class.getClassLoader(),
+            new Class<?>[]{PreparedStatement.class},
+            new StatementHandler(statement, spanName(sql, ctx), sql)
+        );
+    }
+
+    @Override
+    public CallableStatement createCall(
+        final Connection connection,
+        final String sql,
+        final StatementContext ctx
+    ) throws SQLException {
+        return delegate.createCall(connection, sql, ctx);
+    }
+
+    @Override
+    public void close(
+        final Connection connection,
+        final String sql,
+        final Statement statement
+    ) throws SQLException {
+        delegate.close(connection, sql, statement);
+    }
+
+    @Override
+    public void close(final Connection connection) {
+        delegate.close(connection);
+    }
+
+    private static String spanName(
+        final String sql,
+        final StatementContext ctx
+    ) {
+        var extensionMethod = ctx.getExtensionMethod();
+        if (extensionMethod != null) {
+            return extensionMethod.getType().getSimpleName() + "." + extensionMethod.getMethod().getName();
+        }
+        var trimmed = sql.stripLeading();
+        var end = trimmed.indexOf(' ');
+        return (end > 0 ? trimmed.substring(0, end) : trimmed).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Times the execution of the statement and the reading of its rows
+     */
+    @RequiredArgsConstructor
+    private class StatementHandler implements InvocationHandler {
+
+        private final PreparedStatement statement;
+        private final String name;
+        private final String sql;
+        private Span span;
+        private ResultSet resultSet;
+
+        @Override
+        public Object invoke(
+            final Object proxy,
+            final Method method,
+            final Object[] args
+        ) throws Throwable {
+            var methodName = method.getName();
+            if (methodName.startsWith("execute")) {
+                return execute(method, args);
+            }
+            if (methodName.equals("getResultSet") && resultSet != null) {
+                return resultSet;
+            }
+            if (methodName.equals("close")) {
+                endSpan(null);
+            }
+            return invokeDelegate(statement, method, args);
+        }
+
+        private Object execute(
+            final Method method,
+            final Object[] args
+        ) throws Throwable {
+            span = tracer.startSpan(name, SpanKind.CLIENT);
+            if (span == null) {
+                return invokeDelegate(statement, method, args);
+            }
+            span.setAttribute("db.system", "postgresql");
+            span.setAttribute("db.statement", truncate(sql));
+            Object result;
+            try {
+                result = invokeDelegate(statement, method, args);
+            } catch (Throwable e) {
+                span.recordError(e);
+                endSpan(null);
+                throw e;
+            }
+
+            if (result instanceof ResultSet rows) {
+                resultSet = countingResultSet(rows);
+                return resultSet;
+            }
+            if (Boolean.TRUE.equals(result)) {
+                resultSet = countingResultSet(statement.getResultSet());
+                return result;
+            }
+            if (result instanceof Number updated) {
+                endSpan(updated.longValue());
+            } else {
+                endSpan((long) statement.getUpdateCount());
+            }
+            return result;
+        }
+
+        private ResultSet countingResultSet(final ResultSet rows) {
+            return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                new ResultSetHandler(rows, this)
+            );
+        }
+
+        private void endSpan(final Long rows) {
+            if (span == null || span.isEnded()) {
+                return;
+            }
+            if (rows != null) {
+                span.setAttribute("db.rows", rows);
+            }
+            span.end();
+        }
+
+        private String truncate(final String text) {
+            var max = tracer.getMaxStatementLength();
+            return text.length() <= max ? text : text.substring(0, max) + "...";
+        }
+    }
+
+    /**
+     * Counts the rows read until the result set is closed
+     */
+    @RequiredArgsConstructor
+    private static class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet resultSet;
+        private final StatementHandler statement;
+        private long rows;
+
+        @Override
+        public Object invoke(
+            final Object proxy,
+            final Method method,
+            final Object[] args
+        ) throws Throwable {
+            var result = invokeDelegate(resultSet, method, args);
+            switch (method.getName()) {
+                case "next" -> {
+                    if (Boolean.TRUE.equals(result)) {
+                        rows++;
+                    }
+                }
+                case "close" -> statement.endSpan(rows);
+                default -> {
+                }
+            }
+            return result;
+        }
+    }
+
+    private static Object invokeDelegate(
+        final Object target,
+        final Method method,
+        final Object[] args
+    ) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package io.baris.petclinic.dropwizard.vet;
+
+import io.baris.petclinic.dropwizard.vet.model.SpecialtySet;
+import org.jdbi.v3.core.config.JdbiConfig;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * In-memory copy of the {@code specialties} dictionary of one database.
+ * <p>
+ * Kept as Jdbi configuration so that every database gets its own dictionary. Copies share the
+ * same instance, the dictionary only grows and is replaced as a whole when an unknown id shows up.
+ */
+public class SpecialtyDictionary implements JdbiConfig<SpecialtyDictionary> {
+
+    private volatile String[] names = new String[0];
+
+    @Override
+    public SpecialtyDictionary createCopy() {
+        return this;
+    }
+
+    public SpecialtySet toSet(
+        final short[] sortedIds,
+        final Supplier<Map<Short, String>> loader
+    ) {
+        var snapshot = names;
+        if (!containsAll(snapshot, sortedIds)) {
+            snapshot = reload(loader.get());
+        }
+        return new SpecialtySet(sortedIds, snapshot);
+    }
+
+    public String[] getNames() {
+        return names;
+    }
+
+    public short idOf(final String name) {
+        var snapshot = names;
+        for (short id = 0; id < snapshot.length; id++) {
+            if (name.equals(snapshot[id])) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private synchronized String[] reload(final Map<Short, String> specialties) {
+        var maxId = specialties.keySet().stream().mapToInt(Short::intValue).max().orElse(0);
+        var snapshot = new String[maxId + 1];
+        specialties.forEach((id, name) -> snapshot[id] = name);
+        names = snapshot;
+        return snapshot;
+    }
+
+    private static boolean containsAll(final String[] snapshot, final short[] ids) {
+        for (var id : ids) {
+            if (id < 0 || id >= snapshot.length || snapshot[id] == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
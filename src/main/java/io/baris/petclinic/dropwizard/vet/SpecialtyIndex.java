@@ -0,0 +1,100 @@
+package io.baris.petclinic.dropwizard.vet;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index of specialty name to the ids of the vets having it.
+ * <p>
+ * Vet ids are dense serial values, so a bitmap per specialty keeps the index small and turns
+ * AND/OR lookups into word-wise bit operations. Only writes going through this application
+ * are reflected, rows changed elsewhere show up after the next {@link #replaceAll}.
+ */
+public class SpecialtyIndex {
+
+    private final Map<String, BitSet> vetsBySpecialty = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void replaceAll(final Map<Integer, ? extends Collection<String>> specialtiesByVet) {
+        var index = new HashMap<String, BitSet>();
+        specialtiesByVet.forEach((vetId, specialties) -> specialties.forEach(specialty ->
+            index.computeIfAbsent(specialty, key -> new BitSet()).set(vetId)
+        ));
+
+        lock.writeLock().lock();
+        try {
+            vetsBySpecialty.clear();
+            vetsBySpecialty.putAll(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(
+        final int vetId,
+        final Set<String> specialties
+    ) {
+        lock.writeLock().lock();
+        try {
+            removeVet(vetId);
+            specialties.forEach(specialty ->
+                vetsBySpecialty.computeIfAbsent(specialty, key -> new BitSet()).set(vetId)
+            );
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(final int vetId) {
+        lock.writeLock().lock();
+        try {
+            removeVet(vetId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the ids of the vets having all or any of the given specialties, in ascending order
+     */
+    public int[] find(
+        final Collection<String> specialties,
+        final boolean matchAll
+    ) {
+        lock.readLock().lock();
+        try {
+            BitSet result = null;
+            for (var specialty : specialties) {
+                var vets = vetsBySpecialty.get(specialty);
+                if (vets == null) {
+                    if (matchAll) {
+                        return new int[0];
+                    }
+                    continue;
+                }
+                if (result == null) {
+                    result = (BitSet) vets.clone();
+                } else if (matchAll) {
+                    result.and(vets);
+                } else {
+                    result.or(vets);
+                }
+            }
+            return result == null ? new int[0] : result.stream().toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeVet(final int vetId) {
+        vetsBySpecialty.values().removeIf(vets -> {
+            vets.clear(vetId);
+            return vets.isEmpty();
+        });
+    }
+}
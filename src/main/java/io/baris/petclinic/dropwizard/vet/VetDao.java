@@ -3,48 +3,117 @@ package io.baris.petclinic.dropwizard.vet;
 import io.baris.petclinic.dropwizard.vet.model.Vet;
 import io.baris.petclinic.dropwizard.vet.model.CreateVet;
 import io.baris.petclinic.dropwizard.vet.model.UpdateVet;
-import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import org.jdbi.v3.sqlobject.SqlObject;
+import org.jdbi.v3.sqlobject.config.KeyColumn;
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
+import org.jdbi.v3.sqlobject.config.ValueColumn;
+import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 import org.jdbi.v3.sqlobject.transaction.Transaction;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Manages vet in the database
  */
-public interface VetDao {
+@RegisterRowMapper(VetRowMapper.class)
+public interface VetDao extends SqlObject {
 
-    @SqlQuery("SELECT * FROM vets WHERE id = ?")
-    @RegisterBeanMapper(Vet.class)
+    @SqlQuery("SELECT * FROM vets WHERE id = ? AND deleted_at IS NULL")
     Vet getVetBasic(int vetId);
 
-    @SqlQuery("SELECT * FROM vets WHERE name = ?")
-    @RegisterBeanMapper(Vet.class)
+    @SqlQuery("SELECT * FROM vets WHERE name = ? AND deleted_at IS NULL")
     Vet getVetBasic(String name);
 
-    @SqlQuery("SELECT * FROM vets ORDER BY name")
-    @RegisterBeanMapper(Vet.class)
+    // concurrent updates of the vet wait, so each sees the result of the other as the previous state
+    @SqlQuery("SELECT * FROM vets WHERE id = ? AND deleted_at IS NULL FOR UPDATE")
+    Vet lockVetBasic(int vetId);
+
+    @SqlQuery("SELECT * FROM vets WHERE deleted_at IS NULL ORDER BY name")
     List<Vet> getAllVetsBasic();
 
+    @SqlQuery("SELECT * FROM vets WHERE id = ANY(?) AND deleted_at IS NULL ORDER BY name")
+    List<Vet> getVetsBasic(int[] vetIds);
+
+    @SqlQuery("SELECT * FROM vets WHERE id > ? AND deleted_at IS NULL ORDER BY id LIMIT ?")
+    List<Vet> getVetsAfterBasic(int afterId, int limit);
+
     @SqlUpdate("INSERT INTO vets (name) VALUES (?) returning *")
     @GetGeneratedKeys
     int createVetBasic(String name);
 
-    @SqlUpdate("UPDATE vets SET name = ? WHERE id = ?")
-    void updateVetBasic(String name, int id);
+    @SqlUpdate("UPDATE vets SET name = ? WHERE id = ? AND deleted_at IS NULL")
+    boolean updateVetBasic(String name, int id);
+
+    @SqlUpdate("UPDATE vets SET deleted_at = now() WHERE id = ? AND deleted_at IS NULL")
+    boolean markVetDeleted(int id);
+
+    @SqlUpdate("UPDATE vets SET deleted_at = NULL WHERE id = ? AND deleted_at IS NOT NULL")
+    boolean unmarkVetDeleted(int id);
 
-    @SqlUpdate("INSERT INTO vet_specialties (vet_id, specialty) VALUES (?, ?)")
+    // guarded by NOT EXISTS so that known specialties do not burn ids of the sequence
+    @SqlUpdate("""
+        INSERT INTO specialties (name)
+        SELECT :name WHERE NOT EXISTS (SELECT 1 FROM specialties WHERE name = :name)
+        ON CONFLICT (name) DO NOTHING""")
+    void createSpecialty(@Bind("name") String name);
+
+    @SqlUpdate("INSERT INTO vet_specialties (vet_id, specialty_id) SELECT ?, id FROM specialties WHERE name = ?")
     void createVetSpecialty(int vetId, String specialty);
 
     @SqlUpdate("DELETE FROM vet_specialties WHERE vet_id = ?")
     void deleteVetSpecialties(int vetId);
 
-    @SqlQuery("SELECT specialty FROM vet_specialties WHERE vet_id = ?")
-    Set<String> getVetSpecialties(int vetId);
+    @SqlUpdate("""
+        DELETE FROM vet_specialties
+        WHERE vet_id = ? AND specialty_id IN (SELECT id FROM specialties WHERE name = ANY(?))""")
+    void deleteVetSpecialties(int vetId, String[] specialties);
+
+    @SqlQuery("SELECT specialty_id FROM vet_specialties WHERE vet_id = ? ORDER BY specialty_id")
+    short[] getVetSpecialtyIds(int vetId);
+
+    @SqlQuery("""
+        SELECT vet_id, array_agg(specialty_id ORDER BY specialty_id) AS specialty_ids
+        FROM vet_specialties WHERE vet_id = ANY(?) GROUP BY vet_id""")
+    @KeyColumn("vet_id")
+    @ValueColumn("specialty_ids")
+    Map<Integer, short[]> getVetSpecialtyIds(int[] vetIds);
+
+    @SqlQuery("""
+        SELECT vet_id, array_agg(specialty_id ORDER BY specialty_id) AS specialty_ids
+        FROM vet_specialties GROUP BY vet_id""")
+    @KeyColumn("vet_id")
+    @ValueColumn("specialty_ids")
+    Map<Integer, short[]> getAllVetSpecialtyIds();
+
+    @SqlQuery("SELECT id, name FROM specialties")
+    @KeyColumn("id")
+    @ValueColumn("name")
+    Map<Short, String> getSpecialties();
+
+    default Set<String> getVetSpecialties(final int vetId) {
+        return getSpecialtyDictionary().toSet(getVetSpecialtyIds(vetId), this::getSpecialties);
+    }
+
+    default Map<Integer, Set<String>> getAllVetSpecialties() {
+        var dictionary = getSpecialtyDictionary();
+        var specialtiesByVet = new HashMap<Integer, Set<String>>();
+        getAllVetSpecialtyIds().forEach((vetId, specialtyIds) ->
+            specialtiesByVet.put(vetId, dictionary.toSet(specialtyIds, this::getSpecialties))
+        );
+        return specialtiesByVet;
+    }
+
+    default SpecialtyDictionary getSpecialtyDictionary() {
+        return getHandle().getJdbi().getConfig(SpecialtyDictionary.class);
+    }
 
     @Transaction
     default Optional<Vet> getVet(final int vetId) {
@@ -63,12 +132,33 @@ public interface VetDao {
 
     @Transaction
     default List<Vet> getAllVets() {
-        return getAllVetsBasic()
-            .stream()
-            .map(vet -> getVet(vet.getId()))
-            .filter(Optional::isPresent)
-            .map(Optional::get)
-            .toList();
+        return withSpecialties(getAllVetsBasic(), getAllVetSpecialtyIds());
+    }
+
+    @Transaction
+    default List<Vet> getVets(final int[] vetIds) {
+        return withSpecialties(getVetsBasic(vetIds), getVetSpecialtyIds(vetIds));
+    }
+
+    @Transaction
+    default List<Vet> getVetsAfter(
+        final int afterId,
+        final int limit
+    ) {
+        var vets = getVetsAfterBasic(afterId, limit);
+        var vetIds = vets.stream().mapToInt(Vet::getId).toArray();
+        return withSpecialties(vets, getVetSpecialtyIds(vetIds));
+    }
+
+    default List<Vet> withSpecialties(
+        final List<Vet> vets,
+        final Map<Integer, short[]> specialtyIds
+    ) {
+        var dictionary = getSpecialtyDictionary();
+        vets.forEach(vet -> vet.setSpecialties(
+            dictionary.toSet(specialtyIds.getOrDefault(vet.getId(), new short[0]), this::getSpecialties)
+        ));
+        return vets;
     }
 
     @Transaction
@@ -84,7 +174,9 @@ public interface VetDao {
     @Transaction
     default Optional<Vet> updateVet(final UpdateVet updateVet) {
         var vetId = updateVet.getId();
-        updateVetBasic(updateVet.getName(), vetId);
+        if (!updateVetBasic(updateVet.getName(), vetId)) {
+            return Optional.empty();
+        }
 
         deleteVetSpecialties(vetId);
         createVetSpecialties(vetId, updateVet.getSpecialties());
@@ -92,10 +184,55 @@ public interface VetDao {
         return getVet(vetId);
     }
 
+    /**
+     * Writes only the name and the specialties in which the patched vet differs from the current one
+     */
+    @Transaction
+    default Optional<Vet> patchVet(
+        final Vet current,
+        final UpdateVet patched
+    ) {
+        var vetId = current.getId();
+        if (!current.getName().equals(patched.getName()) && !updateVetBasic(patched.getName(), vetId)) {
+            return Optional.empty();
+        }
+
+        var removed = new TreeSet<>(current.getSpecialties());
+        removed.removeAll(patched.getSpecialties());
+        if (!removed.isEmpty()) {
+            deleteVetSpecialties(vetId, removed.toArray(String[]::new));
+        }
+        var added = new TreeSet<>(patched.getSpecialties());
+        added.removeAll(current.getSpecialties());
+        createVetSpecialties(vetId, added);
+
+        return getVet(vetId);
+    }
+
+    /**
+     * Marks the vet deleted, returns it as it was before
+     */
+    @Transaction
+    default Optional<Vet> deleteVet(final int vetId) {
+        if (lockVetBasic(vetId) == null) {
+            return Optional.empty();
+        }
+        var vet = getVet(vetId);
+        markVetDeleted(vetId);
+        return vet;
+    }
+
+    @Transaction
+    default Optional<Vet> restoreVet(final int vetId) {
+        return unmarkVetDeleted(vetId) ? getVet(vetId) : Optional.empty();
+    }
+
     default void createVetSpecialties(int vetId, Set<String> specialties) {
         if (specialties != null) {
-            specialties.forEach(specialty ->
-                createVetSpecialty(vetId, specialty));
+            specialties.forEach(specialty -> {
+                createSpecialty(specialty);
+                createVetSpecialty(vetId, specialty);
+            });
         }
     }
 }
@@ -1,13 +1,28 @@
 package io.baris.petclinic.dropwizard.vet;
 
+import io.baris.petclinic.dropwizard.audit.AuditLog;
+import io.baris.petclinic.dropwizard.audit.Audited;
 import io.baris.petclinic.dropwizard.vet.model.UpdateVet;
 import io.baris.petclinic.dropwizard.vet.model.Vet;
 import io.baris.petclinic.dropwizard.vet.model.CreateVet;
+import io.baris.petclinic.dropwizard.vet.model.SpecialtyMatch;
+import io.baris.petclinic.dropwizard.cache.TwoLevelCache;
+import io.baris.petclinic.dropwizard.system.ConcurrencyLimiter;
+import io.baris.petclinic.dropwizard.system.SingleFlight;
+import io.baris.petclinic.dropwizard.tracing.Tracer;
 import lombok.RequiredArgsConstructor;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.UnableToExecuteStatementException;
 
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.core.Response;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static io.baris.petclinic.dropwizard.system.PostgreUtils.isUniqueViolation;
 
 /**
  * Manages the vet
@@ -15,25 +30,218 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class VetManager {
 
+    private static final String ALL_VETS = "all";
+
     private final Jdbi jdbi;
+    private final ConcurrencyLimiter limiter;
+    private final TwoLevelCache<Vet> cache;
+    private final SingleFlight<String, List<Vet>> vetListLoads;
+    private final AuditLog auditLog;
+    private final Tracer tracer;
+    private final SpecialtyIndex specialtyIndex = new SpecialtyIndex();
+    // bumped by every vet change made here, so that a listing started before a change is not joined after it
+    private final AtomicLong vetListVersion = new AtomicLong();
+    private volatile boolean specialtyIndexLoaded;
 
     public Optional<Vet> getVet(final int vetId) {
-        return jdbi.withExtension(VetDao.class, dao -> dao.getVet(vetId));
+        return tracer.inSpan("VetManager.getVet", () ->
+            cache.get(vetId, () -> limiter.execute(() -> jdbi.withExtension(VetDao.class, dao -> dao.getVet(vetId))))
+        );
     }
 
     public Optional<Vet> getVet(final String name) {
-        return jdbi.withExtension(VetDao.class, dao -> dao.getVet(name));
+        return tracer.inSpan("VetManager.getVet", () ->
+            limiter.execute(() -> jdbi.withExtension(VetDao.class, dao -> dao.getVet(name)))
+        );
     }
 
     public List<Vet> getAllVets() {
-        return jdbi.withExtension(VetDao.class, VetDao::getAllVets);
+        return tracer.inSpan("VetManager.getAllVets", () -> vetListLoads.execute(ALL_VETS, vetListVersion.get(), () ->
+            limiter.execute(() -> jdbi.withExtension(VetDao.class, VetDao::getAllVets))
+        ));
+    }
+
+    public List<Vet> getVets(final int[] vetIds) {
+        return tracer.inSpan("VetManager.getVets", () ->
+            limiter.execute(() -> jdbi.withExtension(VetDao.class, dao -> dao.getVets(vetIds)))
+        );
+    }
+
+    /**
+     * Gets a page of vets in id order, starting after the given id
+     */
+    public List<Vet> getVetsAfter(
+        final int afterId,
+        final int limit
+    ) {
+        return tracer.inSpan("VetManager.getVetsAfter", () ->
+            limiter.execute(() -> jdbi.withExtension(VetDao.class, dao -> dao.getVetsAfter(afterId, limit)))
+        );
+    }
+
+    public List<Vet> getVetsBySpecialties(
+        final Collection<String> specialties,
+        final SpecialtyMatch match
+    ) {
+        return tracer.inSpan("VetManager.getVetsBySpecialties", () -> {
+            if (!specialtyIndexLoaded) {
+                loadSpecialtyIndex();
+            }
+            var vetIds = specialtyIndex.find(specialties, match == SpecialtyMatch.ALL);
+            if (vetIds.length == 0) {
+                return List.of();
+            }
+            // the index may still hold vets removed behind our back, the loaded rows have the final say
+            return limiter
+                .execute(() -> jdbi.withExtension(VetDao.class, dao -> dao.getVets(vetIds)))
+                .stream()
+                .filter(vet -> matches(vet, specialties, match))
+                .toList();
+        });
     }
 
     public Optional<Vet> createVet(final CreateVet createVet) {
-        return jdbi.withExtension(VetDao.class, dao -> dao.createVet(createVet));
+        return tracer.inSpan("VetManager.createVet", () -> {
+            var created = limiter.execute(() -> jdbi.inTransaction(handle -> {
+                var vet = handle.attach(VetDao.class).createVet(createVet);
+                return new Audited<>(
+                    vet, vet.map(it -> auditLog.record(handle, AuditLog.VET, it.getId(), AuditLog.CREATE, null, it)).orElse(null)
+                );
+            }));
+            indexed(created.value());
+            vetListVersion.incrementAndGet();
+            auditLog.recordCommitted(created.entry());
+            return created.value();
+        });
     }
 
     public Optional<Vet> updateVet(final UpdateVet updateVet) {
-        return jdbi.withExtension(VetDao.class, dao -> dao.updateVet(updateVet));
+        return tracer.inSpan("VetManager.updateVet", () -> {
+            var id = updateVet.getId();
+            var updated = limiter.execute(() -> jdbi.inTransaction(handle -> {
+                var dao = handle.attach(VetDao.class);
+                // the previous state is only read when it is audited
+                var before = auditLog.isEnabled() && dao.lockVetBasic(id) != null
+                    ? dao.getVet(id).orElseThrow()
+                    : null;
+                var after = dao.updateVet(updateVet);
+                return new Audited<>(
+                    after, after.map(it -> auditLog.record(handle, AuditLog.VET, id, AuditLog.UPDATE, before, it)).orElse(null)
+                );
+            }));
+            indexed(updated.value());
+            cache.evict(id);
+            vetListVersion.incrementAndGet();
+            auditLog.recordCommitted(updated.entry());
+            return updated.value();
+        });
+    }
+
+    /**
+     * Updates the vet with the result of the patch applied to its current state
+     */
+    public Optional<Vet> patchVet(
+        final int vetId,
+        final Function<Vet, UpdateVet> patch
+    ) {
+        return tracer.inSpan("VetManager.patchVet", () -> {
+            var patched = limiter.execute(() -> jdbi.inTransaction(handle -> {
+                var dao = handle.attach(VetDao.class);
+                if (dao.lockVetBasic(vetId) == null) {
+                    return new Audited<>(Optional.<Vet>empty(), null);
+                }
+                var before = dao.getVet(vetId).orElseThrow();
+                var after = dao.patchVet(before, patch.apply(before));
+                return new Audited<>(after, after
+                    .filter(it -> !it.equals(before))
+                    .map(it -> auditLog.record(handle, AuditLog.VET, vetId, AuditLog.UPDATE, before, it))
+                    .orElse(null));
+            }));
+            indexed(patched.value());
+            cache.evict(vetId);
+            vetListVersion.incrementAndGet();
+            auditLog.recordCommitted(patched.entry());
+            return patched.value();
+        });
+    }
+
+    public Optional<Vet> deleteVet(final int vetId) {
+        return tracer.inSpan("VetManager.deleteVet", () -> {
+            var deleted = limiter.execute(() -> jdbi.inTransaction(handle -> {
+                var vet = handle.attach(VetDao.class).deleteVet(vetId);
+                return new Audited<>(
+                    vet, vet.map(it -> auditLog.record(handle, AuditLog.VET, vetId, AuditLog.DELETE, it, null)).orElse(null)
+                );
+            }));
+            specialtyIndex.remove(vetId);
+            cache.evict(vetId);
+            vetListVersion.incrementAndGet();
+            auditLog.recordCommitted(deleted.entry());
+            return deleted.value();
+        });
+    }
+
+    /**
+     * Brings a deleted vet back, unless another vet has taken its name meanwhile
+     */
+    public Optional<Vet> restoreVet(final int vetId) {
+        return tracer.inSpan("VetManager.restoreVet", () -> {
+            Audited<Optional<Vet>> restored;
+            try {
+                restored = limiter.execute(() -> jdbi.inTransaction(handle -> {
+                    var vet = handle.attach(VetDao.class).restoreVet(vetId);
+                    return new Audited<>(
+                        vet, vet.map(it -> auditLog.record(handle, AuditLog.VET, vetId, AuditLog.RESTORE, null, it)).orElse(null)
+                    );
+                }));
+            } catch (UnableToExecuteStatementException e) {
+                if (isUniqueViolation(e)) {
+                    throw new ClientErrorException("Another vet has the name of the deleted vet", Response.Status.CONFLICT);
+                }
+                throw e;
+            }
+            indexed(restored.value());
+            cache.evict(vetId);
+            vetListVersion.incrementAndGet();
+            auditLog.recordCommitted(restored.entry());
+            return restored.value();
+        });
+    }
+
+    /**
+     * Loads all vets into the cache
+     */
+    public void primeCache() {
+        getAllVets().forEach(vet -> cache.get(vet.getId(), () -> Optional.of(vet)));
+    }
+
+    public synchronized void loadSpecialtyIndex() {
+        specialtyIndex.replaceAll(jdbi.withExtension(VetDao.class, VetDao::getAllVetSpecialties));
+        specialtyIndexLoaded = true;
+    }
+
+    /**
+     * Brings the specialty index up to date with a vet changed on any node
+     */
+    public void refreshSpecialtyIndex(final int vetId) {
+        jdbi.withExtension(VetDao.class, dao -> dao.getVet(vetId)).ifPresentOrElse(
+            vet -> specialtyIndex.put(vetId, vet.getSpecialties()),
+            () -> specialtyIndex.remove(vetId)
+        );
+    }
+
+    private Optional<Vet> indexed(final Optional<Vet> vet) {
+        vet.ifPresent(it -> specialtyIndex.put(it.getId(), it.getSpecialties()));
+        return vet;
+    }
+
+    private static boolean matches(
+        final Vet vet,
+        final Collection<String> specialties,
+        final SpecialtyMatch match
+    ) {
+        return match == SpecialtyMatch.ALL
+            ? vet.getSpecialties().containsAll(specialties)
+            : specialties.stream().anyMatch(vet.getSpecialties()::contains);
     }
 }
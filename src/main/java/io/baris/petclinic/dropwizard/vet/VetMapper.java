@@ -1,32 +1,100 @@
 package io.baris.petclinic.dropwizard.vet;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.baris.petclinic.dropwizard.system.MergePatch;
 import io.baris.petclinic.dropwizard.vet.model.CreateVet;
 import io.baris.petclinic.dropwizard.vet.model.UpdateVet;
 import io.baris.petclinic.dropwizard.vet.model.CreateVetRequest;
 import io.baris.petclinic.dropwizard.vet.model.UpdateVetRequest;
+import io.baris.petclinic.dropwizard.vet.model.Vet;
+
+import javax.ws.rs.WebApplicationException;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Maps vet api classes
  */
 public class VetMapper {
 
+    private static final int UNPROCESSABLE_ENTITY = 422;
+
     public static UpdateVet mapToUpdateVet(
         final int id,
         final UpdateVetRequest updateVetRequest
     ) {
-        return UpdateVet.builder()
-            .id(id)
-            .name(updateVetRequest.getName())
-            .specialties(updateVetRequest.getSpecialties())
+        return new UpdateVet(
+            id,
+            updateVetRequest.getName(),
+            updateVetRequest.getSpecialties()
+        );
+    }
+
+    /**
+     * Applies a merge patch to the vet, validated like a full update.
+     * <p>
+     * Besides being replaced as a whole, specialties can be edited with
+     * {@code {"specialties": {"add": [...], "remove": [...]}}}.
+     */
+    public static UpdateVet mapToPatchedVet(
+        final Vet vet,
+        final JsonNode patch
+    ) {
+        var current = UpdateVetRequest.builder()
+            .name(vet.getName())
+            .specialties(vet.getSpecialties())
             .build();
+        var specialtiesPatch = patch.get("specialties");
+        var mergePatch = patch;
+        if (specialtiesPatch != null && specialtiesPatch.isObject()) {
+            var edited = ((ObjectNode) patch).deepCopy();
+            var specialties = edited.putArray("specialties");
+            editSpecialties(vet.getSpecialties(), specialtiesPatch).forEach(specialties::add);
+            mergePatch = edited;
+        }
+        return mapToUpdateVet(vet.getId(), MergePatch.apply(current, mergePatch, UpdateVetRequest.class));
+    }
+
+    private static Set<String> editSpecialties(
+        final Set<String> specialties,
+        final JsonNode edits
+    ) {
+        edits.fieldNames().forEachRemaining(operation -> {
+            if (!operation.equals("add") && !operation.equals("remove")) {
+                throw new WebApplicationException("Specialties can only be added or removed", UNPROCESSABLE_ENTITY);
+            }
+        });
+        // a specialty both added and removed ends up removed
+        var edited = new TreeSet<>(specialties);
+        edited.addAll(specialtyNames(edits.get("add")));
+        edited.removeAll(specialtyNames(edits.get("remove")));
+        return edited;
+    }
+
+    private static Set<String> specialtyNames(final JsonNode names) {
+        if (names == null) {
+            return Set.of();
+        }
+        if (!names.isArray()) {
+            throw new WebApplicationException("Specialties must be given as a list", UNPROCESSABLE_ENTITY);
+        }
+        var specialties = new TreeSet<String>();
+        names.forEach(name -> {
+            if (!name.isTextual()) {
+                throw new WebApplicationException("Specialties must be given by name", UNPROCESSABLE_ENTITY);
+            }
+            specialties.add(name.textValue());
+        });
+        return specialties;
     }
 
     public static CreateVet mapToCreateVet(
         final CreateVetRequest createVetRequest
     ) {
-        return CreateVet.builder()
-            .name(createVetRequest.getName())
-            .specialties(createVetRequest.getSpecialties())
-            .build();
+        return new CreateVet(
+            createVetRequest.getName(),
+            createVetRequest.getSpecialties()
+        );
     }
 }
@@ -1,9 +1,16 @@
 package io.baris.petclinic.dropwizard.vet;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import io.baris.petclinic.dropwizard.idempotency.Idempotent;
+import io.baris.petclinic.dropwizard.idempotency.IdempotencyFilter;
 import io.baris.petclinic.dropwizard.vet.model.CreateVetRequest;
+import io.baris.petclinic.dropwizard.vet.model.SpecialtyMatch;
 import io.baris.petclinic.dropwizard.vet.model.Vet;
 import io.baris.petclinic.dropwizard.vet.model.UpdateVetRequest;
+import io.baris.petclinic.dropwizard.system.MergePatch;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -12,9 +19,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Vet resource to serve vet endpoints
@@ -26,7 +35,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class VetResource {
 
-    private final VetManager vetManager;
+    private final Supplier<VetManager> vetManager;
 
     @Operation(
         summary = "Get vet",
@@ -44,13 +53,13 @@ public class VetResource {
     public Vet getVet(
         final @PathParam("id") int id
     ) {
-        return vetManager
+        return vetManager.get()
             .getVet(id)
             .orElseThrow(() -> new NotFoundException("Vet not found"));
     }
 
     @Operation(
-        summary = "Get all vets",
+        summary = "Get all vets, optionally only the ones with the given specialties",
         tags = {"Vet"},
         responses = {
             @ApiResponse(
@@ -60,12 +69,24 @@ public class VetResource {
         }
     )
     @GET
-    public List<Vet> getAllVets() {
-        return vetManager.getAllVets();
+    public List<Vet> getAllVets(
+        final @Parameter(description = "Specialties to filter by") @QueryParam("specialty") List<String> specialties,
+        final @Parameter(description = "Whether vets need all or any of the specialties")
+        @QueryParam("match") @DefaultValue("all") SpecialtyMatch match
+    ) {
+        if (specialties == null || specialties.isEmpty()) {
+            return vetManager.get().getAllVets();
+        }
+        return vetManager.get().getVetsBySpecialties(specialties, match);
     }
 
     @Operation(
         summary = "Create vet",
+        parameters = @Parameter(
+            in = ParameterIn.HEADER,
+            name = IdempotencyFilter.IDEMPOTENCY_KEY,
+            description = "Key to safely retry the request with, the response of the first request is replayed"
+        ),
         tags = {"Vet"},
         responses = {
             @ApiResponse(
@@ -73,14 +94,16 @@ public class VetResource {
                 content = @Content(schema = @Schema(implementation = Vet.class))
             ),
             @ApiResponse(responseCode = "422", description = "Invalid input"),
+            @ApiResponse(responseCode = "409", description = "Request with the same idempotency key is in progress"),
             @ApiResponse(responseCode = "500", description = "Vet could not be created")
         }
     )
     @PUT
+    @Idempotent
     public Vet createVet(
         final @Valid CreateVetRequest createVetRequest
     ) {
-        return vetManager
+        return vetManager.get()
             .createVet(VetMapper.mapToCreateVet(createVetRequest))
             .orElseThrow(() -> new InternalServerErrorException("Vet could not be created"));
     }
@@ -104,8 +127,72 @@ public class VetResource {
         final @PathParam("id") int id,
         final @Valid UpdateVetRequest updateVetRequest
     ) {
-        return vetManager
+        return vetManager.get()
             .updateVet(VetMapper.mapToUpdateVet(id, updateVetRequest))
             .orElseThrow(() -> new NotFoundException("Vet not found"));
     }
+
+    @Operation(
+        summary = "Patch vet with a JSON merge patch, only the given fields are changed and specialties can be added or removed",
+        tags = {"Vet"},
+        responses = {
+            @ApiResponse(
+                description = "The vet",
+                content = @Content(schema = @Schema(implementation = Vet.class))
+            ),
+            @ApiResponse(responseCode = "422", description = "Invalid patch"),
+            @ApiResponse(responseCode = "404", description = "Vet not found")
+        }
+    )
+    @Path("{id}")
+    @PATCH
+    @Consumes({MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON})
+    public Vet patchVet(
+        final @PathParam("id") int id,
+        final @NotNull JsonNode patch
+    ) {
+        return vetManager.get()
+            .patchVet(id, vet -> VetMapper.mapToPatchedVet(vet, patch))
+            .orElseThrow(() -> new NotFoundException("Vet not found"));
+    }
+
+    @Operation(
+        summary = "Delete vet, it can be restored until it is purged",
+        tags = {"Vet"},
+        responses = {
+            @ApiResponse(responseCode = "204", description = "Vet deleted"),
+            @ApiResponse(responseCode = "404", description = "Vet not found")
+        }
+    )
+    @Path("{id}")
+    @DELETE
+    public void deleteVet(
+        final @PathParam("id") int id
+    ) {
+        vetManager.get()
+            .deleteVet(id)
+            .orElseThrow(() -> new NotFoundException("Vet not found"));
+    }
+
+    @Operation(
+        summary = "Restore deleted vet",
+        tags = {"Vet"},
+        responses = {
+            @ApiResponse(
+                description = "The vet",
+                content = @Content(schema = @Schema(implementation = Vet.class))
+            ),
+            @ApiResponse(responseCode = "404", description = "Deleted vet not found"),
+            @ApiResponse(responseCode = "409", description = "Another vet has the name of the deleted vet")
+        }
+    )
+    @Path("{id}/restore")
+    @POST
+    public Vet restoreVet(
+        final @PathParam("id") int id
+    ) {
+        return vetManager.get()
+            .restoreVet(id)
+            .orElseThrow(() -> new NotFoundException("Deleted vet not found"));
+    }
 }
@@ -0,0 +1,23 @@
+package io.baris.petclinic.dropwizard.vet;
+
+import io.baris.petclinic.dropwizard.vet.model.Vet;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps vet rows without the reflection of a bean mapper, specialties are loaded separately
+ */
+public class VetRowMapper implements RowMapper<Vet> {
+
+    @Override
+    public Vet map(final ResultSet rs, final StatementContext ctx) throws SQLException {
+        return new Vet(
+            rs.getInt("id"),
+            rs.getString("name"),
+            null
+        );
+    }
+}
@@ -0,0 +1,15 @@
+package io.baris.petclinic.dropwizard.vet.model;
+
+import java.util.Locale;
+
+/**
+ * How multiple requested specialties are combined
+ */
+public enum SpecialtyMatch {
+    ALL,
+    ANY;
+
+    public static SpecialtyMatch fromString(final String value) {
+        return valueOf(value.toUpperCase(Locale.ROOT));
+    }
+}
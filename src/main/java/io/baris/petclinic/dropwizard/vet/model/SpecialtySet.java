@@ -0,0 +1,84 @@
+package io.baris.petclinic.dropwizard.vet.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact, immutable set of specialties.
+ * <p>
+ * Holds the sorted dictionary ids of the specialties only, the names are shared by all sets
+ * through the dictionary snapshot the set was created with.
+ */
+public final class SpecialtySet extends AbstractSet<String> {
+
+    private final short[] ids;
+    private final String[] names;
+
+    /**
+     * @param ids   sorted specialty ids
+     * @param names specialty names indexed by id
+     */
+    public SpecialtySet(final short[] ids, final String[] names) {
+        this.ids = ids;
+        this.names = names;
+    }
+
+    public boolean containsId(final short id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    public boolean containsAllIds(final short[] sortedIds) {
+        int i = 0;
+        for (var id : sortedIds) {
+            while (i < ids.length && ids[i] < id) {
+                i++;
+            }
+            if (i == ids.length || ids[i] != id) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public short[] getIds() {
+        return ids.clone();
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        for (var id : ids) {
+            if (names[id].equals(o)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < ids.length;
+            }
+
+            @Override
+            public String next() {
+                if (index == ids.length) {
+                    throw new NoSuchElementException();
+                }
+                return names[ids[index++]];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+}
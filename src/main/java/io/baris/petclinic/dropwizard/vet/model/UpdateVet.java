@@ -1,5 +1,6 @@
 package io.baris.petclinic.dropwizard.vet.model;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Value;
 
@@ -11,6 +12,7 @@ import java.util.Set;
 
 @Builder
 @Value
+@AllArgsConstructor
 public class UpdateVet {
 
     int id;
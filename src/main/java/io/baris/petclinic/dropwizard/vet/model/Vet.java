@@ -1,5 +1,6 @@
 package io.baris.petclinic.dropwizard.vet.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,6 +14,7 @@ import java.util.Set;
 
 @Builder
 @Data
+@JsonSerialize(using = VetSerializer.class)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Vet {
@@ -0,0 +1,39 @@
+package io.baris.petclinic.dropwizard.vet.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes a vet field by field instead of through bean introspection
+ */
+public class VetSerializer extends StdSerializer<Vet> {
+
+    public VetSerializer() {
+        super(Vet.class);
+    }
+
+    @Override
+    public void serialize(
+        final Vet vet,
+        final JsonGenerator gen,
+        final SerializerProvider provider
+    ) throws IOException {
+        gen.writeStartObject(vet);
+        gen.writeNumberField("id", vet.getId());
+        gen.writeStringField("name", vet.getName());
+        var specialties = vet.getSpecialties();
+        if (specialties != null) {
+            gen.writeArrayFieldStart("specialties");
+            for (var specialty : specialties) {
+                gen.writeString(specialty);
+            }
+            gen.writeEndArray();
+        } else {
+            gen.writeNullField("specialties");
+        }
+        gen.writeEndObject();
+    }
+}
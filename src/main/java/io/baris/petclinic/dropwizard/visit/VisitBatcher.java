@@ -0,0 +1,234 @@
+package io.baris.petclinic.dropwizard.visit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import io.baris.petclinic.dropwizard.system.VisitBatchConfig;
+import io.baris.petclinic.dropwizard.visit.model.MakeVisit;
+import io.baris.petclinic.dropwizard.visit.model.Visit;
+import io.dropwizard.lifecycle.Managed;
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Jdbi;
+
+import javax.ws.rs.ServiceUnavailableException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Group commit of visits made concurrently.
+ * <p>
+ * Callers queue their visit and wait, a single writer collects the queued visits for up to
+ * the configured delay or batch size and inserts them with one multi-row statement, so that a
+ * burst of check-ins pays for one commit instead of one per visit. Rows returned by the insert
+ * are matched back to their callers by content. When a batch fails its visits are retried one
+ * by one, so that a single invalid visit does not fail the others.
+ */
+@Slf4j
+public class VisitBatcher implements Managed {
+
+    private final Jdbi jdbi;
+    private final VisitBatchConfig config;
+    private final BlockingQueue<PendingVisit> queue;
+    private final Histogram batchSizes;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public VisitBatcher(
+        final Jdbi jdbi,
+        final VisitBatchConfig config,
+        final MetricRegistry metrics
+    ) {
+        this.jdbi = jdbi;
+        this.config = config;
+        this.queue = new LinkedBlockingQueue<>(config.getMaxQueued());
+        this.batchSizes = metrics.histogram(name(VisitBatcher.class, "batch-size"));
+        metrics.register(name(VisitBatcher.class, "queued"), (Gauge<Integer>) queue::size);
+    }
+
+    public static VisitBatcher disabled() {
+        return new VisitBatcher(null, new VisitBatchConfig(), new MetricRegistry());
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled() && running;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!config.isEnabled() || running) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeBatches, "visit-batcher");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        // the writer drains the queue before it exits
+        running = false;
+        writer.join();
+    }
+
+    public Visit makeVisit(final MakeVisit makeVisit) {
+        var pending = new PendingVisit(makeVisit, new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            throw new ServiceUnavailableException("Too many visits are waiting to be written, please retry later", 1L);
+        }
+        try {
+            return pending.result().get(config.getMaxWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // a visit still queued is never written, one taken by the writer may be written yet
+            if (queue.remove(pending)) {
+                throw new ServiceUnavailableException("Visit could not be written in time, please retry later", 1L);
+            }
+            throw new ServiceUnavailableException(
+                "Visit is still being written, check the visits of the pet before making it again"
+            );
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Visit could not be written", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the visit to be written", e);
+        }
+    }
+
+    private void writeBatches() {
+        var batch = new ArrayList<PendingVisit>(config.getMaxBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                write(batch);
+            } catch (InterruptedException e) {
+                log.warn("Visit batcher was interrupted, writing the remaining visits");
+                // new visits are written directly from now on
+                running = false;
+                queue.drainTo(batch);
+                writeRemaining(batch);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Visit batch could not be written", e);
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeRemaining(final List<PendingVisit> remaining) {
+        for (var from = 0; from < remaining.size(); from += config.getMaxBatchSize()) {
+            var batch = remaining.subList(from, Math.min(remaining.size(), from + config.getMaxBatchSize()));
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                log.error("Visit batch could not be written", e);
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+            }
+        }
+    }
+
+    private void collect(final List<PendingVisit> batch) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getMaxDelayMillis());
+        while (batch.size() < config.getMaxBatchSize()) {
+            // whatever is queued already joins without waiting
+            if (queue.drainTo(batch, config.getMaxBatchSize() - batch.size()) > 0) {
+                continue;
+            }
+            var remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            var next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(final List<PendingVisit> batch) {
+        batchSizes.update(batch.size());
+        List<Visit> visits;
+        try {
+            var makeVisits = batch.stream().map(PendingVisit::makeVisit).toList();
+            visits = jdbi.withExtension(VisitDao.class, dao -> dao.createVisits(makeVisits));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                throw e;
+            }
+            log.debug("Visit batch of {} failed, writing its visits one by one", batch.size(), e);
+            batch.forEach(this::writeSingle);
+            return;
+        }
+
+        var visitsByContent = new HashMap<List<Object>, ArrayDeque<Visit>>();
+        visits.forEach(visit -> visitsByContent
+            .computeIfAbsent(contentOf(visit), key -> new ArrayDeque<>())
+            .add(visit)
+        );
+        batch.forEach(pending -> {
+            var matches = visitsByContent.get(contentOf(pending.makeVisit()));
+            if (matches == null || matches.isEmpty()) {
+                pending.result().completeExceptionally(new IllegalStateException("Written visit could not be matched"));
+            } else {
+                pending.result().complete(matches.poll());
+            }
+        });
+    }
+
+    private void writeSingle(final PendingVisit pending) {
+        try {
+            var visit = jdbi.withExtension(VisitDao.class, dao -> dao.createVisit(pending.makeVisit()));
+            pending.result().complete(visit.orElseThrow());
+        } catch (RuntimeException e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    private static List<Object> contentOf(final Visit visit) {
+        return contentOf(visit.getPetId(), visit.getVetId(), visit.getDate(), visit.getTreatment());
+    }
+
+    private static List<Object> contentOf(final MakeVisit makeVisit) {
+        return contentOf(makeVisit.getPetId(), makeVisit.getVetId(), makeVisit.getDate(), makeVisit.getTreatment());
+    }
+
+    private static List<Object> contentOf(
+        final int petId,
+        final int vetId,
+        final Instant date,
+        final String treatment
+    ) {
+        // the database keeps microseconds only
+        return List.of(petId, vetId, date.truncatedTo(ChronoUnit.MICROS), treatment);
+    }
+
+    private record PendingVisit(MakeVisit makeVisit, CompletableFuture<Visit> result) {
+    }
+}
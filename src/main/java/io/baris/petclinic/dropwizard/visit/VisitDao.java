@@ -1,42 +1,154 @@
 package io.baris.petclinic.dropwizard.visit;
 
+import io.baris.petclinic.dropwizard.pet.PetHistoryDao;
 import io.baris.petclinic.dropwizard.visit.model.MakeVisit;
 import io.baris.petclinic.dropwizard.visit.model.Visit;
-import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
+import org.jdbi.v3.sqlobject.CreateSqlObject;
+import org.jdbi.v3.sqlobject.customizer.BindMethodsList;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 import org.jdbi.v3.sqlobject.transaction.Transaction;
 
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
- * Manages visits in the database
+ * Manages visits in the database, keeping the histories of their pets up to date in the same transaction
  */
+@RegisterRowMapper(VisitRowMapper.class)
 public interface VisitDao {
 
-    @SqlQuery("SELECT * FROM visits WHERE id = ?")
-    @RegisterBeanMapper(Visit.class)
+    @SqlQuery("SELECT * FROM visits WHERE id = ? AND deleted_at IS NULL")
     Visit getVisit(int id);
 
-    @SqlQuery("SELECT * FROM visits WHERE pet_id = ?")
-    @RegisterBeanMapper(Visit.class)
+    @SqlQuery("SELECT * FROM visits WHERE id = ? AND deleted_at IS NULL FOR UPDATE")
+    Visit lockVisit(int id);
+
+    @SqlQuery("SELECT * FROM visits WHERE pet_id = ? AND deleted_at IS NULL")
     List<Visit> getPetVisits(int petId);
 
+    @SqlQuery("SELECT * FROM visits WHERE pet_id = ANY(?) AND deleted_at IS NULL ORDER BY date, id")
+    List<Visit> getPetVisits(int[] petIds);
+
+    // deleted visits are never archived, they stay in the table until they are purged
+    @SqlQuery("SELECT MIN(date) FROM visits WHERE date < ? AND deleted_at IS NULL")
+    Optional<Instant> getOldestVisitDate(Instant before);
+
+    @SqlQuery("SELECT * FROM visits WHERE date >= ? AND date < ? AND deleted_at IS NULL")
+    List<Visit> getVisitsBetween(Instant from, Instant to);
+
+    // removes archived rows for good
+    @SqlUpdate("DELETE FROM visits WHERE id = ANY(?)")
+    int deleteVisits(int[] ids);
+
+    @SqlQuery("SELECT DISTINCT pet_id FROM visits WHERE id = ANY(?)")
+    List<Integer> getVisitPetIds(int[] ids);
+
+    // locks all the given rows, returns the ones deleted meanwhile
+    @SqlQuery("""
+        SELECT id FROM (SELECT id, deleted_at FROM visits WHERE id = ANY(?) ORDER BY id FOR UPDATE) v
+        WHERE deleted_at IS NOT NULL""")
+    Set<Integer> lockVisitsGetDeleted(int[] ids);
+
+    @SqlQuery("SELECT pet_id FROM visits WHERE id = ? AND deleted_at IS NOT NULL FOR UPDATE")
+    Optional<Integer> getDeletedVisitPetId(int id);
+
+    @SqlUpdate("UPDATE visits SET deleted_at = now() WHERE id = ? AND deleted_at IS NULL")
+    boolean markVisitDeleted(int id);
+
+    @SqlUpdate("UPDATE visits SET deleted_at = NULL WHERE id = ? AND deleted_at IS NOT NULL")
+    boolean unmarkVisitDeleted(int id);
+
     @SqlUpdate("INSERT INTO visits (pet_id, vet_id, date, treatment) VALUES (?, ?, ?, ?) returning *")
     @GetGeneratedKeys
     int createVisit(int petId, int vetId, Instant date, String treatment);
 
+    @SqlQuery("INSERT INTO visits (pet_id, vet_id, date, treatment) VALUES <visits> RETURNING *")
+    List<Visit> insertVisits(
+        @BindMethodsList(value = "visits", methodNames = {"getPetId", "getVetId", "getDate", "getTreatment"})
+        List<MakeVisit> makeVisits
+    );
+
+    @CreateSqlObject
+    PetHistoryDao petHistories();
+
     @Transaction
     default Optional<Visit> createVisit(MakeVisit makeVisit) {
+        // a missing history is built before the visit exists, so that appending it cannot count it twice
+        petHistories().ensureHistories(new int[]{makeVisit.getPetId()});
         var visitId = createVisit(
             makeVisit.getPetId(),
             makeVisit.getVetId(),
             makeVisit.getDate(),
             makeVisit.getTreatment()
         );
+        petHistories().appendVisits(new int[]{visitId});
         return Optional.of(getVisit(visitId));
     }
+
+    @Transaction
+    default List<Visit> createVisits(List<MakeVisit> makeVisits) {
+        petHistories().ensureHistories(makeVisits.stream().mapToInt(MakeVisit::getPetId).distinct().toArray());
+        var visits = insertVisits(makeVisits);
+        petHistories().appendVisits(visits.stream().mapToInt(Visit::getId).toArray());
+        return visits;
+    }
+
+    /**
+     * Removes archived visits from the table, the histories of their pets are built first so that they keep listing them.
+     * <p>
+     * Visits deleted since they were archived stay in the table as deleted visits, they are handed to
+     * {@code unarchive} to be taken out of the archive while their rows are locked.
+     */
+    @Transaction
+    default int deleteArchivedVisits(
+        final int[] ids,
+        final Consumer<Set<Integer>> unarchive
+    ) {
+        var deletedMeanwhile = lockVisitsGetDeleted(ids);
+        if (!deletedMeanwhile.isEmpty()) {
+            unarchive.accept(deletedMeanwhile);
+        }
+        var archived = Arrays.stream(ids).filter(id -> !deletedMeanwhile.contains(id)).toArray();
+        petHistories().ensureHistories(getVisitPetIds(archived).stream().mapToInt(Integer::intValue).toArray());
+        return deleteVisits(archived);
+    }
+
+    /**
+     * Marks the visit deleted and takes it out of the history of its pet, returns it as it was before
+     */
+    @Transaction
+    default Optional<Visit> deleteVisit(final int id) {
+        var visit = lockVisit(id);
+        if (visit == null) {
+            return Optional.empty();
+        }
+        markVisitDeleted(id);
+        petHistories().removeVisit(visit.getPetId(), id);
+        return Optional.of(visit);
+    }
+
+    /**
+     * Brings the visit back, with the vet it had at the time of the restore in the history of its pet
+     */
+    @Transaction
+    default Optional<Visit> restoreVisit(final int id) {
+        var petId = getDeletedVisitPetId(id);
+        if (petId.isEmpty()) {
+            return Optional.empty();
+        }
+        // as for a new visit, a missing history is built before the visit is live again
+        petHistories().ensureHistories(new int[]{petId.get()});
+        if (!unmarkVisitDeleted(id)) {
+            return Optional.empty();
+        }
+        petHistories().appendVisits(new int[]{id});
+        return Optional.of(getVisit(id));
+    }
 }
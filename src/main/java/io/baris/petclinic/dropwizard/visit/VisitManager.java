@@ -1,12 +1,28 @@
 package io.baris.petclinic.dropwizard.visit;
 
+import io.baris.petclinic.dropwizard.archive.VisitArchive;
+import io.baris.petclinic.dropwizard.audit.AuditLog;
+import io.baris.petclinic.dropwizard.audit.Audited;
 import io.baris.petclinic.dropwizard.visit.model.MakeVisit;
 import io.baris.petclinic.dropwizard.visit.model.Visit;
+import io.baris.petclinic.dropwizard.system.ConcurrencyLimiter;
+import io.baris.petclinic.dropwizard.system.SingleFlight;
+import io.baris.petclinic.dropwizard.tracing.Tracer;
 import lombok.RequiredArgsConstructor;
 import org.jdbi.v3.core.Jdbi;
 
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.core.Response;
+
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toSet;
 
 /**
  * Manages the visits
@@ -14,13 +30,125 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class VisitManager {
 
+    private static final int VERSION_STRIPES = 1024;
+
     private final Jdbi jdbi;
+    private final ConcurrencyLimiter limiter;
+    private final VisitBatcher batcher;
+    private final VisitArchive archive;
+    private final SingleFlight<Integer, List<Visit>> petVisitLoads;
+    private final AuditLog auditLog;
+    private final Tracer tracer;
+
+    // bumped by every change of a pet's visits made here, striped by pet id, so that a listing started
+    // before a change is not joined after it
+    private final AtomicLongArray petVisitVersions = new AtomicLongArray(VERSION_STRIPES);
 
     public Optional<Visit> makeVisit(final MakeVisit makeVisit) {
-        return jdbi.withExtension(VisitDao.class, dao -> dao.createVisit(makeVisit));
+        return tracer.inSpan("VisitManager.makeVisit", () -> {
+            // entries audited in the transaction of their visit cannot join a batch
+            if (batcher.isEnabled() && !auditLog.isTransactional()) {
+                var visit = limiter.execute(() -> batcher.makeVisit(makeVisit));
+                visitsChanged(visit.getPetId());
+                auditLog.record(AuditLog.VISIT, visit.getId(), AuditLog.CREATE, null, visit);
+                return Optional.of(visit);
+            }
+            var made = limiter.execute(() -> jdbi.inTransaction(handle -> {
+                var visit = handle.attach(VisitDao.class).createVisit(makeVisit);
+                return new Audited<>(
+                    visit, visit.map(it -> auditLog.record(handle, AuditLog.VISIT, it.getId(), AuditLog.CREATE, null, it)).orElse(null)
+                );
+            }));
+            made.value().ifPresent(visit -> visitsChanged(visit.getPetId()));
+            auditLog.recordCommitted(made.entry());
+            return made.value();
+        });
+    }
+
+    public Optional<Visit> deleteVisit(final int id) {
+        return tracer.inSpan("VisitManager.deleteVisit", () -> {
+            var deleted = limiter.execute(() -> jdbi.inTransaction(handle -> {
+                var visit = handle.attach(VisitDao.class).deleteVisit(id);
+                return new Audited<>(
+                    visit, visit.map(it -> auditLog.record(handle, AuditLog.VISIT, id, AuditLog.DELETE, it, null)).orElse(null)
+                );
+            }));
+            deleted.value().ifPresent(visit -> visitsChanged(visit.getPetId()));
+            auditLog.recordCommitted(deleted.entry());
+            return deleted.value().isPresent() ? deleted.value() : failIfArchived(id);
+        });
+    }
+
+    public Optional<Visit> restoreVisit(final int id) {
+        return tracer.inSpan("VisitManager.restoreVisit", () -> {
+            var restored = limiter.execute(() -> jdbi.inTransaction(handle -> {
+                var visit = handle.attach(VisitDao.class).restoreVisit(id);
+                return new Audited<>(
+                    visit, visit.map(it -> auditLog.record(handle, AuditLog.VISIT, id, AuditLog.RESTORE, null, it)).orElse(null)
+                );
+            }));
+            restored.value().ifPresent(visit -> visitsChanged(visit.getPetId()));
+            auditLog.recordCommitted(restored.entry());
+            return restored.value().isPresent() ? restored.value() : failIfArchived(id);
+        });
     }
 
     public List<Visit> getPetVisits(final int petId) {
-        return jdbi.withExtension(VisitDao.class, dao -> dao.getPetVisits(petId));
+        return tracer.inSpan("VisitManager.getPetVisits", () -> petVisitLoads.execute(petId, visitsVersion(petId), () -> {
+            var visits = limiter.execute(() -> jdbi.withExtension(VisitDao.class, dao -> dao.getPetVisits(petId)));
+            var archived = archive.getPetVisits(petId);
+            return archived.isEmpty() ? visits : merge(archived, visits);
+        }));
+    }
+
+    /**
+     * Gets the visits of all the given pets with a single query, keyed by pet id
+     */
+    public Map<Integer, List<Visit>> getPetVisits(final int[] petIds) {
+        return tracer.inSpan("VisitManager.getPetVisits", () -> {
+            var visitsByPet = limiter
+                .execute(() -> jdbi.withExtension(VisitDao.class, dao -> dao.getPetVisits(petIds)))
+                .stream()
+                .collect(groupingBy(Visit::getPetId));
+            var result = new HashMap<Integer, List<Visit>>();
+            for (var petId : petIds) {
+                var visits = visitsByPet.getOrDefault(petId, List.of());
+                var archived = archive.getPetVisits(petId);
+                result.put(petId, archived.isEmpty() ? visits : merge(archived, visits));
+            }
+            return result;
+        });
+    }
+
+    private long visitsVersion(final int petId) {
+        return petVisitVersions.get(Math.floorMod(petId, VERSION_STRIPES));
+    }
+
+    private void visitsChanged(final int petId) {
+        petVisitVersions.incrementAndGet(Math.floorMod(petId, VERSION_STRIPES));
+    }
+
+    /**
+     * Archived visits are read only, they are told apart from missing ones so that the caller knows why
+     */
+    private Optional<Visit> failIfArchived(final int id) {
+        if (archive.isArchived(id)) {
+            throw new ClientErrorException("Visit is archived and can no longer be changed", Response.Status.CONFLICT);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Archived visits come first, a visit being archived is briefly in both and its row wins
+     */
+    private static List<Visit> merge(
+        final List<Visit> archived,
+        final List<Visit> visits
+    ) {
+        var ids = visits.stream().map(Visit::getId).collect(toSet());
+        var merged = new ArrayList<Visit>(archived.size() + visits.size());
+        archived.stream().filter(visit -> !ids.contains(visit.getId())).forEach(merged::add);
+        merged.addAll(visits);
+        return merged;
     }
 }
@@ -15,11 +15,11 @@ public class VisitMapper {
         final int vetId,
         final MakeVisitRequest makeVisitRequest
     ) {
-        return MakeVisit.builder()
-            .petId(petId)
-            .vetId(vetId)
-            .date(makeVisitRequest.getDate())
-            .treatment(makeVisitRequest.getTreatment())
-            .build();
+        return new MakeVisit(
+            petId,
+            vetId,
+            makeVisitRequest.getDate(),
+            makeVisitRequest.getTreatment()
+        );
     }
 }
@@ -1,10 +1,14 @@
 package io.baris.petclinic.dropwizard.visit;
 
+import io.baris.petclinic.dropwizard.idempotency.Idempotent;
+import io.baris.petclinic.dropwizard.idempotency.IdempotencyFilter;
 import io.baris.petclinic.dropwizard.vet.VetManager;
 import io.baris.petclinic.dropwizard.visit.model.Visit;
 import io.baris.petclinic.dropwizard.pet.PetManager;
 import io.baris.petclinic.dropwizard.visit.model.MakeVisitRequest;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -16,6 +20,7 @@ import javax.validation.Valid;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Visit resource to serve visit endpoints
@@ -27,12 +32,17 @@ import java.util.List;
 @RequiredArgsConstructor
 public class VisitResource {
 
-    private final VisitManager visitManager;
-    private final PetManager petManager;
-    private final VetManager vetManager;
+    private final Supplier<VisitManager> visitManager;
+    private final Supplier<PetManager> petManager;
+    private final Supplier<VetManager> vetManager;
 
     @Operation(
         summary = "Make visit",
+        parameters = @Parameter(
+            in = ParameterIn.HEADER,
+            name = IdempotencyFilter.IDEMPOTENCY_KEY,
+            description = "Key to safely retry the request with, the response of the first request is replayed"
+        ),
         tags = {"Visit"},
         responses = {
             @ApiResponse(
@@ -41,10 +51,12 @@ public class VisitResource {
             ),
             @ApiResponse(responseCode = "400", description = "Invalid parameter"),
             @ApiResponse(responseCode = "422", description = "Invalid input"),
+            @ApiResponse(responseCode = "409", description = "Request with the same idempotency key is in progress"),
             @ApiResponse(responseCode = "500", description = "Visit could not be created")
         }
     )
     @PUT
+    @Idempotent
     @Path("/pets/{petId}/vets/{vetId}")
     public Visit makeVisit(
         final @PathParam("petId") int petId,
@@ -52,12 +64,12 @@ public class VisitResource {
         final @Valid MakeVisitRequest createPetRequest
     ) {
         // validation
-        petManager.getPet(petId)
+        petManager.get().getPet(petId)
             .orElseThrow(() -> new BadRequestException("Pet does not exist"));
-        vetManager.getVet(vetId)
+        vetManager.get().getVet(vetId)
             .orElseThrow(() -> new BadRequestException("Pet does not exist"));
 
-        return visitManager
+        return visitManager.get()
             .makeVisit(VisitMapper.mapToMakeVisit(petId, vetId, createPetRequest))
             .orElseThrow(() -> new InternalServerErrorException("Visit could not be created"));
     }
@@ -78,9 +90,48 @@ public class VisitResource {
         final @PathParam("petId") int petId
     ) {
         // validation
-        petManager.getPet(petId)
+        petManager.get().getPet(petId)
             .orElseThrow(() -> new BadRequestException("Pet does not exist"));
 
-        return visitManager.getPetVisits(petId);
+        return visitManager.get().getPetVisits(petId);
+    }
+
+    @Operation(
+        summary = "Delete visit, it can be restored until it is purged",
+        tags = {"Visit"},
+        responses = {
+            @ApiResponse(responseCode = "204", description = "Visit deleted"),
+            @ApiResponse(responseCode = "404", description = "Visit not found")
+        }
+    )
+    @Path("{id}")
+    @DELETE
+    public void deleteVisit(
+        final @PathParam("id") int id
+    ) {
+        visitManager.get()
+            .deleteVisit(id)
+            .orElseThrow(() -> new NotFoundException("Visit not found"));
+    }
+
+    @Operation(
+        summary = "Restore deleted visit",
+        tags = {"Visit"},
+        responses = {
+            @ApiResponse(
+                description = "The visit",
+                content = @Content(schema = @Schema(implementation = Visit.class))
+            ),
+            @ApiResponse(responseCode = "404", description = "Deleted visit not found")
+        }
+    )
+    @Path("{id}/restore")
+    @POST
+    public Visit restoreVisit(
+        final @PathParam("id") int id
+    ) {
+        return visitManager.get()
+            .restoreVisit(id)
+            .orElseThrow(() -> new NotFoundException("Deleted visit not found"));
     }
 }
@@ -0,0 +1,26 @@
+package io.baris.petclinic.dropwizard.visit;
+
+import io.baris.petclinic.dropwizard.visit.model.Visit;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps visit rows without the reflection of a bean mapper
+ */
+public class VisitRowMapper implements RowMapper<Visit> {
+
+    @Override
+    public Visit map(final ResultSet rs, final StatementContext ctx) throws SQLException {
+        var date = rs.getTimestamp("date");
+        return new Visit(
+            rs.getInt("id"),
+            rs.getInt("pet_id"),
+            rs.getInt("vet_id"),
+            date != null ? date.toInstant() : null,
+            rs.getString("treatment")
+        );
+    }
+}
@@ -9,6 +9,7 @@ import java.time.Instant;
  */
 @Builder
 @Value
+@AllArgsConstructor
 public class MakeVisit {
 
     int petId;
@@ -1,5 +1,6 @@
 package io.baris.petclinic.dropwizard.visit.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,6 +14,7 @@ import java.time.Instant;
 
 @Builder
 @Data
+@JsonSerialize(using = VisitSerializer.class)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Visit {
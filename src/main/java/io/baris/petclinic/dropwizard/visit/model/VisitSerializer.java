@@ -0,0 +1,33 @@
+package io.baris.petclinic.dropwizard.visit.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes a visit field by field instead of through bean introspection
+ */
+public class VisitSerializer extends StdSerializer<Visit> {
+
+    public VisitSerializer() {
+        super(Visit.class);
+    }
+
+    @Override
+    public void serialize(
+        final Visit visit,
+        final JsonGenerator gen,
+        final SerializerProvider provider
+    ) throws IOException {
+        gen.writeStartObject(visit);
+        gen.writeNumberField("id", visit.getId());
+        gen.writeNumberField("petId", visit.getPetId());
+        gen.writeNumberField("vetId", visit.getVetId());
+        // the date keeps the format configured on the object mapper
+        provider.defaultSerializeField("date", visit.getDate(), gen);
+        gen.writeStringField("treatment", visit.getTreatment());
+        gen.writeEndObject();
+    }
+}
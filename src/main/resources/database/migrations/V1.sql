@@ -1,10 +1,9 @@
+-- Initial schema
 CREATE TABLE IF NOT EXISTS vets
 (
     id   SERIAL PRIMARY KEY,
-    name TEXT NOT NULL
+    name TEXT NOT NULL UNIQUE
 );
-ALTER TABLE vets
-    ADD UNIQUE (name);
 
 CREATE TABLE IF NOT EXISTS vet_specialties
 (
@@ -13,16 +12,13 @@ CREATE TABLE IF NOT EXISTS vet_specialties
     PRIMARY KEY (vet_id, specialty)
 );
 
-
 CREATE TABLE IF NOT EXISTS pets
 (
     id      SERIAL PRIMARY KEY,
-    name    TEXT    NOT NULL,
+    name    TEXT    NOT NULL UNIQUE,
     age     INTEGER NOT NULL,
     species TEXT    NOT NULL
 );
-ALTER TABLE pets
-    ADD UNIQUE (name);
 
 CREATE TABLE IF NOT EXISTS visits
 (
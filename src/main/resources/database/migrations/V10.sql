@@ -0,0 +1,37 @@
+-- Append-only audit trail of changes to pets, vets and visits
+DO
+$$
+BEGIN
+    -- clinic schemas are migrated with the same scripts, the trail of all clinics is kept in the main schema
+    IF current_schema() = 'public' THEN
+        CREATE TABLE IF NOT EXISTS audit_log
+        (
+            id          BIGSERIAL PRIMARY KEY,
+            occurred_at TIMESTAMPTZ NOT NULL,
+            actor       TEXT        NOT NULL,
+            clinic      TEXT,
+            entity      TEXT        NOT NULL,
+            entity_id   INTEGER     NOT NULL,
+            action      TEXT        NOT NULL,
+            before      JSONB,
+            after       JSONB
+        );
+
+        CREATE INDEX IF NOT EXISTS audit_log_entity_idx ON audit_log (entity, entity_id, id);
+
+        CREATE OR REPLACE FUNCTION reject_audit_log_change() RETURNS trigger AS
+        $fn$
+        BEGIN
+            RAISE EXCEPTION 'audit_log is append-only';
+        END;
+        $fn$ LANGUAGE plpgsql;
+
+        DROP TRIGGER IF EXISTS audit_log_append_only ON audit_log;
+        CREATE TRIGGER audit_log_append_only
+            BEFORE UPDATE OR DELETE OR TRUNCATE
+            ON audit_log
+            FOR EACH STATEMENT
+        EXECUTE FUNCTION reject_audit_log_change();
+    END IF;
+END;
+$$;
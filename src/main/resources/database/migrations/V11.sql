@@ -0,0 +1,45 @@
+-- Soft deletes of pets, vets and visits, deleted rows are kept until the purge job removes them
+ALTER TABLE pets
+    ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMPTZ;
+
+ALTER TABLE vets
+    ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMPTZ;
+
+ALTER TABLE visits
+    ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMPTZ;
+
+-- names only have to be unique among live rows, lookups by name stay on a unique index
+ALTER TABLE pets
+    DROP CONSTRAINT IF EXISTS pets_name_key;
+CREATE UNIQUE INDEX IF NOT EXISTS pets_live_name_idx ON pets (name) WHERE deleted_at IS NULL;
+
+ALTER TABLE vets
+    DROP CONSTRAINT IF EXISTS vets_name_key;
+CREATE UNIQUE INDEX IF NOT EXISTS vets_live_name_idx ON vets (name) WHERE deleted_at IS NULL;
+
+-- the purge job finds deleted rows without reading the live ones
+CREATE INDEX IF NOT EXISTS pets_deleted_at_idx ON pets (deleted_at) WHERE deleted_at IS NOT NULL;
+CREATE INDEX IF NOT EXISTS vets_deleted_at_idx ON vets (deleted_at) WHERE deleted_at IS NOT NULL;
+CREATE INDEX IF NOT EXISTS visits_deleted_at_idx ON visits (deleted_at) WHERE deleted_at IS NOT NULL;
+
+-- histories only list live visits
+CREATE OR REPLACE VIEW visit_history_entries AS
+SELECT v.id,
+       v.pet_id,
+       v.date,
+       jsonb_build_object(
+           'id', v.id,
+           'date', to_char(v.date, 'YYYY-MM-DD"T"HH24:MI:SS.US"Z"'),
+           'treatment', v.treatment,
+           'vetId', v.vet_id,
+           'vetName', vt.name,
+           'specialties', coalesce(
+               (SELECT jsonb_agg(s.name ORDER BY s.name)
+                FROM vet_specialties vs
+                         JOIN specialties s ON s.id = vs.specialty_id
+                WHERE vs.vet_id = v.vet_id),
+               '[]'::jsonb)
+       ) AS entry
+FROM visits v
+         LEFT JOIN vets vt ON vt.id = v.vet_id
+WHERE v.deleted_at IS NULL;
@@ -0,0 +1,72 @@
+-- Age of the pet when it was visited, reports of past weeks do not change with the pet's current age.
+-- Visits made before are given the age the pet has now, the best that is known about them.
+ALTER TABLE visits
+    ADD COLUMN IF NOT EXISTS pet_age INTEGER;
+
+UPDATE visits v
+SET pet_age = p.age
+FROM pets p
+WHERE p.id = v.pet_id
+  AND v.pet_age IS NULL;
+
+CREATE OR REPLACE FUNCTION set_visit_pet_age() RETURNS trigger AS
+$$
+BEGIN
+    -- bulk loads know the age already
+    IF NEW.pet_age IS NULL THEN
+        SELECT age INTO NEW.pet_age FROM pets WHERE id = NEW.pet_id;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS visits_pet_age ON visits;
+CREATE TRIGGER visits_pet_age
+    BEFORE INSERT
+    ON visits
+    FOR EACH ROW
+EXECUTE FUNCTION set_visit_pet_age();
+
+-- Weeks of changed visits are published as visit-week:<epoch day of the Monday>, so that reports evict them
+CREATE OR REPLACE FUNCTION notify_visit_week_invalidation() RETURNS trigger AS
+$$
+DECLARE
+    scope TEXT;
+BEGIN
+    IF current_setting('petclinic.skip_cache_invalidation', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+
+    scope := CASE WHEN TG_TABLE_SCHEMA = 'public' THEN '' ELSE TG_TABLE_SCHEMA || '/' END;
+
+    IF TG_LEVEL = 'STATEMENT' THEN
+        PERFORM pg_notify('cache_invalidation', scope || '*');
+        RETURN NULL;
+    END IF;
+
+    -- the same week notified twice in a transaction is delivered once
+    IF TG_OP <> 'INSERT' THEN
+        PERFORM pg_notify('cache_invalidation',
+                          scope || 'visit-week:' || (date_trunc('week', OLD.date)::date - DATE '1970-01-01'));
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        PERFORM pg_notify('cache_invalidation',
+                          scope || 'visit-week:' || (date_trunc('week', NEW.date)::date - DATE '1970-01-01'));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS visits_week_invalidation ON visits;
+CREATE TRIGGER visits_week_invalidation
+    AFTER INSERT OR UPDATE OR DELETE
+    ON visits
+    FOR EACH ROW
+EXECUTE FUNCTION notify_visit_week_invalidation();
+
+DROP TRIGGER IF EXISTS visits_week_flush ON visits;
+CREATE TRIGGER visits_week_flush
+    AFTER TRUNCATE
+    ON visits
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notify_visit_week_invalidation();
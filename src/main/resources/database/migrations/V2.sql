@@ -0,0 +1,17 @@
+-- Drop duplicate unique constraints left behind by replaying the init script on every start
+DO
+$$
+    DECLARE
+        duplicate RECORD;
+    BEGIN
+        FOR duplicate IN
+            SELECT conrelid::regclass AS table_name, conname
+            FROM pg_constraint
+            WHERE contype = 'u'
+              AND conrelid IN ('pets'::regclass, 'vets'::regclass)
+              AND conname ~ '_name_key[0-9]+$'
+            LOOP
+                EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', duplicate.table_name, duplicate.conname);
+            END LOOP;
+    END
+$$;
@@ -0,0 +1,38 @@
+-- Store species as an enum and specialties as ids of a specialty dictionary
+CREATE TYPE species AS ENUM ('CAT', 'DOG', 'PARROT');
+
+ALTER TABLE pets
+    ALTER COLUMN species TYPE species USING species::species;
+
+CREATE TABLE specialties
+(
+    id   SMALLSERIAL PRIMARY KEY,
+    name TEXT NOT NULL UNIQUE
+);
+
+INSERT INTO specialties (name)
+SELECT DISTINCT specialty
+FROM vet_specialties
+WHERE specialty IS NOT NULL
+ORDER BY specialty;
+
+ALTER TABLE vet_specialties
+    ADD COLUMN specialty_id SMALLINT REFERENCES specialties (id);
+
+UPDATE vet_specialties vs
+SET specialty_id = s.id
+FROM specialties s
+WHERE s.name = vs.specialty;
+
+DELETE
+FROM vet_specialties
+WHERE specialty_id IS NULL
+   OR vet_id IS NULL;
+
+ALTER TABLE vet_specialties
+    DROP COLUMN specialty;
+
+ALTER TABLE vet_specialties
+    ALTER COLUMN vet_id SET NOT NULL,
+    ALTER COLUMN specialty_id SET NOT NULL,
+    ADD PRIMARY KEY (vet_id, specialty_id);
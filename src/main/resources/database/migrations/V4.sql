@@ -0,0 +1,13 @@
+-- Deduplication store of idempotency keys shared between nodes
+CREATE TABLE idempotency_keys
+(
+    key             TEXT PRIMARY KEY,
+    fingerprint     TEXT        NOT NULL,
+    response_status SMALLINT,
+    content_type    TEXT,
+    body            BYTEA,
+    created_at      TIMESTAMPTZ NOT NULL DEFAULT now(),
+    expires_at      TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX idempotency_keys_expires_at_idx ON idempotency_keys (expires_at);
@@ -0,0 +1,65 @@
+-- Broadcast changes of cached rows to all application nodes
+CREATE FUNCTION notify_cache_invalidation() RETURNS trigger AS
+$$
+DECLARE
+    changed JSONB;
+BEGIN
+    -- bulk loads switch this off and send a single flush instead
+    IF current_setting('petclinic.skip_cache_invalidation', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_LEVEL = 'STATEMENT' THEN
+        PERFORM pg_notify('cache_invalidation', '*');
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP = 'DELETE' THEN
+        changed := to_jsonb(OLD);
+    ELSE
+        changed := to_jsonb(NEW);
+    END IF;
+    PERFORM pg_notify('cache_invalidation', TG_ARGV[0] || ':' || (changed ->> TG_ARGV[1]));
+
+    IF TG_OP = 'UPDATE' AND (to_jsonb(OLD) ->> TG_ARGV[1]) <> (changed ->> TG_ARGV[1]) THEN
+        PERFORM pg_notify('cache_invalidation', TG_ARGV[0] || ':' || (to_jsonb(OLD) ->> TG_ARGV[1]));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER pets_cache_invalidation
+    AFTER INSERT OR UPDATE OR DELETE
+    ON pets
+    FOR EACH ROW
+EXECUTE FUNCTION notify_cache_invalidation('pet', 'id');
+
+CREATE TRIGGER vets_cache_invalidation
+    AFTER INSERT OR UPDATE OR DELETE
+    ON vets
+    FOR EACH ROW
+EXECUTE FUNCTION notify_cache_invalidation('vet', 'id');
+
+CREATE TRIGGER vet_specialties_cache_invalidation
+    AFTER INSERT OR UPDATE OR DELETE
+    ON vet_specialties
+    FOR EACH ROW
+EXECUTE FUNCTION notify_cache_invalidation('vet', 'vet_id');
+
+CREATE TRIGGER pets_cache_flush
+    AFTER TRUNCATE
+    ON pets
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notify_cache_invalidation();
+
+CREATE TRIGGER vets_cache_flush
+    AFTER TRUNCATE
+    ON vets
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notify_cache_invalidation();
+
+CREATE TRIGGER vet_specialties_cache_flush
+    AFTER TRUNCATE
+    ON vet_specialties
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notify_cache_invalidation();
@@ -0,0 +1,2 @@
+-- Let the reports scan visits by date range
+CREATE INDEX IF NOT EXISTS visits_date_idx ON visits (date);
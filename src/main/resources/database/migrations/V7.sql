@@ -0,0 +1,29 @@
+-- Precomputed medical history per pet, appended to whenever visits are made
+CREATE TABLE pet_histories
+(
+    pet_id      INTEGER PRIMARY KEY,
+    visit_count INTEGER NOT NULL,
+    last_visit  TIMESTAMP,
+    visits      JSONB   NOT NULL
+);
+
+-- A visit as recorded in the history, with the vet as it was at the time of the visit
+CREATE VIEW visit_history_entries AS
+SELECT v.id,
+       v.pet_id,
+       v.date,
+       jsonb_build_object(
+           'id', v.id,
+           'date', to_char(v.date, 'YYYY-MM-DD"T"HH24:MI:SS.US"Z"'),
+           'treatment', v.treatment,
+           'vetId', v.vet_id,
+           'vetName', vt.name,
+           'specialties', coalesce(
+               (SELECT jsonb_agg(s.name ORDER BY s.name)
+                FROM vet_specialties vs
+                         JOIN specialties s ON s.id = vs.specialty_id
+                WHERE vs.vet_id = v.vet_id),
+               '[]'::jsonb)
+       ) AS entry
+FROM visits v
+         LEFT JOIN vets vt ON vt.id = v.vet_id;
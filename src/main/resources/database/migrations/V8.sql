@@ -0,0 +1,2 @@
+-- Look up the visits of a pet without scanning all visits
+CREATE INDEX IF NOT EXISTS visits_pet_id_idx ON visits (pet_id);
@@ -0,0 +1,49 @@
+-- Directory of clinics and clinic scoped cache invalidation
+DO
+$$
+BEGIN
+    -- clinic schemas are migrated with the same scripts, only the main schema holds the directory
+    IF current_schema() = 'public' THEN
+        CREATE TABLE IF NOT EXISTS tenants
+        (
+            id         TEXT PRIMARY KEY,
+            shard      TEXT        NOT NULL,
+            moving     BOOLEAN     NOT NULL DEFAULT false,
+            created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+        );
+    END IF;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION notify_cache_invalidation() RETURNS trigger AS
+$$
+DECLARE
+    changed JSONB;
+    scope   TEXT;
+BEGIN
+    -- bulk loads switch this off and send a single flush instead
+    IF current_setting('petclinic.skip_cache_invalidation', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+
+    -- caches of a clinic are named after its schema
+    scope := CASE WHEN TG_TABLE_SCHEMA = 'public' THEN '' ELSE TG_TABLE_SCHEMA || '/' END;
+
+    IF TG_LEVEL = 'STATEMENT' THEN
+        PERFORM pg_notify('cache_invalidation', scope || '*');
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP = 'DELETE' THEN
+        changed := to_jsonb(OLD);
+    ELSE
+        changed := to_jsonb(NEW);
+    END IF;
+    PERFORM pg_notify('cache_invalidation', scope || TG_ARGV[0] || ':' || (changed ->> TG_ARGV[1]));
+
+    IF TG_OP = 'UPDATE' AND (to_jsonb(OLD) ->> TG_ARGV[1]) <> (changed ->> TG_ARGV[1]) THEN
+        PERFORM pg_notify('cache_invalidation', scope || TG_ARGV[0] || ':' || (to_jsonb(OLD) ->> TG_ARGV[1]));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
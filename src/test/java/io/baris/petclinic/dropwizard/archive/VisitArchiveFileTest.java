@@ -0,0 +1,56 @@
+package io.baris.petclinic.dropwizard.archive;
+
+import io.baris.petclinic.dropwizard.visit.model.Visit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class VisitArchiveFileTest {
+
+    private static final Instant MONTH_START = Instant.parse("2020-03-01T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void getPetVisits_ReadsRowsSpreadOverRowGroups() throws IOException {
+        // arrange
+        var visits = IntStream.range(0, 1_000)
+            .mapToObj(i -> new Visit(
+                i + 1, i % 37, i % 5, MONTH_START.plus(i * 7_919L, ChronoUnit.SECONDS), "treatment " + i % 11
+            ))
+            .toList();
+        var path = directory.resolve("2020-03.visits");
+        VisitArchiveFile.write(path, visits, 16);
+
+        // act
+        var file = VisitArchiveFile.open(path);
+
+        // assert
+        assertThat(file.getRowCount()).isEqualTo(1_000);
+        assertThat(file.getAllVisits()).containsExactlyInAnyOrderElementsOf(visits);
+        assertThat(file.getPetVisits(7)).containsExactlyInAnyOrderElementsOf(
+            visits.stream().filter(visit -> visit.getPetId() == 7).toList()
+        );
+        assertThat(file.getPetVisits(99)).isEmpty();
+    }
+
+    @Test
+    public void open_RejectsOtherFiles() throws IOException {
+        // arrange
+        var path = directory.resolve("2020-04.visits");
+        Files.writeString(path, "not an archive at all");
+
+        // act, assert
+        assertThatThrownBy(() -> VisitArchiveFile.open(path)).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,234 @@
+package io.baris.petclinic.dropwizard.archive;
+
+import com.codahale.metrics.MetricRegistry;
+import io.baris.petclinic.dropwizard.audit.AuditLog;
+import io.baris.petclinic.dropwizard.pet.PetHistoryDao;
+import io.baris.petclinic.dropwizard.pet.model.PetHistory;
+import io.baris.petclinic.dropwizard.pet.model.Species;
+import io.baris.petclinic.dropwizard.report.ReportManager;
+import io.baris.petclinic.dropwizard.system.ConcurrencyLimiter;
+import io.baris.petclinic.dropwizard.system.ReportConfig;
+import io.baris.petclinic.dropwizard.system.SchemaMigrator;
+import io.baris.petclinic.dropwizard.system.SingleFlight;
+import io.baris.petclinic.dropwizard.testing.DbResetExtension;
+import io.baris.petclinic.dropwizard.testing.PostgreExtension;
+import io.baris.petclinic.dropwizard.testing.TestUtils;
+import io.baris.petclinic.dropwizard.tracing.Tracer;
+import io.baris.petclinic.dropwizard.visit.VisitBatcher;
+import io.baris.petclinic.dropwizard.visit.VisitManager;
+import io.baris.petclinic.dropwizard.visit.model.Visit;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.ClientErrorException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static javax.ws.rs.core.Response.Status.CONFLICT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+public class VisitArchiverIntegrationTest {
+
+    private static final Instant NOW = Instant.parse("2024-06-15T12:00:00Z");
+
+    @RegisterExtension
+    @Order(0)
+    public final static PostgreExtension postgre = new PostgreExtension(TestUtils.TEST_CONFIG);
+
+    @RegisterExtension
+    public DbResetExtension dbReset = new DbResetExtension(postgre.getJdbi());
+
+    @TempDir
+    Path directory;
+
+    private VisitArchive archive;
+    private VisitArchiver archiver;
+    private VisitManager visitManager;
+
+    @BeforeAll
+    public static void migrateSchema() {
+        SchemaMigrator.migrate(postgre.getJdbi(), "classpath:database/migrations");
+    }
+
+    @BeforeEach
+    public void createArchive() {
+        archive = new VisitArchive(directory, 4);
+        archiver = new VisitArchiver(
+            postgre.getJdbi(), archive, Duration.ofDays(730), Duration.ZERO, Clock.fixed(NOW, ZoneOffset.UTC)
+        );
+        visitManager = new VisitManager(
+            postgre.getJdbi(),
+            ConcurrencyLimiter.unlimited(),
+            VisitBatcher.disabled(),
+            archive,
+            new SingleFlight<>("pet-visits", new MetricRegistry()),
+            AuditLog.disabled(),
+            Tracer.noop()
+        );
+    }
+
+    @Test
+    public void archiveColdVisits_MovesColdMonthsToArchive() throws Exception {
+        // arrange
+        postgre.addPet("Sofi", 3, Species.CAT);
+        postgre.addVet("Alice", "surgery");
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        var alice = postgre.getVet("Alice").orElseThrow();
+        postgre.addPetVisit(sofi, alice, Instant.parse("2021-02-03T10:00:00Z"), "vaccination");
+        postgre.addPetVisit(sofi, alice, Instant.parse("2021-02-20T10:00:00Z"), "checkup");
+        postgre.addPetVisit(sofi, alice, Instant.parse("2022-08-10T10:00:00Z"), "surgery");
+        postgre.addPetVisit(sofi, alice, Instant.parse("2024-01-10T10:00:00Z"), "dental");
+
+        // act
+        var archived = archiver.archiveColdVisits();
+
+        // assert
+        assertThat(archived).isEqualTo(2);
+        assertThat(postgre.getPetVisits(sofi.getId()))
+            .extracting(Visit::getTreatment)
+            .containsExactlyInAnyOrder("surgery", "dental");
+        assertThat(directory.resolve("2021-02.visits")).exists();
+        assertThat(visitManager.getPetVisits(sofi.getId()))
+            .extracting(Visit::getTreatment)
+            .containsExactlyInAnyOrder("vaccination", "checkup", "surgery", "dental");
+    }
+
+    @Test
+    public void archiveColdVisits_AddsLateRowsToArchivedMonth() throws Exception {
+        // arrange
+        postgre.addPet("Lucky", 5, Species.DOG);
+        postgre.addVet("Bob", "dentistry");
+        var lucky = postgre.getPet("Lucky").orElseThrow();
+        var bob = postgre.getVet("Bob").orElseThrow();
+        postgre.addPetVisit(lucky, bob, Instant.parse("2020-07-01T10:00:00Z"), "vaccination");
+        archiver.archiveColdVisits();
+        postgre.addPetVisit(lucky, bob, Instant.parse("2020-07-30T10:00:00Z"), "checkup");
+
+        // act
+        var archived = archiver.archiveColdVisits();
+
+        // assert
+        assertThat(archived).isEqualTo(1);
+        assertThat(postgre.getPetVisits(lucky.getId())).isEmpty();
+        assertThat(archive.getPetVisits(lucky.getId()))
+            .extracting(Visit::getTreatment)
+            .containsExactlyInAnyOrder("vaccination", "checkup");
+    }
+
+    @Test
+    public void archiveColdVisits_KeepsArchivedVisitsInPetHistory() throws Exception {
+        // arrange
+        postgre.addPet("Sofi", 3, Species.CAT);
+        postgre.addVet("Alice", "surgery");
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        var alice = postgre.getVet("Alice").orElseThrow();
+        postgre.addPetVisit(sofi, alice, Instant.parse("2021-02-03T10:00:00Z"), "vaccination");
+        postgre.addPetVisit(sofi, alice, Instant.parse("2024-01-10T10:00:00Z"), "dental");
+
+        // act
+        archiver.archiveColdVisits();
+
+        // assert
+        var history = postgre.getJdbi().withExtension(PetHistoryDao.class, dao -> dao.getHistory(sofi.getId()));
+        assertThat(history).get()
+            .extracting(PetHistory::getVisitCount)
+            .isEqualTo(2);
+    }
+
+    @Test
+    public void archiveColdVisits_TakesVisitDeletedMeanwhileOutOfArchive() throws Exception {
+        // arrange
+        postgre.addPet("Sofi", 3, Species.CAT);
+        postgre.addVet("Alice", "surgery");
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        var alice = postgre.getVet("Alice").orElseThrow();
+        postgre.addPetVisit(sofi, alice, Instant.parse("2021-02-03T10:00:00Z"), "vaccination");
+        postgre.addPetVisit(sofi, alice, Instant.parse("2021-02-20T10:00:00Z"), "checkup");
+        var vaccination = postgre.getPetVisits(sofi.getId()).stream()
+            .filter(visit -> visit.getTreatment().equals("vaccination"))
+            .findFirst()
+            .orElseThrow();
+        var slowArchiver = new VisitArchiver(
+            postgre.getJdbi(), archive, Duration.ofDays(730), Duration.ofSeconds(2), Clock.fixed(NOW, ZoneOffset.UTC)
+        );
+        var archiving = CompletableFuture.supplyAsync(() -> {
+            try {
+                return slowArchiver.archiveColdVisits();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (!archive.isArchived(vaccination.getId())) {
+            Thread.sleep(10);
+        }
+
+        // act
+        var deleted = visitManager.deleteVisit(vaccination.getId());
+        var archived = archiving.get(30, TimeUnit.SECONDS);
+
+        // assert
+        assertThat(deleted).isPresent();
+        assertThat(archived).isEqualTo(1);
+        assertThat(archive.isArchived(vaccination.getId())).isFalse();
+        assertThat(visitManager.getPetVisits(sofi.getId()))
+            .extracting(Visit::getTreatment)
+            .containsExactly("checkup");
+        assertThat(visitManager.restoreVisit(vaccination.getId())).isPresent();
+    }
+
+    @Test
+    public void deleteVisit_FailWhenVisitIsArchived() throws Exception {
+        // arrange
+        postgre.addPet("Sofi", 3, Species.CAT);
+        postgre.addVet("Alice", "surgery");
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        var alice = postgre.getVet("Alice").orElseThrow();
+        postgre.addPetVisit(sofi, alice, Instant.parse("2021-02-03T10:00:00Z"), "vaccination");
+        var visitId = postgre.getPetVisits(sofi.getId()).get(0).getId();
+        archiver.archiveColdVisits();
+
+        // act
+        var thrown = catchThrowableOfType(() -> visitManager.deleteVisit(visitId), ClientErrorException.class);
+
+        // assert
+        assertThat(thrown.getResponse().getStatusInfo()).isEqualTo(CONFLICT);
+        assertThat(visitManager.deleteVisit(visitId + 1)).isEmpty();
+    }
+
+    @Test
+    public void getVetWorkload_FailWhenPeriodReachesArchivedMonths() throws Exception {
+        // arrange
+        postgre.addPet("Sofi", 3, Species.CAT);
+        postgre.addVet("Alice", "surgery");
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        var alice = postgre.getVet("Alice").orElseThrow();
+        postgre.addPetVisit(sofi, alice, Instant.parse("2021-02-03T10:00:00Z"), "vaccination");
+        archiver.archiveColdVisits();
+        var reportManager = new ReportManager(
+            postgre.getJdbi(), archive, ConcurrencyLimiter.unlimited(), new ReportConfig(), Clock.fixed(NOW, ZoneOffset.UTC)
+        );
+
+        // act
+        var thrown = catchThrowableOfType(
+            () -> reportManager.getVetWorkload(LocalDate.parse("2021-02-01"), LocalDate.parse("2021-03-31"), 3),
+            BadRequestException.class
+        );
+
+        // assert
+        assertThat(thrown).hasMessageContaining("2021-02").hasMessageContaining("2021-03-01");
+        assertThat(reportManager.getVetWorkload(LocalDate.parse("2021-03-01"), LocalDate.parse("2021-03-31"), 3)
+            .getVisitsPerVetPerWeek()).isEmpty();
+    }
+}
@@ -0,0 +1,113 @@
+package io.baris.petclinic.dropwizard.audit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.baris.petclinic.dropwizard.pet.model.CreatePetRequest;
+import io.baris.petclinic.dropwizard.pet.model.Pet;
+import io.baris.petclinic.dropwizard.pet.model.Species;
+import io.baris.petclinic.dropwizard.pet.model.UpdatePetRequest;
+import io.baris.petclinic.dropwizard.testing.AppBootstrapExtension;
+import io.baris.petclinic.dropwizard.testing.DbResetExtension;
+import io.baris.petclinic.dropwizard.testing.PostgreExtension;
+import io.dropwizard.testing.ConfigOverride;
+import org.jdbi.v3.core.statement.UnableToExecuteStatementException;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+
+import static io.baris.petclinic.dropwizard.testing.TestUtils.TEST_CONFIG;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AuditIntegrationTest {
+
+    @RegisterExtension
+    @Order(0)
+    public final static PostgreExtension postgre = new PostgreExtension(TEST_CONFIG);
+
+    @RegisterExtension
+    @Order(1)
+    public final static AppBootstrapExtension app = new AppBootstrapExtension(
+        TEST_CONFIG,
+        postgre.getDatabaseUrl(),
+        ConfigOverride.config("audit.enabled", "true")
+    );
+
+    @RegisterExtension
+    public DbResetExtension dbReset = new DbResetExtension(postgre.getJdbi());
+
+    @Test
+    public void getEntries_RecordsChangesWithSnapshots() {
+        // arrange
+        var createPetRequest = CreatePetRequest.builder()
+            .name("Sofi")
+            .age(2)
+            .species(Species.CAT)
+            .build();
+        var sofi = target().path("pets").request()
+            .header(AuditFilter.HEADER, "alice")
+            .put(Entity.json(createPetRequest), Pet.class);
+        var updatePetRequest = UpdatePetRequest.builder()
+            .name("Sofia")
+            .age(3)
+            .species(Species.CAT)
+            .build();
+        target().path("pets").path(String.valueOf(sofi.getId())).request()
+            .header(AuditFilter.HEADER, "bob")
+            .post(Entity.json(updatePetRequest), Pet.class);
+
+        // act
+        var entries = target().path("audit")
+            .queryParam("entity", "pet")
+            .queryParam("entityId", sofi.getId())
+            .request()
+            .get(JsonNode[].class);
+
+        // assert
+        assertThat(entries).hasSize(2);
+        var update = entries[0];
+        assertThat(update.get("action").asText()).isEqualTo("update");
+        assertThat(update.get("actor").asText()).isEqualTo("bob");
+        assertThat(update.get("before").get("name").asText()).isEqualTo("Sofi");
+        assertThat(update.get("after").get("name").asText()).isEqualTo("Sofia");
+        assertThat(update.get("after").get("age").asInt()).isEqualTo(3);
+
+        var create = entries[1];
+        assertThat(create.get("action").asText()).isEqualTo("create");
+        assertThat(create.get("actor").asText()).isEqualTo("alice");
+        assertThat(create.get("before").isNull()).isTrue();
+        assertThat(create.get("after").get("name").asText()).isEqualTo("Sofi");
+
+        var older = target().path("audit")
+            .queryParam("entity", "pet")
+            .queryParam("entityId", sofi.getId())
+            .queryParam("before", update.get("id").asLong())
+            .request()
+            .get(JsonNode[].class);
+        assertThat(older).extracting(entry -> entry.get("action").asText()).containsExactly("create");
+    }
+
+    @Test
+    public void getEntries_UnknownEntity() {
+        // act
+        var response = target().path("audit").queryParam("entity", "owner").request().get();
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(BAD_REQUEST);
+    }
+
+    @Test
+    public void auditLog_IsAppendOnly() {
+        // act & assert
+        assertThatThrownBy(() -> postgre.getJdbi().useHandle(handle -> handle.execute("DELETE FROM audit_log")))
+            .isInstanceOf(UnableToExecuteStatementException.class)
+            .hasMessageContaining("append-only");
+    }
+
+    private WebTarget target() {
+        return app.client().target("http://localhost:%d".formatted(app.getLocalPort()));
+    }
+}
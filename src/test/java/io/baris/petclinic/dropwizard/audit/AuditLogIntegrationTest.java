@@ -0,0 +1,151 @@
+package io.baris.petclinic.dropwizard.audit;
+
+import com.codahale.metrics.MetricRegistry;
+import io.baris.petclinic.dropwizard.pet.PetDao;
+import io.baris.petclinic.dropwizard.pet.model.CreatePet;
+import io.baris.petclinic.dropwizard.pet.model.Species;
+import io.baris.petclinic.dropwizard.system.AuditConfig;
+import io.baris.petclinic.dropwizard.system.SchemaMigrator;
+import io.baris.petclinic.dropwizard.testing.DbResetExtension;
+import io.baris.petclinic.dropwizard.testing.PostgreExtension;
+import io.baris.petclinic.dropwizard.testing.TestUtils;
+import io.dropwizard.jackson.Jackson;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AuditLogIntegrationTest {
+
+    @RegisterExtension
+    @Order(0)
+    public final static PostgreExtension postgre = new PostgreExtension(TestUtils.TEST_CONFIG);
+
+    @RegisterExtension
+    public DbResetExtension dbReset = new DbResetExtension(postgre.getJdbi());
+
+    private final MetricRegistry metrics = new MetricRegistry();
+
+    @BeforeAll
+    public static void migrateSchema() {
+        SchemaMigrator.migrate(postgre.getJdbi(), "classpath:database/migrations");
+    }
+
+    private AuditLog auditLog(
+        final AuditConfig.Durability durability,
+        final long maxWaitMillis
+    ) {
+        var config = new AuditConfig();
+        config.setEnabled(true);
+        config.setDurability(durability);
+        config.setMaxWaitMillis(maxWaitMillis);
+        return new AuditLog(postgre.getJdbi(), config, Jackson.newObjectMapper(), Clock.systemUTC(), metrics);
+    }
+
+    @Test
+    public void record_SyncEntryRollsBackWithItsChange() {
+        // arrange
+        var auditLog = auditLog(AuditConfig.Durability.SYNC, 5_000);
+        var petId = new AtomicInteger();
+
+        // act
+        assertThatThrownBy(() -> postgre.getJdbi().useTransaction(handle -> {
+            var pet = handle.attach(PetDao.class).createPet(createPet("Sofi")).orElseThrow();
+            petId.set(pet.getId());
+            auditLog.record(handle, AuditLog.PET, pet.getId(), AuditLog.CREATE, null, pet);
+            throw new IllegalStateException("change failed");
+        })).hasMessage("change failed");
+
+        // assert
+        assertThat(postgre.getPet("Sofi")).isEmpty();
+        assertThat(countEntries(petId.get())).isZero();
+    }
+
+    @Test
+    public void record_SyncEntryCommitsWithItsChange() {
+        // arrange
+        var auditLog = auditLog(AuditConfig.Durability.SYNC, 5_000);
+
+        // act
+        var pet = postgre.getJdbi().inTransaction(handle -> {
+            var created = handle.attach(PetDao.class).createPet(createPet("Sofi")).orElseThrow();
+            auditLog.record(handle, AuditLog.PET, created.getId(), AuditLog.CREATE, null, created);
+            return created;
+        });
+
+        // assert
+        assertThat(countEntries(pet.getId())).isEqualTo(1);
+    }
+
+    @Test
+    public void record_GroupCommitAcknowledgesLateEntryAndWritesItLater() throws Exception {
+        // arrange
+        var auditLog = auditLog(AuditConfig.Durability.GROUP_COMMIT, 100);
+        auditLog.start();
+        var pet = postgre.getJdbi().withExtension(PetDao.class, dao -> dao.createPet(createPet("Sofi")))
+            .orElseThrow();
+
+        try (var blocker = postgre.getJdbi().open()) {
+            // the writer cannot insert while the table is locked
+            blocker.begin();
+            blocker.execute("LOCK TABLE audit_log IN EXCLUSIVE MODE");
+
+            // act
+            var entry = postgre.getJdbi().inTransaction(handle ->
+                auditLog.record(handle, AuditLog.PET, pet.getId(), AuditLog.UPDATE, pet, pet)
+            );
+            auditLog.recordCommitted(entry);
+
+            // assert
+            assertThat(metrics.meter(name(AuditLog.class, "late-entries")).getCount()).isEqualTo(1);
+            blocker.rollback();
+        }
+        auditLog.stop();
+
+        // verify DB changes
+        assertThat(countEntries(pet.getId())).isEqualTo(1);
+    }
+
+    @Test
+    public void recordCommitted_CountsEntryThatCannotBeWrittenWithoutFailing() {
+        // arrange
+        var config = new AuditConfig();
+        config.setEnabled(true);
+        config.setDurability(AuditConfig.Durability.GROUP_COMMIT);
+        // nothing listens there, the writer is not started so the entry is written by its caller
+        var unreachable = Jdbi.create("jdbc:postgresql://localhost:1/audit");
+        var auditLog = new AuditLog(unreachable, config, Jackson.newObjectMapper(), Clock.systemUTC(), metrics);
+        var entry = postgre.getJdbi().inTransaction(handle -> {
+            var pet = handle.attach(PetDao.class).createPet(createPet("Sofi")).orElseThrow();
+            return auditLog.record(handle, AuditLog.PET, pet.getId(), AuditLog.CREATE, null, pet);
+        });
+
+        // act
+        auditLog.recordCommitted(entry);
+
+        // assert
+        assertThat(metrics.meter(name(AuditLog.class, "failed-entries")).getCount()).isEqualTo(1);
+        assertThat(postgre.getPet("Sofi")).isPresent();
+    }
+
+    private static CreatePet createPet(final String name) {
+        return CreatePet.builder().name(name).age(2).species(Species.CAT).build();
+    }
+
+    private static int countEntries(final int petId) {
+        return postgre.getJdbi().withHandle(handle -> handle
+            .createQuery("SELECT count(*) FROM audit_log WHERE entity = 'pet' AND entity_id = ?")
+            .bind(0, petId)
+            .mapTo(Integer.class)
+            .one()
+        );
+    }
+}
@@ -0,0 +1,218 @@
+package io.baris.petclinic.dropwizard.benchmark;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.baris.petclinic.dropwizard.pet.PetMapper;
+import io.baris.petclinic.dropwizard.pet.PetRowMapper;
+import io.baris.petclinic.dropwizard.pet.model.CreatePet;
+import io.baris.petclinic.dropwizard.pet.model.CreatePetRequest;
+import io.baris.petclinic.dropwizard.pet.model.Pet;
+import io.baris.petclinic.dropwizard.pet.model.Species;
+import io.baris.petclinic.dropwizard.visit.VisitRowMapper;
+import io.baris.petclinic.dropwizard.visit.model.Visit;
+import io.dropwizard.jackson.Jackson;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.mapper.reflect.BeanMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the reflective mapping of the request path (builders, bean mappers, bean serializers)
+ * with the hand-written one. Run with {@code -prof gc} to see the bytes allocated per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    private final CreatePetRequest createPetRequest = CreatePetRequest.builder()
+        .name("Sofi")
+        .age(2)
+        .species(Species.CAT)
+        .build();
+
+    private Handle handle;
+    private StatementContext context;
+
+    private CachedRowSet petRow;
+    private CachedRowSet visitRow;
+    private RowMapper<Pet> petBeanMapper;
+    private RowMapper<Visit> visitBeanMapper;
+    private final PetRowMapper petRowMapper = new PetRowMapper();
+    private final VisitRowMapper visitRowMapper = new VisitRowMapper();
+
+    private ObjectWriter beanWriter;
+    private ObjectWriter writer;
+
+    private Pet pet;
+    private Visit visit;
+
+    @Setup
+    public void setup() throws SQLException {
+        // a statement context is all the mappers need, no database connection is used
+        handle = Jdbi.create(MappingBenchmark::stubConnection).open();
+        context = handle.createQuery("SELECT 1").getContext();
+
+        petRow = petRow();
+        visitRow = visitRow();
+        petBeanMapper = BeanMapper.of(Pet.class).specialize(petRow, context);
+        visitBeanMapper = BeanMapper.of(Visit.class).specialize(visitRow, context);
+
+        var objectMapper = Jackson.newObjectMapper();
+        writer = objectMapper.writer();
+        beanWriter = objectMapper.copy().configure(MapperFeature.USE_ANNOTATIONS, false).writer();
+
+        pet = petRowMapper.map(petRow, context);
+        visit = visitRowMapper.map(visitRow, context);
+    }
+
+    @TearDown
+    public void tearDown() {
+        handle.close();
+    }
+
+    @Benchmark
+    public CreatePet mapRequestWithBuilder() {
+        return CreatePet.builder()
+            .name(createPetRequest.getName())
+            .age(createPetRequest.getAge())
+            .species(createPetRequest.getSpecies())
+            .build();
+    }
+
+    @Benchmark
+    public CreatePet mapRequestWithConstructor() {
+        return PetMapper.mapToCreatePet(createPetRequest);
+    }
+
+    @Benchmark
+    public Pet mapPetRowWithBeanMapper() throws SQLException {
+        return petBeanMapper.map(petRow, context);
+    }
+
+    @Benchmark
+    public Pet mapPetRowWithRowMapper() throws SQLException {
+        return petRowMapper.map(petRow, context);
+    }
+
+    @Benchmark
+    public Visit mapVisitRowWithBeanMapper() throws SQLException {
+        return visitBeanMapper.map(visitRow, context);
+    }
+
+    @Benchmark
+    public Visit mapVisitRowWithRowMapper() throws SQLException {
+        return visitRowMapper.map(visitRow, context);
+    }
+
+    @Benchmark
+    public void serializePetWithBeanSerializer() throws Exception {
+        beanWriter.writeValue(OutputStream.nullOutputStream(), pet);
+    }
+
+    @Benchmark
+    public void serializePetWithSerializer() throws Exception {
+        writer.writeValue(OutputStream.nullOutputStream(), pet);
+    }
+
+    @Benchmark
+    public void serializeVisitWithBeanSerializer() throws Exception {
+        beanWriter.writeValue(OutputStream.nullOutputStream(), visit);
+    }
+
+    @Benchmark
+    public void serializeVisitWithSerializer() throws Exception {
+        writer.writeValue(OutputStream.nullOutputStream(), visit);
+    }
+
+    private static CachedRowSet petRow() throws SQLException {
+        var metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(4);
+        column(metaData, 1, "id", Types.INTEGER);
+        column(metaData, 2, "name", Types.VARCHAR);
+        column(metaData, 3, "age", Types.INTEGER);
+        column(metaData, 4, "species", Types.VARCHAR);
+
+        var rowSet = RowSetProvider.newFactory().createCachedRowSet();
+        rowSet.setMetaData(metaData);
+        rowSet.moveToInsertRow();
+        rowSet.updateInt(1, 1);
+        rowSet.updateString(2, "Sofi");
+        rowSet.updateInt(3, 2);
+        rowSet.updateString(4, Species.CAT.name());
+        rowSet.insertRow();
+        rowSet.moveToCurrentRow();
+        rowSet.first();
+        return rowSet;
+    }
+
+    private static CachedRowSet visitRow() throws SQLException {
+        var metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(5);
+        column(metaData, 1, "id", Types.INTEGER);
+        column(metaData, 2, "pet_id", Types.INTEGER);
+        column(metaData, 3, "vet_id", Types.INTEGER);
+        column(metaData, 4, "date", Types.TIMESTAMP);
+        column(metaData, 5, "treatment", Types.VARCHAR);
+
+        var rowSet = RowSetProvider.newFactory().createCachedRowSet();
+        rowSet.setMetaData(metaData);
+        rowSet.moveToInsertRow();
+        rowSet.updateInt(1, 1);
+        rowSet.updateInt(2, 1);
+        rowSet.updateInt(3, 1);
+        rowSet.updateTimestamp(4, Timestamp.from(Instant.parse("2018-11-30T18:35:24.00Z")));
+        rowSet.updateString(5, "flu");
+        rowSet.insertRow();
+        rowSet.moveToCurrentRow();
+        rowSet.first();
+        return rowSet;
+    }
+
+    private static void column(
+        final RowSetMetaDataImpl metaData,
+        final int index,
+        final String name,
+        final int type
+    ) throws SQLException {
+        metaData.setColumnName(index, name);
+        metaData.setColumnLabel(index, name);
+        metaData.setColumnType(index, type);
+    }
+
+    private static Connection stubConnection() {
+        return (Connection) Proxy.newProxyInstance(
+            MappingBenchmark.class.getClassLoader(),
+            new Class<?>[]{Connection.class},
+            (proxy, method, args) -> method.getReturnType() == boolean.class ? false :
+                method.getReturnType() == int.class ? 0 : null
+        );
+    }
+}
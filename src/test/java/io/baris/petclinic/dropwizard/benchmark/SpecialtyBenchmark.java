@@ -0,0 +1,113 @@
+package io.baris.petclinic.dropwizard.benchmark;
+
+import io.baris.petclinic.dropwizard.vet.model.SpecialtySet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares specialties held as hash sets of strings read from text rows with dictionary encoded
+ * specialty sets. Run with {@code -prof gc}: the allocation of the build benchmarks is the memory
+ * a cached vet needs for its specialties.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpecialtyBenchmark {
+
+    private static final String[] NAMES = {
+        null, "anesthesia", "behavior", "cardiology", "dentistry", "dermatology", "emergency",
+        "internal medicine", "neurology", "nutrition", "oncology", "ophthalmology", "radiology", "surgery"
+    };
+
+    @Param({"1000", "10000"})
+    public int vets;
+
+    private List<Set<String>> hashSets;
+    private List<SpecialtySet> specialtySets;
+    private short[] vetSpecialtyIds;
+
+    @Setup
+    public void setup() {
+        var random = new Random(42);
+        hashSets = new ArrayList<>(vets);
+        specialtySets = new ArrayList<>(vets);
+        for (int i = 0; i < vets; i++) {
+            var ids = randomIds(random);
+            hashSets.add(toHashSet(ids));
+            specialtySets.add(new SpecialtySet(ids, NAMES));
+        }
+        vetSpecialtyIds = new short[]{4, 12, 13};
+    }
+
+    @Benchmark
+    public Set<String> buildHashSet() {
+        return toHashSet(vetSpecialtyIds);
+    }
+
+    @Benchmark
+    public SpecialtySet buildSpecialtySet() {
+        return new SpecialtySet(vetSpecialtyIds.clone(), NAMES);
+    }
+
+    @Benchmark
+    public int filterHashSets() {
+        int count = 0;
+        for (var specialties : hashSets) {
+            if (specialties.contains("surgery")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int filterSpecialtySets() {
+        int count = 0;
+        for (var specialties : specialtySets) {
+            if (specialties.containsId((short) 13)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static short[] randomIds(final Random random) {
+        var ids = random.ints(1 + random.nextInt(3), 1, NAMES.length)
+            .distinct()
+            .sorted()
+            .toArray();
+        var result = new short[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = (short) ids[i];
+        }
+        return result;
+    }
+
+    private static Set<String> toHashSet(final short[] ids) {
+        // every row read as text yields a fresh string
+        var set = new HashSet<String>();
+        for (var id : ids) {
+            set.add(new String(NAMES[id]));
+        }
+        return set;
+    }
+}
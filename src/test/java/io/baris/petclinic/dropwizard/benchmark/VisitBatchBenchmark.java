@@ -0,0 +1,101 @@
+package io.baris.petclinic.dropwizard.benchmark;
+
+import com.codahale.metrics.MetricRegistry;
+import io.baris.petclinic.dropwizard.system.SchemaMigrator;
+import io.baris.petclinic.dropwizard.system.VisitBatchConfig;
+import io.baris.petclinic.dropwizard.visit.VisitBatcher;
+import io.baris.petclinic.dropwizard.visit.VisitDao;
+import io.baris.petclinic.dropwizard.visit.model.MakeVisit;
+import io.baris.petclinic.dropwizard.visit.model.Visit;
+import io.dropwizard.db.DataSourceFactory;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares making visits one transaction each with the group commit of {@link VisitBatcher}
+ * under concurrent check-ins. Needs a running database, {@code BENCHMARK_DB_URL} defaults to the
+ * one of docker-compose. Add {@code -bm sample} to see the latency the batching delay adds.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VisitBatchBenchmark {
+
+    private static final Instant DATE = Instant.parse("2018-11-30T18:35:24.00Z");
+
+    @Param({"1", "5"})
+    public long maxDelayMillis;
+
+    @Param({"100"})
+    public int maxBatchSize;
+
+    private Jdbi jdbi;
+    private VisitBatcher batcher;
+
+    @Setup
+    public void setup() {
+        var url = Optional.ofNullable(System.getenv("BENCHMARK_DB_URL")).orElse("jdbc:postgresql://localhost:5432/mydb");
+        var database = new DataSourceFactory();
+        database.setDriverClass("org.postgresql.Driver");
+        database.setUrl(url);
+        database.setUser("postgres");
+        database.setPassword("sa");
+        // pooled like the application, so that the per-row path does not pay for connecting
+        jdbi = Jdbi.create(database.build(new MetricRegistry(), "benchmark"));
+        jdbi.installPlugin(new SqlObjectPlugin());
+        SchemaMigrator.migrate(jdbi, "classpath:database/migrations");
+
+        var config = new VisitBatchConfig();
+        config.setEnabled(true);
+        config.setMaxDelayMillis(maxDelayMillis);
+        config.setMaxBatchSize(maxBatchSize);
+        batcher = new VisitBatcher(jdbi, config, new MetricRegistry());
+        batcher.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        batcher.stop();
+        jdbi.useHandle(handle -> handle.execute("TRUNCATE TABLE visits, pet_histories"));
+    }
+
+    @Benchmark
+    public Optional<Visit> perRow() {
+        return jdbi.withExtension(VisitDao.class, dao -> dao.createVisit(makeVisit()));
+    }
+
+    @Benchmark
+    public Visit batched() {
+        return batcher.makeVisit(makeVisit());
+    }
+
+    private static MakeVisit makeVisit() {
+        return MakeVisit.builder()
+            .petId(1)
+            .vetId(1)
+            .date(DATE)
+            .treatment("check-in")
+            .build();
+    }
+}
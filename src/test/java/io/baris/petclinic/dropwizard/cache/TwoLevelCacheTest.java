@@ -0,0 +1,118 @@
+package io.baris.petclinic.dropwizard.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import io.baris.petclinic.dropwizard.pet.model.Pet;
+import io.baris.petclinic.dropwizard.pet.model.Species;
+import io.baris.petclinic.dropwizard.system.CacheConfig;
+import io.dropwizard.jackson.Jackson;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TwoLevelCacheTest {
+
+    private final SharedCache shared = new InMemorySharedCache(100);
+    private final Pet sofi = new Pet(1, "Sofi", 2, Species.CAT);
+
+    @Test
+    public void loadsOnceAndServesFromNearTier() {
+        // arrange
+        var cache = cache();
+        var loads = new AtomicInteger();
+
+        // act
+        cache.get(1, () -> load(loads, sofi));
+        var pet = cache.get(1, () -> load(loads, sofi));
+
+        // assert
+        assertThat(pet).contains(sofi);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void otherNodeServesFromSharedTier() {
+        // arrange
+        var node = cache();
+        var otherNode = cache();
+        var loads = new AtomicInteger();
+        node.get(1, () -> load(loads, sofi));
+
+        // act
+        var pet = otherNode.get(1, () -> load(loads, sofi));
+
+        // assert
+        assertThat(pet).contains(sofi);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void evictReloadsOnBothNodes() {
+        // arrange
+        var node = cache();
+        var otherNode = cache();
+        var loads = new AtomicInteger();
+        node.get(1, () -> load(loads, sofi));
+        otherNode.get(1, () -> load(loads, sofi));
+        var olderSofi = new Pet(1, "Sofi", 3, Species.CAT);
+
+        // act
+        node.evict(1);
+        otherNode.evict(1);
+        var pet = otherNode.get(1, () -> load(loads, olderSofi));
+
+        // assert
+        assertThat(pet).contains(olderSofi);
+        assertThat(node.get(1, () -> load(loads, olderSofi))).contains(olderSofi);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    public void absentIsNotCached() {
+        // arrange
+        var cache = cache();
+        cache.get(1, Optional::empty);
+
+        // act
+        var pet = cache.get(1, () -> Optional.of(sofi));
+
+        // assert
+        assertThat(pet).contains(sofi);
+    }
+
+    @Test
+    public void valueLoadedAcrossEvictIsNotCached() {
+        // arrange
+        var node = cache();
+        var otherNode = cache();
+        var loads = new AtomicInteger();
+        var olderSofi = new Pet(1, "Sofi", 3, Species.CAT);
+
+        // act
+        var pet = node.get(1, () -> {
+            // the pet is updated while its previous state is being loaded
+            var loaded = load(loads, sofi);
+            node.evict(1);
+            return loaded;
+        });
+
+        // assert
+        assertThat(pet).contains(sofi);
+        assertThat(node.get(1, () -> load(loads, olderSofi))).contains(olderSofi);
+        assertThat(otherNode.get(1, () -> load(loads, olderSofi))).contains(olderSofi);
+        assertThat(loads).hasValue(2);
+    }
+
+    private TwoLevelCache<Pet> cache() {
+        return new TwoLevelCache<>(
+            "pet", Pet.class, new CacheConfig(), shared, Jackson.newObjectMapper(), new MetricRegistry()
+        );
+    }
+
+    private static Optional<Pet> load(final AtomicInteger loads, final Pet pet) {
+        loads.incrementAndGet();
+        return Optional.of(pet);
+    }
+}
@@ -0,0 +1,121 @@
+package io.baris.petclinic.dropwizard.graphql;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.baris.petclinic.dropwizard.graphql.model.GraphQlRequest;
+import io.baris.petclinic.dropwizard.pet.model.Species;
+import io.baris.petclinic.dropwizard.testing.AppBootstrapExtension;
+import io.baris.petclinic.dropwizard.testing.DbResetExtension;
+import io.baris.petclinic.dropwizard.testing.PostgreExtension;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.time.Instant;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static io.baris.petclinic.dropwizard.testing.TestUtils.TEST_CONFIG;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GraphQlIntegrationTest {
+
+    @RegisterExtension
+    @Order(0)
+    public final static PostgreExtension postgre = new PostgreExtension(TEST_CONFIG);
+
+    @RegisterExtension
+    @Order(1)
+    public final static AppBootstrapExtension app = new AppBootstrapExtension(TEST_CONFIG, postgre.getDatabaseUrl());
+
+    @RegisterExtension
+    public DbResetExtension dbReset = new DbResetExtension(postgre.getJdbi());
+
+    @Test
+    public void query_LoadsPetsVisitsAndVetsInBatches() {
+        // arrange
+        postgre.addVet("Magnus", "radiology");
+        postgre.addVet("Erica", "surgery", "dentistry");
+        var magnus = postgre.getVet("Magnus").orElseThrow();
+        var erica = postgre.getVet("Erica").orElseThrow();
+        IntStream.range(0, 20).forEach(i -> {
+            postgre.addPet("Pet " + i, 1 + i % 10, Species.CAT);
+            var pet = postgre.getPet("Pet " + i).orElseThrow();
+            postgre.addPetVisit(pet, magnus, Instant.parse("2024-01-10T10:00:00Z"), "checkup");
+            postgre.addPetVisit(pet, erica, Instant.parse("2024-02-10T10:00:00Z"), "surgery");
+        });
+        var statements = app.getEnvironment().metrics().meter("database.statements");
+        var statementsBefore = statements.getCount();
+
+        // act
+        var response = query("""
+            { pets(first: 50) { name visits { date treatment vet { name specialties } } } }""", null);
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(Response.Status.OK);
+        var pets = response.readEntity(JsonNode.class).get("data").get("pets");
+        assertThat(pets).hasSize(20);
+        var first = pets.get(0);
+        assertThat(first.get("name").asText()).isEqualTo("Pet 0");
+        assertThat(first.get("visits")).hasSize(2);
+        var visit = first.get("visits").get(1);
+        assertThat(visit.get("date").asText()).isEqualTo("2024-02-10T10:00:00Z");
+        assertThat(visit.get("treatment").asText()).isEqualTo("surgery");
+        assertThat(visit.get("vet").get("name").asText()).isEqualTo("Erica");
+        assertThat(visit.get("vet").get("specialties")).extracting(JsonNode::asText)
+            .containsExactly("dentistry", "surgery");
+
+        // one batch per level instead of one statement per pet, visit and vet
+        assertThat(statements.getCount() - statementsBefore).isBetween(1L, 6L);
+    }
+
+    @Test
+    public void query_ResolvesVariablesAndAliases() {
+        // arrange
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+
+        // act
+        var response = query("""
+            query Pet($id: Int!) { sofi: pet(id: $id) { id name species } missing: pet(id: 0) { id } }""",
+            Map.of("id", sofi.getId())
+        );
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(Response.Status.OK);
+        var data = response.readEntity(JsonNode.class).get("data");
+        assertThat(data.get("sofi").get("id").asInt()).isEqualTo(sofi.getId());
+        assertThat(data.get("sofi").get("name").asText()).isEqualTo("Sofi");
+        assertThat(data.get("sofi").get("species").asText()).isEqualTo("CAT");
+        assertThat(data.get("missing").isNull()).isTrue();
+    }
+
+    @Test
+    public void query_FailWhenTooComplex() {
+        // act
+        var response = query("""
+            { pets(first: 100) { visits { pet { visits { vet { name } } } } } }""", null);
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(Response.Status.BAD_REQUEST);
+        var errors = response.readEntity(JsonNode.class).get("errors");
+        assertThat(errors.get(0).get("message").asText())
+            .isEqualTo("Query complexity 22101 is above the limit of 10000");
+    }
+
+    private Response query(
+        final String query,
+        final Map<String, Object> variables
+    ) {
+        var request = GraphQlRequest.builder()
+            .query(query)
+            .variables(variables)
+            .build();
+        return app.client()
+            .target("http://localhost:%d".formatted(app.getLocalPort()))
+            .path("graphql")
+            .request()
+            .post(Entity.json(request));
+    }
+}
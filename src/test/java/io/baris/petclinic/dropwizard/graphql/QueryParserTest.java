@@ -0,0 +1,69 @@
+package io.baris.petclinic.dropwizard.graphql;
+
+import io.baris.petclinic.dropwizard.system.GraphQlConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class QueryParserTest {
+
+    @Test
+    public void parse_ResolvesAliasesArgumentsAndVariables() {
+        // act
+        var selections = QueryParser.parse("""
+            query Vets($specialties: [String!], $first: Int = 5) {
+              # vets with their specialties
+              radiologists: vets(specialties: $specialties, match: ANY, first: $first) { id, name }
+              pet(id: 7) { name }
+            }""", null, Map.of("specialties", List.of("radiology")), 6);
+
+        // assert
+        assertThat(selections).hasSize(2);
+        var radiologists = selections.get(0);
+        assertThat(radiologists.alias()).isEqualTo("radiologists");
+        assertThat(radiologists.name()).isEqualTo("vets");
+        assertThat(radiologists.arguments()).containsExactly(
+            Map.entry("specialties", List.of("radiology")),
+            Map.entry("match", "ANY"),
+            Map.entry("first", 5)
+        );
+        assertThat(radiologists.selections()).extracting(QueryField::name).containsExactly("id", "name");
+        assertThat(selections.get(1).arguments()).containsExactly(Map.entry("id", 7));
+    }
+
+    @Test
+    public void parse_FailWhenTooDeepOrUnsupported() {
+        assertThatThrownBy(() -> QueryParser.parse("{ a { b { c { d } } } }", null, null, 3))
+            .isInstanceOf(GraphQlException.class)
+            .hasMessage("Query is deeper than 3 levels");
+        assertThatThrownBy(() -> QueryParser.parse("{ pets { ...petFields } }", null, null, 6))
+            .hasMessage("Fragments are not supported");
+        assertThatThrownBy(() -> QueryParser.parse("mutation { pets { id } }", null, null, 6))
+            .hasMessage("Only queries are supported");
+        assertThatThrownBy(() -> QueryParser.parse("{ pet(id: $id) { id } }", null, Map.of("id", 1), 6))
+            .hasMessage("Variable $id is not declared");
+    }
+
+    @Test
+    public void validate_CountsFieldsBelowListsPerExpectedElement() {
+        // arrange
+        var config = new GraphQlConfig();
+        var selections = QueryParser.parse(
+            "{ pets(first: 100) { name visits { date vet { name specialties } } } }", null, null, 6
+        );
+
+        // act
+        var complexity = GraphQlSchema.validate(selections, GraphQlSchema.QUERY, config);
+
+        // assert
+        // vet: 1 + 2, visits: 1 + 10 * (1 + 3), pets: 1 + 100 * (1 + 41)
+        assertThat(complexity).isEqualTo(4_201);
+        assertThatThrownBy(() -> GraphQlSchema.validate(
+            QueryParser.parse("{ pets { owner } }", null, null, 6), GraphQlSchema.QUERY, config
+        )).hasMessage("Field 'owner' does not exist on type Pet");
+    }
+}
@@ -0,0 +1,49 @@
+package io.baris.petclinic.dropwizard.health;
+
+import com.codahale.metrics.health.HealthCheck;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachedHealthCheckTest {
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    private final HealthCheck counting = new HealthCheck() {
+        @Override
+        protected Result check() {
+            return Result.healthy("run %d", runs.incrementAndGet());
+        }
+    };
+
+    @Test
+    public void check_ReusesResultWithinTtl() {
+        // arrange
+        var cached = new CachedHealthCheck(counting, Duration.ofMinutes(1));
+
+        // act
+        var first = cached.execute();
+        var second = cached.execute();
+
+        // assert
+        assertThat(runs).hasValue(1);
+        assertThat(second.getMessage()).isEqualTo(first.getMessage());
+    }
+
+    @Test
+    public void check_RunsAgainOnceExpired() {
+        // arrange
+        var cached = new CachedHealthCheck(counting, Duration.ZERO);
+
+        // act
+        cached.execute();
+        var second = cached.execute();
+
+        // assert
+        assertThat(runs).hasValue(2);
+        assertThat(second.getMessage()).isEqualTo("run 2");
+    }
+}
@@ -0,0 +1,108 @@
+package io.baris.petclinic.dropwizard.health;
+
+import com.codahale.metrics.MetricRegistry;
+import io.baris.petclinic.dropwizard.system.HealthConfig;
+import io.baris.petclinic.dropwizard.testing.AppBootstrapExtension;
+import io.baris.petclinic.dropwizard.testing.PostgreExtension;
+import io.baris.petclinic.dropwizard.testing.TestUtils;
+import io.dropwizard.db.DataSourceFactory;
+import org.jdbi.v3.core.statement.SqlLogger;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.Response;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static javax.ws.rs.core.Response.Status.OK;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HealthIntegrationTest {
+
+    @RegisterExtension
+    @Order(0)
+    public final static PostgreExtension postgre = new PostgreExtension(TestUtils.TEST_CONFIG);
+
+    @RegisterExtension
+    @Order(1)
+    public final static AppBootstrapExtension app = new AppBootstrapExtension(TestUtils.TEST_CONFIG, postgre.getDatabaseUrl());
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void readiness_ReportsDatabaseHealthOnceWarmedUp() {
+        // act
+        var response = awaitReadiness();
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(OK);
+        var body = response.readEntity(new GenericType<Map<String, Object>>() {
+        });
+        assertThat(body).containsEntry("healthy", true);
+        var checks = (Map<String, Object>) body.get("checks");
+        assertThat((Map<String, Object>) checks.get("lifecycle")).containsEntry("healthy", true);
+        assertThat((Map<String, Object>) checks.get("database"))
+            .containsEntry("healthy", true)
+            .containsKeys("activeConnections", "maxConnections", "validationMillis", "errorRatio");
+    }
+
+    @Test
+    public void liveness_Success() {
+        // act
+        var response = app.client()
+            .target(getTargetUrl())
+            .path("admin/health/live")
+            .request()
+            .get();
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(OK);
+    }
+
+    @Test
+    public void check_UnreachableDatabaseIsUnhealthy() throws Exception {
+        // arrange
+        var database = new DataSourceFactory();
+        database.setDriverClass("org.postgresql.Driver");
+        database.setUrl("jdbc:postgresql://localhost:1/mydb");
+        var metrics = new MetricRegistry();
+        var dataSource = database.build(metrics, "unreachable");
+        var executor = Executors.newSingleThreadExecutor();
+        var healthCheck = new DatabaseHealthCheck(
+            dataSource, "SELECT 1", new StatementErrorRate(SqlLogger.NOP_SQL_LOGGER, metrics), new HealthConfig(), executor
+        );
+
+        // act
+        var result = healthCheck.execute();
+
+        // assert
+        assertThat(result.isHealthy()).isFalse();
+        assertThat(result.getMessage()).contains("refused");
+        assertThat(result.getDetails()).containsKeys("validationMillis", "errorRatio");
+        executor.shutdownNow();
+        dataSource.stop();
+    }
+
+    private Response awaitReadiness() {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            var response = app.client()
+                .target(getTargetUrl())
+                .path("admin/health/ready")
+                .request()
+                .get();
+            if (response.getStatus() == OK.getStatusCode() || System.nanoTime() > deadline) {
+                return response;
+            }
+            response.close();
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+    }
+
+    private String getTargetUrl() {
+        return "http://localhost:%d".formatted(app.getLocalPort());
+    }
+}
@@ -0,0 +1,84 @@
+package io.baris.petclinic.dropwizard.load;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram of latencies in microseconds.
+ * <p>
+ * Values below 128 are exact, larger ones fall into buckets of 1/64 of their power of two,
+ * so percentiles are accurate to about 1.5% up to an hour.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_COUNT = SUB_COUNT / 2;
+    private static final long MAX_MICROS = 3_600_000_000L;
+    private static final int SIZE = indexOf(MAX_MICROS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(SIZE);
+
+    public void record(final long micros) {
+        counts.incrementAndGet(indexOf(Math.max(0, Math.min(micros, MAX_MICROS))));
+    }
+
+    public void add(final LatencyHistogram other) {
+        for (int i = 0; i < SIZE; i++) {
+            counts.addAndGet(i, other.counts.get(i));
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < SIZE; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile, 0 when nothing was recorded
+     */
+    public long getPercentile(final double percentile) {
+        var total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        var rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < SIZE; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return upperBoundOf(i);
+            }
+        }
+        return MAX_MICROS;
+    }
+
+    public long getMax() {
+        for (int i = SIZE - 1; i >= 0; i--) {
+            if (counts.get(i) > 0) {
+                return upperBoundOf(i);
+            }
+        }
+        return 0;
+    }
+
+    static int indexOf(final long micros) {
+        if (micros < SUB_COUNT) {
+            return (int) micros;
+        }
+        // shift so that the value lands in [HALF_COUNT, SUB_COUNT)
+        var shift = 63 - Long.numberOfLeadingZeros(micros) - (SUB_BITS - 1);
+        return SUB_COUNT + (shift - 1) * HALF_COUNT + (int) ((micros >> shift) - HALF_COUNT);
+    }
+
+    static long upperBoundOf(final int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        var shift = (index - SUB_COUNT) / HALF_COUNT + 1;
+        var sub = (long) (index - SUB_COUNT) % HALF_COUNT + HALF_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,50 @@
+package io.baris.petclinic.dropwizard.load;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesWithinBucketPrecision() {
+        // arrange
+        var histogram = new LatencyHistogram();
+
+        // act
+        for (long micros = 1; micros <= 100_000; micros++) {
+            histogram.record(micros);
+        }
+
+        // assert
+        assertThat(histogram.getCount()).isEqualTo(100_000);
+        assertThat(histogram.getPercentile(50)).isCloseTo(50_000, within(800L));
+        assertThat(histogram.getPercentile(99)).isCloseTo(99_000, within(1_600L));
+        assertThat(histogram.getPercentile(99.9)).isCloseTo(99_900, within(1_600L));
+        assertThat(histogram.getMax()).isCloseTo(100_000, within(1_600L));
+    }
+
+    @Test
+    public void bucketsCoverEveryValue() {
+        // act & assert
+        for (long micros = 0; micros < 1_000_000; micros += 7) {
+            var index = LatencyHistogram.indexOf(micros);
+            assertThat(LatencyHistogram.upperBoundOf(index)).isGreaterThanOrEqualTo(micros);
+            if (index > 0) {
+                assertThat(LatencyHistogram.upperBoundOf(index - 1)).isLessThan(micros);
+            }
+        }
+    }
+
+    @Test
+    public void emptyHistogram() {
+        // act
+        var histogram = new LatencyHistogram();
+
+        // assert
+        assertThat(histogram.getCount()).isZero();
+        assertThat(histogram.getPercentile(99)).isZero();
+        assertThat(histogram.getMax()).isZero();
+    }
+}
@@ -0,0 +1,31 @@
+package io.baris.petclinic.dropwizard.load;
+
+import lombok.Value;
+
+import java.util.Random;
+
+/**
+ * Ids of the pets and vets seeded for a load run
+ */
+@Value
+public class LoadData {
+
+    public static final String[] SPECIALTIES = {
+        "anesthesia", "cardiology", "dentistry", "dermatology", "oncology", "radiology", "surgery"
+    };
+
+    int[] petIds;
+    int[] vetIds;
+
+    public int randomPetId(final Random random) {
+        return petIds[random.nextInt(petIds.length)];
+    }
+
+    public int randomVetId(final Random random) {
+        return vetIds[random.nextInt(vetIds.length)];
+    }
+
+    public String randomSpecialty(final Random random) {
+        return SPECIALTIES[random.nextInt(SPECIALTIES.length)];
+    }
+}
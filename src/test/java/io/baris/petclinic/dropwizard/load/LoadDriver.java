@@ -0,0 +1,233 @@
+package io.baris.petclinic.dropwizard.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.baris.petclinic.dropwizard.PetclinicApplication;
+import io.baris.petclinic.dropwizard.pet.model.CreatePetRequest;
+import io.baris.petclinic.dropwizard.pet.model.Species;
+import io.baris.petclinic.dropwizard.system.PetclinicConfiguration;
+import io.baris.petclinic.dropwizard.vet.model.CreateVetRequest;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.testing.ConfigOverride;
+import io.dropwizard.testing.DropwizardTestSupport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static io.baris.petclinic.dropwizard.system.PetClinicUtils.resourceFilePath;
+
+/**
+ * Drives a configurable mix of clinic traffic against the application and reports throughput,
+ * latency percentiles and errors.
+ * <p>
+ * Without {@code load.url} the application is started in-process against {@code load.databaseUrl},
+ * like the integration tests do. Run with {@code mvn test -Ploadtest}, see {@link LoadDriverConfig}
+ * for the {@code load.*} settings.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class LoadDriver {
+
+    private static final String LOAD_CONFIG = "classpath:load-config.yml";
+
+    private final LoadDriverConfig config;
+    private final String baseUrl;
+    private final ObjectMapper mapper = Jackson.newObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    public static void main(final String[] args) throws Exception {
+        var config = LoadDriverConfig.fromSystemProperties();
+
+        DropwizardTestSupport<PetclinicConfiguration> app = null;
+        var baseUrl = config.getUrl();
+        if (baseUrl.isEmpty()) {
+            app = new DropwizardTestSupport<>(
+                PetclinicApplication.class,
+                resourceFilePath(LOAD_CONFIG),
+                ConfigOverride.config("database.url", config.getDatabaseUrl())
+            );
+            app.before();
+            baseUrl = "http://localhost:%d".formatted(app.getLocalPort());
+        }
+
+        try {
+            var report = new LoadDriver(config, baseUrl).run();
+            report.print(System.out, config.describe());
+            report.writeCsv(Path.of(config.getReport()), config.describe());
+            log.info("Load report written to {}", config.getReport());
+        } finally {
+            if (app != null) {
+                app.after();
+            }
+        }
+        System.exit(0);
+    }
+
+    public LoadReport run() throws IOException, InterruptedException {
+        var data = seed();
+        log.info("Seeded {} pets and {} vets, running {}", config.getPets(), config.getVets(), config.describe());
+
+        var start = System.nanoTime();
+        var measureStart = start + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+        var measureEnd = measureStart + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        var report = new LoadReport(config.getMix().keySet(), measureStart, measureEnd);
+
+        if (config.getModel() == LoadDriverConfig.Model.CLOSED) {
+            runClosed(data, report, measureEnd);
+        } else {
+            runOpen(data, report, start, measureEnd);
+        }
+        return report;
+    }
+
+    private void runClosed(
+        final LoadData data,
+        final LoadReport report,
+        final long end
+    ) throws InterruptedException {
+        var users = new ArrayList<Thread>();
+        for (int i = 0; i < config.getUsers(); i++) {
+            var random = new Random(config.getSeed() + i);
+            var user = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    var operation = pick(random);
+                    var request = operation.request(baseUrl, data, random);
+                    var start = System.nanoTime();
+                    try {
+                        var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        report.record(operation, start, response.statusCode());
+                    } catch (IOException e) {
+                        report.recordFailure(operation, start, e.getClass().getSimpleName());
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (config.getThinkMillis() > 0) {
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(config.getThinkMillis()));
+                    }
+                }
+            }, "load-user-" + i);
+            users.add(user);
+            user.start();
+        }
+        for (var user : users) {
+            user.join();
+        }
+    }
+
+    private void runOpen(
+        final LoadData data,
+        final LoadReport report,
+        final long start,
+        final long end
+    ) throws InterruptedException {
+        var random = new Random(config.getSeed());
+        var interval = (long) (TimeUnit.SECONDS.toNanos(1) / config.getRate());
+        var outstanding = new Semaphore(config.getMaxOutstanding());
+
+        for (long i = 0; ; i++) {
+            // requests are due at fixed times, latencies are measured from when they were due
+            var intendedStart = start + i * interval;
+            if (intendedStart >= end) {
+                break;
+            }
+            while (System.nanoTime() < intendedStart) {
+                LockSupport.parkNanos(intendedStart - System.nanoTime());
+            }
+
+            var operation = pick(random);
+            if (!outstanding.tryAcquire()) {
+                report.recordFailure(operation, intendedStart, "dropped");
+                continue;
+            }
+            client
+                .sendAsync(operation.request(baseUrl, data, random), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    outstanding.release();
+                    if (error != null) {
+                        report.recordFailure(operation, intendedStart, error.getClass().getSimpleName());
+                    } else {
+                        report.record(operation, intendedStart, response.statusCode());
+                    }
+                });
+        }
+        if (!outstanding.tryAcquire(config.getMaxOutstanding(), 30, TimeUnit.SECONDS)) {
+            log.warn("Requests were still outstanding at the end of the run");
+        }
+    }
+
+    private Operation pick(final Random random) {
+        var mix = config.getMix();
+        var total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        var ticket = random.nextInt(total);
+        for (var entry : mix.entrySet()) {
+            ticket -= entry.getValue();
+            if (ticket < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Mix is empty");
+    }
+
+    private LoadData seed() throws IOException, InterruptedException {
+        var random = new Random(config.getSeed());
+        // names are unique across runs against the same database
+        var run = Long.toString(System.currentTimeMillis(), 36);
+
+        var petIds = new int[config.getPets()];
+        for (int i = 0; i < petIds.length; i++) {
+            petIds[i] = create("/pets", CreatePetRequest.builder()
+                .name("load-%s-pet-%d".formatted(run, i))
+                .age(1 + random.nextInt(15))
+                .species(Species.values()[random.nextInt(Species.values().length)])
+                .build());
+        }
+
+        var vetIds = new int[config.getVets()];
+        for (int i = 0; i < vetIds.length; i++) {
+            vetIds[i] = create("/vets", CreateVetRequest.builder()
+                .name("load-%s-vet-%d".formatted(run, i))
+                .specialties(randomSpecialties(random))
+                .build());
+        }
+        return new LoadData(petIds, vetIds);
+    }
+
+    private static Set<String> randomSpecialties(final Random random) {
+        var specialties = new HashSet<String>();
+        var count = 1 + random.nextInt(3);
+        while (specialties.size() < count) {
+            specialties.add(LoadData.SPECIALTIES[random.nextInt(LoadData.SPECIALTIES.length)]);
+        }
+        return specialties;
+    }
+
+    private int create(final String path, final Object body) throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .header("Content-Type", "application/json")
+            .PUT(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)))
+            .build();
+        var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Seeding %s failed with %d: %s".formatted(
+                path, response.statusCode(), response.body()
+            ));
+        }
+        return mapper.readTree(response.body()).get("id").asInt();
+    }
+}
@@ -0,0 +1,88 @@
+package io.baris.petclinic.dropwizard.load;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Settings of a load run, read from {@code load.*} system properties
+ */
+@Value
+@Builder
+public class LoadDriverConfig {
+
+    public static final String DEFAULT_MIX =
+        "get_pet=30,get_vet=15,list_pets=5,list_vets=5,vets_by_specialty=10,pet_visits=15,make_visit=20";
+
+    public enum Model {
+        // a fixed number of users, each sending its next request once the previous one is answered
+        CLOSED,
+        // requests arrive at a fixed rate no matter how fast they are answered
+        OPEN
+    }
+
+    // base url of a running application, the application is started locally when empty
+    String url;
+    String databaseUrl;
+    Model model;
+    int users;
+    double rate;
+    int maxOutstanding;
+    long thinkMillis;
+    long warmupSeconds;
+    long durationSeconds;
+    Map<Operation, Integer> mix;
+    int pets;
+    int vets;
+    long seed;
+    String report;
+
+    public static LoadDriverConfig fromSystemProperties() {
+        return LoadDriverConfig.builder()
+            .url(System.getProperty("load.url", ""))
+            .databaseUrl(System.getProperty("load.databaseUrl", "jdbc:postgresql://localhost:5432/mydb"))
+            .model(Model.valueOf(System.getProperty("load.model", "closed").toUpperCase(Locale.ROOT)))
+            .users(Integer.getInteger("load.users", 32))
+            .rate(Double.parseDouble(System.getProperty("load.rate", "500")))
+            .maxOutstanding(Integer.getInteger("load.maxOutstanding", 1000))
+            .thinkMillis(Long.getLong("load.thinkMillis", 0))
+            .warmupSeconds(Long.getLong("load.warmupSeconds", 10))
+            .durationSeconds(Long.getLong("load.durationSeconds", 30))
+            .mix(parseMix(System.getProperty("load.mix", DEFAULT_MIX)))
+            .pets(Integer.getInteger("load.pets", 200))
+            .vets(Integer.getInteger("load.vets", 50))
+            .seed(Long.getLong("load.seed", 42))
+            .report(System.getProperty("load.report", "target/load-report.csv"))
+            .build();
+    }
+
+    static Map<Operation, Integer> parseMix(final String mix) {
+        var weights = new EnumMap<Operation, Integer>(Operation.class);
+        for (var entry : mix.split(",")) {
+            var parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + entry);
+            }
+            var weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Mix has no operations: " + mix);
+        }
+        return weights;
+    }
+
+    public String describe() {
+        var load = model == Model.CLOSED
+            ? "users=%d thinkMillis=%d".formatted(users, thinkMillis)
+            : "rate=%s/s maxOutstanding=%d".formatted(rate, maxOutstanding);
+        return "model=%s %s warmup=%ds duration=%ds pets=%d vets=%d seed=%d mix=%s".formatted(
+            model.name().toLowerCase(Locale.ROOT), load, warmupSeconds, durationSeconds, pets, vets, seed, mix
+        );
+    }
+}
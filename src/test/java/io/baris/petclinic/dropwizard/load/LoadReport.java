@@ -0,0 +1,153 @@
+package io.baris.petclinic.dropwizard.load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and errors of the measured part of a load run.
+ * <p>
+ * Latencies are taken from the intended start of a request, so that a stalled server shows up
+ * in the percentiles instead of silently lowering the request rate. The CSV columns and the
+ * operation order are fixed, so that reports of different runs can be diffed.
+ */
+public class LoadReport {
+
+    private static final String HEADER = "operation,requests,errors,throughput_per_s,p50_ms,p99_ms,p999_ms,max_ms";
+
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> requests = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Map<String, LongAdder> errorsByCause = new ConcurrentHashMap<>();
+    private final long measureStart;
+    private final long measureEnd;
+
+    public LoadReport(
+        final Iterable<Operation> operations,
+        final long measureStart,
+        final long measureEnd
+    ) {
+        operations.forEach(operation -> {
+            latencies.put(operation, new LatencyHistogram());
+            requests.put(operation, new LongAdder());
+            errors.put(operation, new LongAdder());
+        });
+        this.measureStart = measureStart;
+        this.measureEnd = measureEnd;
+    }
+
+    public void record(
+        final Operation operation,
+        final long intendedStart,
+        final int status
+    ) {
+        if (!isMeasured(intendedStart)) {
+            return;
+        }
+        requests.get(operation).increment();
+        latencies.get(operation).record((System.nanoTime() - intendedStart) / 1000);
+        if (status >= 400) {
+            recordError(operation, String.valueOf(status));
+        }
+    }
+
+    public void recordFailure(
+        final Operation operation,
+        final long intendedStart,
+        final String cause
+    ) {
+        if (isMeasured(intendedStart)) {
+            requests.get(operation).increment();
+            recordError(operation, cause);
+        }
+    }
+
+    public void print(final PrintStream out, final String description) {
+        out.println("# " + description);
+        out.printf("%-18s %10s %8s %12s %10s %10s %10s %10s%n",
+            "operation", "requests", "errors", "per second", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        rows().forEach(row -> out.printf("%-18s %10d %8d %12.1f %10.3f %10.3f %10.3f %10.3f%n",
+            row.operation, row.requests, row.errors, row.throughput, row.p50, row.p99, row.p999, row.max));
+        new TreeMap<>(errorsByCause).forEach((cause, count) -> out.printf("# errors %s: %d%n", cause, count.sum()));
+    }
+
+    public void writeCsv(final Path path, final String description) throws IOException {
+        var lines = new ArrayList<String>();
+        lines.add("# " + description);
+        lines.add(HEADER);
+        rows().forEach(row -> lines.add(String.format(Locale.ROOT, "%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f",
+            row.operation, row.requests, row.errors, row.throughput, row.p50, row.p99, row.p999, row.max)));
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Files.write(path, lines);
+    }
+
+    private boolean isMeasured(final long intendedStart) {
+        return intendedStart >= measureStart && intendedStart < measureEnd;
+    }
+
+    private void recordError(final Operation operation, final String cause) {
+        errors.get(operation).increment();
+        errorsByCause.computeIfAbsent(operation.name().toLowerCase(Locale.ROOT) + " " + cause, key -> new LongAdder())
+            .increment();
+    }
+
+    private ArrayList<Row> rows() {
+        var seconds = (measureEnd - measureStart) / 1e9;
+        var rows = new ArrayList<Row>();
+        var total = new LatencyHistogram();
+        long totalRequests = 0;
+        long totalErrors = 0;
+        for (var operation : latencies.keySet()) {
+            var histogram = latencies.get(operation);
+            var operationRequests = requests.get(operation).sum();
+            var operationErrors = errors.get(operation).sum();
+            rows.add(new Row(
+                operation.name().toLowerCase(Locale.ROOT), histogram, operationRequests, operationErrors, seconds
+            ));
+            total.add(histogram);
+            totalRequests += operationRequests;
+            totalErrors += operationErrors;
+        }
+        rows.add(new Row("total", total, totalRequests, totalErrors, seconds));
+        return rows;
+    }
+
+    private static class Row {
+
+        final String operation;
+        final long requests;
+        final long errors;
+        final double throughput;
+        final double p50;
+        final double p99;
+        final double p999;
+        final double max;
+
+        Row(
+            final String operation,
+            final LatencyHistogram histogram,
+            final long requests,
+            final long errors,
+            final double seconds
+        ) {
+            this.operation = operation;
+            this.requests = requests;
+            this.errors = errors;
+            this.throughput = (requests - errors) / seconds;
+            this.p50 = histogram.getPercentile(50) / 1000.0;
+            this.p99 = histogram.getPercentile(99) / 1000.0;
+            this.p999 = histogram.getPercentile(99.9) / 1000.0;
+            this.max = histogram.getMax() / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package io.baris.petclinic.dropwizard.load;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Instant;
+import java.util.Random;
+
+/**
+ * Requests of the clinic traffic mix
+ */
+public enum Operation {
+
+    GET_PET {
+        @Override
+        HttpRequest request(final String baseUrl, final LoadData data, final Random random) {
+            return get(baseUrl + "/pets/" + data.randomPetId(random));
+        }
+    },
+    GET_VET {
+        @Override
+        HttpRequest request(final String baseUrl, final LoadData data, final Random random) {
+            return get(baseUrl + "/vets/" + data.randomVetId(random));
+        }
+    },
+    LIST_PETS {
+        @Override
+        HttpRequest request(final String baseUrl, final LoadData data, final Random random) {
+            return get(baseUrl + "/pets");
+        }
+    },
+    LIST_VETS {
+        @Override
+        HttpRequest request(final String baseUrl, final LoadData data, final Random random) {
+            return get(baseUrl + "/vets");
+        }
+    },
+    VETS_BY_SPECIALTY {
+        @Override
+        HttpRequest request(final String baseUrl, final LoadData data, final Random random) {
+            return get(baseUrl + "/vets?match=any&specialty=" + data.randomSpecialty(random));
+        }
+    },
+    PET_VISITS {
+        @Override
+        HttpRequest request(final String baseUrl, final LoadData data, final Random random) {
+            return get(baseUrl + "/visits/pets/" + data.randomPetId(random));
+        }
+    },
+    MAKE_VISIT {
+        @Override
+        HttpRequest request(final String baseUrl, final LoadData data, final Random random) {
+            var body = """
+                {"date": "%s", "treatment": "check-up"}""".formatted(Instant.now());
+            return HttpRequest
+                .newBuilder(URI.create(
+                    "%s/visits/pets/%d/vets/%d".formatted(baseUrl, data.randomPetId(random), data.randomVetId(random))
+                ))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        }
+    };
+
+    abstract HttpRequest request(String baseUrl, LoadData data, Random random);
+
+    private static HttpRequest get(final String url) {
+        return HttpRequest.newBuilder(URI.create(url)).GET().build();
+    }
+}
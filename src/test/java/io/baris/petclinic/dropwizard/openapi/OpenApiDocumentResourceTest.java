@@ -0,0 +1,36 @@
+package io.baris.petclinic.dropwizard.openapi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static io.baris.petclinic.dropwizard.openapi.OpenApiDocumentResource.acceptsGzip;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OpenApiDocumentResourceTest {
+
+    @Test
+    public void acceptsGzip_WhenGivenPositiveQuality() {
+        // arrange
+        var headers = List.of("gzip", "deflate, GZIP;q=0.5", "br;q=1.0, *;q=0.1");
+
+        // act
+        var accepted = headers.stream().map(OpenApiDocumentResource::acceptsGzip).toList();
+
+        // assert
+        assertThat(accepted).containsOnly(true);
+    }
+
+    @Test
+    public void acceptsGzip_FailWhenRefusedOrMissing() {
+        // arrange
+        var headers = List.of("identity", "gzip;q=0", "gzip; q=0.000, *", "*;q=0", "gzip;q=high");
+
+        // act
+        var accepted = headers.stream().map(OpenApiDocumentResource::acceptsGzip).toList();
+
+        // assert
+        assertThat(accepted).containsOnly(false);
+        assertThat(acceptsGzip(null)).isFalse();
+    }
+}
@@ -1,12 +1,15 @@
 package io.baris.petclinic.dropwizard.pet;
 
 import io.baris.petclinic.dropwizard.pet.model.Pet;
+import io.baris.petclinic.dropwizard.pet.model.PetHistory;
+import io.baris.petclinic.dropwizard.pet.model.PetHistoryVisit;
 import io.baris.petclinic.dropwizard.pet.model.UpdatePetRequest;
 import io.baris.petclinic.dropwizard.pet.model.CreatePetRequest;
 import io.baris.petclinic.dropwizard.pet.model.Species;
 import io.baris.petclinic.dropwizard.testing.AppBootstrapExtension;
 import io.baris.petclinic.dropwizard.testing.DbResetExtension;
 import io.baris.petclinic.dropwizard.testing.PostgreExtension;
+import io.dropwizard.jackson.Jackson;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -14,12 +17,16 @@ import org.junit.jupiter.api.extension.RegisterExtension;
 
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Response;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
 
 import static io.baris.petclinic.dropwizard.testing.TestUtils.TEST_CONFIG;
 import static io.baris.petclinic.dropwizard.testing.TestUtils.UNPROCESSIBLE_ENTITY;
+import static io.baris.petclinic.dropwizard.testing.TestUtils.patch;
 import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
 import static javax.ws.rs.core.Response.Status.NOT_FOUND;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @Slf4j
 public class PetIntegrationTest {
@@ -89,6 +96,31 @@ public class PetIntegrationTest {
         assertThat(sofi.getSpecies()).isEqualTo(Species.PARROT);
     }
 
+    @Test
+    public void getPet_ReflectsChangeMadeByOtherNode() throws InterruptedException {
+        // arrange
+        postgre.addPet("Charlie", 18, Species.PARROT);
+        var pet = postgre.getPet("Charlie");
+        assertThat(pet).isPresent();
+        var target = app.client()
+            .target(getTargetUrl())
+            .path("pets")
+            .path(String.valueOf(pet.get().getId()));
+        assertThat(target.request().get(Pet.class).getAge()).isEqualTo(18);
+
+        // act
+        postgre.getJdbi().useHandle(handle -> handle.execute("UPDATE pets SET age = 19 WHERE id = ?", pet.get().getId()));
+
+        // assert
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        var age = 18;
+        while (age != 19 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            age = target.request().get(Pet.class).getAge();
+        }
+        assertThat(age).isEqualTo(19);
+    }
+
     @Test
     public void getPet_FailWhenNotFound() {
         // act
@@ -103,6 +135,81 @@ public class PetIntegrationTest {
         assertThat(response.getStatusInfo()).isEqualTo(NOT_FOUND);
     }
 
+    @Test
+    public void getPetHistory_Success() {
+        // arrange
+        postgre.addVet("Magnus", "surgery", "dentistry");
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var magnus = postgre.getVet("Magnus").orElseThrow();
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        var firstDate = Instant.parse("2018-11-30T18:35:24.00Z");
+        var lastDate = Instant.parse("2019-02-01T09:00:00.00Z");
+        postgre.addPetVisit(sofi, magnus, lastDate, "checkup");
+        postgre.addPetVisit(sofi, magnus, firstDate, "flu");
+
+        // act
+        var history = app.client()
+            .target(getTargetUrl())
+            .path("pets")
+            .path(String.valueOf(sofi.getId()))
+            .path("history")
+            .request()
+            .get(PetHistory.class);
+
+        // assert
+        assertThat(history.getPet()).isEqualTo(sofi);
+        assertThat(history.getVisitCount()).isEqualTo(2);
+        assertThat(history.getLastVisit()).isEqualTo(lastDate);
+        assertThat(history.getVisits())
+            .extracting(PetHistoryVisit::getDate, PetHistoryVisit::getTreatment, PetHistoryVisit::getVetName)
+            .containsExactly(tuple(firstDate, "flu", "Magnus"), tuple(lastDate, "checkup", "Magnus"));
+        assertThat(history.getVisits().get(0).getSpecialties()).containsExactly("dentistry", "surgery");
+    }
+
+    @Test
+    public void getPetHistory_BuildsMissingHistoryFromVisits() {
+        // arrange
+        postgre.addVet("Magnus");
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var magnus = postgre.getVet("Magnus").orElseThrow();
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        postgre.getJdbi().useHandle(handle -> handle.execute(
+            "INSERT INTO visits (pet_id, vet_id, date, treatment) VALUES (?, ?, '2018-11-30 18:35:24', 'flu')",
+            sofi.getId(), magnus.getId()
+        ));
+        var target = app.client()
+            .target(getTargetUrl())
+            .path("pets")
+            .path(String.valueOf(sofi.getId()))
+            .path("history");
+        assertThat(target.request().get(PetHistory.class).getVisitCount()).isEqualTo(1);
+
+        // act
+        postgre.addPetVisit(sofi, magnus, Instant.parse("2019-02-01T09:00:00.00Z"), "checkup");
+        var history = target.request().get(PetHistory.class);
+
+        // assert
+        assertThat(history.getVisitCount()).isEqualTo(2);
+        assertThat(history.getVisits())
+            .extracting(PetHistoryVisit::getTreatment)
+            .containsExactly("flu", "checkup");
+    }
+
+    @Test
+    public void getPetHistory_FailWhenNotFound() {
+        // act
+        var response = app.client()
+            .target(getTargetUrl())
+            .path("pets")
+            .path("100")
+            .path("history")
+            .request()
+            .get();
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(NOT_FOUND);
+    }
+
     @Test
     public void createPet_Success() {
         // act
@@ -318,6 +425,113 @@ public class PetIntegrationTest {
             .isEqualTo(UNPROCESSIBLE_ENTITY);
     }
 
+    @Test
+    public void patchPet_UpdatesOnlyGivenFields() throws Exception {
+        // arrange
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+
+        // act
+        var response = patch(getTargetUrl() + "/pets/" + sofi.getId(), """
+            {"age": 3}""");
+
+        // assert
+        assertThat(response.statusCode()).isEqualTo(Response.Status.OK.getStatusCode());
+        var patched = Jackson.newObjectMapper().readValue(response.body(), Pet.class);
+        assertThat(patched.getName()).isEqualTo("Sofi");
+        assertThat(patched.getAge()).isEqualTo(3);
+        assertThat(patched.getSpecies()).isEqualTo(Species.CAT);
+
+        // verify DB changes
+        assertThat(postgre.getPet("Sofi")).hasValue(patched);
+    }
+
+    @Test
+    public void patchPet_FailWhenNameRemoved() {
+        // arrange
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+
+        // act
+        var response = patch(getTargetUrl() + "/pets/" + sofi.getId(), """
+            {"name": null}""");
+
+        // assert
+        assertThat(response.statusCode()).isEqualTo(UNPROCESSIBLE_ENTITY);
+        assertThat(postgre.getPet("Sofi")).hasValue(sofi);
+    }
+
+    @Test
+    public void patchPet_FailWhenNotFound() {
+        // act
+        var response = patch(getTargetUrl() + "/pets/1", """
+            {"age": 3}""");
+
+        // assert
+        assertThat(response.statusCode()).isEqualTo(NOT_FOUND.getStatusCode());
+    }
+
+    @Test
+    public void deletePet_FreesName() {
+        // arrange
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        var target = app.client()
+            .target(getTargetUrl())
+            .path("pets");
+
+        // act
+        var response = target.path(String.valueOf(sofi.getId())).request().delete();
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(Response.Status.NO_CONTENT);
+        assertThat(target.path(String.valueOf(sofi.getId())).request().get().getStatusInfo()).isEqualTo(NOT_FOUND);
+        assertThat(target.request().get(Pet[].class)).isEmpty();
+        assertThat(target.path(String.valueOf(sofi.getId())).request().delete().getStatusInfo()).isEqualTo(NOT_FOUND);
+
+        postgre.addPet("Sofi", 4, Species.DOG);
+        assertThat(postgre.getPet("Sofi")).hasValueSatisfying(pet -> assertThat(pet.getAge()).isEqualTo(4));
+    }
+
+    @Test
+    public void restorePet_Success() {
+        // arrange
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        var target = app.client()
+            .target(getTargetUrl())
+            .path("pets")
+            .path(String.valueOf(sofi.getId()));
+        target.request().delete();
+
+        // act
+        var restored = target.path("restore").request().post(Entity.json(""), Pet.class);
+
+        // assert
+        assertThat(restored).isEqualTo(sofi);
+        assertThat(target.request().get(Pet.class)).isEqualTo(sofi);
+        assertThat(target.path("restore").request().post(Entity.json("")).getStatusInfo()).isEqualTo(NOT_FOUND);
+    }
+
+    @Test
+    public void restorePet_FailWhenNameTaken() {
+        // arrange
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        var target = app.client()
+            .target(getTargetUrl())
+            .path("pets")
+            .path(String.valueOf(sofi.getId()));
+        target.request().delete();
+        postgre.addPet("Sofi", 4, Species.DOG);
+
+        // act
+        var response = target.path("restore").request().post(Entity.json(""));
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(Response.Status.CONFLICT);
+    }
+
     private String getTargetUrl() {
         return "http://localhost:%d".formatted(app.getLocalPort());
     }
@@ -0,0 +1,70 @@
+package io.baris.petclinic.dropwizard.purge;
+
+import io.baris.petclinic.dropwizard.pet.model.Species;
+import io.baris.petclinic.dropwizard.system.SchemaMigrator;
+import io.baris.petclinic.dropwizard.testing.DbResetExtension;
+import io.baris.petclinic.dropwizard.testing.PostgreExtension;
+import io.baris.petclinic.dropwizard.testing.TestUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeletedRowPurgerIntegrationTest {
+
+    @RegisterExtension
+    @Order(0)
+    public final static PostgreExtension postgre = new PostgreExtension(TestUtils.TEST_CONFIG);
+
+    @RegisterExtension
+    public DbResetExtension dbReset = new DbResetExtension(postgre.getJdbi());
+
+    @BeforeAll
+    public static void migrateSchema() {
+        SchemaMigrator.migrate(postgre.getJdbi(), "classpath:database/migrations");
+    }
+
+    @Test
+    public void purge_RemovesRowsPastRetentionInBatches() {
+        // arrange
+        postgre.addVet("Magnus");
+        var magnus = postgre.getVet("Magnus").orElseThrow();
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        postgre.addPet("Lucky", 5, Species.DOG);
+        var lucky = postgre.getPet("Lucky").orElseThrow();
+        postgre.addPet("Charlie", 18, Species.PARROT);
+        postgre.addPetVisit(sofi, magnus, Instant.parse("2024-01-10T10:00:00Z"), "flu");
+        postgre.addPetVisit(lucky, magnus, Instant.parse("2024-02-10T10:00:00Z"), "parasites");
+        postgre.addPetVisit(lucky, magnus, Instant.parse("2024-03-10T10:00:00Z"), "checkup");
+
+        postgre.getJdbi().useHandle(handle -> {
+            handle.execute("UPDATE pets SET deleted_at = now() - INTERVAL '40 days' WHERE name = 'Sofi'");
+            handle.execute("UPDATE pets SET deleted_at = now() - INTERVAL '1 day' WHERE name = 'Lucky'");
+            handle.execute("UPDATE visits SET deleted_at = now() - INTERVAL '40 days' WHERE treatment = 'checkup'");
+        });
+        var purger = new DeletedRowPurger(postgre.getJdbi(), Duration.ofDays(30), 1, Clock.systemUTC());
+
+        // act
+        var purged = purger.purge();
+
+        // assert, the pet deleted recently can still be restored
+        assertThat(purged).isEqualTo(2);
+        var pets = postgre.getJdbi().withHandle(handle -> handle
+            .select("SELECT name FROM pets ORDER BY name")
+            .mapTo(String.class)
+            .list());
+        assertThat(pets).containsExactly("Charlie", "Lucky");
+        var visits = postgre.getJdbi().withHandle(handle -> handle
+            .select("SELECT treatment FROM visits")
+            .mapTo(String.class)
+            .list());
+        assertThat(visits).containsExactly("parasites");
+    }
+}
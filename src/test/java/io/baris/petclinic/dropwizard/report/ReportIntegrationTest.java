@@ -0,0 +1,211 @@
+package io.baris.petclinic.dropwizard.report;
+
+import io.baris.petclinic.dropwizard.pet.model.Species;
+import io.baris.petclinic.dropwizard.report.model.SpecialtyTreatment;
+import io.baris.petclinic.dropwizard.report.model.VetAveragePetAge;
+import io.baris.petclinic.dropwizard.report.model.VetWeekVisits;
+import io.baris.petclinic.dropwizard.report.model.VetWorkloadReport;
+import io.baris.petclinic.dropwizard.testing.AppBootstrapExtension;
+import io.baris.petclinic.dropwizard.testing.DbResetExtension;
+import io.baris.petclinic.dropwizard.testing.PostgreExtension;
+import io.baris.petclinic.dropwizard.testing.TestUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.ws.rs.client.WebTarget;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.temporal.TemporalAdjusters.previousOrSame;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
+
+@Slf4j
+public class ReportIntegrationTest {
+
+    @RegisterExtension
+    @Order(0)
+    public final static PostgreExtension postgre = new PostgreExtension(TestUtils.TEST_CONFIG);
+
+    @RegisterExtension
+    @Order(1)
+    public final static AppBootstrapExtension app = new AppBootstrapExtension(TestUtils.TEST_CONFIG, postgre.getDatabaseUrl());
+
+    @RegisterExtension
+    public DbResetExtension dbReset = new DbResetExtension(postgre.getJdbi());
+
+    @Test
+    public void getVetWorkload_Success() {
+        // arrange
+        postgre.addVet("Magnus", "surgery", "dentistry");
+        postgre.addVet("Linda", "dentistry");
+        postgre.addPet("Sofi", 2, Species.CAT);
+        postgre.addPet("Bob", 4, Species.DOG);
+        var magnus = postgre.getVet("Magnus").orElseThrow();
+        var linda = postgre.getVet("Linda").orElseThrow();
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        var bob = postgre.getPet("Bob").orElseThrow();
+
+        postgre.addPetVisit(sofi, magnus, Instant.parse("2018-11-27T10:00:00Z"), "flu");
+        postgre.addPetVisit(bob, magnus, Instant.parse("2018-11-28T10:00:00Z"), "flu");
+        postgre.addPetVisit(sofi, magnus, Instant.parse("2018-12-04T10:00:00Z"), "checkup");
+        postgre.addPetVisit(bob, linda, Instant.parse("2018-12-04T11:00:00Z"), "teeth cleaning");
+
+        // act
+        var report = vetWorkload("2018-11-27", "2018-12-05")
+            .request()
+            .get(VetWorkloadReport.class);
+
+        // assert
+        var firstWeek = LocalDate.parse("2018-11-26");
+        var secondWeek = LocalDate.parse("2018-12-03");
+        assertThat(report.getFrom()).isEqualTo(firstWeek);
+        assertThat(report.getTo()).isEqualTo(LocalDate.parse("2018-12-10"));
+        assertThat(report.getVisitsPerVetPerWeek()).containsExactly(
+            new VetWeekVisits(firstWeek, magnus.getId(), 2),
+            new VetWeekVisits(secondWeek, magnus.getId(), 1),
+            new VetWeekVisits(secondWeek, linda.getId(), 1)
+        );
+        assertThat(report.getTopTreatmentsPerSpecialty()).containsExactly(
+            new SpecialtyTreatment("dentistry", "flu", 2),
+            new SpecialtyTreatment("dentistry", "checkup", 1),
+            new SpecialtyTreatment("dentistry", "teeth cleaning", 1),
+            new SpecialtyTreatment("surgery", "flu", 2),
+            new SpecialtyTreatment("surgery", "checkup", 1)
+        );
+        assertThat(report.getAveragePetAgePerVet())
+            .extracting(VetAveragePetAge::getVetId, VetAveragePetAge::getVisits)
+            .containsExactly(tuple(magnus.getId(), 3L), tuple(linda.getId(), 1L));
+        assertThat(report.getAveragePetAgePerVet().get(0).getAveragePetAge()).isCloseTo(8 / 3.0, within(0.001));
+        assertThat(report.getAveragePetAgePerVet().get(1).getAveragePetAge()).isCloseTo(4.0, within(0.001));
+    }
+
+    @Test
+    public void getVetWorkload_KeepsClosedWeeksAndRecomputesCurrentWeek() {
+        // arrange
+        postgre.addVet("Magnus");
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var magnus = postgre.getVet("Magnus").orElseThrow();
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        var closedWeek = Instant.parse("2019-03-05T10:00:00Z");
+        var today = LocalDate.now(ZoneOffset.UTC);
+        postgre.addPetVisit(sofi, magnus, closedWeek, "flu");
+        postgre.addPetVisit(sofi, magnus, Instant.now(), "flu");
+        var target = vetWorkload("2019-03-04", today.plusDays(1).toString());
+        target.request().get(VetWorkloadReport.class);
+
+        // act
+        postgre.getJdbi().useTransaction(handle -> {
+            // without a notification the closed week stays as it was aggregated
+            handle.execute("SET LOCAL petclinic.skip_cache_invalidation = on");
+            handle.execute(
+                "INSERT INTO visits (pet_id, vet_id, date, treatment) VALUES (?, ?, ?, 'flu')",
+                sofi.getId(), magnus.getId(), closedWeek
+            );
+        });
+        postgre.addPetVisit(sofi, magnus, Instant.now(), "flu");
+        var report = target.request().get(VetWorkloadReport.class);
+
+        // assert
+        assertThat(report.getVisitsPerVetPerWeek())
+            .extracting(VetWeekVisits::getWeek, VetWeekVisits::getVisits)
+            .containsExactly(
+                tuple(LocalDate.parse("2019-03-04"), 1L),
+                tuple(today.with(previousOrSame(DayOfWeek.MONDAY)), 2L)
+            );
+    }
+
+    @Test
+    public void getVetWorkload_EvictsClosedWeekOfChangedVisit() throws InterruptedException {
+        // arrange
+        postgre.addVet("Magnus");
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var magnus = postgre.getVet("Magnus").orElseThrow();
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        var closedWeek = Instant.parse("2019-04-02T10:00:00Z");
+        postgre.addPetVisit(sofi, magnus, closedWeek, "flu");
+        var target = vetWorkload("2019-04-01", "2019-04-07");
+        target.request().get(VetWorkloadReport.class);
+
+        // act
+        postgre.addPetVisit(sofi, magnus, closedWeek, "checkup");
+
+        // assert
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        var visits = 1L;
+        while (visits != 2 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            visits = target.request().get(VetWorkloadReport.class).getVisitsPerVetPerWeek().get(0).getVisits();
+        }
+        assertThat(visits).isEqualTo(2);
+    }
+
+    @Test
+    public void getVetWorkload_CountsPetAgeAtVisit() {
+        // arrange
+        postgre.addVet("Magnus");
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var magnus = postgre.getVet("Magnus").orElseThrow();
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        postgre.addPetVisit(sofi, magnus, Instant.parse("2019-05-07T10:00:00Z"), "flu");
+        postgre.getJdbi().useHandle(handle -> handle.execute("UPDATE pets SET age = 5 WHERE id = ?", sofi.getId()));
+        postgre.addPetVisit(sofi, magnus, Instant.parse("2019-05-08T10:00:00Z"), "checkup");
+
+        // act
+        var report = vetWorkload("2019-05-06", "2019-05-12")
+            .request()
+            .get(VetWorkloadReport.class);
+
+        // assert
+        assertThat(report.getAveragePetAgePerVet()).hasSize(1);
+        assertThat(report.getAveragePetAgePerVet().get(0).getAveragePetAge()).isCloseTo(3.5, within(0.001));
+    }
+
+    @Test
+    public void getVetWorkload_FailWhenPeriodEndsBeforeItStarts() {
+        // act
+        var response = vetWorkload("2018-12-05", "2018-11-27")
+            .request()
+            .get();
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(BAD_REQUEST);
+    }
+
+    @Test
+    public void getVetWorkload_FailWhenPeriodIsMissing() {
+        // act
+        var response = app.client()
+            .target(getTargetUrl())
+            .path("reports")
+            .path("vet-workload")
+            .request()
+            .get();
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(BAD_REQUEST);
+    }
+
+    private WebTarget vetWorkload(
+        final String from,
+        final String to
+    ) {
+        return app.client()
+            .target(getTargetUrl())
+            .path("reports")
+            .path("vet-workload")
+            .queryParam("from", from)
+            .queryParam("to", to);
+    }
+
+    private String getTargetUrl() {
+        return "http://localhost:%d".formatted(app.getLocalPort());
+    }
+}
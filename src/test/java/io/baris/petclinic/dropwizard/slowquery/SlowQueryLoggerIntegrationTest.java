@@ -0,0 +1,169 @@
+package io.baris.petclinic.dropwizard.slowquery;
+
+import io.baris.petclinic.dropwizard.pet.PetDao;
+import io.baris.petclinic.dropwizard.pet.model.CreatePet;
+import io.baris.petclinic.dropwizard.pet.model.Species;
+import io.baris.petclinic.dropwizard.system.SchemaMigrator;
+import io.baris.petclinic.dropwizard.system.SlowQueryConfig;
+import io.baris.petclinic.dropwizard.testing.DbResetExtension;
+import io.baris.petclinic.dropwizard.testing.PostgreExtension;
+import io.baris.petclinic.dropwizard.testing.TestUtils;
+import org.jdbi.v3.core.statement.SqlLogger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SlowQueryLoggerIntegrationTest {
+
+    @RegisterExtension
+    @Order(0)
+    public final static PostgreExtension postgre = new PostgreExtension(TestUtils.TEST_CONFIG);
+
+    @RegisterExtension
+    public DbResetExtension dbReset = new DbResetExtension(postgre.getJdbi());
+
+    private final SlowQueryLog slowQueries = new SlowQueryLog(10);
+
+    @BeforeAll
+    public static void migrateSchema() {
+        SchemaMigrator.migrate(postgre.getJdbi(), "classpath:database/migrations");
+    }
+
+    private void logEveryStatement() {
+        var config = new SlowQueryConfig();
+        config.setThresholdMillis(0);
+        // plans are captured right away instead of in the background
+        postgre.getJdbi().setSqlLogger(new SlowQueryLogger(
+            SqlLogger.NOP_SQL_LOGGER, config, slowQueries, postgre.getJdbi(), Runnable::run
+        ));
+    }
+
+    @AfterEach
+    public void stopLogging() {
+        postgre.getJdbi().setSqlLogger(SqlLogger.NOP_SQL_LOGGER);
+    }
+
+    @Test
+    public void logAfterExecution_CapturesAnalyzedPlanOfRead() {
+        // arrange
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        logEveryStatement();
+
+        // act
+        postgre.getJdbi().withExtension(PetDao.class, dao -> dao.getPet(sofi.getId()));
+
+        // assert
+        var entries = slowQueries.getEntries();
+        assertThat(entries).hasSize(1);
+        var slowQuery = entries.get(0);
+        assertThat(slowQuery.getName()).isEqualTo("PetDao.getPetBasic");
+        assertThat(slowQuery.getParameters()).contains(String.valueOf(sofi.getId()));
+        assertThat(slowQuery.getPlan()).contains("on pets", "actual time=", "Execution Time");
+    }
+
+    @Test
+    public void logAfterExecution_CapturesPlanWithArrayAndTextParameters() {
+        // arrange
+        postgre.addPet("Sofi's", 2, Species.CAT);
+        var sofi = postgre.getPet("Sofi's").orElseThrow();
+        logEveryStatement();
+
+        // act
+        var names = postgre.getJdbi().withHandle(handle -> handle
+            .createQuery("SELECT name FROM pets WHERE id = ANY(:ids) AND name = :name")
+            .bind("ids", new int[]{sofi.getId()})
+            .bind("name", "Sofi's")
+            .mapTo(String.class)
+            .list()
+        );
+
+        // assert
+        assertThat(names).containsExactly("Sofi's");
+        var entries = slowQueries.getEntries();
+        assertThat(entries).hasSize(1);
+        assertThat(entries.get(0).getPlan()).contains("on pets", "rows=1 loops=1", "Execution Time");
+    }
+
+    @Test
+    public void logAfterExecution_PlansWriteWithoutRunningItAgain() {
+        // arrange
+        logEveryStatement();
+
+        // act
+        postgre.getJdbi().withExtension(PetDao.class, dao -> dao.createPet(
+            CreatePet.builder().name("Sofi").age(2).species(Species.CAT).build()
+        ));
+
+        // assert
+        var insert = slowQueries.getEntries().stream()
+            .filter(slowQuery -> slowQuery.getName().equals("PetDao.createPet"))
+            .findFirst();
+        assertThat(insert).hasValueSatisfying(slowQuery -> {
+            assertThat(slowQuery.getPlan()).contains("Insert on pets");
+            assertThat(slowQuery.getPlan()).doesNotContain("actual time=");
+        });
+
+        // verify DB changes
+        var pets = postgre.getJdbi().withHandle(handle -> handle
+            .createQuery("SELECT count(*) FROM pets")
+            .mapTo(Integer.class)
+            .one()
+        );
+        assertThat(pets).isEqualTo(1);
+    }
+
+    @Test
+    public void logAfterExecution_PlansReadsWithSideEffectsWithoutRunningThemAgain() {
+        // arrange
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        logEveryStatement();
+
+        // act
+        postgre.getJdbi().useTransaction(handle -> handle.attach(PetDao.class).lockPet(sofi.getId()));
+        postgre.getJdbi().useHandle(handle -> {
+            handle.createQuery("SELECT 1 FROM pg_advisory_lock(?)").bind(0, 42L).mapTo(Integer.class).one();
+            handle.createQuery("SELECT pg_advisory_unlock(?)").bind(0, 42L).mapTo(Boolean.class).one();
+        });
+
+        // assert
+        var plans = slowQueries.getEntries().stream()
+            .filter(slowQuery -> slowQuery.getSql().contains("FOR UPDATE") || slowQuery.getSql().contains("advisory"))
+            .map(SlowQuery::getPlan)
+            .toList();
+        assertThat(plans).hasSize(3).allSatisfy(plan -> {
+            assertThat(plan).doesNotContain("Not captured", "actual time=");
+        });
+
+        // verify DB changes
+        var advisoryLocks = postgre.getJdbi().withHandle(handle -> handle
+            .createQuery("SELECT count(*) FROM pg_locks WHERE locktype = 'advisory'")
+            .mapTo(Integer.class)
+            .one()
+        );
+        assertThat(advisoryLocks).isZero();
+    }
+
+    @Test
+    public void logAfterExecution_CapturesPlanOncePerInterval() {
+        // arrange
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        logEveryStatement();
+
+        // act
+        postgre.getJdbi().withExtension(PetDao.class, dao -> dao.getPet(sofi.getId()));
+        postgre.getJdbi().withExtension(PetDao.class, dao -> dao.getPet(sofi.getId()));
+
+        // assert
+        var entries = slowQueries.getEntries();
+        assertThat(entries).hasSize(2);
+        assertThat(entries.get(0).getPlan()).isNull();
+        assertThat(entries.get(1).getPlan()).contains("Execution Time");
+    }
+}
@@ -0,0 +1,150 @@
+package io.baris.petclinic.dropwizard.system;
+
+import com.codahale.metrics.MetricRegistry;
+import org.jdbi.v3.core.ConnectionException;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.ServiceUnavailableException;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void execute_RejectsCallsAboveLimit() throws Exception {
+        // arrange
+        var config = new ConcurrencyLimitConfig();
+        config.setInitialLimit(2);
+        config.setMinLimit(2);
+        config.setMaxLimit(2);
+        var limiter = new ConcurrencyLimiter(config, new MetricRegistry());
+
+        var started = new CountDownLatch(2);
+        var release = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(2);
+        for (int i = 0; i < 2; i++) {
+            executor.submit(() -> limiter.execute(() -> {
+                started.countDown();
+                await(release);
+                return 1;
+            }));
+        }
+        started.await();
+
+        // act & assert
+        assertThatThrownBy(() -> limiter.execute(() -> 1))
+            .isInstanceOf(ServiceUnavailableException.class);
+        assertThat(limiter.getRejectedCount()).isEqualTo(1);
+
+        release.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(limiter.getInflight()).isZero();
+    }
+
+    @Test
+    public void execute_ShrinksLimitWhenLatencyGrows() {
+        // arrange
+        var limiter = new ConcurrencyLimiter(new ConcurrencyLimitConfig(), new MetricRegistry());
+        for (int i = 0; i < 50; i++) {
+            limiter.execute(() -> sleep(1));
+        }
+        var limitBefore = limiter.getLimit();
+
+        // act
+        for (int i = 0; i < 30; i++) {
+            limiter.execute(() -> sleep(15));
+        }
+
+        // assert
+        assertThat(limiter.getLimit()).isLessThan(limitBefore);
+    }
+
+    @Test
+    public void execute_GrowsLimitWhileLatencyIsStable() throws Exception {
+        // arrange
+        var limiter = new ConcurrencyLimiter(new ConcurrencyLimitConfig(), new MetricRegistry());
+        var limitBefore = limiter.getLimit();
+        var executor = Executors.newFixedThreadPool(16);
+
+        // act
+        for (int i = 0; i < 800; i++) {
+            executor.submit(() -> limiter.execute(() -> sleep(2)));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        // assert
+        assertThat(limiter.getLimit()).isGreaterThan(limitBefore);
+    }
+
+    @Test
+    public void execute_BacksOffWhenNoConnectionIsAvailable() {
+        // arrange
+        var limiter = new ConcurrencyLimiter(new ConcurrencyLimitConfig(), new MetricRegistry());
+        var limitBefore = limiter.getLimit();
+
+        // act
+        assertThatThrownBy(() -> limiter.execute(() -> {
+            throw new ConnectionException(new SQLException("Pool empty"));
+        })).isInstanceOf(ConnectionException.class);
+
+        // assert
+        assertThat(limiter.getLimit()).isLessThan(limitBefore);
+        assertThat(limiter.getInflight()).isZero();
+    }
+
+    @Test
+    public void execute_BoundsInflightCallsUnderOverload() throws Exception {
+        // arrange: a database that can only serve 4 queries at once
+        var config = new ConcurrencyLimitConfig();
+        config.setInitialLimit(8);
+        config.setMinLimit(2);
+        config.setMaxLimit(8);
+        var limiter = new ConcurrencyLimiter(config, new MetricRegistry());
+        var database = new Semaphore(4);
+        var executor = Executors.newFixedThreadPool(64);
+
+        // act
+        for (int i = 0; i < 2000; i++) {
+            executor.submit(() -> limiter.execute(() -> {
+                database.acquireUninterruptibly();
+                try {
+                    return sleep(2);
+                } finally {
+                    database.release();
+                }
+            }));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+
+        // assert
+        assertThat(limiter.getRejectedCount()).isGreaterThan(0);
+        assertThat(limiter.getLimit()).isLessThanOrEqualTo(8);
+        assertThat(limiter.getInflight()).isZero();
+    }
+
+    private static int sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 1;
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
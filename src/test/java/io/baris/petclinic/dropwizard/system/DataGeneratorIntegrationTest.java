@@ -0,0 +1,82 @@
+package io.baris.petclinic.dropwizard.system;
+
+import io.baris.petclinic.dropwizard.pet.model.Species;
+import io.baris.petclinic.dropwizard.testing.PostgreExtension;
+import io.baris.petclinic.dropwizard.testing.TestUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.SQLException;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DataGeneratorIntegrationTest {
+
+    @RegisterExtension
+    @Order(0)
+    public final static PostgreExtension postgre = new PostgreExtension(TestUtils.TEST_CONFIG);
+
+    private static final DataGenerator.Options OPTIONS = DataGenerator.Options.builder()
+        .pets(300)
+        .vets(20)
+        .years(2)
+        .visitsPerPetYear(1.5)
+        .until(Instant.parse("2025-01-01T00:00:00Z"))
+        .seed(7)
+        .truncate(true)
+        .build();
+
+    @BeforeAll
+    public static void migrateSchema() {
+        SchemaMigrator.migrate(postgre.getJdbi(), "classpath:database/migrations");
+    }
+
+    @Test
+    public void generate_SameSeedSameRows() throws SQLException {
+        // act
+        new DataGenerator(postgre.getJdbi(), OPTIONS).generate();
+        var first = checksum();
+        new DataGenerator(postgre.getJdbi(), OPTIONS).generate();
+        var second = checksum();
+
+        // assert
+        assertThat(second).isEqualTo(first);
+        assertThat(count("pets")).isEqualTo(300);
+        assertThat(count("vets")).isEqualTo(20);
+        assertThat(count("visits")).isGreaterThan(0);
+    }
+
+    @Test
+    public void generate_SequencesContinueAfterGeneratedRows() throws SQLException {
+        // arrange
+        new DataGenerator(postgre.getJdbi(), OPTIONS).generate();
+
+        // act
+        postgre.addPet("Sofi", 2, Species.CAT);
+
+        // assert
+        var sofi = postgre.getPet("Sofi");
+        assertThat(sofi).isPresent();
+        assertThat(sofi.get().getId()).isEqualTo(301);
+    }
+
+    private static String checksum() {
+        return postgre.getJdbi().withHandle(handle -> handle
+            .createQuery("""
+                SELECT md5(string_agg(concat_ws(',', v.pet_id, v.vet_id, v.date, v.treatment, p.name, p.species),
+                    ';' ORDER BY v.id))
+                FROM visits v JOIN pets p ON p.id = v.pet_id""")
+            .mapTo(String.class)
+            .one());
+    }
+
+    private static int count(final String table) {
+        return postgre.getJdbi().withHandle(handle -> handle
+            .createQuery("SELECT count(*) FROM " + table)
+            .mapTo(int.class)
+            .one());
+    }
+}
@@ -0,0 +1,112 @@
+package io.baris.petclinic.dropwizard.system;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<Integer, String> singleFlight = new SingleFlight<>("test", new MetricRegistry());
+
+    @Test
+    public void execute_CollapsesConcurrentCallsWithSameKey() {
+        // arrange
+        var callers = 16;
+        var databaseCalls = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(callers);
+
+        // act
+        var results = IntStream.range(0, callers)
+            .mapToObj(i -> CompletableFuture.supplyAsync(() -> singleFlight.execute(1, () -> {
+                databaseCalls.incrementAndGet();
+                // hold the call until every other caller joined it
+                awaitCoalesced(callers - 1);
+                return "Sofi";
+            }), executor))
+            .toList()
+            .stream()
+            .map(CompletableFuture::join)
+            .toList();
+        executor.shutdown();
+
+        // assert
+        assertThat(results).hasSize(callers).containsOnly("Sofi");
+        assertThat(databaseCalls).hasValue(1);
+        assertThat(singleFlight.getCallCount()).isEqualTo(1);
+        assertThat(singleFlight.getCoalescedCount()).isEqualTo(callers - 1);
+    }
+
+    @Test
+    public void execute_SharesFailureWithWaitingCallers() {
+        // arrange
+        var executor = Executors.newSingleThreadExecutor();
+        var failing = CompletableFuture.supplyAsync(() -> singleFlight.execute(1, () -> {
+            awaitCoalesced(1);
+            throw new IllegalStateException("Database is down");
+        }), executor);
+        awaitCalls(1);
+
+        // act & assert
+        assertThatThrownBy(() -> singleFlight.execute(1, () -> "Sofi"))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Database is down");
+        assertThatThrownBy(failing::join).hasCauseInstanceOf(IllegalStateException.class);
+        executor.shutdown();
+    }
+
+    @Test
+    public void execute_CallsAgainOnceDone() {
+        // act
+        singleFlight.execute(1, () -> "Sofi");
+        var result = singleFlight.execute(1, () -> "Sofia");
+
+        // assert
+        assertThat(result).isEqualTo("Sofia");
+        assertThat(singleFlight.getCallCount()).isEqualTo(2);
+        assertThat(singleFlight.getCoalescedCount()).isZero();
+    }
+
+    @Test
+    public void execute_DoesNotCollapseDifferentKeys() {
+        // act
+        var sofi = singleFlight.execute(1, () -> singleFlight.execute(2, () -> "Bob") + " and Sofi");
+
+        // assert
+        assertThat(sofi).isEqualTo("Bob and Sofi");
+        assertThat(singleFlight.getCallCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void execute_DoesNotJoinFlightOfOlderVersion() {
+        // act
+        var sofi = singleFlight.execute(1, 0, () -> singleFlight.execute(1, 1, () -> "Sofia") + " after Sofi");
+
+        // assert
+        assertThat(sofi).isEqualTo("Sofia after Sofi");
+        assertThat(singleFlight.getCallCount()).isEqualTo(2);
+        assertThat(singleFlight.getCoalescedCount()).isZero();
+    }
+
+    private void awaitCoalesced(final int count) {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.getCoalescedCount() < count && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    private void awaitCalls(final int count) {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.getCallCount() < count && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+}
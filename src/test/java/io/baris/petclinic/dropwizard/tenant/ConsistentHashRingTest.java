@@ -0,0 +1,46 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsistentHashRingTest {
+
+    private static final List<String> CLINICS = IntStream.range(0, 10_000)
+        .mapToObj(i -> "clinic" + i)
+        .toList();
+
+    @Test
+    public void get_AssignsKeysStably() {
+        // arrange
+        var ring = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+        var sameRing = new ConsistentHashRing(List.of("c", "a", "b"), 128);
+
+        // act
+        var assignments = CLINICS.stream().map(ring::get).toList();
+        var sameAssignments = CLINICS.stream().map(sameRing::get).toList();
+
+        // assert
+        assertThat(sameAssignments).isEqualTo(assignments);
+        assertThat(assignments).contains("a", "b", "c");
+    }
+
+    @Test
+    public void get_MovesOnlyTheShareOfAnAddedNode() {
+        // arrange
+        var ring = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+        var grownRing = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+
+        // act
+        var moved = CLINICS.stream()
+            .filter(clinic -> !ring.get(clinic).equals(grownRing.get(clinic)))
+            .toList();
+
+        // assert
+        assertThat(moved).allMatch(clinic -> grownRing.get(clinic).equals("d"));
+        assertThat(moved.size()).isBetween(CLINICS.size() / 8, CLINICS.size() * 3 / 8);
+    }
+}
@@ -0,0 +1,51 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InFlightRequestsTest {
+
+    @Test
+    public void awaitNone_ReturnsOnceLastRequestExits() throws Exception {
+        // arrange
+        var inFlight = new InFlightRequests();
+        inFlight.enter();
+        inFlight.enter();
+        var drained = CompletableFuture.supplyAsync(() -> {
+            try {
+                return inFlight.awaitNone(Duration.ofSeconds(10));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // act
+        inFlight.exit();
+        Thread.sleep(50);
+        var drainedEarly = drained.isDone();
+        inFlight.exit();
+
+        // assert
+        assertThat(drainedEarly).isFalse();
+        assertThat(drained.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void awaitNone_FailsWhenRequestOutlivesTimeout() throws Exception {
+        // arrange
+        var inFlight = new InFlightRequests();
+        inFlight.enter();
+
+        // act
+        var drained = inFlight.awaitNone(Duration.ofMillis(50));
+
+        // assert
+        assertThat(drained).isFalse();
+        assertThat(new InFlightRequests().awaitNone(Duration.ZERO)).isTrue();
+    }
+}
@@ -0,0 +1,278 @@
+package io.baris.petclinic.dropwizard.tenant;
+
+import com.codahale.metrics.MetricRegistry;
+import io.baris.petclinic.dropwizard.pet.model.CreatePetRequest;
+import io.baris.petclinic.dropwizard.pet.model.Pet;
+import io.baris.petclinic.dropwizard.pet.model.Species;
+import io.baris.petclinic.dropwizard.system.TenancyConfig;
+import io.baris.petclinic.dropwizard.testing.AppBootstrapExtension;
+import io.baris.petclinic.dropwizard.testing.PostgreExtension;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.testing.ConfigOverride;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.GenericType;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.baris.petclinic.dropwizard.testing.TestUtils.TENANCY_TEST_CONFIG;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static javax.ws.rs.core.Response.Status.OK;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TenantIntegrationTest {
+
+    private static final String SHARD_DATABASE = "mydb_shard2";
+    private static final AtomicInteger CLINICS = new AtomicInteger();
+
+    @RegisterExtension
+    @Order(0)
+    public final static PostgreExtension postgre = new PostgreExtension(TENANCY_TEST_CONFIG);
+
+    // second database on the same server standing in for another shard
+    private final static String shardUrl = createShardDatabase(postgre.getDatabaseUrl());
+
+    @RegisterExtension
+    @Order(1)
+    public final static AppBootstrapExtension app = new AppBootstrapExtension(
+        TENANCY_TEST_CONFIG,
+        postgre.getDatabaseUrl(),
+        ConfigOverride.config("tenancy.shards.second.url", shardUrl)
+    );
+
+    @Test
+    public void createTenant_Success() {
+        // arrange
+        var clinic = newClinicId();
+
+        // act
+        var output = runTask("create-tenant", clinic, null);
+
+        // assert
+        assertThat(output).startsWith("Clinic %s is on shard".formatted(clinic));
+        assertThat(shardOf(clinic)).isIn("primary", "second");
+        var schemaExists = shardJdbi(shardOf(clinic)).withHandle(handle -> handle
+            .select("SELECT to_regclass(?) IS NOT NULL", "clinic_%s.pets".formatted(clinic))
+            .mapTo(Boolean.class)
+            .one());
+        assertThat(schemaExists).isTrue();
+    }
+
+    @Test
+    public void getAllPets_IsolatesClinics() {
+        // arrange
+        var clinic = newClinicId();
+        runTask("create-tenant", clinic, null);
+        createPet(target().path("clinics").path(clinic), "Sofi");
+
+        // act
+        var byPath = target().path("clinics").path(clinic).path("pets").request().get(Pet[].class);
+        var byHeader = target().path("pets").request().header(TenantFilter.HEADER, clinic).get(Pet[].class);
+        var mainSchema = target().path("pets").request().get(Pet[].class);
+
+        // assert
+        assertThat(byPath).extracting(Pet::getName).containsExactly("Sofi");
+        assertThat(byHeader).extracting(Pet::getName).containsExactly("Sofi");
+        assertThat(mainSchema).extracting(Pet::getName).doesNotContain("Sofi");
+    }
+
+    @Test
+    public void getAllPets_UnknownClinic() {
+        // act
+        var response = target().path("clinics").path("unknown").path("pets").request().get();
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(NOT_FOUND);
+    }
+
+    @Test
+    public void rebalanceTenant_MovesClinicData() {
+        // arrange
+        var clinic = newClinicId();
+        runTask("create-tenant", clinic, null);
+        var clinicTarget = target().path("clinics").path(clinic);
+        var sofi = createPet(clinicTarget, "Sofi");
+        var source = shardOf(clinic);
+        var destination = source.equals("primary") ? "second" : "primary";
+
+        // act
+        var output = runTask("rebalance-tenant", clinic, destination);
+
+        // assert
+        assertThat(output).startsWith("Clinic %s is on shard %s".formatted(clinic, destination));
+        assertThat(shardOf(clinic)).isEqualTo(destination);
+
+        var moved = clinicTarget.path("pets").path(String.valueOf(sofi.getId())).request().get(Pet.class);
+        assertThat(moved.getName()).isEqualTo("Sofi");
+        var lucky = createPet(clinicTarget, "Lucky");
+        assertThat(lucky.getId()).isGreaterThan(sofi.getId());
+
+        var sourceSchemaExists = shardJdbi(source).withHandle(handle -> handle
+            .select("SELECT to_regnamespace(?) IS NOT NULL", "clinic_" + clinic)
+            .mapTo(Boolean.class)
+            .one());
+        assertThat(sourceSchemaExists).isFalse();
+    }
+
+    @Test
+    public void rebalanceTenant_FencesWritesRoutedToSourceByAnotherNode() throws Exception {
+        // arrange
+        var clinic = newClinicId();
+        runTask("create-tenant", clinic, null);
+        var clinicTarget = target().path("clinics").path(clinic);
+        createPet(clinicTarget, "Sofi");
+        var source = shardOf(clinic);
+        var destination = source.equals("primary") ? "second" : "primary";
+        var staleRoute = routeOnAnotherNode(clinic);
+
+        try (var early = staleRoute.open()) {
+            early.begin();
+            early.execute("INSERT INTO pets (name, age, species) VALUES ('Lucky', 3, 'CAT')");
+            var move = CompletableFuture.supplyAsync(() -> runTask("rebalance-tenant", clinic, destination));
+            awaitLockRequest(source, clinic, "ExclusiveLock");
+            var late = CompletableFuture.runAsync(() -> staleRoute.useHandle(handle ->
+                handle.execute("INSERT INTO pets (name, age, species) VALUES ('Rex', 3, 'DOG')")
+            ));
+            awaitLockRequest(source, clinic, "RowExclusiveLock");
+
+            // act
+            early.commit();
+            move.get(30, TimeUnit.SECONDS);
+
+            // assert
+            assertThatThrownBy(() -> late.get(30, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        }
+        assertThat(shardOf(clinic)).isEqualTo(destination);
+        var pets = clinicTarget.path("pets").request().get(new GenericType<List<Pet>>() { });
+        assertThat(pets).extracting(Pet::getName).containsExactlyInAnyOrder("Sofi", "Lucky");
+    }
+
+    private Pet createPet(
+        final WebTarget clinicTarget,
+        final String name
+    ) {
+        var createPetRequest = CreatePetRequest.builder()
+            .name(name)
+            .age(3)
+            .species(Species.CAT)
+            .build();
+        return clinicTarget.path("pets").request().put(Entity.json(createPetRequest), Pet.class);
+    }
+
+    private String runTask(
+        final String task,
+        final String clinic,
+        final String shard
+    ) {
+        var target = target().path("admin/tasks").path(task).queryParam("tenant", clinic);
+        if (shard != null) {
+            target = target.queryParam("shard", shard);
+        }
+        var response = target.request().post(Entity.text(""));
+        assertThat(response.getStatusInfo()).isEqualTo(OK);
+        return response.readEntity(String.class);
+    }
+
+    private String shardOf(final String clinic) {
+        return postgre.getJdbi().withHandle(handle -> handle
+            .select("SELECT shard FROM tenants WHERE id = ?", clinic)
+            .mapTo(String.class)
+            .one());
+    }
+
+    private Jdbi shardJdbi(final String shard) {
+        return shard.equals("primary") ? postgre.getJdbi() : Jdbi.create(shardUrl, "postgres", "sa");
+    }
+
+    /**
+     * Resolves the clinic through the router of another node, whose directory entry outlives the move
+     */
+    private Jdbi routeOnAnotherNode(final String clinic) {
+        var config = new TenancyConfig();
+        config.setDirectoryCacheSeconds(3_600);
+        var shards = Map.of(
+            "primary", otherNodeShard("primary", postgre.getDatabaseUrl()),
+            "second", otherNodeShard("second", shardUrl)
+        );
+        var clinicJdbi = new AtomicReference<Jdbi>();
+        var router = new TenantRouter(
+            new TenantDirectory(postgre.getJdbi(), Duration.ofHours(1)),
+            shards,
+            config,
+            (dataSource, schema) -> Jdbi.create(dataSource),
+            (schema, shard, jdbi) -> {
+                clinicJdbi.set(jdbi);
+                return new TenantServices(shard.getName(), null, null, null, null, new InFlightRequests(), () -> { });
+            },
+            null,
+            "classpath:database/migrations"
+        );
+        router.services(router.findTenant(clinic).orElseThrow());
+        return clinicJdbi.get();
+    }
+
+    private static Shard otherNodeShard(
+        final String name,
+        final String url
+    ) {
+        var factory = new DataSourceFactory();
+        factory.setDriverClass("org.postgresql.Driver");
+        factory.setUser("postgres");
+        factory.setPassword("sa");
+        factory.setUrl(url);
+        var dataSource = new ShardDataSource(factory.build(new MetricRegistry(), "other-node-" + name));
+        return new Shard(name, dataSource, Jdbi.create(dataSource), null);
+    }
+
+    private void awaitLockRequest(
+        final String shard,
+        final String clinic,
+        final String mode
+    ) throws InterruptedException {
+        var jdbi = shardJdbi(shard);
+        for (var attempt = 0; attempt < 1_000; attempt++) {
+            var waiting = jdbi.withHandle(handle -> handle
+                .select("""
+                    SELECT count(*)
+                    FROM pg_locks l
+                    JOIN pg_class c ON c.oid = l.relation
+                    JOIN pg_namespace n ON n.oid = c.relnamespace
+                    WHERE n.nspname = ? AND l.mode = ? AND NOT l.granted""", "clinic_" + clinic, mode)
+                .mapTo(Integer.class)
+                .one());
+            if (waiting > 0) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("No %s requested on the tables of clinic %s".formatted(mode, clinic));
+    }
+
+    private static String newClinicId() {
+        return "acme%d_%d".formatted(System.currentTimeMillis() % 100_000, CLINICS.incrementAndGet());
+    }
+
+    private static String createShardDatabase(final String databaseUrl) {
+        Jdbi.create(databaseUrl, "postgres", "sa").useHandle(handle -> {
+            handle.execute("DROP DATABASE IF EXISTS " + SHARD_DATABASE + " WITH (FORCE)");
+            handle.execute("CREATE DATABASE " + SHARD_DATABASE);
+        });
+        return databaseUrl.replace("/mydb", "/" + SHARD_DATABASE);
+    }
+
+    private WebTarget target() {
+        return app.client().target("http://localhost:%d".formatted(app.getLocalPort()));
+    }
+}
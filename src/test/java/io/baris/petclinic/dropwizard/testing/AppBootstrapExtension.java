@@ -6,6 +6,8 @@ import io.baris.petclinic.dropwizard.system.PetClinicUtils;
 import io.dropwizard.testing.ConfigOverride;
 import io.dropwizard.testing.junit5.DropwizardAppExtension;
 
+import java.util.stream.Stream;
+
 /**
  * Junit rule to start the application
  */
@@ -13,12 +15,14 @@ public class AppBootstrapExtension extends DropwizardAppExtension<PetclinicConfi
 
     public AppBootstrapExtension(
         final String configPath,
-        final String databaseUrl
+        final String databaseUrl,
+        final ConfigOverride... overrides
     ) {
         super(
             PetclinicApplication.class,
             PetClinicUtils.resourceFilePath(configPath),
-            ConfigOverride.config("database.url", databaseUrl)
+            Stream.concat(Stream.of(ConfigOverride.config("database.url", databaseUrl)), Stream.of(overrides))
+                .toArray(ConfigOverride[]::new)
         );
     }
 }
@@ -1,12 +1,20 @@
 package io.baris.petclinic.dropwizard.testing;
 
+import com.codahale.metrics.MetricRegistry;
+import io.baris.petclinic.dropwizard.archive.VisitArchive;
+import io.baris.petclinic.dropwizard.audit.AuditLog;
+import io.baris.petclinic.dropwizard.cache.TwoLevelCache;
 import io.baris.petclinic.dropwizard.pet.model.Pet;
 import io.baris.petclinic.dropwizard.pet.model.Species;
 import io.baris.petclinic.dropwizard.vet.model.Vet;
 import io.baris.petclinic.dropwizard.pet.PetManager;
 import io.baris.petclinic.dropwizard.pet.model.CreatePet;
+import io.baris.petclinic.dropwizard.system.ConcurrencyLimiter;
+import io.baris.petclinic.dropwizard.system.SingleFlight;
+import io.baris.petclinic.dropwizard.tracing.Tracer;
 import io.baris.petclinic.dropwizard.vet.VetManager;
 import io.baris.petclinic.dropwizard.vet.model.CreateVet;
+import io.baris.petclinic.dropwizard.visit.VisitBatcher;
 import io.baris.petclinic.dropwizard.visit.VisitManager;
 import io.baris.petclinic.dropwizard.visit.model.MakeVisit;
 import io.baris.petclinic.dropwizard.visit.model.Visit;
@@ -58,9 +66,20 @@ public class PostgreExtension implements BeforeAllCallback, AfterAllCallback {
         );
         this.jdbi.installPlugin(new SqlObjectPlugin());
 
-        this.vetManager = new VetManager(jdbi);
-        this.petManager = new PetManager(jdbi);
-        this.visitManager = new VisitManager(jdbi);
+        var limiter = ConcurrencyLimiter.unlimited();
+        var metrics = new MetricRegistry();
+        this.vetManager = new VetManager(
+            jdbi, limiter, TwoLevelCache.disabled("vet", Vet.class), new SingleFlight<>("vets", metrics),
+            AuditLog.disabled(), Tracer.noop()
+        );
+        this.petManager = new PetManager(
+            jdbi, limiter, TwoLevelCache.disabled("pet", Pet.class), new SingleFlight<>("pet", metrics),
+            AuditLog.disabled(), Tracer.noop()
+        );
+        this.visitManager = new VisitManager(
+            jdbi, limiter, VisitBatcher.disabled(), VisitArchive.none(), new SingleFlight<>("pet-visits", metrics),
+            AuditLog.disabled(), Tracer.noop()
+        );
     }
 
     public String getDatabaseUrl() {
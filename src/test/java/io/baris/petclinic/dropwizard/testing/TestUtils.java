@@ -1,14 +1,23 @@
 package io.baris.petclinic.dropwizard.testing;
 
+import io.baris.petclinic.dropwizard.system.MergePatch;
 import io.baris.petclinic.dropwizard.system.PetclinicConfiguration;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.representer.Representer;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
 import static io.baris.petclinic.dropwizard.system.PetClinicUtils.readFileToString;
 
 public class TestUtils {
 
     public static final String TEST_CONFIG = "classpath:test-config.yml";
+    public static final String TENANCY_TEST_CONFIG = "classpath:tenancy-test-config.yml";
     public static final int UNPROCESSIBLE_ENTITY = 422;
 
     public static PetclinicConfiguration loadConfig(final String path) {
@@ -18,4 +27,25 @@ public class TestUtils {
         return new Yaml(representer)
             .loadAs(readFileToString(path), PetclinicConfiguration.class);
     }
+
+    /**
+     * Sends a merge patch, the url connection behind the jersey client cannot send PATCH requests
+     */
+    public static HttpResponse<String> patch(
+        final String url,
+        final String patch
+    ) {
+        var request = HttpRequest.newBuilder(URI.create(url))
+            .header("Content-Type", MergePatch.MEDIA_TYPE)
+            .method("PATCH", HttpRequest.BodyPublishers.ofString(patch))
+            .build();
+        try {
+            return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,48 @@
+package io.baris.petclinic.dropwizard.tracing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TraceparentTest {
+
+    @Test
+    public void parse_Success() {
+        // act
+        var traceparent = Traceparent.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+
+        // assert
+        assertThat(traceparent).contains(
+            new Traceparent("4bf92f3577b34da6a3ce929d0e0e4736", "00f067aa0ba902b7", true)
+        );
+    }
+
+    @Test
+    public void parse_NotSampled() {
+        // act
+        var traceparent = Traceparent.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00");
+
+        // assert
+        assertThat(traceparent).hasValueSatisfying(parent -> assertThat(parent.sampled()).isFalse());
+    }
+
+    @Test
+    public void parse_AcceptsFieldsOfLaterVersions() {
+        // act
+        var traceparent = Traceparent.parse("01-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01-future");
+
+        // assert
+        assertThat(traceparent).isPresent();
+    }
+
+    @Test
+    public void parse_FailWhenInvalid() {
+        assertThat(Traceparent.parse(null)).isEmpty();
+        assertThat(Traceparent.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7")).isEmpty();
+        assertThat(Traceparent.parse("00-4BF92F3577B34DA6A3CE929D0E0E4736-00f067aa0ba902b7-01")).isEmpty();
+        assertThat(Traceparent.parse("00-00000000000000000000000000000000-00f067aa0ba902b7-01")).isEmpty();
+        assertThat(Traceparent.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01")).isEmpty();
+        assertThat(Traceparent.parse("ff-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01")).isEmpty();
+        assertThat(Traceparent.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01-extra")).isEmpty();
+    }
+}
@@ -0,0 +1,57 @@
+package io.baris.petclinic.dropwizard.vet;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpecialtyIndexTest {
+
+    @Test
+    public void findsVetsWithAllOrAnySpecialties() {
+        // arrange
+        var index = new SpecialtyIndex();
+        index.replaceAll(Map.of(
+            1, Set.of("radiology", "dentistry"),
+            2, Set.of("surgery", "dentistry"),
+            3, Set.of("surgery")
+        ));
+
+        // act & assert
+        assertThat(index.find(List.of("dentistry", "surgery"), true)).containsExactly(2);
+        assertThat(index.find(List.of("radiology", "surgery"), false)).containsExactly(1, 2, 3);
+        assertThat(index.find(List.of("dentistry", "cardiology"), true)).isEmpty();
+        assertThat(index.find(List.of("dentistry", "cardiology"), false)).containsExactly(1, 2);
+    }
+
+    @Test
+    public void putReplacesSpecialtiesOfVet() {
+        // arrange
+        var index = new SpecialtyIndex();
+        index.put(1, Set.of("radiology", "dentistry"));
+
+        // act
+        index.put(1, Set.of("surgery"));
+
+        // assert
+        assertThat(index.find(List.of("radiology"), false)).isEmpty();
+        assertThat(index.find(List.of("surgery"), false)).containsExactly(1);
+    }
+
+    @Test
+    public void removeDropsVet() {
+        // arrange
+        var index = new SpecialtyIndex();
+        index.put(1, Set.of("surgery"));
+        index.put(2, Set.of("surgery"));
+
+        // act
+        index.remove(1);
+
+        // assert
+        assertThat(index.find(List.of("surgery"), true)).containsExactly(2);
+    }
+}
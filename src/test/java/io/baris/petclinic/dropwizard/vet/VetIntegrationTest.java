@@ -6,6 +6,7 @@ import io.baris.petclinic.dropwizard.testing.PostgreExtension;
 import io.baris.petclinic.dropwizard.vet.model.CreateVetRequest;
 import io.baris.petclinic.dropwizard.vet.model.UpdateVetRequest;
 import io.baris.petclinic.dropwizard.vet.model.Vet;
+import io.dropwizard.jackson.Jackson;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -16,6 +17,7 @@ import java.util.Set;
 
 import static io.baris.petclinic.dropwizard.testing.TestUtils.TEST_CONFIG;
 import static io.baris.petclinic.dropwizard.testing.TestUtils.UNPROCESSIBLE_ENTITY;
+import static io.baris.petclinic.dropwizard.testing.TestUtils.patch;
 import static javax.ws.rs.core.Response.Status.*;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -57,6 +59,54 @@ public class VetIntegrationTest {
         assertThat(vets[1].getSpecialties()).isEqualTo(Set.of("radiology", "dentistry"));
     }
 
+    @Test
+    public void getVetsBySpecialty_MatchAll() {
+        // arrange
+        createVet("Magnus", "radiology", "dentistry");
+        createVet("Erica", "surgery", "dentistry");
+
+        // act
+        var response = app.client()
+            .target(getTargetUrl())
+            .path("vets")
+            .queryParam("specialty", "dentistry", "surgery")
+            .request()
+            .get();
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(OK);
+        var vets = response.readEntity(Vet[].class);
+
+        assertThat(vets).hasSize(1);
+        assertThat(vets[0].getName()).isEqualTo("Erica");
+    }
+
+    @Test
+    public void getVetsBySpecialty_MatchAny() {
+        // arrange
+        createVet("Magnus", "radiology", "dentistry");
+        createVet("Erica", "surgery");
+        createVet("Olof", "cardiology");
+
+        // act
+        var response = app.client()
+            .target(getTargetUrl())
+            .path("vets")
+            .queryParam("specialty", "radiology", "surgery")
+            .queryParam("match", "any")
+            .request()
+            .get();
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(OK);
+        var vets = response.readEntity(Vet[].class);
+
+        assertThat(vets).hasSize(2);
+        assertThat(vets[0].getName()).isEqualTo("Erica");
+        assertThat(vets[1].getName()).isEqualTo("Magnus");
+        assertThat(vets[1].getSpecialties()).isEqualTo(Set.of("radiology", "dentistry"));
+    }
+
     @Test
     public void getVet_Success() {
         // arrange
@@ -268,6 +318,84 @@ public class VetIntegrationTest {
             .isEqualTo(UNPROCESSIBLE_ENTITY);
     }
 
+    @Test
+    public void patchVet_AddsAndRemovesSpecialties() throws Exception {
+        // arrange
+        createVet("Magnus", "radiology", "dentistry");
+        var magnus = postgre.getVet("Magnus").orElseThrow();
+
+        // act
+        var response = patch(getTargetUrl() + "/vets/" + magnus.getId(), """
+            {"specialties": {"add": ["surgery"], "remove": ["dentistry"]}}""");
+
+        // assert
+        assertThat(response.statusCode()).isEqualTo(OK.getStatusCode());
+        var patched = Jackson.newObjectMapper().readValue(response.body(), Vet.class);
+        assertThat(patched.getName()).isEqualTo("Magnus");
+        assertThat(patched.getSpecialties()).isEqualTo(Set.of("radiology", "surgery"));
+
+        var target = app.client()
+            .target(getTargetUrl())
+            .path("vets");
+        assertThat(target.queryParam("specialty", "surgery").request().get(Vet[].class))
+            .extracting(Vet::getName)
+            .containsExactly("Magnus");
+        assertThat(target.queryParam("specialty", "dentistry").request().get(Vet[].class)).isEmpty();
+    }
+
+    @Test
+    public void patchVet_FailWhenAllSpecialtiesRemoved() {
+        // arrange
+        postgre.addVet("Magnus", "radiology");
+        var magnus = postgre.getVet("Magnus").orElseThrow();
+
+        // act
+        var response = patch(getTargetUrl() + "/vets/" + magnus.getId(), """
+            {"specialties": {"remove": ["radiology"]}}""");
+
+        // assert
+        assertThat(response.statusCode()).isEqualTo(UNPROCESSIBLE_ENTITY);
+    }
+
+    @Test
+    public void deleteVet_RemovesVetFromSpecialtySearch() {
+        // arrange
+        createVet("Magnus", "radiology");
+        createVet("Erica", "radiology");
+        var magnus = postgre.getVet("Magnus").orElseThrow();
+        var target = app.client()
+            .target(getTargetUrl())
+            .path("vets");
+
+        // act
+        var response = target.path(String.valueOf(magnus.getId())).request().delete();
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(NO_CONTENT);
+        assertThat(target.path(String.valueOf(magnus.getId())).request().get().getStatusInfo()).isEqualTo(NOT_FOUND);
+        var radiologists = target.queryParam("specialty", "radiology").request().get(Vet[].class);
+        assertThat(radiologists).extracting(Vet::getName).containsExactly("Erica");
+
+        var restored = target.path(String.valueOf(magnus.getId())).path("restore")
+            .request()
+            .post(Entity.json(""), Vet.class);
+        assertThat(restored.getSpecialties()).isEqualTo(Set.of("radiology"));
+        radiologists = target.queryParam("specialty", "radiology").request().get(Vet[].class);
+        assertThat(radiologists).extracting(Vet::getName).containsExactly("Erica", "Magnus");
+    }
+
+    private void createVet(final String name, final String... specialties) {
+        var createVetRequest = CreateVetRequest.builder()
+            .name(name)
+            .specialties(Set.of(specialties))
+            .build();
+        app.client()
+            .target(getTargetUrl())
+            .path("vets")
+            .request()
+            .put(Entity.json(createVetRequest), Vet.class);
+    }
+
     private String getTargetUrl() {
         return "http://localhost:%d".formatted(app.getLocalPort());
     }
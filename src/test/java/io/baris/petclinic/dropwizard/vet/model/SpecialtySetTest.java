@@ -0,0 +1,47 @@
+package io.baris.petclinic.dropwizard.vet.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpecialtySetTest {
+
+    private static final String[] NAMES = {null, "dentistry", "radiology", "surgery"};
+
+    @Test
+    public void equalsSetOfNames() {
+        // act
+        var specialties = new SpecialtySet(new short[]{1, 3}, NAMES);
+
+        // assert
+        assertThat(specialties).isEqualTo(Set.of("dentistry", "surgery"));
+        assertThat(specialties).containsExactly("dentistry", "surgery");
+        assertThat(specialties.contains("surgery")).isTrue();
+        assertThat(specialties.contains("radiology")).isFalse();
+    }
+
+    @Test
+    public void containsIds() {
+        // act
+        var specialties = new SpecialtySet(new short[]{1, 3}, NAMES);
+
+        // assert
+        assertThat(specialties.containsId((short) 3)).isTrue();
+        assertThat(specialties.containsId((short) 2)).isFalse();
+        assertThat(specialties.containsAllIds(new short[]{1, 3})).isTrue();
+        assertThat(specialties.containsAllIds(new short[]{1, 2})).isFalse();
+        assertThat(specialties.containsAllIds(new short[]{})).isTrue();
+    }
+
+    @Test
+    public void emptySet() {
+        // act
+        var specialties = new SpecialtySet(new short[0], NAMES);
+
+        // assert
+        assertThat(specialties).isEmpty();
+        assertThat(specialties).isEqualTo(Set.of());
+    }
+}
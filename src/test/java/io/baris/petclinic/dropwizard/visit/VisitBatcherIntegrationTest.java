@@ -0,0 +1,162 @@
+package io.baris.petclinic.dropwizard.visit;
+
+import com.codahale.metrics.MetricRegistry;
+import io.baris.petclinic.dropwizard.system.SchemaMigrator;
+import io.baris.petclinic.dropwizard.system.VisitBatchConfig;
+import io.baris.petclinic.dropwizard.testing.DbResetExtension;
+import io.baris.petclinic.dropwizard.testing.PostgreExtension;
+import io.baris.petclinic.dropwizard.testing.TestUtils;
+import io.baris.petclinic.dropwizard.visit.model.MakeVisit;
+import io.baris.petclinic.dropwizard.visit.model.Visit;
+import org.jdbi.v3.core.statement.UnableToExecuteStatementException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class VisitBatcherIntegrationTest {
+
+    @RegisterExtension
+    @Order(0)
+    public final static PostgreExtension postgre = new PostgreExtension(TestUtils.TEST_CONFIG);
+
+    @RegisterExtension
+    public DbResetExtension dbReset = new DbResetExtension(postgre.getJdbi());
+
+    private VisitBatcher batcher;
+
+    @BeforeAll
+    public static void migrateSchema() {
+        SchemaMigrator.migrate(postgre.getJdbi(), "classpath:database/migrations");
+    }
+
+    @BeforeEach
+    public void startBatcher() {
+        var config = new VisitBatchConfig();
+        config.setEnabled(true);
+        config.setMaxBatchSize(16);
+        config.setMaxDelayMillis(20);
+        batcher = new VisitBatcher(postgre.getJdbi(), config, new MetricRegistry());
+        batcher.start();
+    }
+
+    @AfterEach
+    public void stopBatcher() throws InterruptedException {
+        batcher.stop();
+    }
+
+    @Test
+    public void makeVisit_CallersGetTheirOwnVisit() {
+        // arrange
+        var executor = Executors.newFixedThreadPool(8);
+        var date = Instant.parse("2018-11-30T18:35:24.00Z");
+
+        // act
+        var futures = new ArrayList<CompletableFuture<Visit>>();
+        IntStream.range(0, 40).forEach(i -> futures.add(CompletableFuture.supplyAsync(
+            () -> batcher.makeVisit(makeVisit(1, i % 3, date, "treatment " + i)),
+            executor
+        )));
+        var visits = futures.stream().map(CompletableFuture::join).toList();
+        executor.shutdown();
+
+        // assert
+        IntStream.range(0, 40).forEach(i -> {
+            var visit = visits.get(i);
+            assertThat(visit.getId()).isGreaterThan(0);
+            assertThat(visit.getVetId()).isEqualTo(i % 3);
+            assertThat(visit.getTreatment()).isEqualTo("treatment " + i);
+            assertThat(visit.getDate()).isEqualTo(date);
+        });
+        assertThat(visits.stream().map(Visit::getId).distinct()).hasSize(40);
+
+        // verify DB changes
+        assertThat(postgre.getPetVisits(1)).hasSize(40);
+        var historyVisitCount = postgre.getJdbi().withHandle(handle -> handle
+            .createQuery("SELECT visit_count FROM pet_histories WHERE pet_id = 1")
+            .mapTo(Integer.class)
+            .one()
+        );
+        assertThat(historyVisitCount).isEqualTo(40);
+    }
+
+    @Test
+    public void makeVisit_InvalidVisitDoesNotFailOthers() {
+        // arrange
+        var executor = Executors.newFixedThreadPool(4);
+        var date = Instant.parse("2018-11-30T18:35:24.00Z");
+
+        // act
+        var valid = IntStream.range(0, 3)
+            .mapToObj(i -> CompletableFuture.supplyAsync(() -> batcher.makeVisit(makeVisit(1, 1, date, "flu")), executor))
+            .toList();
+        var invalid = CompletableFuture.supplyAsync(() -> batcher.makeVisit(makeVisit(1, 1, date, null)), executor);
+        executor.shutdown();
+
+        // assert
+        valid.forEach(future -> assertThat(future.join().getTreatment()).isEqualTo("flu"));
+        assertThatThrownBy(invalid::join).hasCauseInstanceOf(UnableToExecuteStatementException.class);
+
+        // verify DB changes
+        assertThat(postgre.getPetVisits(1)).hasSize(3);
+    }
+
+    @Test
+    public void makeVisit_WritesCollectedVisitsWhenInterrupted() throws Exception {
+        // arrange
+        batcher.stop();
+        var config = new VisitBatchConfig();
+        config.setEnabled(true);
+        config.setMaxDelayMillis(60_000);
+        batcher = new VisitBatcher(postgre.getJdbi(), config, new MetricRegistry());
+        batcher.start();
+        var executor = Executors.newFixedThreadPool(3);
+        var date = Instant.parse("2018-11-30T18:35:24.00Z");
+        var futures = IntStream.range(0, 3)
+            .mapToObj(i -> CompletableFuture.supplyAsync(() -> batcher.makeVisit(makeVisit(1, 1, date, "flu")), executor))
+            .toList();
+        executor.shutdown();
+        // the writer holds the visits while it waits for more to join them
+        Thread.sleep(500);
+
+        // act
+        Thread.getAllStackTraces().keySet().stream()
+            .filter(thread -> thread.getName().equals("visit-batcher"))
+            .forEach(Thread::interrupt);
+
+        // assert
+        for (var future : futures) {
+            assertThat(future.get(5, TimeUnit.SECONDS).getTreatment()).isEqualTo("flu");
+        }
+        assertThat(batcher.isEnabled()).isFalse();
+
+        // verify DB changes
+        assertThat(postgre.getPetVisits(1)).hasSize(3);
+    }
+
+    private static MakeVisit makeVisit(
+        final int petId,
+        final int vetId,
+        final Instant date,
+        final String treatment
+    ) {
+        return MakeVisit.builder()
+            .petId(petId)
+            .vetId(vetId)
+            .date(date)
+            .treatment(treatment)
+            .build();
+    }
+}
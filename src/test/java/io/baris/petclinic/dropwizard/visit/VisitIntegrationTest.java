@@ -1,10 +1,14 @@
 package io.baris.petclinic.dropwizard.visit;
 
+import io.baris.petclinic.dropwizard.pet.model.PetHistory;
+import io.baris.petclinic.dropwizard.pet.model.PetHistoryVisit;
 import io.baris.petclinic.dropwizard.pet.model.Species;
 import io.baris.petclinic.dropwizard.testing.AppBootstrapExtension;
 import io.baris.petclinic.dropwizard.testing.DbResetExtension;
 import io.baris.petclinic.dropwizard.testing.PostgreExtension;
 import io.baris.petclinic.dropwizard.testing.TestUtils;
+import io.baris.petclinic.dropwizard.tracing.Traceparent;
+import io.baris.petclinic.dropwizard.tracing.TracingFilter;
 import io.baris.petclinic.dropwizard.visit.model.MakeVisitRequest;
 import io.baris.petclinic.dropwizard.visit.model.Visit;
 import lombok.extern.slf4j.Slf4j;
@@ -13,11 +17,21 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.GenericType;
 import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
+import static io.baris.petclinic.dropwizard.idempotency.IdempotencyFilter.IDEMPOTENCY_KEY;
+import static io.baris.petclinic.dropwizard.idempotency.IdempotencyFilter.IDEMPOTENT_REPLAYED;
+import static java.util.stream.Collectors.toMap;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.NO_CONTENT;
 import static javax.ws.rs.core.Response.Status.OK;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.InstanceOfAssertFactories.map;
 
 @Slf4j
 public class VisitIntegrationTest {
@@ -77,6 +91,93 @@ public class VisitIntegrationTest {
         assertThat(visitInDb.getVetId()).isEqualTo(magnus.get().getId());
     }
 
+    @Test
+    public void makeVisit_ReplayedWhenRetriedWithSameIdempotencyKey() {
+        // arrange
+        postgre.addVet("Magnus");
+        var magnus = postgre.getVet("Magnus");
+        assertThat(magnus).isPresent();
+
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var sofi = postgre.getPet("Sofi");
+        assertThat(sofi).isPresent();
+
+        var makeVisitRequest = MakeVisitRequest.builder()
+            .date(Instant.parse("2018-11-30T18:35:24.00Z"))
+            .treatment("flu")
+            .build();
+        var target = app.client()
+            .target(getTargetUrl())
+            .path("visits")
+            .path("pets")
+            .path(String.valueOf(sofi.get().getId()))
+            .path("vets")
+            .path(String.valueOf(magnus.get().getId()));
+        var idempotencyKey = UUID.randomUUID().toString();
+
+        // act
+        var first = target
+            .request()
+            .header(IDEMPOTENCY_KEY, idempotencyKey)
+            .put(Entity.json(makeVisitRequest));
+        var retry = target
+            .request()
+            .header(IDEMPOTENCY_KEY, idempotencyKey)
+            .put(Entity.json(makeVisitRequest));
+
+        // assert
+        assertThat(first.getStatusInfo()).isEqualTo(OK);
+        assertThat(retry.getStatusInfo()).isEqualTo(OK);
+        assertThat(retry.getHeaderString(IDEMPOTENT_REPLAYED)).isEqualTo("true");
+        assertThat(retry.readEntity(Visit.class).getId()).isEqualTo(first.readEntity(Visit.class).getId());
+
+        // verify DB changes
+        var visitsInDb = postgre.getPetVisits(sofi.get().getId());
+        assertThat(visitsInDb).hasSize(1);
+    }
+
+    @Test
+    public void makeVisit_FailWhenIdempotencyKeyReusedForOtherRequest() {
+        // arrange
+        postgre.addVet("Magnus");
+        var magnus = postgre.getVet("Magnus");
+        assertThat(magnus).isPresent();
+
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var sofi = postgre.getPet("Sofi");
+        assertThat(sofi).isPresent();
+
+        var target = app.client()
+            .target(getTargetUrl())
+            .path("visits")
+            .path("pets")
+            .path(String.valueOf(sofi.get().getId()))
+            .path("vets")
+            .path(String.valueOf(magnus.get().getId()));
+        var idempotencyKey = UUID.randomUUID().toString();
+
+        target
+            .request()
+            .header(IDEMPOTENCY_KEY, idempotencyKey)
+            .put(Entity.json(MakeVisitRequest.builder()
+                .date(Instant.parse("2018-11-30T18:35:24.00Z"))
+                .treatment("flu")
+                .build()));
+
+        // act
+        var response = target
+            .request()
+            .header(IDEMPOTENCY_KEY, idempotencyKey)
+            .put(Entity.json(MakeVisitRequest.builder()
+                .date(Instant.parse("2018-12-30T18:35:24.00Z"))
+                .treatment("parasites")
+                .build()));
+
+        // assert
+        assertThat(response.getStatusInfo().getStatusCode()).isEqualTo(TestUtils.UNPROCESSIBLE_ENTITY);
+        assertThat(postgre.getPetVisits(sofi.get().getId())).hasSize(1);
+    }
+
     @Test
     public void makeVisit_FailWhenPetDoesNotExist() {
         // act
@@ -234,6 +335,109 @@ public class VisitIntegrationTest {
         assertThat(visit2.getTreatment()).isEqualTo("parasites");
     }
 
+    @Test
+    public void deleteVisit_RemovesVisitFromHistory() {
+        // arrange
+        postgre.addVet("Magnus");
+        var magnus = postgre.getVet("Magnus").orElseThrow();
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        postgre.addPetVisit(sofi, magnus, Instant.parse("2018-11-30T18:35:24.00Z"), "flu");
+        postgre.addPetVisit(sofi, magnus, Instant.parse("2019-04-15T09:30:00.00Z"), "parasites");
+        var flu = postgre.getPetVisits(sofi.getId()).stream()
+            .filter(visit -> visit.getTreatment().equals("flu"))
+            .findFirst()
+            .orElseThrow();
+        var target = app.client().target(getTargetUrl());
+        var historyTarget = target.path("pets").path(String.valueOf(sofi.getId())).path("history");
+        historyTarget.request().get(PetHistory.class);
+        // the history keeps the vet as it was at the time of the visit
+        postgre.getJdbi().useHandle(handle -> handle.execute("UPDATE vets SET name = 'Magnus Karl'"));
+
+        // act
+        var response = target.path("visits").path(String.valueOf(flu.getId())).request().delete();
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(NO_CONTENT);
+        var history = historyTarget.request().get(PetHistory.class);
+        assertThat(history.getVisitCount()).isEqualTo(1);
+        assertThat(history.getLastVisit()).isEqualTo(Instant.parse("2019-04-15T09:30:00.00Z"));
+        assertThat(history.getVisits())
+            .extracting(PetHistoryVisit::getTreatment, PetHistoryVisit::getVetName)
+            .containsExactly(tuple("parasites", "Magnus"));
+
+        var restored = target.path("visits").path(String.valueOf(flu.getId())).path("restore")
+            .request()
+            .post(Entity.json(""), Visit.class);
+        assertThat(restored.getTreatment()).isEqualTo("flu");
+        assertThat(postgre.getPetVisits(sofi.getId())).hasSize(2);
+        history = historyTarget.request().get(PetHistory.class);
+        assertThat(history.getVisitCount()).isEqualTo(2);
+        assertThat(history.getVisits())
+            .extracting(PetHistoryVisit::getTreatment, PetHistoryVisit::getVetName)
+            .containsExactly(tuple("flu", "Magnus Karl"), tuple("parasites", "Magnus"));
+    }
+
+    @Test
+    public void makeVisit_RecordsTraceOfStatements() {
+        // arrange
+        postgre.addVet("Magnus");
+        var magnus = postgre.getVet("Magnus");
+        assertThat(magnus).isPresent();
+
+        postgre.addPet("Sofi", 2, Species.CAT);
+        var sofi = postgre.getPet("Sofi");
+        assertThat(sofi).isPresent();
+
+        var traceId = "4bf92f3577b34da6a3ce929d0e0e4736";
+        var callerSpanId = "00f067aa0ba902b7";
+
+        // act
+        var makeVisitRequest = MakeVisitRequest.builder()
+            .date(Instant.parse("2018-11-30T18:35:24.00Z"))
+            .treatment("flu")
+            .build();
+        var response = app.client()
+            .target(getTargetUrl())
+            .path("visits")
+            .path("pets")
+            .path(String.valueOf(sofi.get().getId()))
+            .path("vets")
+            .path(String.valueOf(magnus.get().getId()))
+            .request()
+            .header(Traceparent.HEADER, "00-%s-%s-01".formatted(traceId, callerSpanId))
+            .put(Entity.json(makeVisitRequest));
+
+        // assert
+        assertThat(response.getStatusInfo()).isEqualTo(OK);
+        assertThat(response.getHeaderString(TracingFilter.TRACE_RESPONSE)).startsWith("00-" + traceId + "-");
+
+        var spans = app.client()
+            .target(getTargetUrl())
+            .path("admin")
+            .path("traces")
+            .queryParam("traceId", traceId)
+            .request()
+            .get(new GenericType<List<Map<String, Object>>>() {
+            });
+        var spansByName = spans.stream().collect(toMap(span -> (String) span.get("name"), span -> span, (a, b) -> a));
+        var serverSpan = spansByName.get("PUT /visits/pets/{petId}/vets/{vetId}");
+        assertThat(serverSpan).isNotNull();
+        assertThat(serverSpan.get("parentSpanId")).isEqualTo(callerSpanId);
+        assertThat(spansByName.get("VisitManager.makeVisit").get("parentSpanId")).isEqualTo(serverSpan.get("spanId"));
+
+        var insert = spansByName.get("VisitDao.createVisit");
+        assertThat(insert).isNotNull();
+        assertThat(insert.get("parentSpanId")).isEqualTo(spansByName.get("VisitManager.makeVisit").get("spanId"));
+        assertThat(insert)
+            .extractingByKey("attributes", map(String.class, Object.class))
+            .containsEntry("db.rows", 1)
+            .hasEntrySatisfying("db.statement", sql -> assertThat((String) sql).contains("INSERT INTO visits"));
+        assertThat(spansByName.get("VisitDao.getVisit"))
+            .extractingByKey("attributes", map(String.class, Object.class))
+            .containsEntry("db.rows", 1);
+    }
+
     private String getTargetUrl() {
         return "http://localhost:%d".formatted(app.getLocalPort());
     }
@@ -0,0 +1,93 @@
+package io.baris.petclinic.dropwizard.visit;
+
+import com.codahale.metrics.MetricRegistry;
+import io.baris.petclinic.dropwizard.archive.VisitArchive;
+import io.baris.petclinic.dropwizard.audit.AuditLog;
+import io.baris.petclinic.dropwizard.pet.model.Species;
+import io.baris.petclinic.dropwizard.system.ConcurrencyLimiter;
+import io.baris.petclinic.dropwizard.system.SchemaMigrator;
+import io.baris.petclinic.dropwizard.system.SingleFlight;
+import io.baris.petclinic.dropwizard.testing.DbResetExtension;
+import io.baris.petclinic.dropwizard.testing.PostgreExtension;
+import io.baris.petclinic.dropwizard.testing.TestUtils;
+import io.baris.petclinic.dropwizard.tracing.Tracer;
+import io.baris.petclinic.dropwizard.visit.model.MakeVisit;
+import io.baris.petclinic.dropwizard.visit.model.Visit;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VisitManagerIntegrationTest {
+
+    @RegisterExtension
+    @Order(0)
+    public final static PostgreExtension postgre = new PostgreExtension(TestUtils.TEST_CONFIG);
+
+    @RegisterExtension
+    public DbResetExtension dbReset = new DbResetExtension(postgre.getJdbi());
+
+    private SingleFlight<Integer, List<Visit>> petVisitLoads;
+    private VisitManager visitManager;
+
+    @BeforeAll
+    public static void migrateSchema() {
+        SchemaMigrator.migrate(postgre.getJdbi(), "classpath:database/migrations");
+    }
+
+    @BeforeEach
+    public void createManager() {
+        petVisitLoads = new SingleFlight<>("pet-visits", new MetricRegistry());
+        visitManager = new VisitManager(
+            postgre.getJdbi(),
+            ConcurrencyLimiter.unlimited(),
+            VisitBatcher.disabled(),
+            VisitArchive.none(),
+            petVisitLoads,
+            AuditLog.disabled(),
+            Tracer.noop()
+        );
+    }
+
+    @Test
+    public void getPetVisits_DoesNotJoinLoadStartedBeforeMakeVisit() throws Exception {
+        // arrange
+        postgre.addPet("Sofi", 3, Species.CAT);
+        postgre.addVet("Alice", "surgery");
+        var sofi = postgre.getPet("Sofi").orElseThrow();
+        var alice = postgre.getVet("Alice").orElseThrow();
+        var started = new CountDownLatch(1);
+        var release = new CompletableFuture<Void>();
+        var staleLoad = CompletableFuture.supplyAsync(() -> petVisitLoads.execute(sofi.getId(), 0, () -> {
+            started.countDown();
+            release.join();
+            return List.<Visit>of();
+        }));
+        started.await();
+
+        // act
+        visitManager.makeVisit(MakeVisit.builder()
+            .petId(sofi.getId())
+            .vetId(alice.getId())
+            .date(Instant.parse("2024-01-10T10:00:00Z"))
+            .treatment("checkup")
+            .build()
+        );
+        var visits = CompletableFuture.supplyAsync(() -> visitManager.getPetVisits(sofi.getId()))
+            .get(5, TimeUnit.SECONDS);
+        release.complete(null);
+
+        // assert
+        assertThat(visits).extracting(Visit::getTreatment).containsExactly("checkup");
+        assertThat(staleLoad.get(5, TimeUnit.SECONDS)).isEmpty();
+    }
+}
@@ -2,3 +2,4 @@ TRUNCATE TABLE vets;
 TRUNCATE TABLE pets;
 TRUNCATE TABLE visits;
 TRUNCATE TABLE vet_specialties;
+TRUNCATE TABLE pet_histories;